@@ -3,9 +3,16 @@ package de.persosim.simulator.apdu;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 
+import de.persosim.simulator.exception.ISO7816Exception;
 import de.persosim.simulator.test.PersoSimTestCase;
 import de.persosim.simulator.utils.HexString;
 
@@ -181,4 +188,111 @@ public class CommandApduTest extends PersoSimTestCase {
 		assertFalse(commandApdu.isNeZeroEncoded());
 	}
 
+	/**
+	 * Positive test case: the command data buffer is a read-only view on the
+	 * command data field.
+	 */
+	@Test
+	public void testGetCommandDataBuffer(){
+		CommandApdu commandApdu = createApduFromString("00800000|03|010203|00");
+		
+		//call mut
+		ByteBuffer commandData = commandApdu.getCommandDataBuffer();
+		
+		byte[] data = new byte[commandData.remaining()];
+		commandData.get(data);
+		assertArrayEquals(HexString.toByteArray("010203"), data);
+		assertTrue(commandData.isReadOnly());
+	}
+	
+	/**
+	 * Positive test case: the command data buffer is empty if no command data
+	 * is present.
+	 */
+	@Test
+	public void testGetCommandDataBuffer_NoData(){
+		CommandApdu commandApdu = createApduFromString("00800000|00");
+		
+		//call mut
+		assertEquals(0, commandApdu.getCommandDataBuffer().remaining());
+		assertNull(commandApdu.getCommandData());
+	}
+	
+	/**
+	 * Positive test case: the command data object container is parsed from
+	 * the command data field.
+	 */
+	@Test
+	public void testGetCommandDataObjectContainer(){
+		CommandApdu commandApdu = createApduFromString("00800000|05|7C03800101");
+		
+		//call mut
+		assertEquals("7C03800101", HexString.encode(commandApdu.getCommandDataObjectContainer().toByteArray()));
+		assertEquals("7C03800101", HexString.encode(commandApdu.getCommandData().toByteArray()));
+	}
+	
+	/**
+	 * Positive test case: the command data field is parsed only once, the same
+	 * container is returned on subsequent calls.
+	 */
+	@Test
+	public void testGetCommandDataObjectContainer_ParsedOnce(){
+		CommandApdu commandApdu = createApduFromString("00800000|05|7C03800101");
+		
+		//call mut
+		assertTrue(commandApdu.isCommandDataTlv());
+		assertSame(commandApdu.getCommandDataObjectContainer(), commandApdu.getCommandDataObjectContainer());
+	}
+	
+	/**
+	 * Negative test case: parsing of command data with an invalid TLV
+	 * structure is not repeated, the same exception is thrown on every call.
+	 */
+	@Test
+	public void testGetCommandDataObjectContainer_InvalidTlv(){
+		CommandApdu commandApdu = createApduFromString("00800000|03|7C0580");
+		
+		//call mut
+		ISO7816Exception first = null;
+		try {
+			commandApdu.getCommandDataObjectContainer();
+			fail("ISO7816Exception expected");
+		} catch (ISO7816Exception e) {
+			first = e;
+		}
+		
+		try {
+			commandApdu.isCommandDataTlv();
+			fail("ISO7816Exception expected");
+		} catch (ISO7816Exception e) {
+			assertSame(first, e);
+		}
+	}
+	
+	/**
+	 * Negative test case: APDUs without command data do not contain TLV data
+	 * objects.
+	 */
+	@Test
+	public void testIsCommandDataTlv_NoData(){
+		CommandApdu commandApdu = createApduFromString("00800000|00");
+		
+		//call mut
+		assertFalse(commandApdu.isCommandDataTlv());
+	}
+
+	/**
+	 * Positive test case: N_c of extended length APDUs exceeding 32767 is
+	 * returned unsigned.
+	 */
+	@Test
+	public void testGetNc_ExtendedMsbSet(){
+		byte[] apdu = new byte[7 + 0x8000];
+		apdu[1] = (byte) 0xD6;
+		apdu[5] = (byte) 0x80;
+		
+		//call mut
+		assertEquals(0x8000, new CommandApdu(apdu).getNc());
+	}
+
 }
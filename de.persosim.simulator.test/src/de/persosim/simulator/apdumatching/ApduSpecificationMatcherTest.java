@@ -0,0 +1,112 @@
+package de.persosim.simulator.apdumatching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.apdu.CommandApdu;
+import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.platform.Iso7816;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.tlv.TlvConstants;
+import de.persosim.simulator.utils.HexString;
+
+public class ApduSpecificationMatcherTest extends PersoSimTestCase implements ApduSpecificationConstants, Iso7816 {
+
+	private ApduSpecificationMatcher matcher;
+
+	@Before
+	public void setUp() {
+		matcher = new ApduSpecificationMatcher();
+
+		ApduSpecification mseSetAt = new ApduSpecification("MSE Set AT");
+		mseSetAt.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		mseSetAt.setIsoCase(ISO_CASE_3);
+		mseSetAt.setChaining(false);
+		mseSetAt.setIns(INS_22_MANAGE_SECURITY_ENVIRONMENT);
+		mseSetAt.setP1((byte) 0xC1);
+		mseSetAt.setP2((byte) 0xA4);
+		mseSetAt.addTag(TlvConstants.TAG_80);
+		matcher.add(mseSetAt);
+
+		ApduSpecification readBinary = new ApduSpecification("Read Binary");
+		readBinary.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		readBinary.setIsoCase(ISO_CASE_2);
+		readBinary.setIns(INS_B0_READ_BINARY);
+		matcher.add(readBinary);
+	}
+
+	private static CommandApdu createApdu(String apdu) {
+		return CommandApduFactory.createCommandApdu(HexString.toByteArray(apdu));
+	}
+
+	/**
+	 * Positive test case: APDU fully matches one of the specifications.
+	 */
+	@Test
+	public void testGetClosestMismatch_Match() {
+		assertNull(matcher.getClosestMismatch(createApdu("0022C1A4" + "03" + "800100")));
+	}
+
+	/**
+	 * Negative test case: no specification for the instruction of the APDU.
+	 */
+	@Test
+	public void testGetClosestMismatch_Ins() {
+		ApduMismatch mismatch = matcher.getClosestMismatch(createApdu("00CA0101" + "00"));
+
+		assertEquals(ApduMismatch.INS, mismatch);
+		assertEquals(SW_6D00_INS_NOT_SUPPORTED, mismatch.getStatusWord());
+	}
+
+	/**
+	 * Negative test case: APDU fails to match the class byte.
+	 */
+	@Test
+	public void testGetClosestMismatch_IsoFormat() {
+		ApduMismatch mismatch = matcher.getClosestMismatch(createApdu("4022C1A4" + "03" + "800100"));
+
+		assertEquals(ApduMismatch.ISO_FORMAT, mismatch);
+		assertEquals(SW_6E00_CLA_NOT_SUPPORTED, mismatch.getStatusWord());
+	}
+
+	/**
+	 * Negative test case: APDU fails to match the parameter bytes.
+	 */
+	@Test
+	public void testGetClosestMismatch_P1P2() {
+		ApduMismatch mismatch = matcher.getClosestMismatch(createApdu("0022C1B6" + "03" + "800100"));
+
+		assertEquals(ApduMismatch.P2, mismatch);
+		assertEquals(SW_6A86_INCORRECT_PARAMETERS_P1P2, mismatch.getStatusWord());
+	}
+
+	/**
+	 * Negative test case: APDU fails to match the command data field only.
+	 */
+	@Test
+	public void testGetClosestMismatch_Tags() {
+		ApduMismatch mismatch = matcher.getClosestMismatch(createApdu("0022C1A4" + "03" + "830100"));
+
+		assertEquals(ApduMismatch.TAGS, mismatch);
+		assertEquals(SW_6A80_WRONG_DATA, mismatch.getStatusWord());
+	}
+
+	/**
+	 * Negative test case: the closest of several partially matching
+	 * specifications is reported.
+	 */
+	@Test
+	public void testGetClosestMismatch_Closest() {
+		ApduSpecification anyIns = new ApduSpecification("any INS");
+		anyIns.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		anyIns.setIsoCase(ISO_CASE_1);
+		matcher.add(anyIns);
+
+		assertEquals(ApduMismatch.ISO_CASE, anyIns.getMismatch(createApdu("0022C1A4" + "03" + "830100")));
+		assertEquals(ApduMismatch.TAGS, matcher.getClosestMismatch(createApdu("0022C1A4" + "03" + "830100")));
+	}
+
+}
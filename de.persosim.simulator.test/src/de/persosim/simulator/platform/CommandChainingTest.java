@@ -0,0 +1,118 @@
+package de.persosim.simulator.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.apdu.CommandApdu;
+import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.utils.HexString;
+
+public class CommandChainingTest {
+
+	private CommandChaining commandChaining;
+
+	@Before
+	public void setUp() {
+		commandChaining = new CommandChaining();
+	}
+
+	private static CommandApdu createApdu(String apdu) {
+		return CommandApduFactory.createCommandApdu(HexString.toByteArray(apdu));
+	}
+
+	/**
+	 * Positive test case: fragments of a chain are reassembled into a single
+	 * command APDU.
+	 */
+	@Test
+	public void testProcess_Reassembly() {
+		assertNull(commandChaining.process(createApdu("102A00BE" + "03" + "010203")));
+		assertTrue(commandChaining.isPending());
+		assertNull(commandChaining.process(createApdu("102A00BE" + "02" + "0405")));
+
+		CommandApdu lastFragment = createApdu("002A00BE" + "01" + "06");
+		CommandApdu reassembled = commandChaining.process(lastFragment);
+
+		assertEquals("002A00BE" + "06" + "010203040506", HexString.encode(reassembled.toByteArray()));
+		assertSame(lastFragment, reassembled.getPredecessor());
+		assertFalse(commandChaining.isPending());
+	}
+
+	/**
+	 * Positive test case: reassembled command data exceeding 255 bytes results
+	 * in an extended length command APDU keeping N_e of the last fragment.
+	 */
+	@Test
+	public void testProcess_ExtendedLength() {
+		StringBuilder fragmentData = new StringBuilder();
+		for(int i = 0; i < 200; i++) {
+			fragmentData.append("AA");
+		}
+
+		commandChaining.process(createApdu("10DA0101" + "C8" + fragmentData));
+		CommandApdu reassembled = commandChaining.process(createApdu("00DA0101" + "C8" + fragmentData + "00"));
+
+		assertTrue(reassembled.isExtendedLength());
+		assertEquals(400, reassembled.getNc());
+		assertEquals(256, reassembled.getNe());
+	}
+
+	/**
+	 * Positive test case: command APDUs without chaining and chained
+	 * instructions not to be reassembled are passed unchanged.
+	 */
+	@Test
+	public void testProcess_PassedUnchanged() {
+		CommandApdu unchained = createApdu("002A00BE" + "01" + "06");
+		CommandApdu generalAuthenticate = createApdu("10860000" + "02" + "7C00" + "00");
+
+		assertSame(unchained, commandChaining.process(unchained));
+		assertSame(generalAuthenticate, commandChaining.process(generalAuthenticate));
+		assertFalse(commandChaining.isPending());
+	}
+
+	/**
+	 * Negative test case: a command with different header interrupts the
+	 * chain.
+	 */
+	@Test
+	public void testProcess_Interrupted() {
+		commandChaining.process(createApdu("102A00BE" + "01" + "01"));
+
+		try {
+			commandChaining.process(createApdu("00A4020C" + "02" + "011C"));
+			fail("ISO7816Exception expected");
+		} catch (ISO7816Exception e) {
+			assertEquals(Iso7816.SW_6883_LAST_COMMAND_EXPECTED, e.getStatusWord());
+		}
+
+		assertFalse(commandChaining.isPending());
+	}
+
+	/**
+	 * Negative test case: reassembled command data exceeds the maximum length.
+	 */
+	@Test
+	public void testProcess_MaxLengthExceeded() {
+		commandChaining = new CommandChaining(4, Iso7816.INS_2A_PERFORM_SECURITY_OPERATION);
+		commandChaining.process(createApdu("102A00BE" + "03" + "010203"));
+
+		try {
+			commandChaining.process(createApdu("002A00BE" + "02" + "0405"));
+			fail("ISO7816Exception expected");
+		} catch (ISO7816Exception e) {
+			assertEquals(Iso7816.SW_6700_WRONG_LENGTH, e.getStatusWord());
+		}
+
+		assertFalse(commandChaining.isPending());
+	}
+
+}
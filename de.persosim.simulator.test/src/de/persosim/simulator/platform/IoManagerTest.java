@@ -1,9 +1,13 @@
 package de.persosim.simulator.platform;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.LinkedList;
+
 import org.junit.Test;
 
 import de.persosim.simulator.apdu.CommandApdu;
@@ -13,6 +17,7 @@ import de.persosim.simulator.processing.UpdatePropagation;
 import de.persosim.simulator.test.PersoSimTestCase;
 import de.persosim.simulator.tlv.TlvValue;
 import de.persosim.simulator.tlv.TlvValuePlain;
+import de.persosim.simulator.utils.HexString;
 
 public class IoManagerTest extends PersoSimTestCase {
 
@@ -77,4 +82,75 @@ public class IoManagerTest extends PersoSimTestCase {
 				.getResponseApdu());
 	}
 
+	/**
+	 * Process the provided APDU upwards and return the hardware response if
+	 * one was provided right away.
+	 */
+	private byte[] processAscending(ProcessingData processingData, String apdu) {
+		processingData.addUpdatePropagation(this, "test APDU",
+				new HardwareCommandApduPropagation(HexString.toByteArray(apdu)));
+		ioManager.processAscending(processingData);
+		
+		LinkedList<UpdatePropagation> hardwareResponses = processingData.getUpdatePropagations(HardwareResponseApduPropagation.class);
+		if (hardwareResponses.isEmpty()) {
+			return null;
+		}
+		return ((HardwareResponseApduPropagation) hardwareResponses.getLast()).getResponseApdu();
+	}
+	
+	/**
+	 * Process the provided response downwards and return the hardware response.
+	 */
+	private byte[] processDescending(ProcessingData processingData, ResponseApdu responseApdu) {
+		processingData.updateResponseAPDU(this, "test response", responseApdu);
+		ioManager.processDescending(processingData);
+		
+		return ((HardwareResponseApduPropagation) processingData.getUpdatePropagations(HardwareResponseApduPropagation.class).getLast()).getResponseApdu();
+	}
+
+	/**
+	 * Positive test case: response data exceeding N_e is returned in parts
+	 * using GET RESPONSE.
+	 */
+	@Test
+	public void testGetResponse() {
+		ProcessingData processingData = new ProcessingData();
+		processAscending(processingData, "00B0000004");
+		byte[] response = processDescending(processingData, new ResponseApdu(new TlvValuePlain(HexString.toByteArray("01020304050607080910")), Iso7816.SW_9000_NO_ERROR));
+		assertEquals("01020304" + "6106", HexString.encode(response));
+		
+		assertEquals("05060708" + "6102", HexString.encode(processAscending(new ProcessingData(), "00C0000004")));
+		assertEquals("0910" + "9000", HexString.encode(processAscending(new ProcessingData(), "00C0000000")));
+		
+		// nothing pending anymore, GET RESPONSE is processed by higher layers
+		assertNull(processAscending(new ProcessingData(), "00C0000000"));
+	}
+
+	/**
+	 * Positive test case: pending response data is discarded by the next
+	 * command other than GET RESPONSE.
+	 */
+	@Test
+	public void testGetResponse_Discarded() {
+		ProcessingData processingData = new ProcessingData();
+		processAscending(processingData, "00B0000002");
+		processDescending(processingData, new ResponseApdu(new TlvValuePlain(HexString.toByteArray("010203")), Iso7816.SW_9000_NO_ERROR));
+		
+		assertNull(processAscending(new ProcessingData(), "00A4020C02011C"));
+		assertNull(processAscending(new ProcessingData(), "00C0000000"));
+	}
+
+	/**
+	 * Positive test case: response data not exceeding N_e is returned
+	 * unchanged.
+	 */
+	@Test
+	public void testGetResponse_NotRequired() {
+		ProcessingData processingData = new ProcessingData();
+		processAscending(processingData, "00B0000003");
+		byte[] response = processDescending(processingData, new ResponseApdu(new TlvValuePlain(HexString.toByteArray("010203")), Iso7816.SW_9000_NO_ERROR));
+		
+		assertEquals("010203" + "9000", HexString.encode(response));
+	}
+
 }
@@ -7,6 +7,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.Utils;
 
 public class Iso7816LibTest extends PersoSimTestCase implements Iso7816 {
 
@@ -210,4 +212,34 @@ public class Iso7816LibTest extends PersoSimTestCase implements Iso7816 {
 	public void testSetSecureMessagingStatus_ProprietaryFormat() {
 		Iso7816Lib.setSecureMessagingStatus((byte)0x80, SM_OFF_OR_NO_INDICATION);
 	}
+	
+	/**
+	 * Positive test case: short length fields are used if sufficient.
+	 */
+	@Test
+	public void testEncodeCommandApdu_Short() {
+		byte[] header = HexString.toByteArray("00B00000");
+		
+		assertEquals("00B00000", HexString.encode(Iso7816Lib.encodeCommandApdu(header, null, 0, 0, false)));
+		assertEquals("00B0000000", HexString.encode(Iso7816Lib.encodeCommandApdu(header, null, 0, 256, false)));
+		assertEquals("00B00000020102FF", HexString.encode(Iso7816Lib.encodeCommandApdu(header, HexString.toByteArray("010203"), 2, 255, false)));
+	}
+	
+	/**
+	 * Positive test case: extended length fields are used if N_c or N_e
+	 * require them or if requested.
+	 */
+	@Test
+	public void testEncodeCommandApdu_Extended() {
+		byte[] header = HexString.toByteArray("00B00000");
+		
+		assertEquals("00B00000000000", HexString.encode(Iso7816Lib.encodeCommandApdu(header, null, 0, 65536, false)));
+		assertEquals("00B00000000101", HexString.encode(Iso7816Lib.encodeCommandApdu(header, null, 0, 257, false)));
+		assertEquals("00B00000000001010100", HexString.encode(Iso7816Lib.encodeCommandApdu(header, HexString.toByteArray("01"), 1, 256, true)));
+		
+		byte[] apdu = Iso7816Lib.encodeCommandApdu(header, new byte[300], 300, 0, false);
+		assertEquals(4 + 3 + 300, apdu.length);
+		assertEquals(ISO_CASE_3, Iso7816Lib.getISOcase(apdu));
+		assertEquals(300, Utils.maskUnsignedShortToInt(Iso7816Lib.getNc(apdu)));
+	}
 }
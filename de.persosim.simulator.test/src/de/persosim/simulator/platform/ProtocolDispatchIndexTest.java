@@ -0,0 +1,121 @@
+package de.persosim.simulator.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.apdumatching.ApduSpecification;
+import de.persosim.simulator.apdumatching.ApduSpecificationConstants;
+import de.persosim.simulator.cardobjects.MasterFile;
+import de.persosim.simulator.processing.ProcessingData;
+import de.persosim.simulator.protocols.Protocol;
+import de.persosim.simulator.tlv.TlvDataObject;
+
+public class ProtocolDispatchIndexTest {
+
+	private ProtocolDispatchIndex index;
+
+	@Before
+	public void setUp() {
+		index = new ProtocolDispatchIndex();
+	}
+
+	private static Protocol createProtocol(final String name, final Collection<ApduSpecification> apduSet) {
+		return new Protocol() {
+
+			@Override
+			public String getProtocolName() {
+				return name;
+			}
+
+			@Override
+			public void setCardStateAccessor(CardStateAccessor cardState) {
+			}
+
+			@Override
+			public Collection<? extends TlvDataObject> getSecInfos(SecInfoPublicity publicity, MasterFile mf) {
+				return Collections.emptySet();
+			}
+
+			@Override
+			public void process(ProcessingData processingData) {
+			}
+
+			@Override
+			public Collection<ApduSpecification> getApduSet() {
+				return apduSet;
+			}
+
+			@Override
+			public void reset() {
+			}
+		};
+	}
+
+	private static Protocol createProtocol(String name, byte... instructions) {
+		HashSet<ApduSpecification> apduSet = new HashSet<>();
+		for(byte ins : instructions) {
+			ApduSpecification apduSpecification = new ApduSpecification(name + " " + ins);
+			apduSpecification.setIns(ins);
+			apduSet.add(apduSpecification);
+		}
+		return createProtocol(name, apduSet);
+	}
+
+	/**
+	 * Positive test case: only protocols announcing an instruction are
+	 * candidates for it, in the order they have been added.
+	 */
+	@Test
+	public void testGetCandidates() {
+		Protocol pace = createProtocol("PACE", Iso7816.INS_22_MANAGE_SECURITY_ENVIRONMENT, Iso7816.INS_86_GENERAL_AUTHENTICATE);
+		Protocol file = createProtocol("File", Iso7816.INS_A4_SELECT, Iso7816.INS_B0_READ_BINARY);
+		Protocol ta = createProtocol("TA", Iso7816.INS_22_MANAGE_SECURITY_ENVIRONMENT);
+
+		index.add(pace);
+		index.add(file);
+		index.add(ta);
+
+		assertEquals(Arrays.asList(pace, ta), index.getCandidates(Iso7816.INS_22_MANAGE_SECURITY_ENVIRONMENT));
+		assertEquals(Arrays.asList(file), index.getCandidates(Iso7816.INS_B0_READ_BINARY));
+		assertEquals(Arrays.asList(pace, file, ta), index.getProtocols());
+	}
+
+	/**
+	 * Positive test case: instructions not announced by any protocol have no
+	 * candidates.
+	 */
+	@Test
+	public void testGetCandidates_Unsupported() {
+		index.add(createProtocol("File", Iso7816.INS_A4_SELECT, Iso7816.INS_B0_READ_BINARY));
+
+		assertTrue(index.getCandidates(Iso7816.INS_CA_GET_DATA).isEmpty());
+	}
+
+	/**
+	 * Positive test case: protocols without a required instruction byte or
+	 * without any APDU specification are candidates for every instruction.
+	 */
+	@Test
+	public void testGetCandidates_Wildcard() {
+		ApduSpecification anyIns = new ApduSpecification("any");
+		anyIns.setReqIns(ApduSpecificationConstants.REQ_OPTIONAL);
+
+		Protocol optionalIns = createProtocol("optional", Collections.singleton(anyIns));
+		Protocol emptyApduSet = createProtocol("empty", Collections.<ApduSpecification>emptySet());
+
+		index.add(optionalIns);
+		index.add(emptyApduSet);
+
+		assertEquals(Arrays.asList(optionalIns, emptyApduSet), index.getCandidates(Iso7816.INS_CA_GET_DATA));
+		assertEquals(Arrays.asList(optionalIns, emptyApduSet), index.getCandidates((byte) 0xFF));
+	}
+
+}
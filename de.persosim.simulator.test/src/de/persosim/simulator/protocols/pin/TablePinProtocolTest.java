@@ -0,0 +1,229 @@
+package de.persosim.simulator.protocols.pin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.apdu.ResponseApdu;
+import de.persosim.simulator.apdumatching.ApduSpecification;
+import de.persosim.simulator.cardobjects.AuthObjectIdentifier;
+import de.persosim.simulator.cardobjects.CardFile;
+import de.persosim.simulator.cardobjects.CardObject;
+import de.persosim.simulator.cardobjects.CardObjectIdentifier;
+import de.persosim.simulator.cardobjects.ChangeablePasswordAuthObject;
+import de.persosim.simulator.cardobjects.Iso7816LifeCycleState;
+import de.persosim.simulator.cardobjects.MasterFile;
+import de.persosim.simulator.cardobjects.PasswordAuthObjectWithRetryCounter;
+import de.persosim.simulator.cardobjects.PinObject;
+import de.persosim.simulator.cardobjects.Scope;
+import de.persosim.simulator.platform.CardStateAccessor;
+import de.persosim.simulator.processing.ProcessingData;
+import de.persosim.simulator.secstatus.SecMechanism;
+import de.persosim.simulator.secstatus.SecStatus.SecContext;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class TablePinProtocolTest extends PersoSimTestCase {
+
+	/**
+	 * Card state providing the CAN and PIN objects, no security mechanisms
+	 * are active.
+	 */
+	static class CardState implements CardStateAccessor {
+		ChangeablePasswordAuthObject can;
+		PasswordAuthObjectWithRetryCounter pin;
+
+		CardState() throws Exception {
+			can = new ChangeablePasswordAuthObject(new AuthObjectIdentifier(2), "500540".getBytes("UTF-8"), "CAN", 6, 6);
+			can.updateLifeCycleState(Iso7816LifeCycleState.OPERATIONAL_ACTIVATED);
+
+			pin = new PinObject(new AuthObjectIdentifier(3), "123456".getBytes("UTF-8"), 6, 6, 3);
+			pin.updateLifeCycleState(Iso7816LifeCycleState.OPERATIONAL_DEACTIVATED);
+		}
+
+		@Override
+		public CardObject getObject(CardObjectIdentifier id, Scope scope) {
+			if(id.matches(can)) {
+				return can;
+			}
+			if(id.matches(pin)) {
+				return pin;
+			}
+			return null;
+		}
+
+		@Override
+		public Collection<SecMechanism> getCurrentMechanisms(SecContext context, Collection<Class<? extends SecMechanism>> wantedMechanisms) {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public CardFile selectFile(CardObjectIdentifier id, Scope scope) {
+			return null;
+		}
+
+		@Override
+		public MasterFile selectMasterFile() {
+			return null;
+		}
+
+		@Override
+		public CardObject getCurrentFile() {
+			return null;
+		}
+
+		@Override
+		public void selectFile() {
+		}
+
+		@Override
+		public void selectFileForPersonalization(CardFile file) {
+		}
+	}
+
+	private CardState cardState;
+	private TablePinProtocol protocol;
+
+	@Before
+	public void setUp() throws Exception {
+		cardState = new CardState();
+		protocol = new TablePinProtocol();
+		protocol.setCardStateAccessor(cardState);
+		protocol.init();
+	}
+
+	/**
+	 * Processes the APDU and checks the response and the resulting state.
+	 *
+	 * @param expectedSw
+	 *            the expected status word or null if the protocol is expected
+	 *            to leave the APDU unanswered
+	 */
+	private void process(String apdu, String expectedSw, String expectedState) {
+		ProcessingData processingData = new ProcessingData();
+		processingData.updateCommandApdu(this, "test APDU", CommandApduFactory.createCommandApdu(HexString.toByteArray(apdu)));
+		protocol.process(processingData);
+
+		ResponseApdu response = processingData.getResponseApdu();
+		if(expectedSw == null) {
+			assertNull(apdu, response);
+		} else{
+			assertArrayEquals(apdu, HexString.toByteArray(expectedSw), response.toByteArray());
+		}
+
+		assertEquals(apdu, expectedState, protocol.getCurrentStateName());
+	}
+
+	/**
+	 * Positive test case: after initialization all PIN management APDUs are
+	 * registered and the protocol waits for a command.
+	 */
+	@Test
+	public void testInit() {
+		Collection<String> ids = new TreeSet<>();
+		for(ApduSpecification apduSpecification : protocol.getApduSet()) {
+			ids.add(apduSpecification.getId());
+		}
+
+		assertEquals(new TreeSet<>(Arrays.asList("Activate PIN", "Change CAN", "Change PIN", "Deactivate PIN", "Unblock PIN")), ids);
+		assertEquals("PIN_INIT", protocol.getCurrentStateName());
+	}
+
+	/**
+	 * Positive test case: activate the PIN, the following APDU is consumed
+	 * while returning to the initial state.
+	 */
+	@Test
+	public void testProcess_ActivatePin() {
+		process("00441003", "9000", "PIN_COMPLETED");
+		assertEquals(Iso7816LifeCycleState.OPERATIONAL_ACTIVATED, cardState.pin.getLifeCycleState());
+
+		process("00441003", null, "PIN_INIT");
+	}
+
+	/**
+	 * Negative test case: activate PIN with a P2 not referencing the PIN is
+	 * not accepted.
+	 */
+	@Test
+	public void testProcess_ActivatePinWrongP2() {
+		process("00441002", null, "PIN_INIT");
+		assertEquals(Iso7816LifeCycleState.OPERATIONAL_DEACTIVATED, cardState.pin.getLifeCycleState());
+	}
+
+	/**
+	 * Positive test case: change PIN and CAN.
+	 */
+	@Test
+	public void testProcess_ChangePinAndCan() {
+		process("00441003", "9000", "PIN_COMPLETED");
+		process("00B0000000", null, "PIN_INIT");
+
+		process("002C020306313131313131", "9000", "PIN_COMPLETED");
+		assertArrayEquals(HexString.toByteArray("313131313131"), cardState.pin.getPassword());
+		process("00B0000000", null, "PIN_INIT");
+
+		process("002C020206313233343536", "9000", "PIN_COMPLETED");
+		assertArrayEquals(HexString.toByteArray("313233343536"), cardState.can.getPassword());
+	}
+
+	/**
+	 * Negative test case: change PIN without new PIN is not accepted.
+	 */
+	@Test
+	public void testProcess_ChangePinWithoutData() {
+		process("00441003", "9000", "PIN_COMPLETED");
+		process("00B0000000", null, "PIN_INIT");
+
+		process("002C0203", null, "PIN_INIT");
+		assertArrayEquals(HexString.toByteArray("313233343536"), cardState.pin.getPassword());
+	}
+
+	/**
+	 * Positive test case: deactivate and unblock the PIN.
+	 */
+	@Test
+	public void testProcess_DeactivateAndUnblockPin() {
+		process("00441003", "9000", "PIN_COMPLETED");
+		process("00B0000000", null, "PIN_INIT");
+
+		process("00041003", "9000", "PIN_COMPLETED");
+		assertEquals(Iso7816LifeCycleState.OPERATIONAL_DEACTIVATED, cardState.pin.getLifeCycleState());
+		process("00B0000000", null, "PIN_INIT");
+
+		cardState.pin.decrementRetryCounter();
+		process("002C0303", "9000", "PIN_COMPLETED");
+		assertEquals(3, cardState.pin.getRetryCounterCurrentValue());
+	}
+
+	/**
+	 * Negative test case: unknown commands are left unanswered.
+	 */
+	@Test
+	public void testProcess_UnknownCommand() {
+		process("00B0000000", null, "PIN_INIT");
+	}
+
+	/**
+	 * Positive test case: the protocol returns to its initial state on reset.
+	 */
+	@Test
+	public void testReset() {
+		process("00441003", "9000", "PIN_COMPLETED");
+
+		protocol.reset();
+
+		assertEquals("PIN_INIT", protocol.getCurrentStateName());
+		process("00041003", "9000", "PIN_COMPLETED");
+	}
+
+}
@@ -2,6 +2,7 @@ package de.persosim.simulator.securemessaging;
 
 import static mockit.Deencapsulation.setField;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
@@ -22,6 +23,7 @@ import de.persosim.simulator.apdu.CommandApdu;
 import de.persosim.simulator.apdu.CommandApduFactory;
 import de.persosim.simulator.apdu.ResponseApdu;
 import de.persosim.simulator.crypto.Crypto;
+import de.persosim.simulator.platform.Iso7816;
 import de.persosim.simulator.processing.ProcessingData;
 import de.persosim.simulator.test.PersoSimTestCase;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
@@ -159,6 +161,30 @@ public class SecureMessagingTest extends PersoSimTestCase {
 						commandApdu.toByteArray());
 	}
 	
+	/**
+	 * Negative test case: SM APDU containing tag 97 with more than 2 bytes is
+	 * rejected with an ISO status word.
+	 * @throws Exception
+	 */
+	@Test
+	public void processAscending_tag97TooLong() throws Exception {
+		//prepare configuration
+		SecureMessaging secureMessaging = new SecureMessaging(0);
+		setField(secureMessaging, "dataProvider", new SmDataProviderTr03110(new SecretKeySpec(Hex.decode(AES256_SK_ENC), "AES/CBC/NoPadding"), new SecretKeySpec(Hex.decode(AES256_SK_MAC), AES256_MAC)));
+		
+		// provide sample APDU
+		ProcessingData pData = new ProcessingData();
+		byte[] apduBytes = Hex.decode("0CB000000F" + "9703000100" + "8E080000000000000000" + "00");
+		pData.updateCommandApdu(this, "test command APDU", CommandApduFactory.createCommandApdu(
+				apduBytes));
+
+		// call mut
+		secureMessaging.processAscending(pData);
+
+		// check response
+		assertEquals(Iso7816.SW_6988_INCORRECT_SM_DATA_OBJECTS, pData.getResponseApdu().getStatusWord());
+	}
+	
 	/**
 	 * Check the correct update of SM data provider otherwise similar to
 	 * {@link #processAscending_isoCase3()}
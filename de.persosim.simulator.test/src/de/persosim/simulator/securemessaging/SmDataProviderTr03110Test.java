@@ -0,0 +1,68 @@
+package de.persosim.simulator.securemessaging;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.crypto.Crypto;
+import de.persosim.simulator.crypto.CryptoSupport;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class SmDataProviderTr03110Test extends PersoSimTestCase {
+
+	private SecretKeySpec keyEnc;
+	private SecretKeySpec keyMac;
+	private SmDataProviderTr03110 dataProvider;
+
+	@Before
+	public void setUp() throws GeneralSecurityException {
+		keyEnc = new SecretKeySpec(HexString.toByteArray("F5F0E35C0D7161EE6724EE513A0D9A7F"), "AES/CBC/NoPadding");
+		keyMac = new SecretKeySpec(HexString.toByteArray("FE251C7858B356B24514B3BD5F4297D1"), "AESCMAC");
+		dataProvider = new SmDataProviderTr03110(keyEnc, keyMac);
+	}
+
+	/**
+	 * Positive test case: the IV provided after advancing the SSC equals the
+	 * SSC encrypted in CBC mode with IV set to all zeros.
+	 */
+	@Test
+	public void testGetCipherIv() throws GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding", Crypto.getCryptoProvider());
+
+		for(int i = 0; i < 3; i++) {
+			dataProvider.nextIncoming();
+			byte[] expected = CryptoSupport.encryptWithIvZero(cipher, dataProvider.getMacAuxiliaryData(), keyEnc);
+
+			assertArrayEquals(expected, dataProvider.getCipherIv().getIV());
+		}
+	}
+
+	/**
+	 * Positive test case: repeated macs computed with a Mac initialized once
+	 * equal macs computed with a Mac initialized for every computation.
+	 */
+	@Test
+	public void testMacWithInitializedMac() throws GeneralSecurityException {
+		Mac initializedMac = dataProvider.getMac();
+		initializedMac.init(keyMac);
+		Mac mac = Mac.getInstance("AESCMAC", Crypto.getCryptoProvider());
+		byte[] macInput = HexString.toByteArray("8C0C000080000000000000000000000097080A000080000000000000");
+
+		for(int i = 0; i < 3; i++) {
+			dataProvider.nextOutgoing();
+			byte[] auxiliaryData = dataProvider.getMacAuxiliaryData();
+			byte[] expected = CryptoSupport.mac(mac, auxiliaryData, null, macInput, keyMac, 8);
+
+			assertArrayEquals(expected, CryptoSupport.macWithInitializedMac(initializedMac, auxiliaryData, macInput, 8));
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+package de.persosim.simulator.statemachine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.platform.Iso7816;
+
+public class TableStateMachineTest {
+
+	private static final String MODEL =
+			"<stateMachine initial=\"IDLE\">" +
+			"  <state name=\"IDLE\">" +
+			"    <transition target=\"DONE\" guard=\"isCommand\" guardArgument=\"A\" returnResult=\"true\">" +
+			"      <action name=\"record\" argument=\"process A\"/>" +
+			"    </transition>" +
+			"    <transition target=\"CHECKING\" event=\"1\">" +
+			"      <action name=\"record\" argument=\"check\"/>" +
+			"    </transition>" +
+			"  </state>" +
+			"  <state name=\"CHECKING\">" +
+			"    <transition target=\"IDLE\" returnResult=\"true\">" +
+			"      <action name=\"fail\"/>" +
+			"    </transition>" +
+			"  </state>" +
+			"  <state name=\"DONE\"/>" +
+			"</stateMachine>";
+
+	/**
+	 * Handler providing guards and actions of {@link #MODEL}.
+	 */
+	public static class Handler {
+		String command;
+		StringBuilder trace = new StringBuilder();
+		RuntimeException failure;
+
+		public boolean isCommand(String name) {
+			return name.equals(command);
+		}
+
+		public void record(String message) {
+			trace.append(message).append(';');
+		}
+
+		public void fail() {
+			if(failure != null) {
+				throw failure;
+			}
+			record("fail");
+		}
+	}
+
+	private TransitionTable table;
+	private Handler handler;
+	private TableStateMachine stateMachine;
+
+	private static TransitionTable load(String model) throws IOException {
+		return TransitionTable.load(new ByteArrayInputStream(model.getBytes(StandardCharsets.UTF_8)), Handler.class);
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		table = load(MODEL);
+		handler = new Handler();
+		stateMachine = new TableStateMachine(table, handler);
+		stateMachine.init();
+	}
+
+	/**
+	 * Positive test case: a guarded transition is performed and processing
+	 * stops after a transition returning the result.
+	 */
+	@Test
+	public void testProcessEvent_Guard() {
+		handler.command = "A";
+
+		assertEquals(1, stateMachine.processEvent(0));
+		assertEquals("DONE", stateMachine.getCurrentStateName());
+		assertEquals("process A;", handler.trace.toString());
+	}
+
+	/**
+	 * Positive test case: transitions are performed until one returns the
+	 * result, transitions bound to an event are only enabled for that event.
+	 */
+	@Test
+	public void testProcessEvent_Event() {
+		assertEquals(0, stateMachine.processEvent(0));
+		assertEquals("IDLE", stateMachine.getCurrentStateName());
+
+		assertEquals(2, stateMachine.processEvent(1));
+		assertEquals("IDLE", stateMachine.getCurrentStateName());
+		assertEquals("check;fail;", handler.trace.toString());
+	}
+
+	/**
+	 * Positive test case: two state machines sharing a table keep their own
+	 * state.
+	 */
+	@Test
+	public void testProcessEvent_SharedTable() {
+		Handler otherHandler = new Handler();
+		TableStateMachine other = new TableStateMachine(table, otherHandler);
+		other.init();
+
+		handler.command = "A";
+		stateMachine.processEvent(0);
+
+		assertEquals("DONE", stateMachine.getCurrentStateName());
+		assertEquals("IDLE", other.getCurrentStateName());
+
+		handler.command = null;
+		stateMachine.reset();
+		assertEquals(table.getStateId("IDLE"), stateMachine.getCurrentState());
+	}
+
+	/**
+	 * Negative test case: runtime exceptions thrown by actions are passed
+	 * unchanged.
+	 */
+	@Test
+	public void testProcessEvent_ActionThrows() {
+		handler.failure = new ISO7816Exception(Iso7816.SW_6985_CONDITIONS_OF_USE_NOT_SATISFIED, "test");
+
+		try {
+			stateMachine.processEvent(1);
+			fail("ISO7816Exception expected");
+		} catch (ISO7816Exception e) {
+			assertSame(handler.failure, e);
+		}
+	}
+
+	/**
+	 * Positive test case: events are handled as byte values, so events above
+	 * 0x7F passed as (signed) bytes trigger their transitions.
+	 */
+	@Test
+	public void testProcessEvent_HighEvent() throws IOException {
+		TableStateMachine other = new TableStateMachine(load(
+				"<stateMachine initial=\"S\">" +
+				"  <state name=\"S\">" +
+				"    <transition target=\"T\" event=\"0x80\" returnResult=\"true\"/>" +
+				"  </state>" +
+				"  <state name=\"T\">" +
+				"    <transition target=\"S\" event=\"255\" returnResult=\"true\"/>" +
+				"  </state>" +
+				"</stateMachine>"), handler);
+		other.reInitialize();
+
+		assertEquals(1, other.processEvent((byte) 0x80));
+		assertEquals("T", other.getCurrentStateName());
+
+		assertEquals(0, other.processEvent(TransitionTable.ANY_EVENT));
+		assertEquals("T", other.getCurrentStateName());
+
+		assertEquals(1, other.processEvent((byte) 0xFF));
+		assertEquals("S", other.getCurrentStateName());
+	}
+
+	/**
+	 * Negative test case: processing is stopped when guarded transitions keep
+	 * cycling without returning the result.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testProcessEvent_GuardedCycle() throws IOException {
+		TableStateMachine other = new TableStateMachine(load(
+				"<stateMachine initial=\"S\">" +
+				"  <state name=\"S\">" +
+				"    <transition target=\"T\" guard=\"isCommand\" guardArgument=\"A\"/>" +
+				"  </state>" +
+				"  <state name=\"T\">" +
+				"    <transition target=\"S\" guard=\"isCommand\" guardArgument=\"A\"/>" +
+				"  </state>" +
+				"</stateMachine>"), handler);
+		other.reInitialize();
+		handler.command = "A";
+
+		other.processEvent(0);
+	}
+
+	/**
+	 * Negative test case: model contains a cycle of unconditional transitions
+	 * not returning the result.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoad_UnconditionalCycle() throws IOException {
+		load("<stateMachine initial=\"S\">" +
+				"  <state name=\"S\">" +
+				"    <transition target=\"T\" guard=\"isCommand\" guardArgument=\"A\" returnResult=\"true\"/>" +
+				"    <transition target=\"T\"/>" +
+				"  </state>" +
+				"  <state name=\"T\">" +
+				"    <transition target=\"S\"/>" +
+				"  </state>" +
+				"</stateMachine>");
+	}
+
+	/**
+	 * Negative test case: model contains an event that is not a byte value.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoad_EventOutOfRange() throws IOException {
+		load("<stateMachine initial=\"S\"><state name=\"S\"><transition target=\"S\" event=\"256\" returnResult=\"true\"/></state></stateMachine>");
+	}
+
+	/**
+	 * Negative test case: model contains a transition that is not a direct
+	 * child of its state.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoad_NestedTransition() throws IOException {
+		load("<stateMachine initial=\"S\">" +
+				"  <state name=\"S\">" +
+				"    <transition target=\"S\" event=\"1\" returnResult=\"true\">" +
+				"      <transition target=\"S\" returnResult=\"true\"/>" +
+				"    </transition>" +
+				"  </state>" +
+				"</stateMachine>");
+	}
+
+	/**
+	 * Negative test case: model refers to a method not provided by the handler
+	 * class.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoad_UnknownMethod() throws IOException {
+		load("<stateMachine initial=\"S\"><state name=\"S\"><transition target=\"S\"><action name=\"unknown\"/></transition></state></stateMachine>");
+	}
+
+	/**
+	 * Negative test case: model refers to an undefined state.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoad_UnknownState() throws IOException {
+		load("<stateMachine initial=\"S\"><state name=\"S\"><transition target=\"T\"/></state></stateMachine>");
+	}
+
+}
@@ -2,6 +2,10 @@ package de.persosim.simulator.tlv;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import mockit.Deencapsulation;
 
 import org.junit.Test;
@@ -1005,6 +1009,92 @@ public class ConstructedTlvDataObjectTest {
 						+ tlvObject13.getLength());
 	}
 	
+	/**
+	 * Positive test case: Objects created from raw bytes parse their sub
+	 * elements only on first access, one level at a time.
+	 */
+	@Test
+	public void testLazyParsing() {
+		/* constructed object containing a primitive and a constructed object */
+		byte[] tlvExpected = new byte[] { (byte) 0x21, (byte) 0x08,
+				(byte) 0x01, (byte) 0x02, (byte) 0xFF, (byte) 0xFF,
+				(byte) 0x22, (byte) 0x02, (byte) 0x02, (byte) 0x00 };
+
+		ConstructedTlvDataObject tlvObject = new ConstructedTlvDataObject(tlvExpected);
+
+		assertArrayEquals("Equals expected byte array representation",
+				tlvExpected, tlvObject.toByteArray());
+		assertFalse("Is not parsed", tlvObject.isParsed());
+
+		ConstructedTlvDataObject subObject = (ConstructedTlvDataObject) tlvObject
+				.getTagField(new TlvTag((byte) 0x22));
+		assertTrue("Is parsed", tlvObject.isParsed());
+		assertFalse("Sub object is not parsed", subObject.isParsed());
+
+		assertEquals("Equals expected number of elements", 3,
+				tlvObject.getNoOfElements(true));
+		assertTrue("Sub object is parsed", subObject.isParsed());
+	}
+	
+	/**
+	 * Negative test case: Malformed sub elements are rejected during
+	 * construction, although they are parsed lazily
+	 */
+	@Test(expected = ISO7816Exception.class)
+	public void testLazyParsingMalformedSubElement() {
+		/* inner constructed object indicates a length exceeding the outer object */
+		byte[] tlvExpected = new byte[] { (byte) 0x21, (byte) 0x06,
+				(byte) 0x22, (byte) 0x04, (byte) 0x02, (byte) 0x04,
+				(byte) 0xEE, (byte) 0xEE };
+
+		new ConstructedTlvDataObject(tlvExpected);
+	}
+	
+	/**
+	 * Positive test case: The encoding is cached and modifications of sub
+	 * elements discard the cached encodings of all enclosing objects
+	 */
+	@Test
+	public void testToByteArrayCachedEncodingInvalidatedByModification() {
+		PrimitiveTlvDataObject primitive = new PrimitiveTlvDataObject(new TlvTag((byte) 0x01), new byte[] {(byte) 0xFF});
+		ConstructedTlvDataObject inner = new ConstructedTlvDataObject(new TlvTag((byte) 0x22), primitive);
+		ConstructedTlvDataObject outer = new ConstructedTlvDataObject(new TlvTag((byte) 0x21), inner);
+
+		assertArrayEquals("Equals expected byte array representation", new byte[] { (byte) 0x21, (byte) 0x05,
+				(byte) 0x22, (byte) 0x03, (byte) 0x01, (byte) 0x01, (byte) 0xFF }, outer.toByteArray());
+		assertNotNull("Encoding is cached", outer.getCachedEncoding());
+
+		primitive.setValue(new byte[] {(byte) 0xEE, (byte) 0xEE});
+		assertNull("Cached encoding is discarded", outer.getCachedEncoding());
+		assertArrayEquals("Equals expected byte array representation", new byte[] { (byte) 0x21, (byte) 0x06,
+				(byte) 0x22, (byte) 0x04, (byte) 0x01, (byte) 0x02, (byte) 0xEE, (byte) 0xEE }, outer.toByteArray());
+
+		inner.removeTlvDataObject(new TlvTag((byte) 0x01));
+		assertArrayEquals("Equals expected byte array representation", new byte[] { (byte) 0x21, (byte) 0x02,
+				(byte) 0x22, (byte) 0x00 }, outer.toByteArray());
+
+		/* removed objects no longer affect their former parents */
+		outer.toByteArray();
+		primitive.setValue(new byte[] {(byte) 0xDD});
+		assertNotNull("Encoding is cached", outer.getCachedEncoding());
+	}
+	
+	/**
+	 * Positive test case: Returned encodings are copies that do not affect the
+	 * cached encoding
+	 */
+	@Test
+	public void testToByteArrayReturnsCopy() {
+		ConstructedTlvDataObject tlvObject = new ConstructedTlvDataObject(new TlvTag((byte) 0x21),
+				new PrimitiveTlvDataObject(new TlvTag((byte) 0x01), new byte[] {(byte) 0xFF}));
+
+		byte[] encoding = tlvObject.toByteArray();
+		encoding[0] = (byte) 0x00;
+
+		assertEquals("Equals expected first byte", (byte) 0x21, tlvObject.toByteArray()[0]);
+		assertArrayEquals("Equals expected value field", new byte[] {(byte) 0x01, (byte) 0x01, (byte) 0xFF}, tlvObject.getValueField());
+	}
+	
 	//TODO missing tests
 	// modification of child values / update of length field
 	// expected methods like testGetLength_ChildLenghtIncreased and testGetLength_ChildLengthDecreased
@@ -0,0 +1,77 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.persosim.simulator.utils.HexString;
+
+public class TlvDataObjectBuilderTest {
+
+	/**
+	 * Positive test case: build a nested structure.
+	 */
+	@Test
+	public void testBuild_Nested() {
+		ConstructedTlvDataObject tlvDataObject = new TlvDataObjectBuilder(TlvConstants.TAG_7C)
+				.addPrimitive(TlvConstants.TAG_86, HexString.toByteArray("0102"))
+				.beginConstructed(TlvConstants.TAG_A0)
+				.addPrimitive(TlvConstants.TAG_80, new byte[0])
+				.endConstructed()
+				.add(new PrimitiveTlvDataObject(TlvConstants.TAG_87, HexString.toByteArray("03")))
+				.build();
+
+		assertEquals("7C0B" + "86020102" + "A0028000" + "870103", HexString.encode(tlvDataObject.toByteArray()));
+	}
+
+	/**
+	 * Positive test case: the built container holds the built object.
+	 */
+	@Test
+	public void testBuildContainer() {
+		TlvDataObjectContainer container = new TlvDataObjectBuilder(TlvConstants.TAG_7C).addPrimitive(TlvConstants.TAG_84, HexString.toByteArray("AA")).buildContainer();
+
+		assertEquals("7C038401AA", HexString.encode(container.toByteArray()));
+	}
+
+	/**
+	 * Positive test case: value fields are used without copying them.
+	 */
+	@Test
+	public void testPrimitive_ValueNotCopied() {
+		byte[] value = HexString.toByteArray("0102");
+		PrimitiveTlvDataObject tlvDataObject = TlvDataObjectBuilder.primitive(TlvConstants.TAG_80, value);
+
+		value[0] = (byte) 0xFF;
+
+		assertEquals("8002FF02", HexString.encode(tlvDataObject.toByteArray()));
+	}
+
+	/**
+	 * Positive test case: no validity checks are performed on the provided
+	 * tags.
+	 */
+	@Test
+	public void testPrimitive_ValidityChecksSkipped() {
+		TlvTag nonBerTag = new TlvTag(new byte[] {(byte) 0x9F, 0x00}, ValidityChecks.SKIP_VALIDITY_CHECKS);
+
+		assertEquals("9F0000", HexString.encode(TlvDataObjectBuilder.primitive(nonBerTag, new byte[0]).toByteArray()));
+	}
+
+	/**
+	 * Negative test case: close more constructed objects than opened.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testEndConstructed_NoneOpen() {
+		new TlvDataObjectBuilder(TlvConstants.TAG_7C).endConstructed();
+	}
+
+	/**
+	 * Negative test case: build with constructed objects still open.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testBuild_Unclosed() {
+		new TlvDataObjectBuilder(TlvConstants.TAG_7C).beginConstructed(TlvConstants.TAG_A0).build();
+	}
+
+}
@@ -0,0 +1,88 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.persosim.simulator.utils.HexString;
+
+public class TlvDataObjectContainerSetOfTest {
+
+	/**
+	 * Positive test case: objects are kept in DER order of their encodings
+	 * independent of the order of insertion.
+	 */
+	@Test
+	public void testAddTlvDataObject_DerOrder() {
+		ConstructedTlvDataObject set = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SET), new TlvDataObjectContainerSetOf());
+
+		set.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray("3003020103")));
+		set.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray("3003020101")));
+		set.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray("300402020100")));
+		set.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray("3003020102")));
+
+		assertEquals("3115" + "3003020101" + "3003020102" + "3003020103" + "300402020100", HexString.encode(set.toByteArray()));
+	}
+
+	/**
+	 * Positive test case: objects with identical encodings keep their order of
+	 * insertion.
+	 */
+	@Test
+	public void testAddTlvDataObject_Duplicates() {
+		TlvDataObjectContainerSetOf container = new TlvDataObjectContainerSetOf();
+		PrimitiveTlvDataObject first = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), new byte[] {0x01});
+		PrimitiveTlvDataObject second = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), new byte[] {0x01});
+
+		container.addTlvDataObject(first);
+		container.addTlvDataObject(new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), new byte[] {0x00}));
+		container.addTlvDataObject(second);
+
+		assertTrue(container.getTlvObjects().get(1) == first);
+		assertTrue(container.getTlvObjects().get(2) == second);
+	}
+
+	/**
+	 * Positive test case: the order is re-established after a contained
+	 * object has been modified.
+	 */
+	@Test
+	public void testChildModified() {
+		ConstructedTlvDataObject set = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SET), new TlvDataObjectContainerSetOf());
+		ConstructedTlvDataObject sequence = new ConstructedTlvDataObject(HexString.toByteArray("3003020101"));
+		set.addTlvDataObject(sequence);
+		set.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray("3003020102")));
+
+		sequence.addTlvDataObject(new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), new byte[] {0x00}));
+
+		assertEquals("310D" + "3003020102" + "3006020101020100", HexString.encode(set.toByteArray()));
+	}
+
+	/**
+	 * Positive test case: encodings are compared as octet strings padded with
+	 * trailing 0-octets.
+	 */
+	@Test
+	public void testCompare_Padding() {
+		assertTrue(TlvDataObjectComparatorDerSetOf.compare(HexString.toByteArray("0102"), HexString.toByteArray("010200")) == 0);
+		assertTrue(TlvDataObjectComparatorDerSetOf.compare(HexString.toByteArray("0102"), HexString.toByteArray("010201")) < 0);
+		assertTrue(TlvDataObjectComparatorDerSetOf.compare(HexString.toByteArray("0180"), HexString.toByteArray("017F01")) > 0);
+	}
+
+	/**
+	 * Positive test case: sorting with a different comparator keeps the DER
+	 * order of the SET OF.
+	 */
+	@Test
+	public void testSort() {
+		ConstructedTlvDataObject set = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SET), new TlvDataObjectContainerSetOf());
+		set.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray("300402020100")));
+		set.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray("3003020101")));
+
+		set.sort(new TlvDataObjectComparatorDer());
+
+		assertEquals("310B" + "3003020101" + "300402020100", HexString.encode(set.toByteArray()));
+	}
+
+}
@@ -0,0 +1,89 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TlvDataObjectContainerTest {
+
+	private TlvDataObjectContainer container;
+
+	@Before
+	public void setUp() {
+		container = new TlvDataObjectContainer();
+
+		/* more elements than the threshold so that lookups use the tag index */
+		for(int i = 0; i <= TlvDataObjectContainer.INDEX_THRESHOLD; i++) {
+			container.addTlvDataObject(new PrimitiveTlvDataObject(new TlvTag((byte) (0x81 + i)), new byte[] {(byte) i}));
+		}
+	}
+
+	/**
+	 * Positive test case: lookups by tag and path find the expected elements
+	 * in a container above the index threshold.
+	 */
+	@Test
+	public void testGetTagField_Indexed() {
+		TlvTag tag = new TlvTag((byte) 0x83);
+
+		assertArrayEquals(new byte[] {0x02}, container.getTagField(tag).getValueField());
+		assertArrayEquals(new byte[] {0x02}, container.getTagField(new TlvPath(tag)).getValueField());
+		assertTrue(container.containsTagField(tag));
+		assertFalse(container.containsTagField(new TlvTag((byte) 0x80)));
+	}
+
+	/**
+	 * Positive test case: the first occurrence of a tag is returned, also
+	 * for elements added after the index has been built.
+	 */
+	@Test
+	public void testGetTagField_AddedAfterLookup() {
+		TlvTag tag = new TlvTag((byte) 0x9E);
+		assertNull(container.getTagField(tag));
+
+		container.addTlvDataObject(new PrimitiveTlvDataObject(tag, new byte[] {0x01}));
+		container.addTlvDataObject(new PrimitiveTlvDataObject(tag, new byte[] {0x02}));
+
+		assertArrayEquals(new byte[] {0x01}, container.getTagField(tag).getValueField());
+	}
+
+	/**
+	 * Positive test case: removed and reordered elements are reflected by
+	 * subsequent lookups.
+	 */
+	@Test
+	public void testGetTagField_AfterRemoveAndSort() {
+		TlvTag tag = new TlvTag((byte) 0x81);
+		assertTrue(container.containsTagField(tag));
+
+		container.removeTlvDataObject(tag);
+		assertFalse(container.containsTagField(tag));
+
+		container.sort(new TlvDataObjectComparatorDer());
+		assertArrayEquals(new byte[] {0x05}, container.getTagField(new TlvTag((byte) 0x86)).getValueField());
+		assertEquals(TlvDataObjectContainer.INDEX_THRESHOLD, container.getNoOfElements());
+	}
+
+	/**
+	 * Positive test case: changing the tag of a contained element is
+	 * reflected by subsequent lookups.
+	 */
+	@Test
+	public void testGetTagField_AfterTagModified() {
+		TlvTag oldTag = new TlvTag((byte) 0x82);
+		TlvTag newTag = new TlvTag((byte) 0x9E);
+		TlvDataObject tlvDataObject = container.getTagField(oldTag);
+
+		tlvDataObject.setTag(newTag);
+
+		assertNull(container.getTagField(oldTag));
+		assertSame(tlvDataObject, container.getTagField(newTag));
+	}
+
+}
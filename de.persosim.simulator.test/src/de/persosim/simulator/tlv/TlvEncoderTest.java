@@ -0,0 +1,93 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.persosim.simulator.utils.HexString;
+
+public class TlvEncoderTest {
+
+	/**
+	 * Positive test case: encode a nested structure built from objects.
+	 */
+	@Test
+	public void testEncode_NestedStructure() {
+		ConstructedTlvDataObject inner = new ConstructedTlvDataObject(new TlvTag((byte) 0xA1));
+		inner.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_80, HexString.toByteArray("0102")));
+		ConstructedTlvDataObject outer = new ConstructedTlvDataObject(TlvConstants.TAG_7C, inner);
+		outer.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_81, new byte[0]));
+
+		assertArrayEquals(HexString.toByteArray("7C08A10480020102" + "8100"), TlvEncoder.encode(outer));
+	}
+
+	/**
+	 * Positive test case: explicitly set BER length fields and lazily parsed
+	 * objects are encoded as is.
+	 */
+	@Test
+	public void testEncode_ExplicitLength() {
+		byte[] expected = HexString.toByteArray("7C8107" + "80820001FF" + "A100");
+
+		assertArrayEquals(expected, TlvEncoder.encode(new ConstructedTlvDataObject(expected)));
+
+		ConstructedTlvDataObject parsed = new ConstructedTlvDataObject(expected);
+		parsed.getNoOfElements(true);
+		assertArrayEquals(expected, TlvEncoder.encode(parsed));
+	}
+
+	/**
+	 * Positive test case: long value fields use multi byte length fields.
+	 */
+	@Test
+	public void testEncode_LongValue() {
+		PrimitiveTlvDataObject tlvDataObject = new PrimitiveTlvDataObject(TlvConstants.TAG_80, new byte[300]);
+
+		byte[] encoding = TlvEncoder.encode(tlvDataObject);
+
+		assertEquals(304, encoding.length);
+		assertArrayEquals(HexString.toByteArray("8082012C"), Arrays.copyOf(encoding, 4));
+	}
+
+	/**
+	 * Positive test case: encode into a buffer at its current position.
+	 */
+	@Test
+	public void testEncode_ByteBuffer() {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.put((byte) 0xFF);
+
+		int length = TlvEncoder.encode(new PrimitiveTlvDataObject(TlvConstants.TAG_80, HexString.toByteArray("0102")), buffer);
+
+		assertEquals(4, length);
+		assertEquals(5, buffer.position());
+		assertArrayEquals(HexString.toByteArray("FF80020102000000"), buffer.array());
+	}
+
+	/**
+	 * Negative test case: encode into a buffer that is too small.
+	 */
+	@Test(expected = BufferOverflowException.class)
+	public void testEncode_ByteBufferTooSmall() {
+		TlvEncoder.encode(new PrimitiveTlvDataObject(TlvConstants.TAG_80, HexString.toByteArray("0102")), ByteBuffer.allocate(3));
+	}
+
+	/**
+	 * Positive test case: the size of the length field matches the length
+	 * encoding of {@link TlvLength}.
+	 */
+	@Test
+	public void testGetLengthFieldLength() {
+		int[] lengths = new int[] {0, 127, 128, 255, 256, 65535, 65536, 0xFFFFFF, 0x1000000, Integer.MAX_VALUE};
+
+		for (int curLength : lengths) {
+			assertEquals(TlvLength.getLengthEncoding(curLength).length, TlvEncoder.getLengthFieldLength(curLength));
+		}
+	}
+
+}
@@ -3,6 +3,7 @@ package de.persosim.simulator.tlv;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -286,4 +287,23 @@ public class TlvLengthTest {
 		assertEquals(lengthFieldExpected1.equals(lengthFieldExpected2), false);
 	}
 	
+	/**
+	 * Positive test case: getInstance returns shared instances for short
+	 * lengths and new instances for long lengths
+	 */
+	@Test
+	public void testGetInstance() {
+		assertSame(TlvLength.getInstance(5), TlvLength.getInstance(5));
+		assertEquals(new TlvLength(5), TlvLength.getInstance(5));
+		assertEquals(new TlvLength(300), TlvLength.getInstance(300));
+	}
+	
+	/**
+	 * Negative test case: shared instances can not be modified
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetInstance_Modification() {
+		TlvLength.getInstance(5).forceLengthField(new byte[] { (byte) 0x06 });
+	}
+
 }
@@ -0,0 +1,142 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.utils.HexString;
+
+public class TlvQueryTest {
+
+	/* 7C 0A [81 02 0102] [83 01 03] [85 01 05] */
+	private static final byte[] DATA = HexString.toByteArray("7C0A" + "81020102" + "830103" + "850105");
+
+	/**
+	 * Positive test case: resolve a nested path and access the match via
+	 * {@link TlvReader#seek(int)}.
+	 */
+	@Test
+	public void testFind_NestedPath() {
+		TlvQuery query = new TlvQuery(new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_83));
+		TlvReader reader = new TlvReader(DATA);
+
+		int tagOffset = query.find(reader);
+
+		assertEquals(6, tagOffset);
+		assertTrue(reader.seek(tagOffset));
+		assertArrayEquals(HexString.toByteArray("03"), reader.getValueField());
+	}
+
+	/**
+	 * Positive test case: resolve several paths with a common prefix in a
+	 * single pass, missing elements are marked by -1.
+	 */
+	@Test
+	public void testFind_MultiplePaths() {
+		TlvQuery query = new TlvQuery(
+				new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_85),
+				new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_83),
+				new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_84),
+				new TlvPath(TlvConstants.TAG_7C));
+		int[] tagOffsets = new int[query.getNoOfPaths()];
+
+		query.find(new TlvReader(DATA), tagOffsets);
+
+		assertArrayEquals(new int[] {9, 6, -1, 0}, tagOffsets);
+	}
+
+	/**
+	 * Positive test case: the results match those of
+	 * {@link TlvDataObjectContainer#getTagField(TlvPath)}, i.e. only the first
+	 * element with a matching tag is descended into.
+	 */
+	@Test
+	public void testFind_FirstOccurrenceOnly() {
+		byte[] data = HexString.toByteArray("7C03810101" + "7C03830103" + "830104");
+		TlvPath path = new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_83);
+		TlvQuery query = new TlvQuery(path, new TlvPath(TlvConstants.TAG_83));
+		int[] tagOffsets = new int[2];
+
+		query.find(data, 0, data.length, tagOffsets);
+
+		assertEquals(null, new TlvDataObjectContainer(data).getTagField(path));
+		assertEquals(-1, query.find(data, 0, data.length));
+		assertArrayEquals(new int[] {-1, 10}, tagOffsets);
+	}
+
+	/**
+	 * Positive test case: paths do not descend into primitive elements.
+	 */
+	@Test
+	public void testFind_PrimitiveElementOnPath() {
+		byte[] data = HexString.toByteArray("8003830100");
+		TlvQuery query = new TlvQuery(new TlvPath(TlvConstants.TAG_80, TlvConstants.TAG_83));
+		int[] tagOffsets = new int[1];
+
+		query.find(data, 0, data.length, tagOffsets);
+
+		assertEquals(-1, query.find(data, 0, data.length));
+		assertEquals(-1, tagOffsets[0]);
+	}
+
+	/**
+	 * Positive test case: extract the secure messaging data objects from a
+	 * range of a larger array.
+	 */
+	@Test
+	public void testFind_Range() {
+		byte[] data = HexString.toByteArray("FFFF" + "870201AA" + "8E0811223344556677889700" + "FF");
+		TlvQuery query = new TlvQuery(new TlvPath(TlvTag.getInstance((byte) 0x87)), new TlvPath(TlvTag.getInstance((byte) 0x97)), new TlvPath(TlvTag.getInstance((byte) 0x8E)));
+		int[] tagOffsets = new int[3];
+
+		query.find(data, 2, data.length - 3, tagOffsets);
+
+		assertArrayEquals(new int[] {2, -1, 6}, tagOffsets);
+	}
+
+	/**
+	 * Negative test case: malformed data results in the same exception as
+	 * during construction of TLV data objects.
+	 */
+	@Test(expected = ISO7816Exception.class)
+	public void testFind_Malformed() {
+		byte[] data = HexString.toByteArray("7C05830103");
+		new TlvQuery(new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_84)).find(data, 0, data.length, new int[1]);
+	}
+
+	/**
+	 * Positive test case: modifications of the compiled paths do not affect
+	 * the query.
+	 */
+	@Test
+	public void testConstructor_PathCopied() {
+		TlvPath path = new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_83);
+		TlvQuery query = new TlvQuery(path);
+
+		path.clear();
+
+		assertEquals(new TlvPath(TlvConstants.TAG_7C, TlvConstants.TAG_83), query.getTlvPath(0));
+		assertEquals(6, query.find(DATA, 0, DATA.length));
+	}
+
+	/**
+	 * Negative test case: paths must not be empty.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_EmptyPath() {
+		new TlvQuery(new TlvPath());
+	}
+
+	/**
+	 * Negative test case: the provided array must be large enough for the
+	 * results of all paths.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testFind_ResultArrayTooSmall() {
+		new TlvQuery(new TlvPath(TlvConstants.TAG_7C), new TlvPath(TlvConstants.TAG_83)).find(DATA, 0, DATA.length, new int[1]);
+	}
+
+}
@@ -0,0 +1,106 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.utils.HexString;
+
+public class TlvReaderTest {
+
+	private static final byte[] DATA = HexString.toByteArray("7C0A8102ABCD5F2003010203" + "8001FF");
+
+	/**
+	 * Positive test case: iterate over all elements of a sequence and check
+	 * offsets and lengths of the fields.
+	 */
+	@Test
+	public void testNext() {
+		TlvReader reader = new TlvReader(DATA);
+
+		assertTrue(reader.next());
+		assertTrue(reader.matches(TlvConstants.TAG_7C));
+		assertTrue(reader.isConstructed());
+		assertEquals(0, reader.getTagOffset());
+		assertEquals(2, reader.getValueOffset());
+		assertEquals(10, reader.getValueLength());
+		assertEquals(12, reader.getEndOffset());
+
+		assertTrue(reader.next());
+		assertTrue(reader.matches(TlvConstants.TAG_80));
+		assertFalse(reader.isConstructed());
+		assertArrayEquals(new byte[] {(byte) 0xFF}, reader.getValueField());
+
+		assertFalse(reader.next());
+	}
+
+	/**
+	 * Positive test case: descend into a constructed element without copying
+	 * the underlying data.
+	 */
+	@Test
+	public void testGetValueReader() {
+		TlvReader reader = new TlvReader(DATA);
+		assertTrue(reader.next(TlvConstants.TAG_7C));
+
+		TlvReader childReader = reader.getValueReader();
+		assertSame(DATA, childReader.getData());
+		assertTrue(childReader.next(TlvConstants.TAG_5F20));
+		assertEquals(2, childReader.getTagLength());
+		assertArrayEquals(new byte[] {0x01, 0x02, 0x03}, childReader.getValueField());
+		assertFalse(childReader.next());
+	}
+
+	/**
+	 * Positive test case: materialized objects match the ones created by the
+	 * object based parser.
+	 */
+	@Test
+	public void testGetTlvDataObject() {
+		TlvReader reader = new TlvReader(DATA);
+		assertTrue(reader.next());
+
+		assertEquals(new ConstructedTlvDataObject(DATA, 0, 12), reader.getTlvDataObject());
+	}
+
+	/**
+	 * Positive test case: read from the remaining bytes of a ByteBuffer.
+	 */
+	@Test
+	public void testByteBuffer() {
+		ByteBuffer buffer = ByteBuffer.wrap(DATA);
+		buffer.position(12);
+
+		TlvReader reader = new TlvReader(buffer);
+		assertTrue(reader.next());
+		assertTrue(reader.matches(TlvConstants.TAG_80));
+		assertEquals(12, reader.getTagOffset());
+		assertFalse(reader.next());
+		assertEquals(12, buffer.position());
+	}
+
+	/**
+	 * Negative test case: an element exceeding the range is rejected.
+	 */
+	@Test(expected = ISO7816Exception.class)
+	public void testNext_LengthExceedsRange() {
+		TlvReader reader = new TlvReader(HexString.toByteArray("8005AABB"));
+		reader.next();
+	}
+
+	/**
+	 * Negative test case: field access without current element is rejected.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testGetValueOffset_NoCurrentElement() {
+		new TlvReader(DATA).getValueOffset();
+	}
+
+}
@@ -2,6 +2,8 @@ package de.persosim.simulator.tlv;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNotSame;
 
 import org.junit.Test;
 
@@ -229,5 +231,43 @@ public class TlvTagTest {
 
 		assertEquals("Is valid DER encoding", tag.isValidDerEncoding(), true);
 	}
+	
+	/**
+	 * Positive test case: getInstance returns the same canonical instance
+	 * for equal one and two byte tags, regardless of the source
+	 */
+	@Test
+	public void testGetInstance_Canonical() {
+		byte[] data = new byte[] { (byte) 0xFF, (byte) 0x7F, (byte) 0x4C, (byte) 0x00 };
+
+		TlvTag tag = TlvTag.getInstance(data, 1, data.length);
+
+		assertSame(tag, TlvTag.getInstance((short) 0x7F4C));
+		assertSame(tag, TlvTag.getInstance(new TlvTag(new byte[] { (byte) 0x7F, (byte) 0x4C })));
+		assertSame(TlvTag.getInstance((byte) 0x7C), TlvConstants.TAG_7C);
+		assertEquals(new TlvTag(new byte[] { (byte) 0x7F, (byte) 0x4C }), tag);
+	}
+	
+	/**
+	 * Positive test case: three byte tags are created as new instances
+	 */
+	@Test
+	public void testGetInstance_ThreeByteTag() {
+		byte[] tagExpected = new byte[] { (byte) 0x5F, (byte) 0x81, (byte) 0x01 };
+
+		TlvTag tag = TlvTag.getInstance(tagExpected);
+
+		assertArrayEquals(tagExpected, tag.toByteArray());
+		assertNotSame(tag, TlvTag.getInstance(tagExpected));
+	}
+	
+	/**
+	 * Negative test case: getInstance performs the same checks as the
+	 * constructor
+	 */
+	@Test(expected = ISO7816Exception.class)
+	public void testGetInstance_InvalidTwoByteTag() {
+		TlvTag.getInstance(new byte[] { (byte) 0x5F, (byte) 0x05 });
+	}
 
 }
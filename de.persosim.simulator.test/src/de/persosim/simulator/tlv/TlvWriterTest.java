@@ -0,0 +1,87 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.persosim.simulator.utils.HexString;
+
+public class TlvWriterTest {
+
+	/**
+	 * Positive test case: write a nested structure.
+	 */
+	@Test
+	public void testWrite_Nested() {
+		byte[] encoding = new TlvWriter()
+				.beginConstructed(TlvConstants.TAG_7C)
+				.writePrimitive(TlvConstants.TAG_86, HexString.toByteArray("0102"))
+				.beginConstructed(TlvConstants.TAG_A0)
+				.writePrimitive(TlvConstants.TAG_80, new byte[0])
+				.endConstructed()
+				.write(new PrimitiveTlvDataObject(TlvConstants.TAG_87, HexString.toByteArray("03")))
+				.endConstructed()
+				.toByteArray();
+
+		assertEquals("7C0B" + "86020102" + "A0028000" + "870103", HexString.encode(encoding));
+	}
+
+	/**
+	 * Positive test case: the length field of a constructed element is
+	 * enlarged after its value field has been written.
+	 */
+	@Test
+	public void testEndConstructed_LongLength() {
+		byte[] value = new byte[300];
+		Arrays.fill(value, (byte) 0x11);
+
+		byte[] encoding = new TlvWriter(8)
+				.beginConstructed(TlvConstants.TAG_7C)
+				.beginConstructed(TlvConstants.TAG_A0)
+				.writePrimitive(TlvConstants.TAG_80, value)
+				.endConstructed()
+				.endConstructed()
+				.toByteArray();
+
+		ConstructedTlvDataObject expected = new ConstructedTlvDataObject(TlvConstants.TAG_7C);
+		ConstructedTlvDataObject constructedA0 = new ConstructedTlvDataObject(TlvConstants.TAG_A0);
+		constructedA0.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_80, value));
+		expected.addTlvDataObject(constructedA0);
+
+		assertArrayEquals(expected.toByteArray(), encoding);
+	}
+
+	/**
+	 * Positive test case: the buffer is reused after reset and previously
+	 * returned values are not affected.
+	 */
+	@Test
+	public void testReset() {
+		TlvWriter writer = new TlvWriter();
+		TlvValue first = writer.writePrimitive(TlvConstants.TAG_80, HexString.toByteArray("01")).toTlvValue();
+		TlvValue second = writer.reset().writePrimitive(TlvConstants.TAG_81, HexString.toByteArray("0203")).toTlvValue();
+
+		assertEquals("800101", HexString.encode(first.toByteArray()));
+		assertEquals("81020203", HexString.encode(second.toByteArray()));
+	}
+
+	/**
+	 * Negative test case: close more constructed elements than opened.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testEndConstructed_NoneOpen() {
+		new TlvWriter().endConstructed();
+	}
+
+	/**
+	 * Negative test case: retrieve data with constructed elements still open.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testToByteArray_Unclosed() {
+		new TlvWriter().beginConstructed(TlvConstants.TAG_7C).toByteArray();
+	}
+
+}
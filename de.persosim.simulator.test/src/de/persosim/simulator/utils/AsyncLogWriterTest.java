@@ -0,0 +1,128 @@
+package de.persosim.simulator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.persosim.simulator.utils.AsyncLogWriter.LogEventSink;
+import de.persosim.simulator.utils.AsyncLogWriter.OverflowPolicy;
+
+public class AsyncLogWriterTest {
+
+	/**
+	 * Simple sink collecting all written messages
+	 */
+	private static class CollectingSink implements LogEventSink {
+		List<String> messages = new ArrayList<>();
+		int flushes = 0;
+
+		@Override
+		public void write(long timestamp, byte logLevel, String message, String contextId) {
+			messages.add(message);
+		}
+
+		@Override
+		public void flush() {
+			flushes++;
+		}
+	}
+
+	/**
+	 * Positive test case: all published messages are written in order after
+	 * the writer is stopped.
+	 */
+	@Test
+	public void testPublish_OrderPreserved() {
+		CollectingSink sink = new CollectingSink();
+		AsyncLogWriter writer = new AsyncLogWriter(16, OverflowPolicy.BLOCK, sink);
+		writer.start();
+
+		for (int i = 0; i < 100; i++) {
+			assertTrue(writer.publish(i, PersoSimLogger.DEBUG, "message " + i));
+		}
+		writer.stop();
+
+		assertEquals(100, sink.messages.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals("message " + i, sink.messages.get(i));
+		}
+		assertTrue(sink.flushes > 0);
+		assertEquals(0, writer.getDroppedEvents());
+	}
+
+	/**
+	 * Positive test case: messages from concurrent producers are neither lost
+	 * nor duplicated with blocking overflow policy.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testPublish_ConcurrentBlocking() throws InterruptedException {
+		CollectingSink sink = new CollectingSink();
+		final AsyncLogWriter writer = new AsyncLogWriter(8, OverflowPolicy.BLOCK, sink);
+		writer.start();
+
+		Thread[] producers = new Thread[4];
+		for (int i = 0; i < producers.length; i++) {
+			producers[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						writer.publish(j, PersoSimLogger.TRACE, "msg");
+					}
+				}
+			};
+			producers[i].start();
+		}
+		for (Thread curProducer : producers) {
+			curProducer.join();
+		}
+		writer.stop();
+
+		assertEquals(4000, sink.messages.size());
+		assertEquals(0, writer.getDroppedEvents());
+	}
+
+	/**
+	 * Positive test case: messages are dropped and counted if the buffer is
+	 * full and the writer is not draining it.
+	 */
+	@Test
+	public void testPublish_Drop() {
+		CollectingSink sink = new CollectingSink();
+		AsyncLogWriter writer = new AsyncLogWriter(4, OverflowPolicy.DROP, sink) {
+			@Override
+			public void run() {
+				// do not drain the buffer
+			}
+		};
+		writer.start();
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(writer.publish(i, PersoSimLogger.DEBUG, "message"));
+		}
+		assertFalse(writer.publish(5, PersoSimLogger.DEBUG, "message"));
+		assertEquals(1, writer.getDroppedEvents());
+
+		writer.stop();
+	}
+
+	/**
+	 * Negative test case: messages published after stopping the writer are
+	 * dropped.
+	 */
+	@Test
+	public void testPublish_AfterStop() {
+		AsyncLogWriter writer = new AsyncLogWriter(4, OverflowPolicy.BLOCK, new CollectingSink());
+		writer.start();
+		writer.stop();
+
+		assertFalse(writer.publish(0, PersoSimLogger.DEBUG, "message"));
+	}
+
+}
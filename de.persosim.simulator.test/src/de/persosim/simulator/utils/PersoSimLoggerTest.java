@@ -0,0 +1,116 @@
+package de.persosim.simulator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.test.PersoSimTestCase;
+
+public class PersoSimLoggerTest extends PersoSimTestCase {
+
+	private byte initialLogLevel;
+
+	@Before
+	public void setUp() {
+		initialLogLevel = PersoSimLogger.getLogLevel();
+	}
+
+	@After
+	public void tearDown() {
+		PersoSimLogger.endSession();
+		PersoSimLogger.setTraceSamplingRate(0);
+		PersoSimLogger.setTracedContextId(null);
+		PersoSimLogger.setLogLevel(initialLogLevel);
+	}
+
+	/**
+	 * Positive test case: changing the log level at runtime enables and
+	 * disables the respective levels.
+	 */
+	@Test
+	public void testSetLogLevel() {
+		PersoSimLogger.setLogLevel(PersoSimLogger.INFO);
+
+		assertEquals(PersoSimLogger.INFO, PersoSimLogger.getLogLevel());
+		assertFalse(PersoSimLogger.isEnabled(PersoSimLogger.DEBUG));
+		assertTrue(PersoSimLogger.isEnabled(PersoSimLogger.INFO));
+		assertTrue(PersoSimLogger.isEnabled(PersoSimLogger.ERROR));
+	}
+
+	/**
+	 * Positive test case: initializing the logger again keeps the log level
+	 * set at runtime.
+	 */
+	@Test
+	public void testInit_KeepsLogLevel() {
+		PersoSimLogger.setLogLevel(PersoSimLogger.WARN);
+		PersoSimLogger.init();
+
+		assertEquals(PersoSimLogger.WARN, PersoSimLogger.getLogLevel());
+		assertFalse(PersoSimLogger.isEnabled(PersoSimLogger.INFO));
+	}
+
+	/**
+	 * Negative test case: unknown log levels are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetLogLevel_Invalid() {
+		PersoSimLogger.setLogLevel((byte) 7);
+	}
+
+	/**
+	 * Positive test case: log levels are parsed from their names and values.
+	 */
+	@Test
+	public void testParseLogLevel() {
+		assertEquals(PersoSimLogger.TRACE, PersoSimLogger.parseLogLevel("trace"));
+		assertEquals(PersoSimLogger.WARN, PersoSimLogger.parseLogLevel("WARN"));
+		assertEquals(PersoSimLogger.ERROR, PersoSimLogger.parseLogLevel("5"));
+	}
+
+	/**
+	 * Positive test case: every N-th session is traced with all levels
+	 * enabled, the others use the configured log level.
+	 */
+	@Test
+	public void testStartSession_SamplingRate() {
+		PersoSimLogger.setLogLevel(PersoSimLogger.INFO);
+		PersoSimLogger.setTraceSamplingRate(3);
+
+		int sampledSessions = 0;
+		for (int i = 0; i < 9; i++) {
+			if (PersoSimLogger.startSession("session" + i)) {
+				sampledSessions++;
+				assertTrue(PersoSimLogger.isEnabled(PersoSimLogger.TRACE));
+			} else {
+				assertFalse(PersoSimLogger.isEnabled(PersoSimLogger.TRACE));
+			}
+			PersoSimLogger.endSession();
+		}
+
+		assertEquals(3, sampledSessions);
+		assertFalse(PersoSimLogger.isEnabled(PersoSimLogger.TRACE));
+	}
+
+	/**
+	 * Positive test case: sessions of the chosen context are always traced.
+	 */
+	@Test
+	public void testStartSession_TracedContext() {
+		PersoSimLogger.setLogLevel(PersoSimLogger.INFO);
+		PersoSimLogger.setTracedContextId("slot2");
+
+		assertFalse(PersoSimLogger.startSession("slot1"));
+		assertFalse(PersoSimLogger.isEnabled(PersoSimLogger.DEBUG));
+		PersoSimLogger.endSession();
+
+		assertTrue(PersoSimLogger.startSession("slot2"));
+		assertTrue(PersoSimLogger.isEnabled(PersoSimLogger.DEBUG));
+		assertEquals("slot2", PersoSimLogger.getContextId());
+	}
+
+}
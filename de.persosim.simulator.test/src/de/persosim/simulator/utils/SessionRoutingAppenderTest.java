@@ -0,0 +1,213 @@
+package de.persosim.simulator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionRoutingAppenderTest {
+
+	private File logDir;
+	private Logger eventLogger = Logger.getLogger(SessionRoutingAppenderTest.class);
+
+	@Before
+	public void setUp() throws IOException {
+		logDir = Files.createTempDirectory("sessionLogs").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		MDC.remove(SessionRoutingAppender.MDC_CONTEXT_KEY);
+		for (File curFile : logDir.listFiles()) {
+			curFile.delete();
+		}
+		logDir.delete();
+	}
+
+	private void append(SessionRoutingAppender appender, String contextId, String message) {
+		if (contextId == null) {
+			MDC.remove(SessionRoutingAppender.MDC_CONTEXT_KEY);
+		} else {
+			MDC.put(SessionRoutingAppender.MDC_CONTEXT_KEY, contextId);
+		}
+		appender.doAppend(new LoggingEvent(SessionRoutingAppenderTest.class.getName(), eventLogger, Level.DEBUG, message, null));
+	}
+
+	private String[] listLogFiles(final String context) {
+		return logDir.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(SessionRoutingAppender.FILE_PREFIX + context);
+			}
+		});
+	}
+
+	private String readFile(String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(logDir, fileName).toPath()), "UTF-8");
+	}
+
+	/**
+	 * Positive test case: events are written to the file of their context,
+	 * events without context to the default file.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAppend_RoutedByContext() throws IOException {
+		SessionRoutingAppender appender = new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 0, 0, 10);
+
+		append(appender, "session1", "first");
+		append(appender, "session2", "second");
+		append(appender, null, "third");
+		appender.close();
+
+		assertEquals("first" + System.getProperty("line.separator"), readFile("PersoSim_session1.log"));
+		assertEquals("second" + System.getProperty("line.separator"), readFile("PersoSim_session2.log"));
+		assertEquals("third" + System.getProperty("line.separator"), readFile("PersoSim_" + SessionRoutingAppender.DEFAULT_CONTEXT + ".log"));
+	}
+
+	/**
+	 * Positive test case: a file exceeding the maximum size is rotated, no
+	 * message is lost.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAppend_SizeRotation() throws IOException {
+		SessionRoutingAppender appender = new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 5, 0, 10);
+
+		for (int i = 0; i < 5; i++) {
+			append(appender, "session", "message" + i);
+		}
+		appender.close();
+
+		String[] files = listLogFiles("session");
+		assertEquals(5, files.length);
+
+		StringBuilder content = new StringBuilder();
+		for (String curFile : files) {
+			content.append(readFile(curFile));
+		}
+		for (int i = 0; i < 5; i++) {
+			assertTrue(content.indexOf("message" + i) >= 0);
+		}
+	}
+
+	/**
+	 * Positive test case: the size of a file is counted in encoded bytes, so
+	 * non-ASCII messages are rotated according to their UTF-8 length.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAppend_SizeRotationNonAscii() throws IOException {
+		SessionRoutingAppender appender = new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 6, 0, 10);
+
+		// 3 characters but 6 bytes in UTF-8
+		append(appender, "session", "\u00e4\u00f6\u00fc");
+		append(appender, "session", "next");
+		appender.close();
+
+		assertEquals(2, listLogFiles("session").length);
+		assertEquals("next" + System.getProperty("line.separator"), readFile("PersoSim_session.log"));
+	}
+
+	/**
+	 * Positive test case: only the configured number of rotated files is
+	 * retained, the active file is never deleted.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAppend_Retention() throws IOException {
+		SessionRoutingAppender appender = new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 5, 0, 2);
+
+		for (int i = 0; i < 10; i++) {
+			append(appender, "session", "message" + i);
+		}
+		appender.close();
+
+		assertEquals(3, listLogFiles("session").length);
+		assertTrue(readFile("PersoSim_session.log").startsWith("message9"));
+	}
+
+	/**
+	 * Positive test case: the number of retained files is also enforced when
+	 * new contexts are created without any rotation, open files are never
+	 * deleted.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAppend_RetentionForNewContexts() throws IOException {
+		SessionRoutingAppender appender = new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 0, 0, 2);
+
+		int noOfContexts = SessionRoutingAppender.MAX_OPEN_FILES + 5;
+		for (int i = 0; i < noOfContexts; i++) {
+			append(appender, "session" + i, "message" + i);
+		}
+
+		assertEquals(SessionRoutingAppender.MAX_OPEN_FILES + 2, listLogFiles("session").length);
+		assertTrue(new File(logDir, "PersoSim_session" + (noOfContexts - 1) + ".log").exists());
+		appender.close();
+	}
+
+	/**
+	 * Positive test case: files within the log directory that are not written
+	 * by the appender are not deleted.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAppend_RetentionKeepsForeignFiles() throws IOException {
+		File foreignFile = new File(logDir, "PersoSim_20140101120000.log");
+		assertTrue(foreignFile.createNewFile());
+		assertTrue(foreignFile.setLastModified(0));
+
+		SessionRoutingAppender appender = new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 5, 0, 1);
+		for (int i = 0; i < 5; i++) {
+			append(appender, "session", "message" + i);
+		}
+		appender.close();
+
+		assertTrue(foreignFile.exists());
+		assertEquals(2, listLogFiles("session").length);
+	}
+
+	/**
+	 * Positive test case: context ids are sanitized before being used as part
+	 * of the file name.
+	 */
+	@Test
+	public void testAppend_SanitizedFileName() {
+		SessionRoutingAppender appender = new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 0, 0, 10);
+
+		append(appender, "../slot 1", "message");
+		appender.close();
+
+		assertTrue(new File(logDir, "PersoSim____slot_1.log").exists());
+		assertFalse(new File(logDir.getParentFile(), "PersoSim_.log").exists());
+	}
+
+	/**
+	 * Negative test case: a negative number of retained files is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_NegativeRetention() {
+		new SessionRoutingAppender(new PatternLayout("%m%n"), logDir, 0, 0, -1);
+	}
+
+}
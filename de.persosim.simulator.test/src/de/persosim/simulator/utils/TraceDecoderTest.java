@@ -0,0 +1,112 @@
+package de.persosim.simulator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TraceDecoderTest {
+
+	private ByteArrayOutputStream traceStream;
+	private TraceWriter traceWriter;
+
+	@Before
+	public void setUp() throws IOException {
+		traceStream = new ByteArrayOutputStream();
+		traceWriter = new TraceWriter(traceStream);
+	}
+
+	private String decode(boolean json) throws IOException {
+		traceWriter.close();
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		new TraceDecoder(new ByteArrayInputStream(traceStream.toByteArray()), new PrintStream(decoded), json).decode();
+		return decoded.toString();
+	}
+
+	/**
+	 * Positive test case: formatted messages are rendered identically to the
+	 * textual log, including hex conversion of raw byte arguments.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testDecode_Formatted() throws IOException {
+		traceWriter.writeFormatted(0, PersoSimLogger.DEBUG, "source", "%s must not be %02X, data %s", "CLA", (byte) 0xFF, new byte[] { 0x01, (byte) 0xAB });
+
+		String decoded = decode(false);
+
+		assertTrue(decoded.endsWith("DEBUG - source: CLA must not be FF, data 01AB" + System.getProperty("line.separator")));
+	}
+
+	/**
+	 * Positive test case: data records are rendered as hex dump.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testDecode_Data() throws IOException {
+		byte[] data = new byte[] { 0x00, (byte) 0xA4, 0x04, 0x0C };
+		traceWriter.writeData(0, PersoSimLogger.TRACE, "source", "incoming APDU:", data);
+
+		String decoded = decode(false);
+
+		assertTrue(decoded.contains("TRACE - source: incoming APDU:\n" + HexString.dump(data)));
+	}
+
+	/**
+	 * Positive test case: events are rendered as JSON, source names are
+	 * resolved from their ids.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testDecode_Json() throws IOException {
+		traceWriter.writeMessage(42, PersoSimLogger.INFO, "first \"source\"", "message 1");
+		traceWriter.writeData(43, PersoSimLogger.DEBUG, "second", "message 2", new byte[] { 0x3F, 0x00 });
+		traceWriter.writeMessage(44, PersoSimLogger.WARN, "first \"source\"", "line1\nline2");
+
+		String[] lines = decode(true).split(System.getProperty("line.separator"));
+
+		assertEquals(3, lines.length);
+		assertEquals("{\"timestamp\":42,\"level\":\"INFO\",\"source\":\"first \\\"source\\\"\",\"message\":\"message 1\"}", lines[0]);
+		assertEquals("{\"timestamp\":43,\"level\":\"DEBUG\",\"source\":\"second\",\"message\":\"message 2\",\"data\":\"3F00\"}", lines[1]);
+		assertEquals("{\"timestamp\":44,\"level\":\"WARN\",\"source\":\"first \\\"source\\\"\",\"message\":\"line1\\nline2\"}", lines[2]);
+	}
+
+	/**
+	 * Negative test case: input that is not a trace is rejected.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_InvalidMagic() throws IOException {
+		new TraceDecoder(new ByteArrayInputStream(new byte[] { 'X', 'X', 'X', 'X', 1 }), new PrintStream(new ByteArrayOutputStream()), false).decode();
+	}
+
+	/**
+	 * Negative test case: a length field exceeding the maximum element length
+	 * is rejected before allocating a buffer for it.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_LengthTooLarge() throws IOException {
+		traceWriter.close();
+		ByteArrayOutputStream trace = new ByteArrayOutputStream();
+		DataOutputStream traceData = new DataOutputStream(trace);
+		traceData.write(traceStream.toByteArray());
+		traceData.writeByte(TraceWriter.RECORD_SOURCE);
+		traceData.writeInt(1);
+		traceData.writeInt(TraceDecoder.MAX_ELEMENT_LENGTH + 1);
+
+		new TraceDecoder(new ByteArrayInputStream(trace.toByteArray()), new PrintStream(new ByteArrayOutputStream()), false).decode();
+	}
+
+}
@@ -9,6 +9,7 @@ import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.net.Socket;
 import java.security.Security;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,8 +21,37 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import de.persosim.simulator.jaxb.PersoSimJaxbContextProvider;
 import de.persosim.simulator.perso.DefaultPersoTestPki;
 import de.persosim.simulator.perso.Personalization;
+import de.persosim.simulator.utils.AsyncLogWriter;
+import de.persosim.simulator.utils.AsyncLogWriter.OverflowPolicy;
+import de.persosim.simulator.utils.PersoSimLogger;
 
 public class PersoSim implements Runnable {
+	
+	/**
+	 * Command line argument enabling asynchronous logging, an optional value
+	 * (e.g. <code>-asyncLogging=drop</code>) selects the {@link OverflowPolicy}
+	 */
+	public static final String ARG_ASYNC_LOGGING = "-asyncLogging";
+	
+	/**
+	 * Command line argument replacing the textual log file with a binary
+	 * trace, see {@link de.persosim.simulator.utils.TraceDecoder}. It can not
+	 * be combined with {@link #ARG_ASYNC_LOGGING} or {@link #ARG_SESSION_LOGS}.
+	 */
+	public static final String ARG_BINARY_TRACE = "-binaryTrace";
+	
+	/**
+	 * Command line argument enabling one rotated log file per connection, see
+	 * {@link de.persosim.simulator.utils.SessionRoutingAppender}
+	 */
+	public static final String ARG_SESSION_LOGS = "-sessionLogs";
+	
+	/**
+	 * Command line argument setting the initial log level, e.g.
+	 * <code>-logLevel=INFO</code>, see {@link PersoSimLogger#parseLogLevel(String)}.
+	 * Without it all messages down to TRACE are logged.
+	 */
+	public static final String ARG_LOG_LEVEL = "-logLevel";
 
 	private SocketSimulator simulator;
 	
@@ -85,9 +115,18 @@ public class PersoSim implements Runnable {
 					} else if (cmd.toLowerCase().startsWith("exit")) {
 						stopSimulator();
 						executeUserCommands = false;
+					} else if (cmd.toLowerCase().startsWith("loglevel")) {
+						cmdLogLevel(cmd);
+					} else if (cmd.toLowerCase().startsWith("tracesampling")) {
+						cmdTraceSampling(cmd);
+					} else if (cmd.toLowerCase().startsWith("tracecontext")) {
+						cmdTraceContext(cmd);
 					} else if (cmd.toLowerCase().startsWith("help")) {
 						System.out.println("Available commands:");
 						System.out.println("sendApdu <hestring>");
+						System.out.println("logLevel [TRACE|DEBUG|INFO|WARN|ERROR|FATAL]");
+						System.out.println("traceSampling <N> (trace every N-th session, 0 disables)");
+						System.out.println("traceContext <contextId>|off");
 						System.out.println("help");
 						System.out.println("exit");
 					} else {
@@ -166,6 +205,48 @@ public class PersoSim implements Runnable {
 
 	}
 
+	/**
+	 * Show or change the log level
+	 * 
+	 * @param cmd
+	 *            string containing the command
+	 */
+	private void cmdLogLevel(String cmd) {
+		String[] cmdArgs = cmd.trim().split("\\s+");
+		if (cmdArgs.length > 1) {
+			PersoSimLogger.setLogLevel(PersoSimLogger.parseLogLevel(cmdArgs[1]));
+		}
+		System.out.println("log level is " + PersoSimLogger.getLogLevel());
+	}
+	
+	/**
+	 * Configure sampled tracing of every N-th session
+	 * 
+	 * @param cmd
+	 *            string containing the command
+	 */
+	private void cmdTraceSampling(String cmd) {
+		String[] cmdArgs = cmd.trim().split("\\s+");
+		if (cmdArgs.length != 2) {
+			throw new RuntimeException("invalid arguments to traceSampling");
+		}
+		PersoSimLogger.setTraceSamplingRate(Integer.parseInt(cmdArgs[1]));
+	}
+	
+	/**
+	 * Configure tracing of a chosen context (e.g. card slot or session)
+	 * 
+	 * @param cmd
+	 *            string containing the command
+	 */
+	private void cmdTraceContext(String cmd) {
+		String[] cmdArgs = cmd.trim().split("\\s+");
+		if (cmdArgs.length != 2) {
+			throw new RuntimeException("invalid arguments to traceContext");
+		}
+		PersoSimLogger.setTracedContextId(cmdArgs[1].equalsIgnoreCase("off") ? null : cmdArgs[1]);
+	}
+
 	/**
 	 * Transmit the given APDU to the simulator, which processes it and returns
 	 * the response. The response APDU is received from the simulator via its
@@ -222,7 +303,49 @@ public class PersoSim implements Runnable {
 	}
 
 	public void handleArgs(String[] args) {
-		// TODO handle command line args as soon as those are defined
+		// TODO handle further command line args as soon as those are defined
+		boolean binaryTrace = false;
+		boolean asyncLogging = false;
+		boolean sessionLogs = false;
+		
+		for (String curArg : args) {
+			if (curArg.startsWith(ARG_ASYNC_LOGGING)) {
+				asyncLogging = true;
+				OverflowPolicy policy = OverflowPolicy.BLOCK;
+				int valueIndex = curArg.indexOf('=');
+				if (valueIndex >= 0) {
+					String policyName = curArg.substring(valueIndex + 1);
+					try {
+						policy = OverflowPolicy.valueOf(policyName.toUpperCase());
+					} catch (IllegalArgumentException e) {
+						System.out.println("unknown overflow policy " + policyName + " for " + ARG_ASYNC_LOGGING + ", valid values are " + Arrays.toString(OverflowPolicy.values()) + ", using " + policy);
+					}
+				}
+				PersoSimLogger.setAsyncLogging(AsyncLogWriter.DEFAULT_CAPACITY, policy);
+			} else if (curArg.equals(ARG_BINARY_TRACE)) {
+				binaryTrace = true;
+				PersoSimLogger.setBinaryTrace(true);
+			} else if (curArg.startsWith(ARG_LOG_LEVEL + "=")) {
+				String logLevelName = curArg.substring(ARG_LOG_LEVEL.length() + 1);
+				try {
+					PersoSimLogger.setLogLevel(PersoSimLogger.parseLogLevel(logLevelName));
+				} catch (IllegalArgumentException e) {
+					System.out.println("unknown log level " + logLevelName + " for " + ARG_LOG_LEVEL + ", using " + PersoSimLogger.getLogLevel());
+				}
+			} else if (curArg.equals(ARG_SESSION_LOGS)) {
+				sessionLogs = true;
+				PersoSimLogger.setSessionLogging(true, PersoSimLogger.SESSION_LOG_MAX_FILE_SIZE_DFLT, PersoSimLogger.SESSION_LOG_MAX_FILE_AGE_DFLT, PersoSimLogger.SESSION_LOG_MAX_RETAINED_FILES_DFLT);
+			} else {
+				System.out.println("unknown command line argument " + curArg);
+			}
+		}
+		
+		if (binaryTrace && (asyncLogging || sessionLogs)) {
+			// the binary trace is written synchronously to a single file
+			System.out.println(ARG_BINARY_TRACE + " can not be combined with " + ARG_ASYNC_LOGGING + " or " + ARG_SESSION_LOGS + ", ignoring the latter");
+			PersoSimLogger.setAsyncLogging(AsyncLogWriter.DEFAULT_CAPACITY, null);
+			PersoSimLogger.setSessionLogging(false, PersoSimLogger.SESSION_LOG_MAX_FILE_SIZE_DFLT, PersoSimLogger.SESSION_LOG_MAX_FILE_AGE_DFLT, PersoSimLogger.SESSION_LOG_MAX_RETAINED_FILES_DFLT);
+		}
 	}
 
 }
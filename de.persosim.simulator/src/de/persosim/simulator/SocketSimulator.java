@@ -12,6 +12,7 @@ import org.bouncycastle.util.encoders.Hex;
 import de.persosim.simulator.perso.Personalization;
 import de.persosim.simulator.platform.Iso7816;
 import de.persosim.simulator.platform.PersoSimKernel;
+import de.persosim.simulator.utils.PersoSimLogger;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -39,6 +40,7 @@ public class SocketSimulator implements Runnable {
 	private boolean isPowerOn;
 	private ServerSocket server;
 	private Socket clientSocket;
+	private int connectionCounter = 0;
 
 	/**
 	 * Create new instance.
@@ -173,6 +175,11 @@ public class SocketSimulator implements Runnable {
 		clientSocket = null;
 		try {
 			clientSocket = server.accept();
+			
+			// all messages logged while handling this connection belong to
+			// the same session
+			connectionCounter++;
+			PersoSimLogger.startSession("session" + connectionCounter);
 
 			BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
 			PrintStream out = new PrintStream(clientSocket.getOutputStream());
@@ -221,6 +228,7 @@ public class SocketSimulator implements Runnable {
 					PersoSim.showExceptionToUser(e);
 				}
 			}
+			PersoSimLogger.endSession();
 		}
 
 	}
@@ -248,6 +256,24 @@ public class SocketSimulator implements Runnable {
 			return ACK;
 		case 0xFFFF:
 			return kernel.reset();
+		case 0xFF10:
+			// set log level, P1 encodes the level
+			if (apdu.length < 4) {
+				return NACK;
+			}
+			try {
+				PersoSimLogger.setLogLevel(apdu[2]);
+			} catch (IllegalArgumentException e) {
+				return NACK;
+			}
+			return ACK;
+		case 0xFF11:
+			// set trace sampling rate, P1P2 encode N (0 disables sampling)
+			if (apdu.length < 4) {
+				return NACK;
+			}
+			PersoSimLogger.setTraceSamplingRate(Utils.maskUnsignedShortToInt(Utils.concatenate(apdu[2], apdu[3])));
+			return ACK;
 		default:
 			// all other (unknown) APDUs are forwarded to the
 			// PersoSimKernel
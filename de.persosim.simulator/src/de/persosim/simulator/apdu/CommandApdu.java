@@ -4,11 +4,15 @@ import static de.persosim.simulator.utils.PersoSimLogger.logException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import de.persosim.simulator.exception.ISO7816Exception;
 import de.persosim.simulator.platform.Iso7816;
 import de.persosim.simulator.platform.Iso7816Lib;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
+import de.persosim.simulator.tlv.TlvReader;
 import de.persosim.simulator.tlv.TlvValue;
+import de.persosim.simulator.tlv.TlvValuePlain;
 import de.persosim.simulator.utils.HexString;
 import de.persosim.simulator.utils.Utils;
 
@@ -25,16 +29,20 @@ import de.persosim.simulator.utils.Utils;
  * 
  */
 public class CommandApdu {
-	private byte isoFormat;
-	private byte cla;
-	private byte ins;
-	private byte p1;
-	private byte p2;
+	/* raw APDU, header fields are read from it on demand */
+	private byte[] apdu;
+	
 	private byte isoCase;
 	private boolean isExtendedLength;
 	private int ne;
 	private short nc;
+	private int commandDataOffset;
+	
+	/* created on first access only, replaced by the parsed structure once it is requested */
 	private TlvValue commandData;
+	
+	/* set once the command data field has been found not to contain TLV data objects */
+	private RuntimeException commandDataParsingException;
 
 	private CommandApdu predecessor = null;
 
@@ -48,6 +56,10 @@ public class CommandApdu {
 	
 	/**
 	 * Parses the apdu from the given byte array and sets the provided instance as predecessor.
+	 * <p/>
+	 * The provided array is referenced and must not be modified afterwards.
+	 * Only the length fields are decoded (and checked) here, all other fields
+	 * are read from the array when accessed.
 	 * @param apdu
 	 * @param previousCommandApdu the predecessor of this instance, may be null
 	 */
@@ -55,55 +67,43 @@ public class CommandApdu {
 		//store history
 		predecessor = previousCommandApdu;
 		
-		//extract data from CLA byte
-		cla = Iso7816Lib.getClassByte(apdu);
-		isoFormat = Iso7816Lib.getISOFormat(apdu);
-		
-		//store INS/P1/P2 bytes
-		ins = Iso7816Lib.getInstructionByte(apdu);
-		p1 = Iso7816Lib.getP1(apdu);
-		p2 = Iso7816Lib.getP2(apdu);
+		this.apdu = apdu;
 		
-		//analyze/store Iso case and length
-		isExtendedLength = Iso7816Lib.isExtendedLengthLCLE(apdu);
-		isoCase = Iso7816Lib.getISOcase(apdu);
+		//analyze/store Iso case and length, the ISO case is determined only once
+		byte isoCaseExtended = Iso7816Lib.getISOcaseExtended(apdu);
+		isExtendedLength = Iso7816Lib.isExtendedLengthLCLE(isoCaseExtended);
+		isoCase = Iso7816Lib.getISOcase(isoCaseExtended);
 		
-		//handle commandData (if present)
+		//locate commandData (if present)
 		if ((isoCase == Iso7816.ISO_CASE_3) || (isoCase == Iso7816.ISO_CASE_4)) {
-			nc = Iso7816Lib.getNc(apdu);
-			commandData = Iso7816Lib.getCommandData(apdu);
+			nc = Iso7816Lib.getNc(apdu, isoCaseExtended);
+			commandDataOffset = Iso7816Lib.getOffsetData(isoCase, isExtendedLength);
 		} else {
 			nc = 0;
-			commandData = null;
 		}
 		
 		//store ne (if present)
-		if ((isoCase == Iso7816.ISO_CASE_2) || (isoCase == Iso7816.ISO_CASE_4)) {
-			ne = Iso7816Lib.getNe(apdu);
-		} else {
-			ne = 0;
-		}
-
+		ne = Iso7816Lib.getNe(apdu, isoCaseExtended);
 	}
 
 	public byte getIsoFormat() {
-		return isoFormat;
+		return Iso7816Lib.getISOFormat(getCla());
 	}
 
 	public byte getCla() {
-		return cla;
+		return apdu[Iso7816.OFFSET_CLA];
 	}
 
 	public byte getIns() {
-		return ins;
+		return apdu[Iso7816.OFFSET_INS];
 	}
 
 	public byte getP1() {
-		return p1;
+		return apdu[Iso7816.OFFSET_P1];
 	}
 
 	public byte getP2() {
-		return p2;
+		return apdu[Iso7816.OFFSET_P2];
 	}
 
 	public byte getIsoCase() {
@@ -115,10 +115,19 @@ public class CommandApdu {
 	}
 	
 	public int getNc() {
-		return nc;
+		return Utils.maskUnsignedShortToInt(nc);
 	}
 
+	/**
+	 * Returns the command data field, the returned object is created on first
+	 * access.
+	 * 
+	 * @return the command data field or null if no data is present
+	 */
 	public TlvValue getCommandData() {
+		if ((commandData == null) && hasCommandData()) {
+			commandData = new TlvValuePlain(apdu, commandDataOffset, getCommandDataEndOffset());
+		}
 		return commandData;
 	}
 	
@@ -126,15 +135,98 @@ public class CommandApdu {
 	 * Tries to create a TlvDataObjectContainer from the commandDataField. This
 	 * may result in a RuntimeException when the contained data cannot be
 	 * parsed. Thus the caller is expected to handle this gracefully.
+	 * <p/>
+	 * The command data field is parsed only once, the same container is
+	 * returned to all callers, i.e. all APDU specifications matched against
+	 * this APDU and the protocol finally processing it. If the command data
+	 * field does not contain TLV data objects this is memorized as well, i.e.
+	 * the exception of the first attempt is thrown again.
 	 * 
 	 * @return TlvDataObjectContainer created from command data field
 	 */
 	public TlvDataObjectContainer getCommandDataObjectContainer() {
+		if (commandDataParsingException != null) {
+			throw commandDataParsingException;
+		}
+		
 		if (!(commandData instanceof TlvDataObjectContainer)) {
-			commandData = new TlvDataObjectContainer(commandData);
+			try {
+				if (hasCommandData()) {
+					//parse directly from the APDU without an intermediate copy
+					commandData = new TlvDataObjectContainer(apdu, commandDataOffset, getCommandDataEndOffset());
+				} else {
+					commandData = new TlvDataObjectContainer(commandData);
+				}
+			} catch (RuntimeException e) {
+				commandDataParsingException = e;
+				throw e;
+			}
 		}
 		return (TlvDataObjectContainer) commandData;
 	}
+	
+	/**
+	 * Returns whether the command data field is present and contains TLV data
+	 * objects. The command data field is parsed at most once, the result is
+	 * kept for subsequent calls of this method and
+	 * {@link #getCommandDataObjectContainer()}.
+	 * <p/>
+	 * Only structural errors (see {@link IllegalArgumentException}) are
+	 * reported by the return value, other exceptions raised while parsing,
+	 * e.g. an {@link ISO7816Exception} for invalid length fields, are passed
+	 * to the caller.
+	 * 
+	 * @return true iff command data field is present and contains TLV data objects
+	 */
+	public boolean isCommandDataTlv() {
+		if (!hasCommandData()) {
+			return false;
+		}
+		
+		try {
+			getCommandDataObjectContainer();
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a {@link TlvReader} on the command data field. In contrast to
+	 * {@link #getCommandDataObjectContainer()} no TLV data objects are created
+	 * and the data is not copied. This may result in a RuntimeException when
+	 * the contained data cannot be parsed. Thus the caller is expected to
+	 * handle this gracefully.
+	 * 
+	 * @return reader on the command data field, empty if no data is present
+	 */
+	public TlvReader getCommandDataReader() {
+		if (!hasCommandData()) {
+			return new TlvReader(new byte[0]);
+		}
+		return new TlvReader(apdu, commandDataOffset, getCommandDataEndOffset());
+	}
+	
+	/**
+	 * Returns a read-only view on the command data field. The data is not
+	 * copied.
+	 * 
+	 * @return buffer holding the command data field, empty if no data is present
+	 */
+	public ByteBuffer getCommandDataBuffer() {
+		if (!hasCommandData()) {
+			return ByteBuffer.allocate(0).asReadOnlyBuffer();
+		}
+		return ByteBuffer.wrap(apdu, commandDataOffset, getCommandDataEndOffset() - commandDataOffset).slice().asReadOnlyBuffer();
+	}
+	
+	private boolean hasCommandData() {
+		return (isoCase == Iso7816.ISO_CASE_3) || (isoCase == Iso7816.ISO_CASE_4);
+	}
+	
+	private int getCommandDataEndOffset() {
+		return commandDataOffset + Utils.maskUnsignedShortToInt(nc);
+	}
 
 	public int getNe() {
 		return ne;
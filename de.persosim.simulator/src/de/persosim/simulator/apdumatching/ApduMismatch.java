@@ -0,0 +1,47 @@
+package de.persosim.simulator.apdumatching;
+
+import de.persosim.simulator.platform.Iso7816;
+
+/**
+ * This enum lists the parameters of an {@link ApduSpecification} an APDU may
+ * fail to match, in the order they are evaluated. The later a parameter is
+ * listed, the closer an APDU failing to match it got to a full match. Each
+ * parameter provides the status word most appropriate to report an APDU that
+ * failed to match it.
+ *
+ */
+public enum ApduMismatch {
+
+	INS(Iso7816.SW_6D00_INS_NOT_SUPPORTED),
+	ISO_FORMAT(Iso7816.SW_6E00_CLA_NOT_SUPPORTED),
+	CHANNEL(Iso7816.SW_6881_LOGICAL_CHANNEL_NOT_SUPPORTED),
+	SECURE_MESSAGING(Iso7816.SW_6882_SECURE_MESSAGING_NOT_SUPPORTED),
+	CHAINING(Iso7816.SW_6884_COMMAND_CHAINING_NOT_SUPPORTED),
+	P1(Iso7816.SW_6A86_INCORRECT_PARAMETERS_P1P2),
+	P2(Iso7816.SW_6A86_INCORRECT_PARAMETERS_P1P2),
+	ISO_CASE(Iso7816.SW_6700_WRONG_LENGTH),
+	EXTENDED_LENGTH(Iso7816.SW_6700_WRONG_LENGTH),
+	TAGS(Iso7816.SW_6A80_WRONG_DATA);
+
+	private final short statusWord;
+
+	private ApduMismatch(short statusWord) {
+		this.statusWord = statusWord;
+	}
+
+	/**
+	 * @return the status word to report an APDU failing to match this parameter
+	 */
+	public short getStatusWord() {
+		return statusWord;
+	}
+
+	/**
+	 * @param other the mismatch to compare with, may be null for a full match
+	 * @return true iff an APDU failing to match this parameter got closer to a full match than one failing the other
+	 */
+	public boolean isCloserThan(ApduMismatch other) {
+		return (other != null) && (ordinal() > other.ordinal());
+	}
+
+}
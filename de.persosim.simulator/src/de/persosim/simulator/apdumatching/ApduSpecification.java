@@ -1,12 +1,12 @@
 package de.persosim.simulator.apdumatching;
 
+import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
 import de.persosim.simulator.apdu.CommandApdu;
 import de.persosim.simulator.apdu.InterindustryCommandApdu;
 import de.persosim.simulator.apdu.IsoSecureMessagingCommandApdu;
 import de.persosim.simulator.exception.CommandParameterUndefinedException;
 import de.persosim.simulator.platform.Iso7816;
-import de.persosim.simulator.tlv.TlvDataObjectContainer;
 import de.persosim.simulator.tlv.TlvPath;
 import de.persosim.simulator.tlv.TlvTag;
 
@@ -157,26 +157,32 @@ public class ApduSpecification implements Iso7816, ApduSpecificationConstants {
 	
 	/**
 	 * This method performs a matching for a single provided parameter
-	 * @param name the name of the matching parameter
 	 * @param expected the expected value
 	 * @param received the received value
 	 * @param required whether this parameter is required
 	 * @return whether the provided parameter matches
 	 */
-	private boolean matchByteParameter(String name, byte expected, byte received, byte required) {
+	private static boolean matchByteParameter(byte expected, byte received, byte required) {
 		if(expected == received) {
-			if(required == REQ_MISMATCH) {
-				log(ApduSpecification.class, name + " must not be " + String.format("%02X", received));
-				return false;
-			}
+			return required != REQ_MISMATCH;
 		} else{
-			if(required == REQ_MATCH) {
-				log(ApduSpecification.class, name + " expected to be " + String.format("%02X", expected));
-				return false;
-			}
+			return required != REQ_MATCH;
+		}
+	}
+	
+	/**
+	 * This method performs a matching for a single provided boolean parameter
+	 * @param expected the expected value
+	 * @param received the received value
+	 * @param required whether this parameter is required
+	 * @return whether the provided parameter matches
+	 */
+	private static boolean matchBooleanParameter(boolean expected, boolean received, byte required) {
+		if(expected == received) {
+			return required != REQ_MISMATCH;
+		} else{
+			return required != REQ_MATCH;
 		}
-		
-		return true;
 	}
 	
 	/**
@@ -187,38 +193,46 @@ public class ApduSpecification implements Iso7816, ApduSpecificationConstants {
 	 * @return whether the specification defined within this object matches against the provided {@link CommandApdu}
 	 */
 	public boolean matchesFullApdu(CommandApdu apdu) {
-		byte isoCaseReceived;
-		boolean elementMatch;
+		ApduMismatch mismatch = getMismatch(apdu, true);
 		
-		elementMatch = matchByteParameter("ISO format", isoFormat, apdu.getIsoFormat(), reqIsoFormat);
-		if(!elementMatch) {return false;}
+		if(mismatch != null) {
+			log(ApduSpecification.class, DEBUG, "APDU does not match \"%s\", mismatching parameter is %s", id, mismatch);
+			return false;
+		}
 		
-		if (reqChaining != REQ_OPTIONAL) {
-			if (!(apdu instanceof InterindustryCommandApdu)) {
-				log(ApduSpecification.class, "apdu class does not support channels");
-				return false;
-			}
-			if(this.chaining == ((InterindustryCommandApdu) apdu).isChaining()) {
-				if(this.reqChaining == REQ_MISMATCH) {
-					if(this.chaining) {
-						log(ApduSpecification.class, "chaining is not supported");
-						return false;
-					} else{
-						log(ApduSpecification.class, "chaining expected");
-						return false;
-					}
-				}
-			} else{
-				if(this.reqChaining == REQ_MATCH) {
-					if(this.chaining) {
-						log(ApduSpecification.class, "chaining expected");
-						return false;
-					} else{
-						log(ApduSpecification.class, "chaining is not supported");
-						return false;
-					}
-				}
+		return true;
+	}
+	
+	/**
+	 * This method performs a matching of the specification defined within
+	 * this object against the provided {@link CommandApdu} and returns the
+	 * first parameter that does not match. Parameters are evaluated in the
+	 * order defined by {@link ApduMismatch}, i.e. the result indicates how
+	 * close the APDU got to a full match. No logging is performed.
+	 * @param apdu the {@link CommandApdu} to match
+	 * @return the first mismatching parameter or null iff the specification defined within this object matches
+	 */
+	public ApduMismatch getMismatch(CommandApdu apdu) {
+		return getMismatch(apdu, false);
+	}
+	
+	/**
+	 * @see #getMismatch(CommandApdu)
+	 * @param apdu the {@link CommandApdu} to match
+	 * @param logTagMismatch whether the reason of a mismatch of the command data field is to be logged
+	 * @return the first mismatching parameter or null iff the specification defined within this object matches
+	 */
+	private ApduMismatch getMismatch(CommandApdu apdu, boolean logTagMismatch) {
+		if(!matchByteParameter(ins, apdu.getIns(), reqIns)) {return ApduMismatch.INS;}
+		
+		if(!matchByteParameter(isoFormat, apdu.getIsoFormat(), reqIsoFormat)) {return ApduMismatch.ISO_FORMAT;}
+		
+		if (reqChannel != REQ_OPTIONAL) {
+			if (!(apdu instanceof InterindustryCommandApdu)) { //XXX use a marker interface to check for channel abilities to provide more generic way
+				return ApduMismatch.CHANNEL;
 			}
+			
+			if(!matchByteParameter(channel, ((InterindustryCommandApdu) apdu).getChannel(), reqChannel)) {return ApduMismatch.CHANNEL;}
 		}
 		
 		if(reqSecureMessaging != REQ_OPTIONAL) {
@@ -229,8 +243,7 @@ public class ApduSpecification implements Iso7816, ApduSpecificationConstants {
 					if(reqSecureMessaging == REQ_MATCH) {
 						break;
 					} else {
-						log(ApduSpecification.class, "SM mismatch not fulfilled");
-						return false;
+						return ApduMismatch.SECURE_MESSAGING;
 					}
 				}
 				
@@ -239,79 +252,41 @@ public class ApduSpecification implements Iso7816, ApduSpecificationConstants {
 			}
 		}
 		
-		if (reqChannel != REQ_OPTIONAL) {
-			if (!(apdu instanceof InterindustryCommandApdu)) { //XXX use a marker interface to check for channel abilities to provide more generic way
-				log(ApduSpecification.class, "apdu class does not support channels");
-				return false;
+		if (reqChaining != REQ_OPTIONAL) {
+			if (!(apdu instanceof InterindustryCommandApdu)) {
+				return ApduMismatch.CHAINING;
 			}
 			
-			elementMatch = matchByteParameter("channel", channel, ((InterindustryCommandApdu) apdu).getChannel(), reqChannel);
-			if(!elementMatch) {return false;}
-			
+			if(!matchBooleanParameter(chaining, ((InterindustryCommandApdu) apdu).isChaining(), reqChaining)) {return ApduMismatch.CHAINING;}
 		}
 		
-		elementMatch = matchByteParameter("INS byte", ins, apdu.getIns(), reqIns);
-		if(!elementMatch) {return false;}
+		if(!matchByteParameter(p1, apdu.getP1(), reqP1)) {return ApduMismatch.P1;}
 		
-		elementMatch = matchByteParameter("P1 byte", p1, apdu.getP1(), reqP1);
-		if(!elementMatch) {return false;}
+		if(!matchByteParameter(p2, apdu.getP2(), reqP2)) {return ApduMismatch.P2;}
 		
-		elementMatch = matchByteParameter("P2 byte", p2, apdu.getP2(), reqP2);
-		if(!elementMatch) {return false;}
+		byte isoCaseReceived = apdu.getIsoCase();
 		
-		isoCaseReceived = apdu.getIsoCase();
-		
-		elementMatch = matchByteParameter("ISO case", isoCase, isoCaseReceived, reqIsoCase);
-		if(!elementMatch) {return false;}
+		if(!matchByteParameter(isoCase, isoCaseReceived, reqIsoCase)) {return ApduMismatch.ISO_CASE;}
 		
 		if (reqIsExtendedLengthLCLE != REQ_OPTIONAL) {
+			//extended length can not be determined for iso case 1 apdus
 			if (isoCaseReceived == 1) {
-				log(ApduSpecification.class, "unable to determine extended length for iso case 1 apdu");
-				return false;
-			}
-			
-			if(this.isExtendedLengthLCLE == apdu.isExtendedLength()) {
-				if(this.reqIsExtendedLengthLCLE == REQ_MISMATCH) {
-					if(this.isExtendedLengthLCLE) {
-						log(ApduSpecification.class, "extended length L_C/L_E fields must not be used");
-						return false;
-					} else{
-						log(ApduSpecification.class, "extended length L_C/L_E fields expected");
-						return false;
-					}
-				}
-			} else{
-				if(this.reqIsExtendedLengthLCLE == REQ_MATCH) {
-					if(this.isExtendedLengthLCLE) {
-						log(ApduSpecification.class, "extended length L_C/L_E fields expected");
-						return false;
-					} else{
-						log(ApduSpecification.class, "extended length L_C/L_E fields must not be used");
-						return false;
-					}
-				}
+				return ApduMismatch.EXTENDED_LENGTH;
 			}
 			
+			if(!matchBooleanParameter(isExtendedLengthLCLE, apdu.isExtendedLength(), reqIsExtendedLengthLCLE)) {return ApduMismatch.EXTENDED_LENGTH;}
 		}
 		
 		if (!tags.isEmpty()) {
 			
-			TlvDataObjectContainer constructedDataField;
-			
-			byte[] commandDataBytes = apdu.getCommandData().toByteArray();
-			
-			try {
-				constructedDataField = new TlvDataObjectContainer(commandDataBytes, 0, commandDataBytes.length);
-				
-				return tags.matches(constructedDataField);
-			} catch (IllegalArgumentException e) {
-				log(ApduSpecification.class, "command data field does not contain TLV constructed data");
-				return false;
+			//the command data field is parsed only once for all specifications matched against this APDU
+			if (!apdu.isCommandDataTlv() || !tags.matches(apdu.getCommandDataObjectContainer(), logTagMismatch)) {
+				return ApduMismatch.TAGS;
 			}
 					
 		}
 		
-		return true;
+		return null;
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -0,0 +1,122 @@
+package de.persosim.simulator.apdumatching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.persosim.simulator.apdu.CommandApdu;
+import de.persosim.simulator.exception.ISO7816Exception;
+
+/**
+ * This class matches a {@link CommandApdu} against a set of
+ * {@link ApduSpecification}s, e.g. those of all protocols known to the card,
+ * and determines the closest match.
+ * <p/>
+ * The specifications are grouped by their required instruction byte when
+ * added, so only specifications for the instruction of the APDU (and those
+ * not requiring a certain instruction) are evaluated. Each of them is
+ * evaluated by {@link ApduSpecification#getMismatch(CommandApdu)} without
+ * logging and the command data field is parsed at most once for all of them.
+ *
+ */
+public class ApduSpecificationMatcher implements ApduSpecificationConstants {
+
+	/* specifications requiring a certain instruction byte, indexed by the unsigned instruction byte */
+	private List<List<ApduSpecification>> specificationsByIns;
+
+	/* specifications not requiring a certain instruction byte */
+	private List<ApduSpecification> specificationsForAnyIns;
+
+	/*--------------------------------------------------------------------------------*/
+
+	public ApduSpecificationMatcher() {
+		specificationsByIns = new ArrayList<>(256);
+		for(int i = 0; i < 256; i++) {
+			specificationsByIns.add(new ArrayList<ApduSpecification>());
+		}
+
+		specificationsForAnyIns = new ArrayList<>();
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Adds the provided specification.
+	 * @param apduSpecification the specification to add
+	 */
+	public void add(ApduSpecification apduSpecification) {
+		if(apduSpecification == null) {throw new NullPointerException("APDU specification must not be null");}
+
+		if(apduSpecification.getReqIns() == REQ_MATCH) {
+			specificationsByIns.get(apduSpecification.getIns() & 0xFF).add(apduSpecification);
+		} else{
+			specificationsForAnyIns.add(apduSpecification);
+		}
+	}
+
+	/**
+	 * Adds all provided specifications, e.g. the APDU set of a protocol.
+	 * @param apduSpecifications the specifications to add, may be null
+	 */
+	public void addAll(Collection<ApduSpecification> apduSpecifications) {
+		if(apduSpecifications == null) {
+			return;
+		}
+
+		for(ApduSpecification apduSpecification : apduSpecifications) {
+			add(apduSpecification);
+		}
+	}
+
+	/**
+	 * Determines how close the provided APDU gets to matching any of the
+	 * added specifications.
+	 * @param apdu the {@link CommandApdu} to match
+	 * @return null if at least one specification fully matches, the mismatch
+	 *         of the specification matched closest otherwise, i.e.
+	 *         {@link ApduMismatch#INS} if there is no specification for the
+	 *         instruction of the APDU
+	 */
+	public ApduMismatch getClosestMismatch(CommandApdu apdu) {
+		if(apdu == null) {throw new NullPointerException("APDU must not be null");}
+
+		ApduMismatch closestMismatch = getClosestMismatch(specificationsByIns.get(apdu.getIns() & 0xFF), apdu, ApduMismatch.INS);
+		if(closestMismatch == null) {
+			return null;
+		}
+
+		return getClosestMismatch(specificationsForAnyIns, apdu, closestMismatch);
+	}
+
+	/**
+	 * Evaluates the provided specifications.
+	 * @return null if at least one specification fully matches, the closest of the provided mismatch and the mismatches of the specifications otherwise
+	 */
+	private static ApduMismatch getClosestMismatch(List<ApduSpecification> apduSpecifications, CommandApdu apdu, ApduMismatch closestMismatch) {
+		for(ApduSpecification apduSpecification : apduSpecifications) {
+			ApduMismatch mismatch = getMismatch(apduSpecification, apdu);
+			if(mismatch == null) {
+				return null;
+			}
+
+			if(mismatch.isCloserThan(closestMismatch)) {
+				closestMismatch = mismatch;
+			}
+		}
+
+		return closestMismatch;
+	}
+
+	/**
+	 * Evaluates a single specification. Errors while parsing the command
+	 * data field are reported as mismatch of the tags.
+	 */
+	private static ApduMismatch getMismatch(ApduSpecification apduSpecification, CommandApdu apdu) {
+		try {
+			return apduSpecification.getMismatch(apdu);
+		} catch (ISO7816Exception e) {
+			return ApduMismatch.TAGS;
+		}
+	}
+
+}
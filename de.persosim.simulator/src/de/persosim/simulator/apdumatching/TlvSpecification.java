@@ -113,6 +113,17 @@ public class TlvSpecification implements ApduSpecificationConstants {
 	 * @return whether this object matches the provided {@link TlvDataObject}
 	 */
 	public boolean matches(TlvDataObject tlvDataObject) {
+		return matches(tlvDataObject, true);
+	}
+	
+	/**
+	 * This method performs a matching against the provided {@link TlvDataObject}.
+	 * @see #matches(TlvDataObject)
+	 * @param tlvDataObject the {@link TlvDataObject} to match against
+	 * @param logMismatch whether the reason of a mismatch is to be logged
+	 * @return whether this object matches the provided {@link TlvDataObject}
+	 */
+	boolean matches(TlvDataObject tlvDataObject, boolean logMismatch) {
 		if(!matches(tlvDataObject.getTlvTag())) {return false;}
 		if(this.required == REQ_MISMATCH) {return false;}
 		
@@ -120,7 +131,7 @@ public class TlvSpecification implements ApduSpecificationConstants {
 		
 		// IMPL support for primitive TLV data objects containing further TLV data objects disguised as Octet Strings
 		if(value instanceof TlvDataObjectContainer) {
-			return subTags.matches((TlvDataObjectContainer) value);
+			return subTags.matches((TlvDataObjectContainer) value, logMismatch);
 		} else{
 			if(subTags.size() > 0) {
 				return false;
@@ -1,5 +1,6 @@
 package de.persosim.simulator.apdumatching;
 
+import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
 
 import java.util.ArrayList;
@@ -121,6 +122,16 @@ public class TlvSpecificationContainer extends ArrayList<TlvSpecification> imple
 	 * @return the matching result
 	 */
 	public boolean matches(TlvDataObjectContainer tlvContainer) {
+		return matches(tlvContainer, true);
+	}
+	
+	/**
+	 * This method returns whether the provided TLV data object container matches the hierarchy of specifications within this object.
+	 * @param tlvContainer a TLV data object container
+	 * @param logMismatch whether the reason of a mismatch is to be logged
+	 * @return the matching result
+	 */
+	boolean matches(TlvDataObjectContainer tlvContainer, boolean logMismatch) {
 		Iterator<TlvDataObject> tlvIterator;
 		int counter, diffCounter, currentWorkingIndex, highestAlreadyEncounteredIndex;;
 		TlvDataObject tlvDataObject;
@@ -139,14 +150,14 @@ public class TlvSpecificationContainer extends ArrayList<TlvSpecification> imple
 			if(currentWorkingIndex < 0) {
 				if(!this.allowUnspecifiedSubTags) {
 					/* we encountered an unknown (sub-) tag but these are implicitly forbidden at the specified place */
-					log(ApduSpecification.class, "unexpected tag " + tlvDataObject.getTlvTag());
+					if(logMismatch) {log(ApduSpecification.class, DEBUG, "unexpected tag %s", tlvDataObject.getTlvTag());}
 					return false;
 				}
 			} else{
 				currentTlvSpecification = get(currentWorkingIndex);
 				
 				if(currentTlvSpecification.getRequired() == REQ_MISMATCH) {
-					log(ApduSpecification.class, "tag " + tlvDataObject.getTlvTag() + " not allowed");
+					if(logMismatch) {log(ApduSpecification.class, DEBUG, "tag %s not allowed", tlvDataObject.getTlvTag());}
 					return false;
 				}
 				
@@ -157,15 +168,15 @@ public class TlvSpecificationContainer extends ArrayList<TlvSpecification> imple
 				if(isStrictOrder) {
 					if(currentWorkingIndex < highestAlreadyEncounteredIndex) {
 						/* we encountered a known (sub-) tag but out of the specified order */
-						log(ApduSpecification.class, "tag " + tlvDataObject.getTlvTag() + " is out of order");
+						if(logMismatch) {log(ApduSpecification.class, DEBUG, "tag %s is out of order", tlvDataObject.getTlvTag());}
 						return false;
 					} else{
 						highestAlreadyEncounteredIndex = currentWorkingIndex;
 					}
 				}
 				
-				if(!currentTlvSpecification.matches(tlvDataObject)) {
-					log(ApduSpecification.class, "error");
+				if(!currentTlvSpecification.matches(tlvDataObject, logMismatch)) {
+					if(logMismatch) {log(ApduSpecification.class, "error");}
 					return false;
 				}
 			}
@@ -177,13 +188,14 @@ public class TlvSpecificationContainer extends ArrayList<TlvSpecification> imple
 		if(diffCounter > 0) {
 			/* tlv object failed to satisfy all required matches */
 			/* "missing tags" */
-			if(diffCounter == 1) {
-				log(ApduSpecification.class, "missing " + diffCounter + " more mandatory tag");
-				return false;
-			} else{
-				log(ApduSpecification.class, "missing " + diffCounter + " more mandatory tags");
-				return false;
+			if(logMismatch) {
+				if(diffCounter == 1) {
+					log(ApduSpecification.class, DEBUG, "missing %s more mandatory tag", diffCounter);
+				} else{
+					log(ApduSpecification.class, DEBUG, "missing %s more mandatory tags", diffCounter);
+				}
 			}
+			return false;
 		}
 		
 		return true;
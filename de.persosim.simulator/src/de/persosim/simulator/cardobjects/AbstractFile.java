@@ -41,9 +41,9 @@ public abstract class AbstractFile extends AbstractCardObject implements
 
 	@Override
 	public ConstructedTlvDataObject getFileControlParameterDataObject() {
-		ConstructedTlvDataObject result = new ConstructedTlvDataObject(new TlvTag(Iso7816.TAG_FILE_CONTROL_PARAMETERS_TEMPLATE));
+		ConstructedTlvDataObject result = new ConstructedTlvDataObject(TlvTag.getInstance(Iso7816.TAG_FILE_CONTROL_PARAMETERS_TEMPLATE));
 		//TODO MBK implement FCP template according to ISO7816-4 Table 12
-		result.addTlvDataObject(new PrimitiveTlvDataObject(new TlvTag(
+		result.addTlvDataObject(new PrimitiveTlvDataObject(TlvTag.getInstance(
 				(byte) 0x83), Utils.toUnsignedByteArray(fileIdentifier
 				.getFileIdentifier())));
 		return result;
@@ -52,7 +52,7 @@ public abstract class AbstractFile extends AbstractCardObject implements
 	@Override
 	public ConstructedTlvDataObject getFileManagementDataObject() {
 		//IMPL return FMD template as described in ISO7816-4 Table 12
-		ConstructedTlvDataObject result = new ConstructedTlvDataObject(new TlvTag(Iso7816.TAG_FILE_MANAGEMENT_DATA_TEMPLATE));
+		ConstructedTlvDataObject result = new ConstructedTlvDataObject(TlvTag.getInstance(Iso7816.TAG_FILE_MANAGEMENT_DATA_TEMPLATE));
 		return result;
 	}
 
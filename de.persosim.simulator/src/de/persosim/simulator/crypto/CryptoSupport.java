@@ -1,5 +1,6 @@
 package de.persosim.simulator.crypto;
 
+import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
 import static de.persosim.simulator.utils.PersoSimLogger.logException;
 
@@ -17,7 +18,6 @@ import javax.crypto.Mac;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import de.persosim.simulator.utils.HexString;
 
 public abstract class CryptoSupport {
 	
@@ -177,7 +177,7 @@ public abstract class CryptoSupport {
 	public static byte[] macPlain(Mac mac, byte[] tokenPlain, Key key) {
 		try {
 			mac.init(key);
-			log(CryptoSupport.class, "used mac algorithm is: " + mac.getAlgorithm());
+			log(CryptoSupport.class, DEBUG, "used mac algorithm is: %s", mac.getAlgorithm());
 			return mac.doFinal(tokenPlain);
 		} catch (InvalidKeyException e) {
 			throw new IllegalArgumentException(e);
@@ -188,17 +188,42 @@ public abstract class CryptoSupport {
 		byte[] processedMacInput = new byte[auxiliaryBlock.length + macInput.length];
 		System.arraycopy(auxiliaryBlock, 0, processedMacInput, 0, auxiliaryBlock.length);
 		System.arraycopy(macInput, 0, processedMacInput, auxiliaryBlock.length, macInput.length);
-		log(CryptoSupport.class, "processed mac input is: " + HexString.encode(macInput));
+		log(CryptoSupport.class, DEBUG, "processed mac input is: %s", macInput);
 		
 		byte [] macResult = CryptoSupport.macPlain(mac, processedMacInput, macKey);
-		log(CryptoSupport.class, "raw mac is: " + HexString.encode(macResult));
+		log(CryptoSupport.class, DEBUG, "raw mac is: %s", macResult);
 		
 		macResult = Arrays.copyOf(macResult, macLength);
-		log(CryptoSupport.class, "expected mac is : " + HexString.encode(macResult));
+		log(CryptoSupport.class, DEBUG, "expected mac is : %s", macResult);
 		
 		return macResult;
 	}
-	
+
+	/**
+	 * Computes the MAC like {@link #mac(Mac, byte[], Cipher, byte[], Key, int)}
+	 * with a {@link Mac} that is already initialized with the MAC key. The
+	 * Mac is not initialized again, i.e. its key schedule is reused, and
+	 * remains initialized with the same key after this call.
+	 * @param initializedMac the Mac to be used, already initialized with the MAC key
+	 * @param auxiliaryBlock the block to be prepended to the MAC input
+	 * @param macInput the MAC input
+	 * @param macLength the number of bytes of the MAC to be returned
+	 * @return the MAC truncated to macLength
+	 */
+	public static byte[] macWithInitializedMac(Mac initializedMac, byte[] auxiliaryBlock, byte[] macInput, int macLength) {
+		log(CryptoSupport.class, DEBUG, "processed mac input is: %s", macInput);
+
+		initializedMac.update(auxiliaryBlock);
+		initializedMac.update(macInput);
+		byte[] macResult = initializedMac.doFinal();
+		log(CryptoSupport.class, DEBUG, "raw mac is: %s", macResult);
+
+		macResult = Arrays.copyOf(macResult, macLength);
+		log(CryptoSupport.class, DEBUG, "expected mac is : %s", macResult);
+
+		return macResult;
+	}
+
 	public byte[] computeInitialBlockFromAuxiliaryData(byte[] auxiliaryBlock, byte[] macInput, Key macKey) {
 		return computeInitialBlockFromAuxiliaryData(auxiliaryBlock, this.cipher, macInput, macKey);
 	}
@@ -207,7 +232,7 @@ public abstract class CryptoSupport {
 		byte[] processedMacInput = Arrays.copyOf(macInput, macInput.length);
 		
 		byte[] initialBlock = CryptoSupport.encryptWithIvZero(cipherEnc, auxiliaryBlock, macKey);
-		log(CryptoSupport.class, "initial block is: " + HexString.encode(initialBlock));
+		log(CryptoSupport.class, DEBUG, "initial block is: %s", initialBlock);
 		
 		for(int i = 0; i < initialBlock.length; i++) {
 			processedMacInput[i] = (byte) (macInput[i] ^ initialBlock[i]);
@@ -38,7 +38,6 @@ import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvDataObject;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
 import de.persosim.simulator.tlv.TlvTag;
-import de.persosim.simulator.utils.HexString;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -147,7 +146,7 @@ public class CryptoUtil {
 		try {
 			decodedPointBc = curveBc.decodePoint(ecPointEncoding);
 		} catch (Exception e) {
-			log(CryptoUtil.class, "erroneous point encoding of " + ecPointEncoding.length + " bytes length is: " + HexString.encode(ecPointEncoding), DEBUG);
+			log(CryptoUtil.class, DEBUG, "erroneous point encoding of %s bytes length is: %s", ecPointEncoding.length, ecPointEncoding);
 			logException(CryptoUtil.class, e, ERROR);
 			throw e;
 		}
@@ -299,13 +298,13 @@ public class CryptoUtil {
 		
 		TlvDataObjectContainer integers = new TlvDataObjectContainer();
 
-		PrimitiveTlvDataObject integerRObject = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER), getPadded(r));
-		PrimitiveTlvDataObject integerSObject = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER), getPadded(s));
+		PrimitiveTlvDataObject integerRObject = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), getPadded(r));
+		PrimitiveTlvDataObject integerSObject = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), getPadded(s));
 		
 		integers.addTlvDataObject(integerRObject);
 		integers.addTlvDataObject(integerSObject);
 		
-		ConstructedTlvDataObject signatureObject = new ConstructedTlvDataObject(new TlvTag(Asn1.SEQUENCE), integers);
+		ConstructedTlvDataObject signatureObject = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SEQUENCE), integers);
 		return signatureObject;
 	}
 
@@ -22,6 +22,7 @@ import de.persosim.simulator.tlv.ConstructedTlvDataObject;
 import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObjectContainerSetOf;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.utils.BitField;
 import de.persosim.simulator.utils.HexString;
@@ -73,7 +74,7 @@ public class DefaultNpaUnmarshallerCallback implements PersoUnmarshallerCallback
 
 	private void createEfCardAccess(Personalization perso) {
 		// collect SecInfos from protocols
-		ConstructedTlvDataObject secInfos = new ConstructedTlvDataObject(new TlvTag(Asn1.SET));
+		ConstructedTlvDataObject secInfos = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SET), new TlvDataObjectContainerSetOf());
 		for (Protocol curProtocol : perso.getProtocolList()) {
 			secInfos.addAll(curProtocol.getSecInfos(SecInfoPublicity.PUBLIC, perso.getObjectTree()));
 		}
@@ -90,7 +91,7 @@ public class DefaultNpaUnmarshallerCallback implements PersoUnmarshallerCallback
 
 	private void createEfCardSecurity(Personalization perso) {
 		// collect SecInfos from protocols
-		ConstructedTlvDataObject secInfos = new ConstructedTlvDataObject(new TlvTag(Asn1.SET));
+		ConstructedTlvDataObject secInfos = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SET), new TlvDataObjectContainerSetOf());
 		for (Protocol curProtocol : perso.getProtocolList()) {
 			secInfos.addAll(curProtocol.getSecInfos(SecInfoPublicity.AUTHENTICATED, perso.getObjectTree()));
 		}
@@ -108,7 +109,7 @@ public class DefaultNpaUnmarshallerCallback implements PersoUnmarshallerCallback
 
 	private void createEfChipSecurity(Personalization perso) {
 		// collect SecInfos from protocols
-		ConstructedTlvDataObject secInfos = new ConstructedTlvDataObject(new TlvTag(Asn1.SET));
+		ConstructedTlvDataObject secInfos = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SET), new TlvDataObjectContainerSetOf());
 		for (Protocol curProtocol : perso.getProtocolList()) {
 			secInfos.addAll(curProtocol.getSecInfos(SecInfoPublicity.PRIVILEGED, perso.getObjectTree()));
 		}
@@ -10,6 +10,7 @@ import de.persosim.simulator.tlv.ConstructedTlvDataObject;
 import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObjectContainerSetOf;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.utils.HexString;
 
@@ -38,10 +39,10 @@ public class DefaultSecInfoCmsBuilder implements TlvConstants, SecInfoCmsBuilder
 	public ConstructedTlvDataObject buildSignedData(
 			ConstructedTlvDataObject secInfos) {
 		//version defaults to 3 in this implementation
-		TlvDataObject version = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER), new byte[]{0x03});
+		TlvDataObject version = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), new byte[]{0x03});
 		
 		//digestAlgorithms
-		ConstructedTlvDataObject digestAlgorithms = new ConstructedTlvDataObject(TAG_SET);
+		ConstructedTlvDataObject digestAlgorithms = new ConstructedTlvDataObject(TAG_SET, new TlvDataObjectContainerSetOf());
 		digestAlgorithms.addAll(getDigestAlgorithms());
 		
 		//encapContentInfo
@@ -52,7 +53,7 @@ public class DefaultSecInfoCmsBuilder implements TlvConstants, SecInfoCmsBuilder
 		certificates.addAll(getCertificates());
 		
 		//signerInfos
-		ConstructedTlvDataObject signerInfos = new ConstructedTlvDataObject(TAG_SET);
+		ConstructedTlvDataObject signerInfos = new ConstructedTlvDataObject(TAG_SET, new TlvDataObjectContainerSetOf());
 		signerInfos.addAll(getSignerInfos(encapContentInfo));
 		
 		//signedData
@@ -136,7 +137,7 @@ public class DefaultSecInfoCmsBuilder implements TlvConstants, SecInfoCmsBuilder
 	 */
 	protected TlvDataObject getSignerInfo(ConstructedTlvDataObject eContent) {
 		//version defaults to 1 in this implementation
-		TlvDataObject version = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER), new byte[]{0x01});
+		TlvDataObject version = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), new byte[]{0x01});
 				
 		//SignerIdentifier
 	    TlvDataObject sid = getSid();
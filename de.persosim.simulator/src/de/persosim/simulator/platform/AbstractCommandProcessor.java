@@ -1,5 +1,6 @@
 package de.persosim.simulator.platform;
 
+import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.TRACE;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
 import static de.persosim.simulator.utils.PersoSimLogger.logException;
@@ -8,9 +9,13 @@ import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import de.persosim.simulator.apdu.CommandApdu;
 import de.persosim.simulator.apdu.ResponseApdu;
+import de.persosim.simulator.apdumatching.ApduMismatch;
+import de.persosim.simulator.apdumatching.ApduSpecificationMatcher;
 import de.persosim.simulator.cardobjects.CardFile;
 import de.persosim.simulator.cardobjects.CardObject;
 import de.persosim.simulator.cardobjects.CardObjectIdentifier;
@@ -19,6 +24,7 @@ import de.persosim.simulator.cardobjects.Iso7816LifeCycleState;
 import de.persosim.simulator.cardobjects.MasterFile;
 import de.persosim.simulator.cardobjects.ObjectStore;
 import de.persosim.simulator.cardobjects.Scope;
+import de.persosim.simulator.exception.ISO7816Exception;
 import de.persosim.simulator.exception.NotImplementedException;
 import de.persosim.simulator.processing.UpdatePropagation;
 import de.persosim.simulator.protocols.Protocol;
@@ -61,20 +67,22 @@ public abstract class AbstractCommandProcessor extends Layer implements
 		try {
 			securityStatus.updateSecStatus(processingData);
 			
-			//process the event
-			int event = 0xFF;
-			if (processingData.getCommandApdu() != null) {
-				event = processingData.getCommandApdu().getIns();
-			}
-			this.processEvent(event);
-			
-			//convert internal SW if required
-			if (processingData.getResponseApdu() != null && PlatformUtil.is4xxxStatusWord(processingData.getResponseApdu().getStatusWord())){
-				log(this, "APDU contents could not be processed by any protocol");
-
-				ResponseApdu rApdu = new ResponseApdu(PlatformUtil.convert4xxxTo6xxxStatusWord(processingData.getResponseApdu().getStatusWord()));
-				this.processingData.updateResponseAPDU(this,
-						"No protocol was able to process the APDU contents", rApdu);
+			if (processCommandChaining()) {
+				//process the event
+				int event = 0xFF;
+				if (processingData.getCommandApdu() != null) {
+					event = processingData.getCommandApdu().getIns();
+				}
+				this.processEvent(event);
+				
+				//convert internal SW if required
+				if (processingData.getResponseApdu() != null && PlatformUtil.is4xxxStatusWord(processingData.getResponseApdu().getStatusWord())){
+					log(this, "APDU contents could not be processed by any protocol");
+
+					ResponseApdu rApdu = new ResponseApdu(PlatformUtil.convert4xxxTo6xxxStatusWord(processingData.getResponseApdu().getStatusWord()));
+					this.processingData.updateResponseAPDU(this,
+							"No protocol was able to process the APDU contents", rApdu);
+				}
 			}
 
 			securityStatus.updateSecStatus(processingData);
@@ -89,9 +97,50 @@ public abstract class AbstractCommandProcessor extends Layer implements
 		}
 	}
 
+	/**
+	 * Passes the current command APDU to {@link #commandChaining}. Intermediate
+	 * fragments of a chain are acknowledged, the last fragment is replaced by
+	 * the reassembled command APDU.
+	 * 
+	 * @return true iff the (possibly reassembled) command APDU is to be
+	 *         processed by the protocols
+	 */
+	private boolean processCommandChaining() {
+		CommandApdu commandApdu = processingData.getCommandApdu();
+		if (commandApdu == null) {
+			return true;
+		}
+
+		CommandApdu logicalCommandApdu;
+		try {
+			logicalCommandApdu = commandChaining.process(commandApdu);
+		} catch (ISO7816Exception e) {
+			logException(this, e, TRACE);
+			ResponseApdu resp = new ResponseApdu(e.getStatusWord());
+			this.processingData.updateResponseAPDU(this, e.getMessage(), resp);
+			return false;
+		}
+
+		if (logicalCommandApdu == null) {
+			ResponseApdu resp = new ResponseApdu(Iso7816.SW_9000_NO_ERROR);
+			this.processingData.updateResponseAPDU(this,
+					"Chained command APDU fragment received", resp);
+			return false;
+		}
+
+		if (logicalCommandApdu != commandApdu) {
+			this.processingData.updateCommandApdu(this,
+					"Reassembled chained command APDU", logicalCommandApdu);
+		}
+		return true;
+	}
+
 	@Override
 	public void powerOn() {
 		super.powerOn();
+		
+		log(this, "powerOn, discard pending command chain", TRACE);
+		commandChaining.reset();
 
 		log(this, "powerOn, remove all protocols from stack", TRACE);
 		setStackPointerToBottom();
@@ -112,6 +161,7 @@ public abstract class AbstractCommandProcessor extends Layer implements
 
 	protected SecStatus securityStatus = new SecStatus();
 	protected ObjectStore objectStore = new ObjectStore(securityStatus);
+	protected CommandChaining commandChaining = new CommandChaining();
 
 	@Override
 	public CardObject getObject(CardObjectIdentifier id, Scope scope) {
@@ -134,6 +184,8 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	public void addProtocol(Protocol newProtocol) {
 		newProtocol.setCardStateAccessor(this);
 		protocols.add(newProtocol);
+		protocolDispatchIndex.add(newProtocol);
+		apduSpecificationMatcher.addAll(newProtocol.getApduSet());
 	}
 
 	// --------------------------------------------------------
@@ -191,6 +243,23 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	protected ArrayList<Protocol> protocols = new ArrayList<>();
 	protected Protocol currentlyActiveProtocol;
 
+	/**
+	 * Index of available protocols by the instructions they are able to handle
+	 */
+	protected ProtocolDispatchIndex protocolDispatchIndex = new ProtocolDispatchIndex();
+
+	/**
+	 * Matcher for the APDU specifications of all available protocols, used to
+	 * determine the status word for unsupported commands
+	 */
+	protected ApduSpecificationMatcher apduSpecificationMatcher = new ApduSpecificationMatcher();
+
+	/**
+	 * Protocols from the list of available protocols that can possibly accept
+	 * the current APDU
+	 */
+	protected List<Protocol> protocolCandidates;
+
 	/**
 	 * stackPointer is a pointer pointing at an element of protocolStack, i.e.
 	 * the currently active/unfinished/interrupted protocols
@@ -203,8 +272,9 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	protected ArrayList<Protocol> protocolStack;
 
 	/**
-	 * protocolPointer is a pointer pointing at an element of protocols, i.e.
-	 * the list of known/supported protocols
+	 * protocolPointer is a pointer pointing at an element of
+	 * protocolCandidates, i.e. the known/supported protocols that can possibly
+	 * accept the current APDU
 	 */
 	protected int protocolPointer;
 
@@ -233,6 +303,11 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	}
 
 	public void currentProtocolProcess() {
+		if (currentlyActiveProtocol == null) {
+			log(this, "no protocol is able to process the APDU", TRACE);
+			return;
+		}
+		
 		log(this, "protocol chosen for processing is: "
 				+ currentlyActiveProtocol.getProtocolName()); 
 		currentlyActiveProtocol.process(processingData);
@@ -282,7 +357,7 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	 * ) to the {@link #protocolStack}
 	 */
 	public void addProtocolAtProtocolPointerToStack() {
-		Protocol protocol = protocols.get(protocolPointer);
+		Protocol protocol = getProtocolAtProtocolPointer();
 		log(this,
 				"protocol put to top of stack is "
 						+ protocol.getProtocolName());
@@ -293,20 +368,34 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	 * Method used from within state machine code.
 	 * <p/>
 	 * Calls {@link AbstractStateMachine#reset() reset} method for the protocol
-	 * in the list of known {@link #protocols} as specified by
+	 * in the list of {@link #protocolCandidates} as specified by
 	 * {@link #protocolPointer}.
 	 */
 	public void resetProtocolAtProtocolPointer() {
-		protocols.get(protocolPointer).reset();
+		Protocol protocol = getProtocolAtProtocolPointer();
+		if (protocol != null) {
+			protocol.reset();
+		}
 	}
 
 	/**
 	 * Method used from within state machine code.
 	 * <p/>
-	 * Resets {@link #protocolPointer} to point at first protocol in the
-	 * {@link #protocols protocol list}.
+	 * Determines the {@link #protocolCandidates} for the current APDU and
+	 * resets {@link #protocolPointer} to point at the first of them. Protocols
+	 * that do not handle the instruction of the current APDU are not
+	 * considered. If an error is already reported all known
+	 * {@link #protocols} are considered.
 	 */
 	public void setProtocolPointerToFirstElementOfProtocolList() {
+		CommandApdu commandApdu = processingData.getCommandApdu();
+		if ((commandApdu == null) || processingData.isReportingError()) {
+			protocolCandidates = protocols;
+		} else {
+			protocolCandidates = protocolDispatchIndex.getCandidates(commandApdu.getIns());
+		}
+		
+		log(this, TRACE, "protocols able to process the APDU: %d", protocolCandidates.size());
 		protocolPointer = 0;
 	}
 
@@ -314,7 +403,7 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	 * Method used from within state machine code.
 	 * <p/>
 	 * Increments {@link #protocolPointer} to point at the next protocol in the
-	 * {@link #protocols protocol list}.
+	 * list of {@link #protocolCandidates}.
 	 */
 	public void setProtocolPointerToNextElementOfProtocolList() {
 		protocolPointer++;
@@ -324,22 +413,34 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	 * Method used from within state machine code.
 	 * <p/>
 	 * Returns whether the protocol specified by the {@link #protocolPointer}
-	 * within the {@link #protocols protocol list} is the last element
-	 * of the list.
+	 * within the list of {@link #protocolCandidates} is the last element
+	 * of the list, this is also true if the list is empty.
 	 */
 	public boolean protocolAtProtocolPointerIsLastElementOfProtocolList() {
-		return protocols.size() == (protocolPointer + 1);
+		return protocolCandidates.size() <= (protocolPointer + 1);
 	}
 
 	/**
 	 * Method used from within state machine code.
 	 * <p/>
 	 * Promotes the protocol specified by the {@link #protocolPointer} within
-	 * the {@link #protocols protocol list} to be the currently active
+	 * the list of {@link #protocolCandidates} to be the currently active
 	 * protocol.
 	 */
 	public void makeProtocolAtProtocolPointerCurrentlyActiveProtocol() {
-		currentlyActiveProtocol = protocols.get(this.protocolPointer);
+		currentlyActiveProtocol = getProtocolAtProtocolPointer();
+	}
+
+	/**
+	 * @return the protocol specified by the {@link #protocolPointer} within
+	 *         the list of {@link #protocolCandidates} or null if there is no
+	 *         candidate at all
+	 */
+	private Protocol getProtocolAtProtocolPointer() {
+		if (protocolPointer >= protocolCandidates.size()) {
+			return null;
+		}
+		return protocolCandidates.get(protocolPointer);
 	}
 
 	/**
@@ -356,49 +457,34 @@ public abstract class AbstractCommandProcessor extends Layer implements
 			this.processingData.updateResponseAPDU(this,
 					"No protocol was able to process the APDU contents", rApdu);
 		} else {
-			log(this, "APDU not supported");
-			ResponseApdu rApdu = new ResponseApdu(Iso7816.SW_6D00_INS_NOT_SUPPORTED);
+			short sw = getStatusWordForUnsupportedCommand();
+			log(this, DEBUG, "APDU not supported, status word is %04X", sw);
+			ResponseApdu rApdu = new ResponseApdu(sw);
 			this.processingData.updateResponseAPDU(this,
 					"No protocol was able to process the APDU", rApdu);
+		}
+	}
 
-			/*
-			 * TODO Test cases for which the current implementation yields a sw which is
-			 * suitable/acceptable for passing the test case but does not describe actual circumstances
-			 * appropriately. This list does not claim to be exhaustive and may be extended.
-			 * 
-			 * ISO7816_P_04: invalid class byte, accepts: checking error, appropriate: 6E00
-			 * ISO7816_P_05: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_07: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_10: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_11: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_12: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_13: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_15: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_16: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_17: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_18: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_19: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_20: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_21: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_22: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_31: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_32: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_33: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_34: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_37: invalid class byte, accepts: checking error, appropriate: 6E00
-			 * ISO7816_P_38: invalid class byte, accepts: checking error, appropriate: 6E00
-			 * ISO7816_P_39: invalid class byte, accepts: checking error, appropriate: 6E00
-			 * ISO7816_P_40: invalid class byte, accepts: checking error, appropriate: 6E00
-			 * ISO7816_P_62: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_64: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_69: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * ISO7816_P_77: invalid tag,        accepts: checking error, appropriate: 6A80
-			 * 
-			 * Sketched _possible_ solution:
-			 * Have protocols report _all_ APDU specifications and perform fuzzy matching to find
-			 * most appropriate sw.
-			 */
+	/**
+	 * Determines the status word for an unsupported command from the APDU
+	 * specification of all available protocols the command matched closest.
+	 * If the command fully matches a specification none of the protocols
+	 * accepted it in their current state.
+	 * 
+	 * @return the status word to be used for the current command
+	 */
+	private short getStatusWordForUnsupportedCommand() {
+		CommandApdu commandApdu = processingData.getCommandApdu();
+		if (commandApdu == null) {
+			return Iso7816.SW_6D00_INS_NOT_SUPPORTED;
 		}
+		
+		ApduMismatch closestMismatch = apduSpecificationMatcher.getClosestMismatch(commandApdu);
+		if (closestMismatch == null) {
+			return Iso7816.SW_6985_CONDITIONS_OF_USE_NOT_SATISFIED;
+		}
+		
+		return closestMismatch.getStatusWord();
 	}
 
 	// -----------------------
@@ -0,0 +1,177 @@
+package de.persosim.simulator.platform;
+
+import static de.persosim.simulator.utils.PersoSimLogger.TRACE;
+import static de.persosim.simulator.utils.PersoSimLogger.log;
+
+import de.persosim.simulator.apdu.CommandApdu;
+import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.apdu.InterindustryCommandApdu;
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.utils.InfoSource;
+
+/**
+ * This class reassembles chained command APDUs according to ISO7816-4, 5.1.1.1
+ * before they are dispatched to the protocols. The command data of all
+ * fragments of a chain is accumulated in a buffer that is allocated once per
+ * card. Intermediate fragments are acknowledged without being dispatched, the
+ * last fragment is replaced by a single command APDU holding the complete
+ * command data.
+ * <p/>
+ * Reassembly is only performed for instructions whose chained command data is
+ * to be concatenated, e.g. PSO:VERIFY CERTIFICATE. Other instructions, e.g.
+ * GENERAL AUTHENTICATE during PACE, use chaining to link separate commands and
+ * are passed to the protocols unchanged.
+ *
+ */
+public class CommandChaining implements Iso7816, InfoSource {
+
+	/** default maximum length of the reassembled command data, i.e. the maximum N_c of an extended length APDU */
+	public static final int DEFAULT_MAX_DATA_LENGTH = 0xFFFF;
+
+	/** instructions reassembled by default */
+	public static final byte[] DEFAULT_INSTRUCTIONS = new byte[] {
+			INS_2A_PERFORM_SECURITY_OPERATION,
+			INS_D6_UPDATE_BINARY,
+			INS_D7_UPDATE_BINARY,
+			INS_DA_PUT_DATA,
+			INS_DB_PUT_DATA };
+
+	private boolean[] reassembledInstructions;
+
+	/* command data received so far */
+	private byte[] buffer;
+	private int dataLength;
+
+	/* the first fragment of the pending chain, null if no chain is pending */
+	private CommandApdu firstFragment;
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Constructor for reassembly of the provided instructions.
+	 * @param maxDataLength the maximum length of the reassembled command data, the buffer is allocated accordingly
+	 * @param instructions the instructions to be reassembled
+	 */
+	public CommandChaining(int maxDataLength, byte... instructions) {
+		if(maxDataLength < 0) {throw new IllegalArgumentException("max data length must not be less than 0");}
+		if(maxDataLength > DEFAULT_MAX_DATA_LENGTH) {throw new IllegalArgumentException("max data length must not exceed " + DEFAULT_MAX_DATA_LENGTH);}
+		if(instructions == null) {throw new NullPointerException("instructions must not be null");}
+
+		buffer = new byte[maxDataLength];
+
+		reassembledInstructions = new boolean[256];
+		for(byte ins : instructions) {
+			reassembledInstructions[ins & 0xFF] = true;
+		}
+
+		reset();
+	}
+
+	/**
+	 * Constructor for reassembly of {@link #DEFAULT_INSTRUCTIONS} up to
+	 * {@link #DEFAULT_MAX_DATA_LENGTH} bytes of command data.
+	 */
+	public CommandChaining() {
+		this(DEFAULT_MAX_DATA_LENGTH, DEFAULT_INSTRUCTIONS);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	@Override
+	public String getIDString() {
+		return "command chaining";
+	}
+
+	/**
+	 * Discards a pending chain.
+	 */
+	public void reset() {
+		firstFragment = null;
+		dataLength = 0;
+	}
+
+	/**
+	 * @return true iff fragments of an incomplete chain have been received
+	 */
+	public boolean isPending() {
+		return firstFragment != null;
+	}
+
+	/**
+	 * Processes the provided command APDU.
+	 * @param commandApdu the received command APDU
+	 * @return null if the command APDU is an intermediate fragment of a chain,
+	 *         the reassembled command APDU if it is the last fragment of a
+	 *         chain and the provided command APDU otherwise
+	 * @throws ISO7816Exception if the chain is interrupted or exceeds the maximum length, the pending chain is discarded in this case
+	 */
+	public CommandApdu process(CommandApdu commandApdu) {
+		if(commandApdu == null) {throw new NullPointerException("command APDU must not be null");}
+
+		boolean chaining = (commandApdu instanceof InterindustryCommandApdu) && ((InterindustryCommandApdu) commandApdu).isChaining();
+
+		if(!isPending()) {
+			if(!chaining || !reassembledInstructions[commandApdu.getIns() & 0xFF]) {
+				return commandApdu;
+			}
+
+			firstFragment = commandApdu;
+		} else{
+			if(!continuesChain(commandApdu)) {
+				reset();
+				ISO7816Exception.throwIt(SW_6883_LAST_COMMAND_EXPECTED, "chaining interrupted");
+			}
+		}
+
+		append(commandApdu);
+
+		if(chaining) {
+			log(this, TRACE, "received chained command APDU fragment, %s bytes of command data so far", dataLength);
+			return null;
+		}
+
+		CommandApdu reassembledApdu = CommandApduFactory.createCommandApdu(getReassembledApdu(commandApdu), commandApdu);
+		reset();
+
+		log(this, TRACE, "reassembled chained command APDU: %s", reassembledApdu);
+		return reassembledApdu;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return whether the provided command APDU belongs to the pending chain, i.e. has the same header
+	 */
+	private boolean continuesChain(CommandApdu commandApdu) {
+		return (commandApdu instanceof InterindustryCommandApdu)
+				&& (commandApdu.getIns() == firstFragment.getIns())
+				&& (commandApdu.getP1() == firstFragment.getP1())
+				&& (commandApdu.getP2() == firstFragment.getP2())
+				&& (((InterindustryCommandApdu) commandApdu).getChannel() == ((InterindustryCommandApdu) firstFragment).getChannel());
+	}
+
+	private void append(CommandApdu commandApdu) {
+		int nc = commandApdu.getNc();
+
+		if(nc > buffer.length - dataLength) {
+			reset();
+			ISO7816Exception.throwIt(SW_6700_WRONG_LENGTH, "chained command data exceeds maximum length");
+		}
+
+		commandApdu.getCommandDataBuffer().get(buffer, dataLength, nc);
+		dataLength += nc;
+	}
+
+	/**
+	 * Encodes the reassembled command APDU consisting of the header of the
+	 * last fragment without chaining indication, the accumulated command data
+	 * and N_e of the last fragment.
+	 */
+	private byte[] getReassembledApdu(CommandApdu lastFragment) {
+		byte[] header = lastFragment.getHeader();
+		header[0] = (byte) (header[0] & ~0x10);
+
+		return Iso7816Lib.encodeCommandApdu(header, buffer, dataLength, lastFragment.getNe(), false);
+	}
+
+}
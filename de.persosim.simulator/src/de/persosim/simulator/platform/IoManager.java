@@ -1,12 +1,17 @@
 package de.persosim.simulator.platform;
 
+import static de.persosim.simulator.utils.PersoSimLogger.TRACE;
+import static de.persosim.simulator.utils.PersoSimLogger.log;
+import static de.persosim.simulator.utils.PersoSimLogger.logDump;
+
 import java.util.Iterator;
 import java.util.LinkedList;
 
 import de.persosim.simulator.apdu.CommandApdu;
 import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.apdu.InterindustryCommandApdu;
 import de.persosim.simulator.processing.UpdatePropagation;
-import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.Utils;
 
 /**
  * This class implements the lowest Layer that is in charge of converting the
@@ -20,6 +25,17 @@ import de.persosim.simulator.utils.HexString;
  */
 public class IoManager extends Layer {
 	
+	/* N_e of the last received command APDU, 0 if absent */
+	private int ne;
+	
+	/*
+	 * Encoded response whose data has not been completely returned yet, kept as
+	 * read cursor for subsequent GET RESPONSE commands, null if nothing is
+	 * pending
+	 */
+	private byte[] pendingResponse;
+	private int pendingResponseOffset;
+	
 	public IoManager(int id) {
 		super(id);
 	}
@@ -31,6 +47,12 @@ public class IoManager extends Layer {
 	
 	/*--------------------------------------------------------------------------------*/
 	
+	@Override
+	public void powerOn() {
+		super.powerOn();
+		pendingResponse = null;
+	}
+	
 	@Override
 	public void processAscending() {
 		LinkedList<UpdatePropagation> hardwareCommandUpdates = processingData.getUpdatePropagations(HardwareCommandApduPropagation.class);
@@ -41,20 +63,99 @@ public class IoManager extends Layer {
 			UpdatePropagation updatePropagation = (UpdatePropagation) iterator
 					.next();
 			if (updatePropagation != null && updatePropagation instanceof HardwareCommandApduPropagation) {
+				ne = 0;
 				CommandApdu commandApdu = CommandApduFactory.createCommandApdu(((HardwareCommandApduPropagation)updatePropagation).getCommandApdu());
+				ne = commandApdu.getNe();
 				
-				processingData.updateCommandApdu(this, "CommandApduFactory.createCommandApdu from hardware : "+ commandApdu , commandApdu);
+				log(this, TRACE, "CommandApduFactory.createCommandApdu from hardware : %s", commandApdu);
+				processingData.updateCommandApdu(this, "CommandApduFactory.createCommandApdu from hardware", commandApdu);
+				
+				if (pendingResponse != null) {
+					if (isGetResponse(commandApdu)) {
+						processGetResponse();
+					} else {
+						log(this, "discard pending response data", TRACE);
+						pendingResponse = null;
+					}
+				}
 			}
 		}
 		
 	}
 	
+	/**
+	 * Returns whether the provided command APDU is a plain GET RESPONSE
+	 * command to be answered from pending response data.
+	 */
+	private boolean isGetResponse(CommandApdu commandApdu) {
+		return (commandApdu.getIns() == INS_C0_GET_RESPONSE)
+				&& (commandApdu.getP1P2() == 0)
+				&& (commandApdu instanceof InterindustryCommandApdu)
+				&& (((InterindustryCommandApdu) commandApdu).getSecureMessaging() == SM_OFF_OR_NO_INDICATION);
+	}
+	
+	/**
+	 * Returns the next part of the pending response data. The response is
+	 * provided as hardware response right away, i.e. the GET RESPONSE command
+	 * is not processed by higher layers.
+	 */
+	private void processGetResponse() {
+		byte[] responseApdu;
+		
+		if (ne == 0) {
+			responseApdu = Utils.toUnsignedByteArray(SW_6700_WRONG_LENGTH);
+		} else {
+			responseApdu = getNextResponsePart();
+		}
+		
+		logDump(this, TRACE, "GET RESPONSE answered from pending response data:", responseApdu);
+		processingData.addUpdatePropagation(this, "GET RESPONSE answered from pending response data",
+				new HardwareResponseApduPropagation(responseApdu));
+	}
+	
+	/**
+	 * Returns at most N_e bytes of the pending response data. If data remains
+	 * afterwards the status word indicates the number of remaining bytes,
+	 * otherwise the status word of the original response is used.
+	 */
+	private byte[] getNextResponsePart() {
+		int swOffset = pendingResponse.length - 2;
+		int partLength = Math.min(ne, swOffset - pendingResponseOffset);
+		byte[] responsePart = new byte[partLength + 2];
+		
+		System.arraycopy(pendingResponse, pendingResponseOffset, responsePart, 0, partLength);
+		pendingResponseOffset += partLength;
+		
+		int remaining = swOffset - pendingResponseOffset;
+		if (remaining > 0) {
+			responsePart[partLength] = (byte) (SW_6100_BYTES_REMAINING >>> 8);
+			//61 00 indicates 256 or more bytes
+			responsePart[partLength + 1] = (remaining > 0xFF) ? 0 : (byte) remaining;
+		} else {
+			responsePart[partLength] = pendingResponse[swOffset];
+			responsePart[partLength + 1] = pendingResponse[swOffset + 1];
+			pendingResponse = null;
+		}
+		
+		return responsePart;
+	}
+	
 	@Override
 	public void processDescending() {
 		// convert the ResponseApdu
-		HardwareResponseApduPropagation responseApduPropagation = new HardwareResponseApduPropagation(
-				processingData.getResponseApdu().toByteArray());
-		processingData.addUpdatePropagation(this, "Converted response APDU to hardware representation: "+ HexString.dump(responseApduPropagation.getResponseApdu()),
+		byte[] responseApdu = processingData.getResponseApdu().toByteArray();
+		
+		// response data exceeding N_e is kept to be fetched by GET RESPONSE
+		if ((ne > 0) && (responseApdu.length - 2 > ne) && (processingData.getResponseApdu().getStatusWord() == SW_9000_NO_ERROR)) {
+			log(this, TRACE, "response data exceeds N_e of %s bytes, remaining data is kept for GET RESPONSE", ne);
+			pendingResponse = responseApdu;
+			pendingResponseOffset = 0;
+			responseApdu = getNextResponsePart();
+		}
+		
+		HardwareResponseApduPropagation responseApduPropagation = new HardwareResponseApduPropagation(responseApdu);
+		logDump(this, TRACE, "Converted response APDU to hardware representation:", responseApduPropagation.getResponseApdu());
+		processingData.addUpdatePropagation(this, "Converted response APDU to hardware representation",
 				responseApduPropagation);
 	}
 }
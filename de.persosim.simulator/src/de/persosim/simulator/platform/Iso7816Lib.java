@@ -719,11 +719,22 @@ public abstract class Iso7816Lib implements Iso7816 {
 	 * @return the N_c encoded in the provided APDU
 	 */
 	public static short getNc(byte[] apdu) {
-		if(getISOcase(apdu) < ISO_CASE_3) {
+		return getNc(apdu, getISOcaseExtended(apdu));
+	}
+	
+	/**
+	 * Returns value N_c as encoded in L_c field of the provided APDU without
+	 * determining its ISO case again
+	 * @param apdu the APDU
+	 * @param isoCaseExtended isoCase according to getISOcaseExtended(APDU):byte
+	 * @return the N_c encoded in the provided APDU
+	 */
+	public static short getNc(byte[] apdu, byte isoCaseExtended) {
+		if(getISOcase(isoCaseExtended) < ISO_CASE_3) {
 			return 0;
 		}
 		
-		if(isExtendedLengthLCLE(apdu)) {
+		if(isExtendedLengthLCLE(isoCaseExtended)) {
 			return Utils.concatenate(apdu[OFFSET_LC + 1], apdu[OFFSET_LC + 2]);
 		} else{
 			return Utils.maskUnsignedByteToShort(apdu[OFFSET_LC]);
@@ -738,12 +749,23 @@ public abstract class Iso7816Lib implements Iso7816 {
 	 * @return the N_e encoded in the provided APDU
 	 */
 	public static int getNe(byte[] apdu) {
-		byte isoCase = getISOcase(apdu); 
+		return getNe(apdu, getISOcaseExtended(apdu));
+	}
+	
+	/**
+	 * Returns value N_e as encoded in L_e field of the provided APDU without
+	 * determining its ISO case again
+	 * @param apdu the APDU
+	 * @param isoCaseExtended isoCase according to getISOcaseExtended(APDU):byte
+	 * @return the N_e encoded in the provided APDU
+	 */
+	public static int getNe(byte[] apdu, byte isoCaseExtended) {
+		byte isoCase = getISOcase(isoCaseExtended); 
 		
 		if((isoCase == ISO_CASE_2) || (isoCase == ISO_CASE_4)) {
 			int apduLength = apdu.length;
 			
-			if(isExtendedLengthLCLE(apdu)) {
+			if(isExtendedLengthLCLE(isoCaseExtended)) {
 				short retVal = Utils.concatenate(apdu[apduLength - 2], apdu[apduLength - 1]);
 				if (retVal <= 0) {
 					return 65536 + retVal;
@@ -993,6 +1015,58 @@ public abstract class Iso7816Lib implements Iso7816 {
 		return new TlvValuePlain(apdu, offsetData, offsetData + nc);
 	}
 	
+	/**
+	 * Returns the encoding of a command APDU consisting of the provided header,
+	 * command data and N_e. Extended length L_C/L_E fields are used if
+	 * requested or if N_c exceeds 255 or N_e exceeds 256.
+	 * @param header the CLA, INS, P1 and P2 bytes
+	 * @param data the byte array holding the command data in its first nc bytes, may be null if nc is 0
+	 * @param nc N_c, 0 if the command data field is to be absent
+	 * @param ne N_e, 0 if the L_E field is to be absent
+	 * @param extendedLength whether extended length L_C/L_E fields are to be used regardless of N_c and N_e
+	 * @return the encoding of the command APDU
+	 */
+	public static byte[] encodeCommandApdu(byte[] header, byte[] data, int nc, int ne, boolean extendedLength) {
+		if(header == null) {throw new NullPointerException("header must not be null");}
+		if(header.length != 4) {throw new IllegalArgumentException("header must be 4 bytes long");}
+		if((nc < 0) || (nc > 65535)) {throw new IllegalArgumentException("nc must be between 0 and 65535");}
+		if((nc > 0) && ((data == null) || (data.length < nc))) {throw new IllegalArgumentException("data must provide nc bytes");}
+		if((ne < 0) || (ne > 65536)) {throw new IllegalArgumentException("ne must be between 0 and 65536");}
+		
+		boolean extended = extendedLength || (nc > 255) || (ne > 256);
+		
+		int lcLength = (nc == 0) ? 0 : (extended ? 3 : 1);
+		int leLength = (ne == 0) ? 0 : (extended ? ((nc == 0) ? 3 : 2) : 1);
+		
+		byte[] apdu = new byte[4 + lcLength + nc + leLength];
+		System.arraycopy(header, 0, apdu, 0, 4);
+		int offset = 4;
+		
+		if(lcLength > 0) {
+			if(extended) {
+				apdu[offset++] = 0;
+				apdu[offset++] = (byte) (nc >>> 8);
+			}
+			apdu[offset++] = (byte) nc;
+			
+			System.arraycopy(data, 0, apdu, offset, nc);
+			offset += nc;
+		}
+		
+		if(leLength > 0) {
+			// N_e of 256 (short) or 65536 (extended) is encoded as zero
+			if(leLength == 3) {
+				apdu[offset++] = 0;
+			}
+			if(extended) {
+				apdu[offset++] = (byte) (ne >>> 8);
+			}
+			apdu[offset++] = (byte) ne;
+		}
+		
+		return apdu;
+	}
+	
 	/**
 	 * Returns whether the APDU's header indicates the command data field to encode TLV.
 	 * @param apdu the APDU.
@@ -2,6 +2,7 @@ package de.persosim.simulator.platform;
 
 import static de.persosim.simulator.utils.PersoSimLogger.TRACE;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
+import static de.persosim.simulator.utils.PersoSimLogger.logDump;
 
 import java.util.LinkedList;
 
@@ -11,7 +12,6 @@ import de.persosim.simulator.perso.Personalization;
 import de.persosim.simulator.processing.ProcessingData;
 import de.persosim.simulator.processing.UpdatePropagation;
 import de.persosim.simulator.securemessaging.SecureMessaging;
-import de.persosim.simulator.utils.HexString;
 import de.persosim.simulator.utils.InfoSource;
 import de.persosim.simulator.utils.PersoSimLogger;
 import de.persosim.simulator.utils.Utils;
@@ -42,6 +42,7 @@ public class PersoSimKernel implements InfoSource {
 	 * Performs initialization of object.
 	 */
 	public void init() {
+		// keeps the log level configured on startup or changed at runtime
 		PersoSimLogger.init();
 		log(this, "init called", TRACE);
 		
@@ -100,20 +101,28 @@ public class PersoSimKernel implements InfoSource {
 	public byte[] process(byte[] apdu) {
 		
 		log(this, "processing incoming APDU", TRACE);
-		log(this, "incoming APDU:\n" + HexString.dump(apdu), TRACE);
+		logDump(this, TRACE, "incoming APDU:", apdu);
 		
 		ProcessingData processingData = new ProcessingData();
 		processingData.addUpdatePropagation(this, "initial hardware info", new HardwareCommandApduPropagation(apdu));
 		
 		//propagate the event all layers up
 		int curLayerId = 0;
-		for (; curLayerId < layers.size(); curLayerId++) {
-			layers.get(curLayerId).processAscending(processingData);	
+		boolean responseProvided = false;
+		for (; (curLayerId < layers.size()) && !responseProvided; curLayerId++) {
+			layers.get(curLayerId).processAscending(processingData);
+			
+			//a layer may already provide the final response, e.g. for GET RESPONSE
+			responseProvided = !processingData.getUpdatePropagations(HardwareResponseApduPropagation.class).isEmpty();
 		}
 		
 		//propagate the event all layers down
-		for (curLayerId--; curLayerId >= 0; curLayerId--) {
-			layers.get(curLayerId).processDescending(processingData);
+		if (!responseProvided) {
+			for (curLayerId--; curLayerId >= 0; curLayerId--) {
+				layers.get(curLayerId).processDescending(processingData);
+			}
+		} else {
+			log(this, "response already provided, skip remaining layers", TRACE);
 		}
 		
 		//extract prepared response
@@ -128,7 +137,8 @@ public class PersoSimKernel implements InfoSource {
 		}
 		
 		log(this, "finished processing APDU");
-		log(this, "outgoing APDU:\n" + HexString.dump(retVal), TRACE);
+		logDump(this, TRACE, "outgoing APDU:", retVal);
+		PersoSimLogger.flushTrace();
 		return retVal;
 		
 	}
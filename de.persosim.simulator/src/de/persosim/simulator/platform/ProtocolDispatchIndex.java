@@ -0,0 +1,105 @@
+package de.persosim.simulator.platform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import de.persosim.simulator.apdumatching.ApduSpecification;
+import de.persosim.simulator.apdumatching.ApduSpecificationConstants;
+import de.persosim.simulator.protocols.Protocol;
+
+/**
+ * This class indexes the registered {@link Protocol}s by the instruction bytes
+ * of the APDUs they are able to handle, as announced by
+ * {@link Protocol#getApduSet()} when the protocol is added. The
+ * {@link AbstractCommandProcessor} uses this index to only offer an APDU to
+ * protocols that can possibly accept it.
+ * <p/>
+ * A protocol is indexed for every instruction if its APDU set does not
+ * restrict the instruction byte to fixed values, i.e. if the set is empty or
+ * contains an {@link ApduSpecification} without a required instruction byte.
+ * Within each instruction the order in which the protocols have been added is
+ * maintained.
+ *
+ */
+public class ProtocolDispatchIndex implements ApduSpecificationConstants {
+
+	private List<Protocol> protocols;
+
+	/* candidate protocols indexed by the unsigned instruction byte */
+	private List<List<Protocol>> candidatesByIns;
+
+	/*--------------------------------------------------------------------------------*/
+
+	public ProtocolDispatchIndex() {
+		protocols = new ArrayList<>();
+
+		candidatesByIns = new ArrayList<>(256);
+		for(int i = 0; i < 256; i++) {
+			candidatesByIns.add(new ArrayList<Protocol>());
+		}
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Adds the provided protocol to this index. It is appended to the
+	 * candidates of all instructions it announces to handle.
+	 * @param protocol the protocol to add
+	 */
+	public void add(Protocol protocol) {
+		if(protocol == null) {throw new NullPointerException("protocol must not be null");}
+
+		protocols.add(protocol);
+
+		boolean[] acceptedIns = getAcceptedInstructions(protocol.getApduSet());
+		for(int i = 0; i < acceptedIns.length; i++) {
+			if(acceptedIns[i]) {
+				candidatesByIns.get(i).add(protocol);
+			}
+		}
+	}
+
+	/**
+	 * @param ins the instruction byte of the APDU to be dispatched
+	 * @return the protocols that can possibly accept the instruction in the order they have been added, may be empty
+	 */
+	public List<Protocol> getCandidates(byte ins) {
+		return Collections.unmodifiableList(candidatesByIns.get(ins & 0xFF));
+	}
+
+	/**
+	 * @return all protocols in the order they have been added
+	 */
+	public List<Protocol> getProtocols() {
+		return Collections.unmodifiableList(protocols);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return the instructions accepted according to the provided APDU set, indexed by the unsigned instruction byte
+	 */
+	private static boolean[] getAcceptedInstructions(Collection<ApduSpecification> apduSet) {
+		boolean[] acceptedIns = new boolean[256];
+
+		if((apduSet == null) || apduSet.isEmpty()) {
+			Arrays.fill(acceptedIns, true);
+			return acceptedIns;
+		}
+
+		for(ApduSpecification apduSpecification : apduSet) {
+			if(apduSpecification.getReqIns() != REQ_MATCH) {
+				Arrays.fill(acceptedIns, true);
+				return acceptedIns;
+			}
+
+			acceptedIns[apduSpecification.getIns() & 0xFF] = true;
+		}
+
+		return acceptedIns;
+	}
+
+}
@@ -67,15 +67,15 @@ public class ProcessingData implements Iso7816, InfoSource {
 	 */
 	public void updateProcessingState(InfoSource source, String message, ProcessingStateDelta... update) {
 		//log modifications accordingly
-		log(source, "Update processing state with " + update.length + " deltas.", TRACE);
-		log(source, "Update message\n" + message, TRACE);
+		log(source, TRACE, "Update processing state with %d deltas.", update.length);
+		log(source, TRACE, "Update message\n%s", message);
 		for (ProcessingStateDelta curStateDelta : update) {
 			if (curStateDelta != null && curStateDelta.getNrOfModifications() > 0) {
 				// add to state history
 				processingHistory.add(new ProcessingStateUpdate(source, message, curStateDelta));
 
 				//log modifications accordingly
-				log(source, "Processing state delta " + curStateDelta, TRACE);
+				log(source, TRACE, "Processing state delta %s", curStateDelta);
 				
 				// update command APDU if present
 				if (curStateDelta.getCommandApdu() != null) {
@@ -94,13 +94,13 @@ public class ProcessingData implements Iso7816, InfoSource {
 					
 					
 					this.commandApdu = curStateDelta.getCommandApdu();
-					log(source, "Command APDU updated\n" + commandApdu, TRACE);
+					log(source, TRACE, "Command APDU updated\n%s", commandApdu);
 				}
 
 				// update response APDU if present
 				if (curStateDelta.getResponseApdu() != null) {
 					this.responseApdu = curStateDelta.getResponseApdu();
-					log(source, "Response APDU updated\n" + responseApdu + "\nreason is: " + message, TRACE);
+					log(source, TRACE, "Response APDU updated\n%s\nreason is: %s", responseApdu, message);
 				}
 				
 				// update updatePropagations if present
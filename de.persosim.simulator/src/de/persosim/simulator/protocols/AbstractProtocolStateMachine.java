@@ -22,6 +22,7 @@ import de.persosim.simulator.statemachine.AbstractStateMachine;
 import de.persosim.simulator.tlv.TlvDataObject;
 import de.persosim.simulator.tlv.TlvPath;
 import de.persosim.simulator.tlv.TlvTag;
+import de.persosim.simulator.tlv.TlvWriter;
 import de.persosim.simulator.utils.InfoSource;
 
 /**
@@ -45,6 +46,9 @@ public abstract class AbstractProtocolStateMachine extends AbstractStateMachine
 	
 	protected CardStateAccessor cardState;
 	
+	/** reused for all responses generated by this instance, see {@link TlvWriter} */
+	protected TlvWriter responseWriter = new TlvWriter();
+	
 	public AbstractProtocolStateMachine(String protocolName) {
 		this.protocolName = protocolName;		
 	}
@@ -109,7 +113,7 @@ public abstract class AbstractProtocolStateMachine extends AbstractStateMachine
 	
 	@Override
 	public void logs(String state) {
-		log(this, "State changed to " + state, DEBUG);
+		log(this, DEBUG, "State changed to %s", state);
 	}
 
 	@Override
@@ -165,7 +169,7 @@ public abstract class AbstractProtocolStateMachine extends AbstractStateMachine
 		ApduSpecification apduSpec = apdus.get(apduId);
 		
 		if(apduSpec == null) {
-			log(this, "APDU matching failed due to command \"" + apduId + "\" being unknown", DEBUG);
+			log(this, DEBUG, "APDU matching failed due to command \"%s\" being unknown", apduId);
 			return false;
 		}
 		
@@ -177,7 +181,7 @@ public abstract class AbstractProtocolStateMachine extends AbstractStateMachine
 		boolean match = apduSpec.matchesFullApdu(apdu);
 		
 		if(match) {
-			log(this, "received APDU matches definition of command \"" + apduId + "\"", DEBUG);
+			log(this, DEBUG, "received APDU matches definition of command \"%s\"", apduId);
 		}
 		
 		return match;
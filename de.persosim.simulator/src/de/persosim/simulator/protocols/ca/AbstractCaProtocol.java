@@ -4,6 +4,7 @@ import static de.persosim.simulator.protocols.TR03110.buildAuthenticationTokenIn
 import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.ERROR;
 import static de.persosim.simulator.utils.PersoSimLogger.TRACE;
+import static de.persosim.simulator.utils.PersoSimLogger.isEnabled;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
 import static de.persosim.simulator.utils.PersoSimLogger.logException;
 
@@ -49,9 +50,9 @@ import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvDataObject;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
 import de.persosim.simulator.tlv.TlvPath;
-import de.persosim.simulator.tlv.TlvTag;
+import de.persosim.simulator.tlv.TlvQuery;
+import de.persosim.simulator.tlv.TlvReader;
 import de.persosim.simulator.tlv.TlvValue;
-import de.persosim.simulator.utils.HexString;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -78,6 +79,9 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 	protected SecretKeySpec secretKeySpecMAC;
 	protected SecretKeySpec secretKeySpecENC;
 	
+	/* query for the PCD's ephemeral public key within the General Authenticate command data */
+	protected static final TlvQuery QUERY_EPHEMERAL_PUBLIC_KEY = new TlvQuery(new TlvPath(TAG_7C, TAG_80));
+	
 	
 	
 	public AbstractCaProtocol() {
@@ -156,7 +160,7 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 		
 		this.cryptoSupport = caOid.getCryptoSupport();
 		
-		log(this, "new OID is " + caOid, DEBUG);
+		log(this, DEBUG, "new OID is %s", caOid);
 		
 		ResponseApdu resp = new ResponseApdu(Iso7816.SW_9000_NO_ERROR);
 		processingData.updateResponseAPDU(this, "Command Set AT successfully processed", resp);
@@ -168,19 +172,21 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 	 */
 	public void processCommandGeneralAuthenticate() {
 		//retrieve command data
-		TlvDataObjectContainer commandData = processingData.getCommandApdu().getCommandDataObjectContainer();
+		TlvReader commandData = processingData.getCommandApdu().getCommandDataReader();
 		
 		//retrieve PCD's public key
-		TlvDataObject tlvObject = commandData.getTagField(new TlvPath(new TlvTag((byte) 0x7C), new TlvTag((byte) 0x80)));
-		byte[] pcdPublicKeyMaterial = tlvObject.getValueField();
+		commandData.seek(QUERY_EPHEMERAL_PUBLIC_KEY.find(commandData));
+		byte[] pcdPublicKeyMaterial = commandData.getValueField();
 		
 		String keyAgreementAlgorithmName = caDomainParameters.getKeyAgreementAlgorithm();
-		log(this, "PCD's ephemeral public " + keyAgreementAlgorithmName + " key material of " + pcdPublicKeyMaterial.length + " bytes length is: " + HexString.encode(pcdPublicKeyMaterial), TRACE);
+		log(this, TRACE, "PCD's ephemeral public %s key material of %s bytes length is: %s", keyAgreementAlgorithmName, pcdPublicKeyMaterial.length, pcdPublicKeyMaterial);
 		
 		PublicKey ephemeralPublicKeyPcd;
 		try {
 			ephemeralPublicKeyPcd = caDomainParameters.reconstructPublicKey(pcdPublicKeyMaterial);
-			log(this, "PCD's  ephemeral public " + keyAgreementAlgorithmName + " key is " + new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()), TRACE);
+			if (isEnabled(TRACE)) {
+				log(this, TRACE, "PCD's  ephemeral public %s key is %s", keyAgreementAlgorithmName, new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()));
+			}
 		} catch (IllegalArgumentException e) {
 			logException(this, e, ERROR);
 			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6A80_WRONG_DATA);
@@ -222,11 +228,11 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 			return;
 		}
 		
-		log(this, "expected compressed PCD's ephemeral public " + keyAgreementAlgorithmName + " key of " + ephemeralPublicKeyPcdCompressedExpected.length + " bytes length is: " + HexString.encode(ephemeralPublicKeyPcdCompressedExpected), DEBUG);
-		log(this, "received compressed PCD's ephemeral public " + keyAgreementAlgorithmName + " key of " + ephemeralPublicKeyPcdCompressedReceived.length + " bytes length is: " + HexString.encode(ephemeralPublicKeyPcdCompressedReceived), DEBUG);
+		log(this, DEBUG, "expected compressed PCD's ephemeral public %s key of %s bytes length is: %s", keyAgreementAlgorithmName, ephemeralPublicKeyPcdCompressedExpected.length, ephemeralPublicKeyPcdCompressedExpected);
+		log(this, DEBUG, "received compressed PCD's ephemeral public %s key of %s bytes length is: %s", keyAgreementAlgorithmName, ephemeralPublicKeyPcdCompressedReceived.length, ephemeralPublicKeyPcdCompressedReceived);
 		
 		if(Arrays.equals(ephemeralPublicKeyPcdCompressedExpected, ephemeralPublicKeyPcdCompressedReceived)) {
-			log(this, "compressed representation of PCD's ephemeral public " + caDomainParameters.getKeyAgreementAlgorithm() + " key matches the one received during previous TA", DEBUG);
+			log(this, DEBUG, "compressed representation of PCD's ephemeral public %s key matches the one received during previous TA", caDomainParameters.getKeyAgreementAlgorithm());
 		} else{
 			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6984_REFERENCE_DATA_NOT_USABLE);
 			this.processingData.updateResponseAPDU(this, "compressed representation of PCD's public " + keyAgreementAlgorithmName + " key does NOT match the one received during previous TA", resp);
@@ -260,13 +266,13 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 			return;
 		}
 		
-		log(this, "shared secret K of " + sharedSecret.length + " bytes length is: " + HexString.encode(sharedSecret), DEBUG);
+		log(this, DEBUG, "shared secret K of %s bytes length is: %s", sharedSecret.length, sharedSecret);
 		
 		//get nonce r_PICC
 		int nonceSizeInBytes = 8;
 		byte[] rPiccNonce = new byte[nonceSizeInBytes];
 		this.secureRandom.nextBytes(rPiccNonce);
-		log(this, "nonce r_PICC of " + nonceSizeInBytes + " bytes length is: " + HexString.encode(rPiccNonce), DEBUG);
+		log(this, DEBUG, "nonce r_PICC of %s bytes length is: %s", nonceSizeInBytes, rPiccNonce);
 		
 		//compute session keys
 		KeyDerivationFunction kdf = new KeyDerivationFunction(caOid.getSymmetricCipherKeyLengthInBytes());
@@ -274,17 +280,17 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 		byte[] keyMaterialMac = kdf.deriveMAC(sharedSecret, rPiccNonce);
 		byte[] keyMaterialEnc = kdf.deriveENC(sharedSecret, rPiccNonce);
 		
-		log(this, "PICC's session key for MAC of " + keyMaterialMac.length + " bytes length is: " + HexString.encode(keyMaterialMac), DEBUG);
-		log(this, "PICC's session key for ENC of " + keyMaterialMac.length + " bytes length is: " + HexString.encode(keyMaterialEnc), DEBUG);
+		log(this, DEBUG, "PICC's session key for MAC of %s bytes length is: %s", keyMaterialMac.length, keyMaterialMac);
+		log(this, DEBUG, "PICC's session key for ENC of %s bytes length is: %s", keyMaterialMac.length, keyMaterialEnc);
 		
 		secretKeySpecMAC = cryptoSupport.generateSecretKeySpecMac(keyMaterialMac);
 		secretKeySpecENC = cryptoSupport.generateSecretKeySpecCipher(keyMaterialEnc);
 		
 		//compute authentication token T_PICC
 		TlvDataObjectContainer authenticationTokenInput = buildAuthenticationTokenInput(ephemeralPublicKeyPcd, caDomainParameters, caOid);
-		log(this, "authentication token raw data " + authenticationTokenInput, DEBUG);
+		log(this, DEBUG, "authentication token raw data %s", authenticationTokenInput);
 		byte[] authenticationTokenTpicc = Arrays.copyOf(this.cryptoSupport.macAuthenticationToken(authenticationTokenInput.toByteArray(), this.secretKeySpecMAC), 8);
-		log(this, "PICC's authentication token T_PICC of " + authenticationTokenTpicc.length + " bytes length is: " + HexString.encode(authenticationTokenTpicc), DEBUG);
+		log(this, DEBUG, "PICC's authentication token T_PICC of %s bytes length is: %s", authenticationTokenTpicc.length, authenticationTokenTpicc);
 		
 		//create and propagate new secure messaging data provider
 		SmDataProviderTr03110 smDataProvider;
@@ -302,18 +308,16 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 		processingData.addUpdatePropagation(this, "Updated security status with chip authentication information", new SecStatusMechanismUpdatePropagation(SecContext.APPLICATION, mechanism));
 		
 		//create and prepare response APDU
-		PrimitiveTlvDataObject primitive81 = new PrimitiveTlvDataObject(TAG_81, rPiccNonce);
-		log(this, "primitive tag 81 is: " + primitive81, TRACE);
-		PrimitiveTlvDataObject primitive82 = new PrimitiveTlvDataObject(TAG_82, authenticationTokenTpicc);
-		log(this, "primitive tag 82 is: " + primitive82, TRACE);
-		ConstructedTlvDataObject constructed7C = new ConstructedTlvDataObject(TAG_7C);
-		constructed7C.addTlvDataObject(primitive81);
-		constructed7C.addTlvDataObject(primitive82);
+		TlvValue responseData = responseWriter.reset()
+				.beginConstructed(TAG_7C)
+				.writePrimitive(TAG_81, rPiccNonce)
+				.writePrimitive(TAG_82, authenticationTokenTpicc)
+				.endConstructed()
+				.toTlvValue();
 		
-		log(this, "response data to be sent is: " + constructed7C, DEBUG);
+		log(this, DEBUG, "response data to be sent is: %s", responseData);
 		
 		//create and propagate response APDU
-		TlvValue responseData = new TlvDataObjectContainer(constructed7C);
 		ResponseApdu resp = new ResponseApdu(responseData, Iso7816.SW_9000_NO_ERROR);
 		processingData.updateResponseAPDU(this, "Command General Authenticate successfully processed", resp);
 		
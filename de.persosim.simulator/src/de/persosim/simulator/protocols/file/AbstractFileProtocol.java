@@ -220,7 +220,7 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 	 */
 	private TlvDataObject getDDO(CommandApdu apdu) throws TagNotFoundException{
 		for (byte tag : ODDINS_COMMAND_DDO_TAGS){
-			TlvDataObject result = apdu.getCommandDataObjectContainer().getTagField(new TlvTag(tag)); 
+			TlvDataObject result = apdu.getCommandDataObjectContainer().getTagField(TlvTag.getInstance(tag)); 
 			if (result != null){
 				return result;
 			}
@@ -237,7 +237,7 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 	private int getOffset(byte p1, byte p2) {
 		boolean isShortFileIdentifier = (p1 & P1_MASK_EF_IN_P1_P2) == P1_MASK_EF_IN_P1_P2;
 		if (isShortFileIdentifier) {
-			return p2;
+			return Utils.maskUnsignedByteToInt(p2);
 		} else {
 			return Utils.concatenate(p1, p2);
 		}
@@ -249,7 +249,7 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 	 * @return the value to be used as file offset
 	 */
 	private int getOffset(TlvDataObjectContainer tlv) {
-		TlvDataObject offset = tlv.getTagField(new TlvTag(ODDINS_COMMAND_TAG));
+		TlvDataObject offset = tlv.getTagField(TlvTag.getInstance(ODDINS_COMMAND_TAG));
 		return Utils.getIntFromUnsignedByteArray(offset.getValueField());
 	}
 
@@ -355,7 +355,7 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 
 				if (isOddInstruction) {
 					toSend = new TlvDataObjectContainer(
-							new PrimitiveTlvDataObject(new TlvTag(
+							new PrimitiveTlvDataObject(TlvTag.getInstance(
 									ODDINS_RESPONSE_TAG), data));
 				} else {
 					toSend = new TlvValuePlain(data);
@@ -4,6 +4,7 @@ import static de.persosim.simulator.protocols.TR03110.buildAuthenticationTokenIn
 import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.ERROR;
 import static de.persosim.simulator.utils.PersoSimLogger.TRACE;
+import static de.persosim.simulator.utils.PersoSimLogger.isEnabled;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
 import static de.persosim.simulator.utils.PersoSimLogger.logException;
 
@@ -62,12 +63,13 @@ import de.persosim.simulator.tlv.ConstructedTlvDataObject;
 import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObjectBuilder;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
 import de.persosim.simulator.tlv.TlvPath;
-import de.persosim.simulator.tlv.TlvTag;
+import de.persosim.simulator.tlv.TlvQuery;
+import de.persosim.simulator.tlv.TlvReader;
 import de.persosim.simulator.tlv.TlvValue;
 import de.persosim.simulator.utils.BitField;
-import de.persosim.simulator.utils.HexString;
 
 /**
  * @author slutters
@@ -93,6 +95,11 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 	public static final byte APDU_PERFORM_KEY_AGREEMENT  = 3;
 	public static final byte APDU_MUTUAL_AUTHENTICATE    = 4;
 	
+	/* queries for the command data of the General Authenticate steps */
+	protected static final TlvQuery QUERY_MAPPING_DATA            = new TlvQuery(new TlvPath(TAG_7C, TAG_81));
+	protected static final TlvQuery QUERY_EPHEMERAL_PUBLIC_KEY    = new TlvQuery(new TlvPath(TAG_7C, TAG_83));
+	protected static final TlvQuery QUERY_AUTHENTICATION_TOKEN    = new TlvQuery(new TlvPath(TAG_7C, TAG_85));
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	protected PaceOid paceOid;
@@ -162,7 +169,7 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		CardObject pwdCandidate = cardState.getObject(new AuthObjectIdentifier(tlvObject.getValueField()), Scope.FROM_MF);
 		if (pwdCandidate instanceof PasswordAuthObject){
 			pacePassword = (PasswordAuthObject) pwdCandidate;
-			log(this, "selected password is: " + getPasswordName(), DEBUG);
+			log(this, DEBUG, "selected password is: %s", getPasswordName());
 		} else {
 			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6A88_REFERENCE_DATA_NOT_FOUND);
 			this.processingData.updateResponseAPDU(this, "no fitting authentication object found", resp);
@@ -258,15 +265,15 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		KeyDerivationFunction kdf = new KeyDerivationFunction(paceOid.getSymmetricCipherKeyLengthInBytes());
 		byte[] commonSecret = pacePassword.getPassword();
 		
-		log(this, "common secret is: " + HexString.encode(commonSecret), TRACE);
+		log(this, TRACE, "common secret is: %s", commonSecret);
 		
 		byte[] keyMaterialForEncryptionOfNonce = kdf.derivePI(commonSecret);
 		
-		log(this, "computed raw key material of byte length " + keyMaterialForEncryptionOfNonce.length + " is: " + HexString.encode(keyMaterialForEncryptionOfNonce), TRACE);
+		log(this, TRACE, "computed raw key material of byte length %s is: %s", keyMaterialForEncryptionOfNonce.length, keyMaterialForEncryptionOfNonce);
 		
 		this.secretKeySpecNonce = this.cryptoSupport.generateSecretKeySpecCipher(keyMaterialForEncryptionOfNonce);
 		
-		log(this, "computed " + paceOid.getSymmetricCipherAlgorithmName() + " key material: " + HexString.encode(keyMaterialForEncryptionOfNonce), DEBUG);
+		log(this, DEBUG, "computed %s key material: %s", paceOid.getSymmetricCipherAlgorithmName(), keyMaterialForEncryptionOfNonce);
 		
 		// If PIN is used, check for retry counter.
 		if (pacePassword instanceof PasswordAuthObjectWithRetryCounter) {
@@ -275,7 +282,7 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			int retryCounter = pacePasswordWithRetryCounter.getRetryCounterCurrentValue();
 			short retryCounterDefault = (short) pacePasswordWithRetryCounter.getRetryCounterDefaultValue();
 			
-			log(this, "current PIN retry counter is: " + retryCounter, TRACE);
+			log(this, TRACE, "current PIN retry counter is: %s", retryCounter);
 			
 			if (pacePassword.getLifeCycleState().equals(Iso7816LifeCycleState.OPERATIONAL_ACTIVATED)) {
 				if (retryCounter != retryCounterDefault) {
@@ -360,8 +367,6 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 	public void processCommandGetNonce() {
 		byte[] encryptedNonce;
 		int blockSizeInBytes, keySizeInBytes, nonceSizeInBytes, multiplicationFactor;
-		PrimitiveTlvDataObject primitive80;
-		ConstructedTlvDataObject constructed7C;
 		
 		keySizeInBytes = paceOid.getSymmetricCipherKeyLengthInBytes();
 		blockSizeInBytes = this.cryptoSupport.getBlockSize();
@@ -369,24 +374,20 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		multiplicationFactor = (int) Math.ceil(keySizeInBytes/(double) blockSizeInBytes);
 		nonceSizeInBytes = multiplicationFactor * blockSizeInBytes;
 		
-		log(this, "key length k in Bytes is " + keySizeInBytes + ", block size in Bytes is " + blockSizeInBytes + " --> nonce s must be of smallest length l in Bytes, l being a multiple of the block size, such that l<=k", TRACE);
+		log(this, TRACE, "key length k in Bytes is %s, block size in Bytes is %s --> nonce s must be of smallest length l in Bytes, l being a multiple of the block size, such that l<=k", keySizeInBytes, blockSizeInBytes);
 		
 		this.piccsPlainNonceS = new byte[nonceSizeInBytes];
 		this.secureRandom.nextBytes(this.piccsPlainNonceS);
 		
-		log(this, "new (plain) nonce s of byte length " + this.piccsPlainNonceS.length + " is " + HexString.encode(this.piccsPlainNonceS), TRACE);
+		log(this, TRACE, "new (plain) nonce s of byte length %s is %s", this.piccsPlainNonceS.length, this.piccsPlainNonceS);
 		
 		encryptedNonce = this.cryptoSupport.encryptWithIvZero(this.piccsPlainNonceS, this.secretKeySpecNonce);
 		
-		log(this, "(encryted) nonce z = E_KPi(s) is " + HexString.encode(encryptedNonce), TRACE);
-		
-		primitive80 = new PrimitiveTlvDataObject(TAG_80, encryptedNonce);
-		log(this, "primitive tag 80 is: " + primitive80, TRACE);
-		constructed7C = new ConstructedTlvDataObject(TAG_7C);
-		constructed7C.addTlvDataObject(primitive80);
+		log(this, TRACE, "(encryted) nonce z = E_KPi(s) is %s", encryptedNonce);
 		
 		//create and propagate response APDU
-		TlvValue responseData = new TlvDataObjectContainer(constructed7C);
+		TlvValue responseData = responseWriter.reset().beginConstructed(TAG_7C).writePrimitive(TAG_80, encryptedNonce).endConstructed().toTlvValue();
+		log(this, TRACE, "response data to be sent is: %s", responseData);
 		ResponseApdu resp = new ResponseApdu(responseData, Iso7816.SW_9000_NO_ERROR);
 		this.processingData.updateResponseAPDU(this, "Command GetNonce successfully processed", resp);
 	}
@@ -402,8 +403,8 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		/*
 		 * Extract mapping data
 		 */
-		TlvDataObjectContainer commandData = processingData.getCommandApdu().getCommandDataObjectContainer();
-		TlvDataObject tlvObject = commandData.getTagField(new TlvPath(TAG_7C, TAG_81));
+		TlvReader commandData = processingData.getCommandApdu().getCommandDataReader();
+		commandData.seek(QUERY_MAPPING_DATA.find(commandData));
 		
 		/* 
 		 * The received mapping data may contain the following
@@ -413,16 +414,16 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		 * 
 		 * Due to this differentiation validity checks of the received mapping data are performed directly by the mapping itself.
 		 */
-		byte[] mappingDataFromPcd = tlvObject.getValueField();
+		byte[] mappingDataFromPcd = commandData.getValueField();
 		
-		log(this, "mapping data received from PCD is expected to contain " + mapping.getMeaningOfMappingData(), DEBUG);
-		log(this, "unchecked mapping data content of " + mappingDataFromPcd.length + " bytes length is: " + HexString.encode(mappingDataFromPcd), DEBUG);
-		log(this, "nonce s generated by PICC during processing of GetNonce command is " + HexString.encode(piccsPlainNonceS), TRACE);
+		log(this, DEBUG, "mapping data received from PCD is expected to contain %s", mapping.getMeaningOfMappingData());
+		log(this, DEBUG, "unchecked mapping data content of %s bytes length is: %s", mappingDataFromPcd.length, mappingDataFromPcd);
+		log(this, TRACE, "nonce s generated by PICC during processing of GetNonce command is %s", piccsPlainNonceS);
 		
 		byte[] mappingResponse;
 		
 		try {
-			log(this, "about to perform " + mapping.getMappingName(), DEBUG);
+			log(this, DEBUG, "about to perform %s", mapping.getMappingName());
 			MappingResult mappingResult = mapping.performMapping(paceDomainParametersUnmapped, piccsPlainNonceS, mappingDataFromPcd);
 			
 			ephemeralKeyPairPicc = mappingResult.getKeyPair();
@@ -443,16 +444,15 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		}
 
 		
-		log(this, "PICC's ephemeral public  mapped " + keyAgreementName + " key is " + new TlvDataObjectContainer(ephemeralKeyPairPicc.getPublic().getEncoded()), TRACE);
-		log(this, "PICC's ephemeral private mapped " + keyAgreementName + " key is " + new TlvDataObjectContainer(ephemeralKeyPairPicc.getPrivate().getEncoded()), TRACE);
+		if (isEnabled(TRACE)) {
+			log(this, TRACE, "PICC's ephemeral public  mapped %s key is %s", keyAgreementName, new TlvDataObjectContainer(ephemeralKeyPairPicc.getPublic().getEncoded()));
+			log(this, TRACE, "PICC's ephemeral private mapped %s key is %s", keyAgreementName, new TlvDataObjectContainer(ephemeralKeyPairPicc.getPrivate().getEncoded()));
+		}
 		
 		// Build response data
-		PrimitiveTlvDataObject primitive82 = new PrimitiveTlvDataObject(TAG_82, mappingResponse);
-		ConstructedTlvDataObject constructed7C = new ConstructedTlvDataObject(TAG_7C);
-		constructed7C.addTlvDataObject(primitive82);
+		TlvValue responseData = responseWriter.reset().beginConstructed(TAG_7C).writePrimitive(TAG_82, mappingResponse).endConstructed().toTlvValue();
 		
 		// Create and propagate response APDU
-		TlvValue responseData = new TlvDataObjectContainer(constructed7C);
 		ResponseApdu resp = new ResponseApdu(responseData, Iso7816.SW_9000_NO_ERROR);
 		this.processingData.updateResponseAPDU(this, "Command MapNonce successfully processed", resp);
 	}
@@ -464,17 +464,19 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		byte[] ephemeralPublicKeyComponentPicc;
 		
 		//get commandDataContainer
-		TlvDataObjectContainer commandData = processingData.getCommandApdu().getCommandDataObjectContainer();
+		TlvReader commandData = processingData.getCommandApdu().getCommandDataReader();
 						
-		TlvDataObject tlvObject = commandData.getTagField(new TlvPath(new TlvTag((byte) 0x7C), new TlvTag((byte) 0x83)));
-		byte[] rawKeyPlain = tlvObject.getValueField();
+		commandData.seek(QUERY_EPHEMERAL_PUBLIC_KEY.find(commandData));
+		byte[] rawKeyPlain = commandData.getValueField();
 		
-		log(this, "PCD's public raw key of " + rawKeyPlain.length + " bytes length is: " + HexString.encode(rawKeyPlain), TRACE);
+		log(this, TRACE, "PCD's public raw key of %s bytes length is: %s", rawKeyPlain.length, rawKeyPlain);
 		
 		try {
 			ephemeralPublicKeyPcd = paceDomainParametersMapped.reconstructPublicKey(rawKeyPlain);
 			ephemeralPublicKeyComponentPicc = paceDomainParametersMapped.encodePublicKey(ephemeralKeyPairPicc.getPublic());
-			log(this, "PCD's  ephemeral public  mapped " + paceDomainParametersMapped.getKeyAgreementAlgorithm() + " key is " + new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()), TRACE);
+			if (isEnabled(TRACE)) {
+				log(this, TRACE, "PCD's  ephemeral public  mapped %s key is %s", paceDomainParametersMapped.getKeyAgreementAlgorithm(), new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()));
+			}
 		} catch (IllegalArgumentException e) {
 			logException(this, e, ERROR);
 			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6A80_WRONG_DATA);
@@ -487,14 +489,11 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			return;
 		}
 		
-		log(this, "bare response data of byte length " + ephemeralPublicKeyComponentPicc.length + " is " + HexString.encode(ephemeralPublicKeyComponentPicc), DEBUG);
+		log(this, DEBUG, "bare response data of byte length %s is %s", ephemeralPublicKeyComponentPicc.length, ephemeralPublicKeyComponentPicc);
 		
-		PrimitiveTlvDataObject primitive84 = new PrimitiveTlvDataObject(TAG_84, ephemeralPublicKeyComponentPicc);
-		ConstructedTlvDataObject constructed7C = new ConstructedTlvDataObject(TAG_7C);
-		constructed7C.addTlvDataObject(primitive84);
+		TlvValue responseData = responseWriter.reset().beginConstructed(TAG_7C).writePrimitive(TAG_84, ephemeralPublicKeyComponentPicc).endConstructed().toTlvValue();
 		
 		/* create and propagate response APDU */
-		TlvValue responseData = new TlvDataObjectContainer(constructed7C);
 		ResponseApdu resp = new ResponseApdu(responseData, Iso7816.SW_9000_NO_ERROR);
 		this.processingData.updateResponseAPDU(this, "Command PerformKeyAgreement successfully processed", resp);
 	}
@@ -503,26 +502,21 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 	 * This method processes the command APDU MUTUAL_AUTHENTICATE.
 	 */
 	public void processCommandMutualAuthenticate() {
-		TlvDataObject tlvObject;
 		PrimitiveTlvDataObject primitive86;
 		ConstructedTlvDataObject constructed7C;
 		byte[] pcdTokenReceivedFromPCD, piccToken, pcdToken;
-		TlvPath path;
-		
-		path = new TlvPath(new TlvTag[]{TAG_7C, TAG_85});
-		
 		/* get commandDataContainer */
-		TlvDataObjectContainer commandData = processingData.getCommandApdu().getCommandDataObjectContainer();
+		TlvReader commandData = processingData.getCommandApdu().getCommandDataReader();
 						
-		tlvObject = commandData.getTagField(path);
-		pcdTokenReceivedFromPCD = tlvObject.getValueField();
+		commandData.seek(QUERY_AUTHENTICATION_TOKEN.find(commandData));
+		pcdTokenReceivedFromPCD = commandData.getValueField();
 		
 		/* construct authentication token input based on PACE OID and ephemeral keys */
 		TlvDataObjectContainer piccTokenInput = buildAuthenticationTokenInput(ephemeralPublicKeyPcd, paceDomainParametersMapped, paceOid);
 		TlvDataObjectContainer pcdTokenInput = buildAuthenticationTokenInput(ephemeralKeyPairPicc.getPublic(), paceDomainParametersMapped, paceOid);
 		
-		log(this, "picc token raw data " + piccTokenInput, DEBUG);
-		log(this, "pcd  token raw data " + pcdTokenInput, DEBUG);
+		log(this, DEBUG, "picc token raw data %s", piccTokenInput);
+		log(this, DEBUG, "pcd  token raw data %s", pcdTokenInput);
 		
 		try {
 			KeyAgreement keyAgreement = KeyAgreement.getInstance(paceOid.getKeyAgreementName());
@@ -531,7 +525,7 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			
 			byte[] sharedSecret = keyAgreement.generateSecret();
 			
-			log(this, "shared secret of byte length " + sharedSecret.length + " resulting from " + paceOid.getKeyAgreementName() + " key agreement is " + HexString.encode(sharedSecret), DEBUG);
+			log(this, DEBUG, "shared secret of byte length %s resulting from %s key agreement is %s", sharedSecret.length, paceOid.getKeyAgreementName(), sharedSecret);
 			
 			KeyDerivationFunction kdf = new KeyDerivationFunction(paceOid.getSymmetricCipherKeyLengthInBytes());
 			
@@ -541,8 +535,8 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			this.secretKeySpecMAC = this.cryptoSupport.generateSecretKeySpecMac(keyMaterialMAC);
 			this.secretKeySpecENC = this.cryptoSupport.generateSecretKeySpecCipher(keyMaterialENC);
 			
-			log(this, "final " + secretKeySpecENC.getAlgorithm() + " symmetric key material ENC is " + HexString.encode(secretKeySpecENC.getEncoded()), DEBUG);
-			log(this, "final " + secretKeySpecMAC.getAlgorithm() + " symmetric key material MAC is " + HexString.encode(secretKeySpecMAC.getEncoded()), DEBUG);
+			log(this, DEBUG, "final %s symmetric key material ENC is %s", secretKeySpecENC.getAlgorithm(), secretKeySpecENC.getEncoded());
+			log(this, DEBUG, "final %s symmetric key material MAC is %s", secretKeySpecMAC.getAlgorithm(), secretKeySpecMAC.getEncoded());
 		} catch (InvalidKeyException | IllegalStateException | NoSuchAlgorithmException e) {
 			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6A80_WRONG_DATA);
 			processingData.updateResponseAPDU(this, "Invalid symmetric key", resp);
@@ -552,13 +546,13 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		
 		/* get first 8 bytes of mac */
 		piccToken = Arrays.copyOf(this.cryptoSupport.macAuthenticationToken(piccTokenInput.toByteArray(), this.secretKeySpecMAC), 8);
-		log(this, "picc token data is: " + HexString.encode(piccToken), DEBUG);
+		log(this, DEBUG, "picc token data is: %s", piccToken);
 		
 		pcdToken = Arrays.copyOf(this.cryptoSupport.macAuthenticationToken(pcdTokenInput.toByteArray(), this.secretKeySpecMAC), 8);
-		log(this, "pcd  token data is: " + HexString.encode(pcdToken), DEBUG);
+		log(this, DEBUG, "pcd  token data is: %s", pcdToken);
 		
-		log(this, "expected pcd token data is: " + HexString.encode(pcdToken), DEBUG);
-		log(this, "received pcd token data is: " + HexString.encode(pcdTokenReceivedFromPCD), DEBUG);
+		log(this, DEBUG, "expected pcd token data is: %s", pcdToken);
+		log(this, DEBUG, "received pcd token data is: %s", pcdTokenReceivedFromPCD);
 		
 		boolean paceSuccessful;
 		short sw;
@@ -597,9 +591,8 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		ResponseApdu responseApdu;
 		
 		if(paceSuccessful) {
-			primitive86 = new PrimitiveTlvDataObject(TAG_86, piccToken);
-			constructed7C = new ConstructedTlvDataObject(TAG_7C);
-			constructed7C.addTlvDataObject(primitive86);
+			primitive86 = TlvDataObjectBuilder.primitive(TAG_86, piccToken);
+			constructed7C = new TlvDataObjectBuilder(TAG_7C).add(primitive86).build();
 			
 			//add CARs to response data if available
 			if (trustPoint != null) {
@@ -669,10 +662,10 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		PasswordAuthObjectWithRetryCounter pacePasswordPin = (PasswordAuthObjectWithRetryCounter) pacePassword;
 		
 		int pinRetryCounter = pacePasswordPin.getRetryCounterCurrentValue();
-		log(this, "PACE with PIN has failed - PIN retry counter will be decremented, current value is: " + pinRetryCounter, DEBUG);
+		log(this, DEBUG, "PACE with PIN has failed - PIN retry counter will be decremented, current value is: %s", pinRetryCounter);
 		pacePasswordPin.decrementRetryCounter();
 		pinRetryCounter = pacePasswordPin.getRetryCounterCurrentValue();
-		log(this, "PACE with PIN has failed - PIN retry counter has been decremented, current value is: " + pinRetryCounter, DEBUG);
+		log(this, DEBUG, "PACE with PIN has failed - PIN retry counter has been decremented, current value is: %s", pinRetryCounter);
 		
 		short sw = (short) 0x63C0;
 		sw |= ((short) (pinRetryCounter & (short) 0x000F)); 
@@ -783,7 +776,7 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			PaceMechanism paceMechanism = (PaceMechanism) currentMechanisms.toArray()[0];
 			PasswordAuthObject previouslyUsedPwd = paceMechanism.getUsedPassword();
 			int previouslyUsedPasswordIdentifier = previouslyUsedPwd.getPasswordIdentifier();
-			log(this, "last successfull PACE run used " + getPasswordName(previouslyUsedPasswordIdentifier) + " as password with value " + HexString.encode(previouslyUsedPwd.getPassword()), DEBUG);
+			log(this, DEBUG, "last successfull PACE run used %s as password with value %s", getPasswordName(previouslyUsedPasswordIdentifier), previouslyUsedPwd.getPassword());
 			return previouslyUsedPasswordIdentifier == Pace.PWD_CAN;
 		} else{
 			return false;
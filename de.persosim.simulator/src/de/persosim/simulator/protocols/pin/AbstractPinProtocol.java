@@ -21,7 +21,6 @@ import de.persosim.simulator.secstatus.SecMechanism;
 import de.persosim.simulator.secstatus.SecStatus.SecContext;
 import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvValue;
-import de.persosim.simulator.utils.HexString;
 
 /**
  * This class implements the PIN management functionality specified in TR-03110,
@@ -76,9 +75,7 @@ public abstract class AbstractPinProtocol extends AbstractProtocolStateMachine i
 		
 		byte[] newPasswordPlain = tlvData.toByteArray();
 		
-		log(this, "received data of " + newPasswordPlain.length + " bytes length for new " + passwordName + " is: " + HexString.dump(newPasswordPlain), DEBUG);
-		
-		log(this, "old " + passwordName + " is: " + HexString.dump(passwordObject.getPassword()), DEBUG);
+		log(this, DEBUG, "received data of %d bytes length for new %s", newPasswordPlain.length, passwordName);
 		
 		try {
 			passwordObject.setPassword(newPasswordPlain);
@@ -94,8 +91,6 @@ public abstract class AbstractPinProtocol extends AbstractProtocolStateMachine i
 			return;
 		}
 		
-		log(this, "new " + passwordName + " is: " + HexString.dump(newPasswordPlain), DEBUG);
-		
 		ResponseApdu resp = new ResponseApdu(Iso7816.SW_9000_NO_ERROR);
 		this.processingData.updateResponseAPDU(this, passwordName + " successfully changed", resp);
 	}
@@ -133,7 +128,7 @@ public abstract class AbstractPinProtocol extends AbstractProtocolStateMachine i
 	
 	public void processCommandUnblockPin() {
 		PasswordAuthObjectWithRetryCounter pinObject = getPinObject();
-		log(this, "old PIN retry counter is: " + pinObject.getRetryCounterCurrentValue(), DEBUG);
+		log(this, DEBUG, "old PIN retry counter is: %d", pinObject.getRetryCounterCurrentValue());
 		
 		try {
 			pinObject.resetRetryCounterToDefault();
@@ -149,7 +144,7 @@ public abstract class AbstractPinProtocol extends AbstractProtocolStateMachine i
 			return;
 		}
 		
-		log(this, "new PIN retry counter is: " + pinObject.getRetryCounterCurrentValue(), DEBUG);
+		log(this, DEBUG, "new PIN retry counter is: %d", pinObject.getRetryCounterCurrentValue());
 		
 		ResponseApdu resp = new ResponseApdu(Iso7816.SW_9000_NO_ERROR);
 		this.processingData.updateResponseAPDU(this, "PIN successfully unblocked", resp);
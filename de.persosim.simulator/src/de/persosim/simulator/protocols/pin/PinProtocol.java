@@ -3,6 +3,6 @@ package de.persosim.simulator.protocols.pin;
 import javax.xml.bind.annotation.XmlRootElement;
 
 @XmlRootElement(name="PinManagement")
-public class PinProtocol extends DefaultPinProtocol {
+public class PinProtocol extends TablePinProtocol {
 
 }
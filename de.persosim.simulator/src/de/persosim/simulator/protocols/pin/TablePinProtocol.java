@@ -0,0 +1,117 @@
+package de.persosim.simulator.protocols.pin;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import de.persosim.simulator.statemachine.TableStateMachine;
+import de.persosim.simulator.statemachine.TransitionTable;
+
+/**
+ * PIN management protocol driven by a {@link TransitionTable} instead of
+ * generated state machine code. The model is read from the classpath resource
+ * {@value #MODEL_RESOURCE} next to this class. The registration of the APDU
+ * specifications done in the REGISTER_APDU states is provided by the register
+ * methods of this class.
+ * <p/>
+ * The table is loaded once and shared by all instances of this protocol.
+ *
+ */
+public class TablePinProtocol extends AbstractPinProtocol {
+
+	static final String MODEL_RESOURCE = "TablePinProtocol.xml";
+
+	private static final TransitionTable TABLE;
+
+	static {
+		try (InputStream model = TablePinProtocol.class.getResourceAsStream(MODEL_RESOURCE)) {
+			if(model == null) {throw new IllegalStateException("PIN state machine model " + MODEL_RESOURCE + " is missing");}
+			TABLE = TransitionTable.load(model, TablePinProtocol.class);
+		} catch (IOException e) {
+			throw new IllegalStateException("PIN state machine model can not be read", e);
+		}
+	}
+
+	private TableStateMachine stateMachine = new TableStateMachine(TABLE, this);
+
+	/*--------------------------------------------------------------------------------*/
+
+	@Override
+	public int processEvent(int event) {
+		return stateMachine.processEvent(event);
+	}
+
+	@Override
+	public void initialize() {
+		stateMachine.initialize();
+	}
+
+	@Override
+	public void reInitialize() {
+		stateMachine.reInitialize();
+	}
+
+	/**
+	 * @return the name of the current state as defined in the model
+	 */
+	String getCurrentStateName() {
+		return stateMachine.getCurrentStateName();
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	public void registerApduActivatePin() {
+		createNewApduSpecification("Activate PIN");
+		apduSpecification.setInitialAPDU(true);
+		apduSpecification.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		apduSpecification.setIsoCase(ISO_CASE_1);
+		apduSpecification.setIns(INS_44_ACTIVATE_FILE);
+		apduSpecification.setP1((byte) 0x10);
+		apduSpecification.setP2(P2_03_PIN);
+		registerApduSpecification(apduSpecification);
+	}
+
+	public void registerApduDeactivatePin() {
+		createNewApduSpecification("Deactivate PIN");
+		apduSpecification.setInitialAPDU(true);
+		apduSpecification.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		apduSpecification.setIsoCase(ISO_CASE_1);
+		apduSpecification.setIns(INS_04_DEACTIVATE_FILE);
+		apduSpecification.setP1((byte) 0x10);
+		apduSpecification.setP2(P2_03_PIN);
+		registerApduSpecification(apduSpecification);
+	}
+
+	public void registerApduUnblockPin() {
+		createNewApduSpecification("Unblock PIN");
+		apduSpecification.setInitialAPDU(true);
+		apduSpecification.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		apduSpecification.setIsoCase(ISO_CASE_1);
+		apduSpecification.setIns(INS_2C_RESET_RETRY_COUNTER);
+		apduSpecification.setP1(P1_03_UNBLOCK);
+		apduSpecification.setP2(P2_03_PIN);
+		registerApduSpecification(apduSpecification);
+	}
+
+	public void registerApduChangePin() {
+		createNewApduSpecification("Change PIN");
+		apduSpecification.setInitialAPDU(true);
+		apduSpecification.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		apduSpecification.setIsoCase(ISO_CASE_3);
+		apduSpecification.setP1(P1_02_UNBLOCK_AND_CHANGE);
+		apduSpecification.setP2(P2_03_PIN);
+		apduSpecification.setIns(INS_2C_RESET_RETRY_COUNTER);
+		registerApduSpecification(apduSpecification);
+	}
+
+	public void registerApduChangeCan() {
+		createNewApduSpecification("Change CAN");
+		apduSpecification.setInitialAPDU(true);
+		apduSpecification.setIsoFormat(ISO_FORMAT_FIRSTINTERINDUSTRY);
+		apduSpecification.setIsoCase(ISO_CASE_3);
+		apduSpecification.setP1(P1_02_CHANGE);
+		apduSpecification.setP2(P2_02_CAN);
+		apduSpecification.setIns(INS_2C_RESET_RETRY_COUNTER);
+		registerApduSpecification(apduSpecification);
+	}
+
+}
@@ -75,7 +75,7 @@ public interface Ri {
 	public final static String id_RI_ECDH_SHA_384_STRING = "id-RI-ECDH-SHA-384";
 	public final static String id_RI_ECDH_SHA_512_STRING = "id-RI-ECDH-SHA-512";
 
-	public final static TlvTag RI_FIRST_SECTOR_KEY_TAG = new TlvTag((byte) 0xA0);
-	public final static TlvTag RI_SECOND_SECTOR_KEY_TAG = new TlvTag((byte) 0xA2);
+	public final static TlvTag RI_FIRST_SECTOR_KEY_TAG = TlvTag.getInstance((byte) 0xA0);
+	public final static TlvTag RI_SECOND_SECTOR_KEY_TAG = TlvTag.getInstance((byte) 0xA2);
 
 }
@@ -1,6 +1,8 @@
 package de.persosim.simulator.protocols.ta;
 
+import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
+import static de.persosim.simulator.utils.PersoSimLogger.logDump;
 
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -373,12 +375,12 @@ public abstract class AbstractTaProtocol extends AbstractProtocolStateMachine im
 			signature.initVerify(publicKey);
 			signature.update(dataToVerify);
 
-			log(this, "Data to verify:\n" + HexString.dump(dataToVerify));
+			logDump(this, DEBUG, "Data to verify:", dataToVerify);
 			
 			if (publicKey instanceof ECPublicKey){
 				signatureData = CryptoUtil.restoreAsn1SignatureStructure(signatureData).toByteArray();
 			}
-			log(this, "Signature data:\n" + HexString.dump(signatureData));
+			logDump(this, DEBUG, "Signature data:", signatureData);
 			
 			if(signature.verify(signatureData)){
 				log(this, "Verification OK");
@@ -705,14 +707,14 @@ public abstract class AbstractTaProtocol extends AbstractProtocolStateMachine im
 	public Collection<? extends TlvDataObject> getSecInfos(SecInfoPublicity publicity, MasterFile mf) {
 		// TAInfo
 		ConstructedTlvDataObject taInfo = new ConstructedTlvDataObject(
-				new TlvTag(Asn1.SEQUENCE));
+				TlvTag.getInstance(Asn1.SEQUENCE));
 
 		PrimitiveTlvDataObject protocol = new PrimitiveTlvDataObject(
-				new TlvTag(Asn1.OBJECT_IDENTIFIER),
+				TlvTag.getInstance(Asn1.OBJECT_IDENTIFIER),
 				new TlvValuePlain(HexString
 						.toByteArray("04 00 7F 00 07 02 02 02")));
 
-		PrimitiveTlvDataObject version = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER),
+		PrimitiveTlvDataObject version = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER),
 				new TlvValuePlain(new byte[] { 2 }));
 		taInfo.addTlvDataObject(protocol);
 		taInfo.addTlvDataObject(version);
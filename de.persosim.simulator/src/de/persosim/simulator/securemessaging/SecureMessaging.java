@@ -3,14 +3,19 @@ package de.persosim.simulator.securemessaging;
 import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
 import static de.persosim.simulator.utils.PersoSimLogger.ERROR;
 import static de.persosim.simulator.utils.PersoSimLogger.TRACE;
+import static de.persosim.simulator.utils.PersoSimLogger.isEnabled;
 import static de.persosim.simulator.utils.PersoSimLogger.log;
 import static de.persosim.simulator.utils.PersoSimLogger.logException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.Key;
 import java.util.Arrays;
 import java.util.LinkedList;
 
+import javax.crypto.Mac;
+
 import de.persosim.simulator.apdu.CommandApdu;
 import de.persosim.simulator.apdu.CommandApduFactory;
 import de.persosim.simulator.apdu.IsoSecureMessagingCommandApdu;
@@ -24,10 +29,13 @@ import de.persosim.simulator.secstatus.SecStatusEventUpdatePropagation;
 import de.persosim.simulator.secstatus.SecurityEvent;
 import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObjectBuilder;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
+import de.persosim.simulator.tlv.TlvPath;
+import de.persosim.simulator.tlv.TlvQuery;
+import de.persosim.simulator.tlv.TlvReader;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.tlv.TlvValue;
-import de.persosim.simulator.utils.HexString;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -43,16 +51,26 @@ import de.persosim.simulator.utils.Utils;
  * 
  */
 public class SecureMessaging extends Layer {
-	public static final TlvTag TAG_87 = new TlvTag((byte) 0x87);
-	public static final TlvTag TAG_97 = new TlvTag((byte) 0x97);
-	public static final TlvTag TAG_99 = new TlvTag((byte) 0x99);
-	public static final TlvTag TAG_8E = new TlvTag((byte) 0x8E);
+	public static final TlvTag TAG_87 = TlvTag.getInstance((byte) 0x87);
+	public static final TlvTag TAG_97 = TlvTag.getInstance((byte) 0x97);
+	public static final TlvTag TAG_99 = TlvTag.getInstance((byte) 0x99);
+	public static final TlvTag TAG_8E = TlvTag.getInstance((byte) 0x8E);
+	
+	/* query extracting the SM data objects 87, 97 and 8E in a single pass */
+	private static final TlvQuery QUERY_SM_DATA_OBJECTS = new TlvQuery(new TlvPath(TAG_87), new TlvPath(TAG_97), new TlvPath(TAG_8E));
+	private static final int INDEX_87 = 0;
+	private static final int INDEX_97 = 1;
+	private static final int INDEX_8E = 2;
 	
 	/*--------------------------------------------------------------------------------*/
 	private SmDataProvider dataProvider = null;
 	
 	protected CryptoSupport cryptoSupport;
 	
+	/* the Mac of the data provider and the key it has been initialized with, kept to avoid initialization for every APDU */
+	private Mac initializedMac = null;
+	private Key initializedMacKey = null;
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	public SecureMessaging(int id) {
@@ -106,6 +124,8 @@ public class SecureMessaging extends Layer {
 		if (dataProvider != null) {
 			log(this, "discard key material", DEBUG);
 			dataProvider = null;
+			initializedMac = null;
+			initializedMacKey = null;
 		} else {
 			log(this, "no data provider present, nothing to discard", TRACE);
 		}
@@ -169,21 +189,21 @@ public class SecureMessaging extends Layer {
 			
 			data = dataObject.toByteArray();
 			
-			log(this, "data to be padded is: " + HexString.encode(data), TRACE);
+			log(this, TRACE, "data to be padded is: %s", data);
 			
 			paddedData = padData(data, dataProvider.getCipher().getBlockSize());
 			
-			log(this, "padded data is: " + HexString.encode(paddedData), DEBUG);
-			log(this, "block size is: " + dataProvider.getCipher().getBlockSize(), DEBUG);
+			log(this, DEBUG, "padded data is: %s", paddedData);
+			log(this, DEBUG, "block size is: %s", dataProvider.getCipher().getBlockSize());
 			
 			encryptedData = CryptoSupport.encrypt(dataProvider.getCipher(), paddedData, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
-			log(this, "encrypted data is: " + HexString.encode(encryptedData), DEBUG);
+			log(this, DEBUG, "encrypted data is: %s", encryptedData);
 			
 			postpaddedData = new byte[paddedData.length + 1];
 			System.arraycopy(encryptedData, 0, postpaddedData, 1, encryptedData.length);
 			postpaddedData[0] = (byte) 0x01;
 			
-			primitive87 = new PrimitiveTlvDataObject(TAG_87, postpaddedData);
+			primitive87 = TlvDataObjectBuilder.primitive(TAG_87, postpaddedData);
 			container.addTlvDataObject(primitive87);
 		} else{
 			log(this, "APDU to be sent contains NO data", DEBUG);
@@ -191,12 +211,12 @@ public class SecureMessaging extends Layer {
 		
 		//add status word
 		byte[] sw = Utils.toUnsignedByteArray(this.processingData.getResponseApdu().getStatusWord());
-		PrimitiveTlvDataObject primitive99 = new PrimitiveTlvDataObject(TAG_99, sw);
+		PrimitiveTlvDataObject primitive99 = TlvDataObjectBuilder.primitive(TAG_99, sw);
 		container.addTlvDataObject(primitive99);
 		
 		//add MAC
 		byte[] macedData = this.padAndMac(container);
-		PrimitiveTlvDataObject primitive8E = new PrimitiveTlvDataObject(TAG_8E, macedData);
+		PrimitiveTlvDataObject primitive8E = TlvDataObjectBuilder.primitive(TAG_8E, macedData);
 		container.addTlvDataObject(primitive8E);
 		
 		//create and propagate response APDU
@@ -212,12 +232,12 @@ public class SecureMessaging extends Layer {
 		dataProvider.nextIncoming();
 		CommandApdu smApdu = processingData.getCommandApdu();
 		
-		log(this, "Incoming SM APDU is: " + smApdu.toString(), DEBUG);
-		log(this, "Incoming SM APDU is ISO case: " + smApdu.getIsoCase(), DEBUG);
+		log(this, DEBUG, "Incoming SM APDU is: %s", smApdu);
+		log(this, DEBUG, "Incoming SM APDU is ISO case: %s", smApdu.getIsoCase());
 		
 		try {
 			byte[] plainApduBytes = extractPlainTextAPDU();
-			log(this, "plain text APDU is " + HexString.encode(plainApduBytes), DEBUG);
+			log(this, DEBUG, "plain text APDU is %s", plainApduBytes);
 			
 			if (verifyMac()) {
 				log(this, "verification of mac: correct", DEBUG);
@@ -253,7 +273,6 @@ public class SecureMessaging extends Layer {
 		TlvDataObject tlvObject87, tlvObject8E, tlvObject97;
 		byte[] encryptedData, paddedData, data, le, plainAPDU, dbgIv;
 		int isoCaseOfPlainAPDU;
-		ByteArrayOutputStream apduStream;
 		
 		log(this, "started extracting SM APDU", TRACE);
 		
@@ -261,9 +280,11 @@ public class SecureMessaging extends Layer {
 			throw new IllegalArgumentException("SM APDU is expected to be ISO case 4");
 		}
 		
-		TlvDataObjectContainer constructedCommandDataField = processingData.getCommandApdu().getCommandDataObjectContainer();
-		tlvObject8E = constructedCommandDataField .getTagField(TAG_8E);
-		log(this, "TLV object 8E is: " + tlvObject8E, TRACE);
+		TlvReader commandData = processingData.getCommandApdu().getCommandDataReader();
+		int[] smDataObjectOffsets = new int[QUERY_SM_DATA_OBJECTS.getNoOfPaths()];
+		QUERY_SM_DATA_OBJECTS.find(commandData, smDataObjectOffsets);
+		tlvObject8E = getTlvDataObject(commandData, smDataObjectOffsets[INDEX_8E]);
+		log(this, TRACE, "TLV object 8E is: %s", tlvObject8E);
 		
 		if(tlvObject8E == null) {
 			//create and propagate response APDU
@@ -273,8 +294,8 @@ public class SecureMessaging extends Layer {
 			throw new IllegalArgumentException("SM APDU is expected to contain tag 8E (mac)");
 		}
 		
-		tlvObject87 = constructedCommandDataField.getTagField(TAG_87);
-		tlvObject97 = constructedCommandDataField.getTagField(TAG_97);
+		tlvObject87 = getTlvDataObject(commandData, smDataObjectOffsets[INDEX_87]);
+		tlvObject97 = getTlvDataObject(commandData, smDataObjectOffsets[INDEX_97]);
 		
 		if(tlvObject87 == null) {
 			if(tlvObject97 == null) {
@@ -290,64 +311,52 @@ public class SecureMessaging extends Layer {
 			}
 		}
 		
-		apduStream = new ByteArrayOutputStream();
+		byte[] header = this.processingData.getCommandApdu().getHeader();
+		header[0] = Iso7816Lib.setSecureMessagingStatus(header[0], Iso7816.SM_OFF_OR_NO_INDICATION);
 		
-		try {
-			byte[] header = this.processingData.getCommandApdu().getHeader();
-			header[0] = Iso7816Lib.setSecureMessagingStatus(header[0], Iso7816.SM_OFF_OR_NO_INDICATION);
-			apduStream.write(header);
-		} catch (IOException e) {
-			logException(this, e);
-		}
-		
-		// append extendedLengthIndicator if needed
-		if (processingData.getCommandApdu().isExtendedLength()) {
-			apduStream.write(0x00);
-		}
-		
-		// append data if present 
+		// decrypt data if present
+		data = null;
 		if(isoCaseOfPlainAPDU > 2) {
-			log(this, "TLV object 87 is: " + tlvObject87);
+			log(this, DEBUG, "TLV object 87 is: %s", tlvObject87);
 			encryptedData = this.getEncryptedDataFromFormattedEncryptedData(tlvObject87);
-			log(this, "encrypted data is: " + HexString.encode(encryptedData));
-			log(this, "used cipher iv is     : " + HexString.encode(dataProvider.getCipherIv().getIV()));
-			
-			dbgIv = CryptoSupport.decryptWithIvZero(dataProvider.getCipher(), dataProvider.getCipherIv().getIV(), dataProvider.getKeyEnc());
-			log(this, "decrypted cipher iv is: " + HexString.encode(dbgIv));
+			log(this, DEBUG, "encrypted data is: %s", encryptedData);
+			if (isEnabled(DEBUG)) {
+				log(this, DEBUG, "used cipher iv is     : %s", dataProvider.getCipherIv().getIV());
+				
+				dbgIv = CryptoSupport.decryptWithIvZero(dataProvider.getCipher(), dataProvider.getCipherIv().getIV(), dataProvider.getKeyEnc());
+				log(this, DEBUG, "decrypted cipher iv is: %s", dbgIv);
+			}
 			
 			paddedData = CryptoSupport.decrypt(dataProvider.getCipher(), encryptedData, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
-			log(this, "padded data is: " + HexString.encode(paddedData));
+			log(this, DEBUG, "padded data is: %s", paddedData);
 			
 			data = this.unpadPlainTextData(paddedData);
-			log(this, "plain text data is: " + HexString.encode(data));
-			
-			try {
-				if (processingData.getCommandApdu().isExtendedLength()) {
-					apduStream.write(Utils.toUnsignedByteArray((short) data.length));
-				} else {			
-					apduStream.write(data.length);
-				}
-			
-				apduStream.write(data);
-			} catch (IOException e) {
-				logException(this, e);
-			}
-			
+			log(this, DEBUG, "plain text data is: %s", data);
 		}
 		
-		// append le if present
+		// determine N_e if present, a two byte L_E requests extended length
+		int ne = 0;
+		boolean extendedLength = false;
 		if((isoCaseOfPlainAPDU == 2) || (isoCaseOfPlainAPDU == 4)) {
-			log(this, "TLV object 97 is: " + tlvObject97, TRACE);
+			log(this, TRACE, "TLV object 97 is: %s", tlvObject97);
 			le = tlvObject97.getValueField();
+			if(le.length > 2) {
+				//create and propagate response APDU
+				ResponseApdu resp = new ResponseApdu(Iso7816.SW_6988_INCORRECT_SM_DATA_OBJECTS);
+				processingData.updateResponseAPDU(this, "SM APDU is expected to contain tag 97 (le) of at most 2 bytes", resp);
+				
+				throw new IllegalArgumentException("SM APDU is expected to contain tag 97 (le) of at most 2 bytes");
+			}
+			extendedLength = le.length > 1;
 			
-			try {
-				apduStream.write(le);
-			} catch (IOException e) {
-				logException(this, e);
+			ne = Utils.getIntFromUnsignedByteArray(le);
+			if (ne == 0) {
+				ne = extendedLength ? 65536 : 256;
 			}
 		}
 		
-		plainAPDU = apduStream.toByteArray();
+		// the length fields of the plain APDU are encoded according to its own content
+		plainAPDU = Iso7816Lib.encodeCommandApdu(header, data, (data == null) ? 0 : data.length, ne, extendedLength);
 		
 		log(this, "completed extracting SM APDU", TRACE);
 		
@@ -374,16 +383,18 @@ public class SecureMessaging extends Layer {
 			throw new IllegalArgumentException("SM APDU is expected to be ISO case 4");
 		}
 		
-		TlvDataObjectContainer constructedCommandDataField = processingData.getCommandApdu().getCommandDataObjectContainer();
-		tlvObject8E = constructedCommandDataField.getTagField(TAG_8E);
-		log(this, "TLV object 8E is: " + tlvObject8E, TRACE);
+		TlvReader commandData = processingData.getCommandApdu().getCommandDataReader();
+		int[] smDataObjectOffsets = new int[QUERY_SM_DATA_OBJECTS.getNoOfPaths()];
+		QUERY_SM_DATA_OBJECTS.find(commandData, smDataObjectOffsets);
+		tlvObject8E = getTlvDataObject(commandData, smDataObjectOffsets[INDEX_8E]);
+		log(this, TRACE, "TLV object 8E is: %s", tlvObject8E);
 		
 		if(tlvObject8E == null) {
 			throw new IllegalArgumentException("SM APDU is expected to contain tag 8E (mac)");
 		}
 		
-		tlvObject87 = constructedCommandDataField.getTagField(TAG_87);
-		tlvObject97 = constructedCommandDataField.getTagField(TAG_97);
+		tlvObject87 = getTlvDataObject(commandData, smDataObjectOffsets[INDEX_87]);
+		tlvObject97 = getTlvDataObject(commandData, smDataObjectOffsets[INDEX_97]);
 		
 		if(tlvObject87 == null) {
 			if(tlvObject97 == null) {
@@ -400,11 +411,11 @@ public class SecureMessaging extends Layer {
 		}
 		
 		if((isoCaseOfPlainAPDU == 2) || (isoCaseOfPlainAPDU == 4)) {
-			log(this, "TLV object 97 is: " + tlvObject97, TRACE);
+			log(this, TRACE, "TLV object 97 is: %s", tlvObject97);
 		}
 		
 		if(isoCaseOfPlainAPDU > 2) {
-			log(this, "TLV object 87 is: " + tlvObject87, TRACE);
+			log(this, TRACE, "TLV object 87 is: %s", tlvObject87);
 		}
 		
 		/* verify mac */
@@ -451,13 +462,13 @@ public class SecureMessaging extends Layer {
 		
 		if(isoCaseOfPlainAPDU > 1) {
 			/* mac input must be padded to match block size */
-			log(this, "length of mac input data is " + lengthOfMacInputData + " bytes", TRACE);
+			log(this, TRACE, "length of mac input data is %s bytes", lengthOfMacInputData);
 			paddingLengthMacInput = blockSize - ((lengthOfMacInputData + 1) % blockSize) + 1;
-			log(this, "mac input data needs " + paddingLengthMacInput + " bytes padding to match multiple of blockSize " + blockSize, TRACE);
+			log(this, TRACE, "mac input data needs %s bytes padding to match multiple of blockSize %s", paddingLengthMacInput, blockSize);
 			paddingMacInput = new byte[paddingLengthMacInput];
 			Arrays.fill(paddingMacInput, (byte) 0x00);
 			paddingMacInput[0] = (byte) 0x80;
-			log(this, "padding of mac input data is " + HexString.encode(paddingMacInput), TRACE);
+			log(this, TRACE, "padding of mac input data is %s", paddingMacInput);
 			
 			try {
 				macInputStream.write(paddingMacInput);
@@ -467,14 +478,14 @@ public class SecureMessaging extends Layer {
 		}
 		
 
-		log(this, "padded mac input is " + HexString.encode(macInputStream.toByteArray()), TRACE);
+		byte[] macInput = macInputStream.toByteArray();
+		log(this, TRACE, "padded mac input is %s", macInput);
 		
-		macResult = CryptoSupport.mac(dataProvider.getMac(), dataProvider.getMacAuxiliaryData(),
-				dataProvider.getCipher(), macInputStream.toByteArray(), dataProvider.getKeyMac(), dataProvider.getMacLength());
+		macResult = computeMac(macInput);
 		
-		log(this, "expected mac is : " + HexString.encode(macResult), DEBUG);
+		log(this, DEBUG, "expected mac is : %s", macResult);
 		extractedMac = tlvObject8E.getValueField();
-		log(this, "extracted mac is: " + HexString.encode(extractedMac), DEBUG);
+		log(this, DEBUG, "extracted mac is: %s", extractedMac);
 		
 		if(Arrays.equals(macResult, extractedMac)) {
 			log(this, "mac match", DEBUG);
@@ -520,14 +531,38 @@ public class SecureMessaging extends Layer {
 		
 		dataToBePadded = input.toByteArray();
 		dataToBeMaced = padDataForMac(dataToBePadded);
-		log(this, "data to be maced is: " + HexString.encode(dataToBeMaced));
+		log(this, DEBUG, "data to be maced is: %s", dataToBeMaced);
 		
-		macedData = CryptoSupport.mac(dataProvider.getMac(), dataProvider.getMacAuxiliaryData(),
-				dataProvider.getCipher(), dataToBeMaced, dataProvider.getKeyMac(), dataProvider.getMacLength());
+		macedData = computeMac(dataToBeMaced);
 		
 		return macedData;
 	}
 	
+	/**
+	 * This method computes the mac of the provided input as provided by the
+	 * {@link SmDataProvider}. The Mac is only initialized if the Mac or the
+	 * key provided differ from the ones used before, i.e. it is initialized
+	 * once per secure messaging session.
+	 * @param macInput the padded mac input
+	 * @return the mac
+	 */
+	private byte[] computeMac(byte[] macInput) {
+		Mac mac = dataProvider.getMac();
+		Key macKey = dataProvider.getKeyMac();
+		
+		if ((mac != initializedMac) || (macKey != initializedMacKey)) {
+			try {
+				mac.init(macKey);
+			} catch (InvalidKeyException e) {
+				throw new IllegalArgumentException(e);
+			}
+			initializedMac = mac;
+			initializedMacKey = macKey;
+		}
+		
+		return CryptoSupport.macWithInitializedMac(mac, dataProvider.getMacAuxiliaryData(), macInput, dataProvider.getMacLength());
+	}
+	
 	/**
 	 * This method padds the given data to the given block size
 	 * @param unpaddedData the data to be padded
@@ -599,6 +634,16 @@ public class SecureMessaging extends Layer {
 		throw new IllegalArgumentException("invalid padding");
 	}
 
+	/**
+	 * This method returns the SM data object found at the provided offset.
+	 * @param commandData the reader on the command data
+	 * @param tagOffset the offset of the SM data object as found by {@link #QUERY_SM_DATA_OBJECTS}
+	 * @return the SM data object or null if it is missing
+	 */
+	private static TlvDataObject getTlvDataObject(TlvReader commandData, int tagOffset) {
+		return commandData.seek(tagOffset) ? commandData.getTlvDataObject() : null;
+	}
+
 	private void setDataProvider(SmDataProvider newProvider) {
 		newProvider.init(dataProvider);
 		dataProvider = newProvider;
@@ -9,7 +9,6 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import de.persosim.simulator.crypto.Crypto;
-import de.persosim.simulator.crypto.CryptoSupport;
 import de.persosim.simulator.crypto.CryptoUtil;
 import de.persosim.simulator.crypto.SendSequenceCounter;
 import de.persosim.simulator.processing.UpdatePropagation;
@@ -27,6 +26,12 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 	private Mac mac;
 	private SecretKey keyMac;
 	
+	/* block cipher in ECB mode initialized with keyEnc once, used to derive the IV from the SSC, null if the IV is constant */
+	private Cipher ivCipher;
+	
+	/* IV for the current value of the SSC */
+	private IvParameterSpec cipherIv;
+	
 	/**
 	 * SendSequenceCounter according to BSI TR-03110
 	 */
@@ -57,8 +62,18 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 			mac = Mac.getInstance(keyMac.getAlgorithm(), Crypto.getCryptoProvider());
 		}
 		
-		
 		ssc = new SendSequenceCounter(this.cipher.getBlockSize());
+		
+		//XXX AMY use new Crypto wrappers here (details see above)
+		if (CryptoUtil.getCipherNameAsString(cipher.getAlgorithm()).equals("DESede")) {
+			//3DES
+			cipherIv = new IvParameterSpec(new byte[8]);
+		} else {
+			//AES, encrypting a single block in ECB mode equals CBC mode with IV set to all zeros
+			ivCipher = Cipher.getInstance(CryptoUtil.getCipherNameAsString(cipher.getAlgorithm()) + "/ECB/NoPadding", Crypto.getCryptoProvider());
+			ivCipher.init(Cipher.ENCRYPT_MODE, keyEnc);
+			updateCipherIv();
+		}
 	}
 
 	@Override
@@ -70,11 +85,28 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 	@Override
 	public void nextIncoming() {
 		ssc.increment();
+		updateCipherIv();
 	}
 
 	@Override
 	public void nextOutgoing() {
 		ssc.increment();
+		updateCipherIv();
+	}
+	
+	/**
+	 * Computes the IV for the current value of the SSC.
+	 */
+	private void updateCipherIv() {
+		if (ivCipher == null) {
+			return;
+		}
+		
+		try {
+			cipherIv = new IvParameterSpec(ivCipher.doFinal(ssc.toByteArray()));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("unable to compute cipher iv", e);
+		}
 	}
 
 	@Override
@@ -84,16 +116,7 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 
 	@Override
 	public IvParameterSpec getCipherIv() {
-		byte[] cipherIvPlain;
-		//XXX AMY use new Crypto wrappers here (details see above)
-		if (CryptoUtil.getCipherNameAsString(cipher.getAlgorithm()).equals("DESede")) {
-			//3DES
-			cipherIvPlain = new byte[8];
-		} else {
-			//AES
-			cipherIvPlain = CryptoSupport.encryptWithIvZero(cipher, ssc.toByteArray(), keyEnc);
-		}
-		return new IvParameterSpec(cipherIvPlain);
+		return cipherIv;
 	}
 
 	@Override
@@ -0,0 +1,167 @@
+package de.persosim.simulator.statemachine;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * This class interprets a {@link TransitionTable} as alternative to
+ * Sinelabore generated state machine code. Guards and actions are invoked on
+ * the handler object provided on construction. The only state kept per
+ * instance is the id of the current state, the table may be shared.
+ * <p/>
+ * Like the generated code {@link #processEvent(int)} performs transitions
+ * until a transition marked to return the result has been performed, or no
+ * transition of the current state is enabled. As guards may keep a cycle of
+ * transitions enabled, at most {@link #MAX_TRANSITIONS_PER_EVENT} transitions
+ * are performed per event.
+ *
+ */
+public class TableStateMachine extends AbstractStateMachine {
+
+	/** maximum number of transitions performed while processing a single event */
+	public static final int MAX_TRANSITIONS_PER_EVENT = 64;
+
+	private TransitionTable table;
+	private Object handler;
+
+	private boolean stateInitialized = false;
+	private int currentState;
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Constructor for a state machine interpreting the provided table.
+	 * @param table the transition table, may be shared by several state machines
+	 * @param handler the object providing the guard and action methods of the table
+	 */
+	public TableStateMachine(TransitionTable table, Object handler) {
+		if(table == null) {throw new NullPointerException("transition table must not be null");}
+		if(handler == null) {throw new NullPointerException("handler must not be null");}
+
+		this.table = table;
+		this.handler = handler;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	@Override
+	public void initialize() {
+		if(!stateInitialized) {
+			stateInitialized = true;
+			currentState = table.getInitialState();
+		}
+	}
+
+	@Override
+	public void reInitialize() {
+		stateInitialized = false;
+		initialize();
+	}
+
+	/**
+	 * Processes the provided event. Events are byte values, callers usually
+	 * pass a (signed) byte, e.g. the INS byte, so only the lower 8 bits of
+	 * the event are considered.
+	 *
+	 * @return the number of performed transitions
+	 * @throws IllegalStateException
+	 *             if more than {@link #MAX_TRANSITIONS_PER_EVENT} transitions
+	 *             would be performed
+	 */
+	@Override
+	public int processEvent(int event) {
+		if(!stateInitialized) {
+			return 0;
+		}
+
+		event &= 0xFF;
+
+		int noOfTransitions = 0;
+		boolean continueProcessing = true;
+
+		while(continueProcessing) {
+			int transition = getEnabledTransition(event);
+			if(transition < 0) {
+				break;
+			}
+
+			if(noOfTransitions == MAX_TRANSITIONS_PER_EVENT) {
+				throw new IllegalStateException("state machine did not return a result within " + MAX_TRANSITIONS_PER_EVENT + " transitions, stopped in state " + getCurrentStateName());
+			}
+
+			Method[] actions = table.getActions(transition);
+			Object[] actionArguments = table.getActionArguments(transition);
+			for(int i = 0; i < actions.length; i++) {
+				invoke(actions[i], actionArguments[i]);
+			}
+
+			currentState = table.getTarget(transition);
+			noOfTransitions++;
+			continueProcessing = !table.isReturningResult(transition);
+		}
+
+		return noOfTransitions;
+	}
+
+	/**
+	 * @return the id of the current state as defined by the {@link TransitionTable}
+	 */
+	public int getCurrentState() {
+		return currentState;
+	}
+
+	/**
+	 * @return the name of the current state as defined in the model
+	 */
+	public String getCurrentStateName() {
+		return table.getStateName(currentState);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return the first enabled transition of the current state or -1 if there is none
+	 */
+	private int getEnabledTransition(int event) {
+		int end = table.getEndOfTransitions(currentState);
+
+		for(int transition = table.getFirstTransition(currentState); transition < end; transition++) {
+			int transitionEvent = table.getEvent(transition);
+			if((transitionEvent != TransitionTable.ANY_EVENT) && (transitionEvent != event)) {
+				continue;
+			}
+
+			Method guard = table.getGuard(transition);
+			if((guard == null) || ((Boolean) invoke(guard, table.getGuardArgument(transition)))) {
+				return transition;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Invokes the provided guard or action on the handler. Runtime exceptions
+	 * thrown by the method, e.g. ISO7816Exceptions, are passed unchanged.
+	 */
+	private Object invoke(Method method, Object argument) {
+		try {
+			if(argument == null) {
+				return method.invoke(handler);
+			} else{
+				return method.invoke(handler, argument);
+			}
+		} catch (InvocationTargetException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if(e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException("method " + method.getName() + " failed", e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("method " + method.getName() + " is not accessible", e);
+		}
+	}
+
+}
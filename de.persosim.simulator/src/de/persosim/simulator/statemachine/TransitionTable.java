@@ -0,0 +1,384 @@
+package de.persosim.simulator.statemachine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * This class holds the states and transitions of a state machine model in
+ * primitive tables that are interpreted by {@link TableStateMachine}.
+ * <p/>
+ * A table is immutable and does not hold any state of a particular state
+ * machine instance. Thus a single table can be shared by all instances of a
+ * state machine, e.g. by the state machines of all simulated cards.
+ * <p/>
+ * Guards and actions are methods of the handler class provided when loading
+ * the table. They are resolved once while loading. Guards return boolean,
+ * actions return void. Both may take a single String argument, e.g. the name
+ * of an APDU specification, or a single short argument, e.g. a status word
+ * given as "0x9000". Tables are loaded from XML of the following form:
+ *
+ * <pre>
+ * &lt;stateMachine initial="WAITING_FOR_COMMAND"&gt;
+ *   &lt;state name="WAITING_FOR_COMMAND"&gt;
+ *     &lt;transition target="PROCESSED" guard="isAPDU" guardArgument="Get Nonce" returnResult="true"&gt;
+ *       &lt;action name="processCommandGetNonce"/&gt;
+ *     &lt;/transition&gt;
+ *     &lt;transition target="ERROR" event="255"/&gt;
+ *   &lt;/state&gt;
+ *   ...
+ * &lt;/stateMachine&gt;
+ * </pre>
+ *
+ * The transitions of a state are evaluated in the order they are defined. A
+ * transition without guard is always enabled, a transition without event is
+ * enabled for every event. Events are byte values, e.g. the INS byte of the
+ * processed APDU, and are given in the range 0 to 255. Hierarchical models
+ * need to be flattened to their leaf states before, i.e. transitions of
+ * composite states are to be listed with each of their leaf states.
+ * <p/>
+ * Models containing a cycle of transitions that are enabled for every event
+ * and neither have a guard nor return the result are rejected, as processing
+ * would never stop once such a cycle is entered.
+ *
+ */
+public class TransitionTable {
+
+	/** event value of transitions that are enabled for every event, outside the range of byte values */
+	public static final int ANY_EVENT = 0x100;
+
+	private String[] stateNames;
+	private int initialState;
+
+	/* transitions of state i are stored at indices transitionStart[i] (inclusive) to transitionStart[i + 1] (exclusive) */
+	private int[] transitionStart;
+
+	private int[] events;
+	private Method[] guards;
+	private Object[] guardArguments;
+	private Method[][] actions;
+	private Object[][] actionArguments;
+	private int[] targets;
+	private boolean[] returnResult;
+
+	/*--------------------------------------------------------------------------------*/
+
+	private TransitionTable() {
+	}
+
+	/**
+	 * Loads a transition table from the provided XML model.
+	 *
+	 * @param model
+	 *            stream providing the XML model, it is not closed by this method
+	 * @param handlerClass
+	 *            class providing the guard and action methods named in the
+	 *            model
+	 * @return the loaded table
+	 * @throws IOException
+	 *             if the model can not be read
+	 * @throws IllegalArgumentException
+	 *             if the model is invalid, e.g. refers to unknown states or
+	 *             methods
+	 */
+	public static TransitionTable load(InputStream model, Class<?> handlerClass) throws IOException {
+		if(model == null) {throw new NullPointerException("model must not be null");}
+		if(handlerClass == null) {throw new NullPointerException("handler class must not be null");}
+
+		Document document;
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			factory.setExpandEntityReferences(false);
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			document = builder.parse(model);
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new IllegalArgumentException("state machine model can not be parsed", e);
+		}
+
+		return create(document.getDocumentElement(), handlerClass);
+	}
+
+	private static TransitionTable create(Element root, Class<?> handlerClass) {
+		List<Element> stateElements = getChildElements(root, "state");
+		int noOfStates = stateElements.size();
+		if(noOfStates == 0) {throw new IllegalArgumentException("state machine model must contain at least one state");}
+
+		TransitionTable table = new TransitionTable();
+
+		//first pass, assign state ids
+		HashMap<String, Integer> stateIds = new HashMap<>();
+		table.stateNames = new String[noOfStates];
+		for(int i = 0; i < noOfStates; i++) {
+			String name = getRequiredAttribute(stateElements.get(i), "name");
+			if(stateIds.put(name, i) != null) {throw new IllegalArgumentException("state " + name + " is defined more than once");}
+			table.stateNames[i] = name;
+		}
+
+		table.initialState = getStateId(stateIds, getRequiredAttribute(root, "initial"));
+
+		//second pass, collect transitions in order of their source states
+		List<Element> transitionElements = new ArrayList<>();
+		table.transitionStart = new int[noOfStates + 1];
+		for(int i = 0; i < noOfStates; i++) {
+			table.transitionStart[i] = transitionElements.size();
+			transitionElements.addAll(getChildElements(stateElements.get(i), "transition"));
+		}
+		table.transitionStart[noOfStates] = transitionElements.size();
+
+		int noOfTransitions = transitionElements.size();
+		table.events = new int[noOfTransitions];
+		table.guards = new Method[noOfTransitions];
+		table.guardArguments = new Object[noOfTransitions];
+		table.actions = new Method[noOfTransitions][];
+		table.actionArguments = new Object[noOfTransitions][];
+		table.targets = new int[noOfTransitions];
+		table.returnResult = new boolean[noOfTransitions];
+
+		for(int i = 0; i < noOfTransitions; i++) {
+			Element transition = transitionElements.get(i);
+
+			table.targets[i] = getStateId(stateIds, getRequiredAttribute(transition, "target"));
+
+			String event = transition.getAttribute("event");
+			table.events[i] = event.isEmpty() ? ANY_EVENT : parseEvent(event);
+
+			String guard = transition.getAttribute("guard");
+			if(!guard.isEmpty()) {
+				String argument = getOptionalAttribute(transition, "guardArgument");
+				table.guards[i] = getMethod(handlerClass, guard, argument, boolean.class);
+				table.guardArguments[i] = getArgument(table.guards[i], argument);
+			}
+
+			List<Element> actionElements = getChildElements(transition, "action");
+			table.actions[i] = new Method[actionElements.size()];
+			table.actionArguments[i] = new Object[actionElements.size()];
+			for(int j = 0; j < actionElements.size(); j++) {
+				Element action = actionElements.get(j);
+				String argument = getOptionalAttribute(action, "argument");
+				table.actions[i][j] = getMethod(handlerClass, getRequiredAttribute(action, "name"), argument, void.class);
+				table.actionArguments[i][j] = getArgument(table.actions[i][j], argument);
+			}
+
+			table.returnResult[i] = Boolean.parseBoolean(transition.getAttribute("returnResult"));
+		}
+
+		table.checkUnconditionalCycles();
+
+		return table;
+	}
+
+	/**
+	 * Rejects cycles of transitions that are always enabled and do not return
+	 * the result. Only the first of these transitions per state can ever be
+	 * performed, so each state has at most one successor to follow.
+	 */
+	private void checkUnconditionalCycles() {
+		int noOfStates = stateNames.length;
+		int[] successors = new int[noOfStates];
+
+		for(int state = 0; state < noOfStates; state++) {
+			successors[state] = -1;
+			for(int transition = transitionStart[state]; transition < transitionStart[state + 1]; transition++) {
+				if((events[transition] == ANY_EVENT) && (guards[transition] == null)) {
+					if(!returnResult[transition]) {
+						successors[state] = targets[transition];
+					}
+					break;
+				}
+			}
+		}
+
+		for(int state = 0; state < noOfStates; state++) {
+			int current = state;
+			for(int i = 0; i < noOfStates; i++) {
+				current = successors[current];
+				if(current < 0) {
+					break;
+				}
+				if(current == state) {
+					throw new IllegalArgumentException("state " + stateNames[state] + " is part of a cycle of unconditional transitions not returning the result");
+				}
+			}
+		}
+	}
+
+	private static int parseEvent(String event) {
+		int value;
+		try {
+			value = Integer.decode(event);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("event " + event + " is not a number", e);
+		}
+
+		if((value < 0) || (value > 0xFF)) {throw new IllegalArgumentException("event " + event + " is not in the range 0 to 255");}
+		return value;
+	}
+
+	/**
+	 * @return the direct child elements of the parent, which must all have the provided name
+	 */
+	private static List<Element> getChildElements(Element parent, String name) {
+		List<Element> elements = new ArrayList<>();
+
+		NodeList children = parent.getChildNodes();
+		for(int i = 0; i < children.getLength(); i++) {
+			if(children.item(i).getNodeType() != Node.ELEMENT_NODE) {
+				continue;
+			}
+
+			Element child = (Element) children.item(i);
+			if(!child.getTagName().equals(name)) {throw new IllegalArgumentException("element " + child.getTagName() + " is not allowed in element " + parent.getTagName());}
+			elements.add(child);
+		}
+
+		return elements;
+	}
+
+	private static String getRequiredAttribute(Element element, String name) {
+		String value = element.getAttribute(name);
+		if(value.isEmpty()) {throw new IllegalArgumentException("element " + element.getTagName() + " is missing attribute " + name);}
+		return value;
+	}
+
+	private static String getOptionalAttribute(Element element, String name) {
+		return element.hasAttribute(name) ? element.getAttribute(name) : null;
+	}
+
+	private static int getStateId(HashMap<String, Integer> stateIds, String name) {
+		Integer id = stateIds.get(name);
+		if(id == null) {throw new IllegalArgumentException("state " + name + " is not defined");}
+		return id;
+	}
+
+	private static Method getMethod(Class<?> handlerClass, String name, String argument, Class<?> returnType) {
+		Method method;
+		if(argument == null) {
+			method = findMethod(handlerClass, name);
+		} else{
+			method = findMethod(handlerClass, name, String.class);
+			if(method == null) {
+				method = findMethod(handlerClass, name, short.class);
+			}
+		}
+
+		if(method == null) {throw new IllegalArgumentException("handler class " + handlerClass.getName() + " does not provide public method " + name);}
+		if(method.getReturnType() != returnType) {throw new IllegalArgumentException("method " + name + " must return " + returnType.getName());}
+		return method;
+	}
+
+	private static Method findMethod(Class<?> handlerClass, String name, Class<?>... parameterTypes) {
+		try {
+			return handlerClass.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the argument converted to the parameter type of the method
+	 */
+	private static Object getArgument(Method method, String argument) {
+		if((argument == null) || (method.getParameterTypes()[0] == String.class)) {
+			return argument;
+		}
+
+		int value;
+		try {
+			value = Integer.decode(argument);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("argument " + argument + " of method " + method.getName() + " is not a number", e);
+		}
+
+		if((value < Short.MIN_VALUE) || (value > 0xFFFF)) {throw new IllegalArgumentException("argument " + argument + " of method " + method.getName() + " does not fit into a short");}
+		return (short) value;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return the number of states
+	 */
+	public int getNoOfStates() {
+		return stateNames.length;
+	}
+
+	/**
+	 * @return the id of the initial state
+	 */
+	public int getInitialState() {
+		return initialState;
+	}
+
+	/**
+	 * @param state the id of the state
+	 * @return the name of the state as defined in the model
+	 */
+	public String getStateName(int state) {
+		return stateNames[state];
+	}
+
+	/**
+	 * @param name the name of the state as defined in the model
+	 * @return the id of the state or -1 if the state is not defined
+	 */
+	public int getStateId(String name) {
+		return Arrays.asList(stateNames).indexOf(name);
+	}
+
+	/*
+	 * The methods below provide the transition data to TableStateMachine.
+	 */
+
+	int getFirstTransition(int state) {
+		return transitionStart[state];
+	}
+
+	int getEndOfTransitions(int state) {
+		return transitionStart[state + 1];
+	}
+
+	int getEvent(int transition) {
+		return events[transition];
+	}
+
+	Method getGuard(int transition) {
+		return guards[transition];
+	}
+
+	Object getGuardArgument(int transition) {
+		return guardArguments[transition];
+	}
+
+	Method[] getActions(int transition) {
+		return actions[transition];
+	}
+
+	Object[] getActionArguments(int transition) {
+		return actionArguments[transition];
+	}
+
+	int getTarget(int transition) {
+		return targets[transition];
+	}
+
+	boolean isReturningResult(int transition) {
+		return returnResult[transition];
+	}
+
+}
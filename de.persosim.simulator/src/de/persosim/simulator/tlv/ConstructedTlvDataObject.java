@@ -1,5 +1,7 @@
 package de.persosim.simulator.tlv;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -33,6 +35,18 @@ import java.util.Iterator;
  * This behavior saves costs for strict access control on length or value
  * fields.
  * 
+ * Objects created from raw bytes do not parse their sub elements right away.
+ * The structure of the whole sub tree is checked during construction, but the
+ * contained TLV data objects are only created on first access to the value
+ * field, one level at a time. Access patterns that only use a few elements of
+ * a large structure do not have to pay for the construction of the full tree.
+ * 
+ * The encoding of this object is cached on first request. Any modification of
+ * this object, its value field or any of its sub elements through the methods
+ * provided by the TLV classes discards the cached encoding of this object and of
+ * all objects containing it. Modifications of element objects obtained by
+ * reference, e.g. an explicitly set {@link TlvLength}, are not tracked.
+ * 
  * Value field: Analogous to the length field, the value field may also be
  * accessed freely. All problems that may arise from this are dealt by the way
  * the length field is determined. Considering the possible complexity of
@@ -45,6 +59,14 @@ import java.util.Iterator;
 public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataStructure {
 	protected TlvDataObjectContainer tlvDataObjectContainer;
 	
+	/* encoded value field of objects created from raw bytes, set to null as soon as the sub elements have been parsed */
+	private byte[] encodedValue;
+	private int encodedValueMinOffset;
+	private int encodedValueMaxOffset;
+	
+	/* cached encoding of the complete object, null if not yet requested or outdated */
+	private byte[] encoding;
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -61,6 +83,20 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 	 * This offset may no longer be part of the array.
 	 */
 	public ConstructedTlvDataObject(byte[] byteArray, int minOffset, int maxOffset) {
+		this(byteArray, minOffset, maxOffset, true);
+	}
+	
+	/**
+	 * Constructor for a TLV data object with constructed encoding based on a range
+	 * from an array of raw bytes. The sub elements are parsed on first access.
+	 * 
+	 * @param byteArray the array that contains the TLV data object
+	 * @param minOffset the first offset of the range to contain the TLV data object (inclusive)
+	 * @param maxOffset the first offset of the range to not contain the TLV data object (exclusive)
+	 * @param isExternalData true: the array is provided from outside, the sub structure is checked and the value field is copied,
+	 * false: the array is the already checked value field of a parent object and is referenced directly
+	 */
+	private ConstructedTlvDataObject(byte[] byteArray, int minOffset, int maxOffset, boolean isExternalData) {
 		super(byteArray, minOffset, maxOffset);
 		
 		if(!tlvTag.indicatesEncodingConstructed()) {throw new IllegalArgumentException("tag must be constructed");}
@@ -68,7 +104,78 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 		int minOffsetSub = minOffset + tlvTag.getLength() + tlvLength.getLength();
 		int maxOffsetSub = (minOffsetSub + tlvLength.getIndicatedLength());
 		
-		tlvDataObjectContainer = new TlvDataObjectContainer(byteArray, minOffsetSub, maxOffsetSub);
+		if(isExternalData) {
+			checkStructure(byteArray, minOffsetSub, maxOffsetSub);
+			
+			encodedValue = Arrays.copyOfRange(byteArray, minOffsetSub, maxOffsetSub);
+			encodedValueMinOffset = 0;
+			encodedValueMaxOffset = encodedValue.length;
+		} else{
+			encodedValue = byteArray;
+			encodedValueMinOffset = minOffsetSub;
+			encodedValueMaxOffset = maxOffsetSub;
+		}
+	}
+	
+	/**
+	 * Checks the structure of all TLV data objects within the provided range
+	 * recursively without creating any of them. Malformed structures result in
+	 * the same exceptions as thrown during construction of the objects.
+	 * 
+	 * @param byteArray the array that contains the TLV data objects
+	 * @param minOffset the first offset of the range (inclusive)
+	 * @param maxOffset the first offset not to be part of the range (exclusive)
+	 */
+	private static void checkStructure(byte[] byteArray, int minOffset, int maxOffset) {
+		TlvReader reader = new TlvReader(byteArray, minOffset, maxOffset);
+		
+		while(reader.next()) {
+			if(reader.isConstructed()) {
+				checkStructure(byteArray, reader.getValueOffset(), reader.getEndOffset());
+			}
+		}
+	}
+	
+	/**
+	 * Parses the next level of sub elements if this has not been done yet.
+	 * Constructed sub elements again reference the already checked value
+	 * field of this object and are parsed on their first access.
+	 */
+	private void parseSubElements() {
+		if(encodedValue == null) {
+			return;
+		}
+		
+		TlvDataObjectContainer container = new TlvDataObjectContainer();
+		TlvReader reader = new TlvReader(encodedValue, encodedValueMinOffset, encodedValueMaxOffset);
+		
+		while(reader.next()) {
+			if(reader.isConstructed()) {
+				container.addTlvDataObject(new ConstructedTlvDataObject(encodedValue, reader.getTagOffset(), reader.getEndOffset(), false));
+			} else{
+				container.addTlvDataObject(new PrimitiveTlvDataObject(encodedValue, reader.getTagOffset(), reader.getEndOffset()));
+			}
+		}
+		
+		container.addOwner(this);
+		tlvDataObjectContainer = container;
+		encodedValue = null;
+	}
+	
+	/**
+	 * Writes the encoded value field of an object whose sub elements have not
+	 * been parsed yet.
+	 * @param buffer the buffer to write to
+	 */
+	void writeEncodedValue(ByteBuffer buffer) {
+		buffer.put(encodedValue, encodedValueMinOffset, encodedValueMaxOffset - encodedValueMinOffset);
+	}
+	
+	/**
+	 * @return whether the sub elements of this object have already been parsed
+	 */
+	boolean isParsed() {
+		return encodedValue == null;
 	}
 	
 	/**
@@ -178,15 +285,18 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 		/*
 		 * TLV tag must be cloned to eliminate outside access to this object.
 		 * The tag must only be set by methods offered by this class e.g. to
-		 * prevent setting the primitive tag to be a constructed tag.
+		 * prevent setting the primitive tag to be a constructed tag. Canonical
+		 * instances are immutable and can be shared instead.
 		 */
-		tlvTag = tlvTagInput.clone();
+		tlvTag = TlvTag.getInstance(tlvTagInput);
+		invalidateEncoding(true);
 	}
 	
 	/**
 	 * @return the tlvDataObjectContainer
 	 */
 	public TlvDataObjectContainer getTlvDataObjectContainer() {
+		parseSubElements();
 		return tlvDataObjectContainer;
 	}
 	
@@ -196,61 +306,61 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 
 	@Override
 	public TlvDataObject getTagField(TlvPath path) {
-		return tlvDataObjectContainer.getTagField(path);
+		return getTlvDataObjectContainer().getTagField(path);
 	}
 
 	@Override
 	public TlvDataObject getTagField(TlvTag tlvTag) {
-		return tlvDataObjectContainer.getTagField(tlvTag);
+		return getTlvDataObjectContainer().getTagField(tlvTag);
 	}
 	
 	@Override
 	public TlvDataObject getTagField(TlvPath path, int index) {
-		return tlvDataObjectContainer.getTagField(path, index);
+		return getTlvDataObjectContainer().getTagField(path, index);
 	}
 
 	@Override
 	public boolean containsTagField(TlvTag tagField) {
-		return tlvDataObjectContainer.containsTagField(tagField);
+		return getTlvDataObjectContainer().containsTagField(tagField);
 	}
 	
 	/*--------------------------------------------------------------------------------*/
 	
 	@Override
 	public void addTlvDataObject(TlvPath path, TlvDataObject tlvDataObject) {
-		tlvDataObjectContainer.addTlvDataObject(path, tlvDataObject);
+		getTlvDataObjectContainer().addTlvDataObject(path, tlvDataObject);
 	}
 	
 	@Override
 	public void addTlvDataObject(TlvDataObject tlvDataObject) {
-		tlvDataObjectContainer.addTlvDataObject(tlvDataObject);
+		getTlvDataObjectContainer().addTlvDataObject(tlvDataObject);
 	}
 
 	@Override
 	public void removeTlvDataObject(TlvPath path) {
-		tlvDataObjectContainer.removeTlvDataObject(path);
+		getTlvDataObjectContainer().removeTlvDataObject(path);
 	}
 
 	@Override
 	public void removeTlvDataObject(TlvTag tlvTag) {
-		tlvDataObjectContainer.removeTlvDataObject(tlvTag);
+		getTlvDataObjectContainer().removeTlvDataObject(tlvTag);
 	}
 	
 	@Override
 	public void sort(Comparator<TlvDataObject> comparator) {
-		tlvDataObjectContainer.sort(comparator);
+		getTlvDataObjectContainer().sort(comparator);
 	}
 	
 	/*--------------------------------------------------------------------------------*/
 	
 	@Override
 	public int getNoOfElements(boolean recursive) {
-		return tlvDataObjectContainer.getNoOfElements(recursive);
+		return getTlvDataObjectContainer().getNoOfElements(recursive);
 	}
 	
 	@Override
 	public int getNoOfElements() {
-		return tlvDataObjectContainer.getNoOfElements();
+		return getTlvDataObjectContainer().getNoOfElements();
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -259,19 +369,75 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 	
 	@Override
 	public int getNoOfValueBytes() {
+		if(encodedValue != null) {
+			return encodedValueMaxOffset - encodedValueMinOffset;
+		}
+		
+		if(encoding != null) {
+			return encoding.length - getNoOfTagBytes() - getNoOfLengthBytes(encoding);
+		}
+		
 		return tlvDataObjectContainer.getLength();
 	}
 
 	@Override
 	public byte[] getValueField() {
+		if(encodedValue != null) {
+			return Arrays.copyOfRange(encodedValue, encodedValueMinOffset, encodedValueMaxOffset);
+		}
+		
+		if(encoding != null) {
+			return Arrays.copyOfRange(encoding, getNoOfTagBytes() + getNoOfLengthBytes(encoding), encoding.length);
+		}
+		
 		return tlvDataObjectContainer.toByteArray();
 	}
 	
+	/**
+	 * Returns the number of bytes of the length field contained in the
+	 * provided encoding of this object.
+	 * @param encodingInput the encoding of this object
+	 * @return the number of bytes of the length field
+	 */
+	private int getNoOfLengthBytes(byte[] encodingInput) {
+		return TlvLength.getLengthFieldLength(encodingInput, getNoOfTagBytes(), encodingInput.length);
+	}
+	
+	@Override
+	public byte[] toByteArray() {
+		if(encoding == null) {
+			encoding = TlvEncoder.encode(this);
+		}
+		
+		return Arrays.copyOf(encoding, encoding.length);
+	}
+	
+	@Override
+	byte[] getCachedEncoding() {
+		return encoding;
+	}
+	
+	@Override
+	void invalidateEncoding(boolean tagModified) {
+		encoding = null;
+		super.invalidateEncoding(tagModified);
+	}
+	
+	@Override
+	public TlvLength getTlvLength() {
+		if(encodedValue != null) {
+			/* the parsed length field always matches the unmodified value field */
+			return tlvLength;
+		}
+		
+		return super.getTlvLength();
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 
 	@Override
 	public Iterator<TlvDataObject> iterator() {
-		return tlvDataObjectContainer.iterator();
+		return getTlvDataObjectContainer().iterator();
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -284,12 +450,20 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 	 */
 	public void setValue(TlvDataObjectContainer tlvDataObjectContainerInput) {
 		if(tlvDataObjectContainerInput == null) {throw new NullPointerException("value must not be null");}
+		
+		if(tlvDataObjectContainer != null) {
+			tlvDataObjectContainer.removeOwner(this);
+		}
+		
 		tlvDataObjectContainer = (TlvDataObjectContainer) tlvDataObjectContainerInput;
+		tlvDataObjectContainer.addOwner(this);
+		encodedValue = null;
+		invalidateEncoding(false);
 	}
 
 	@Override
 	public TlvValue getTlvValue() {
-		return tlvDataObjectContainer;
+		return getTlvDataObjectContainer();
 	}
 	
 	@Override
@@ -162,9 +162,11 @@ public class PrimitiveTlvDataObject extends TlvDataObject {
 		/*
 		 * TLV tag must be cloned to eliminate outside access to this object.
 		 * The tag must only be set by methods offered by this class e.g. to
-		 * prevent setting the primitive tag to be a constructed tag.
+		 * prevent setting the primitive tag to be a constructed tag. Canonical
+		 * instances are immutable and can be shared instead.
 		 */
-		tlvTag = tlvTagInput.clone();
+		tlvTag = TlvTag.getInstance(tlvTagInput);
+		invalidateEncoding(true);
 	}
 	
 	@Override
@@ -196,6 +198,7 @@ public class PrimitiveTlvDataObject extends TlvDataObject {
 	public void setValue(TlvValuePlain tlvValuePlainInput) {
 		if(tlvValuePlainInput == null) {throw new NullPointerException("value must not be null");}	
 		tlvValuePlain = tlvValuePlainInput;
+		invalidateEncoding(false);
 	}
 
 	@Override
@@ -1,11 +1,8 @@
 package de.persosim.simulator.tlv;
 
-import static de.persosim.simulator.utils.PersoSimLogger.DEBUG;
-import static de.persosim.simulator.utils.PersoSimLogger.logException;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import de.persosim.simulator.exception.ISO7816Exception;
 import de.persosim.simulator.platform.Iso7816;
@@ -74,6 +71,14 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	
 	protected boolean performValidityChecks;
 	
+	/*
+	 * The containers this object has been added to. Modifications of this
+	 * object are propagated to them so that cached encodings of enclosing
+	 * objects are discarded. Created on demand as most objects are only
+	 * contained in a single container.
+	 */
+	private List<TlvDataObjectContainer> parentContainers;
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -104,7 +109,7 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 		 */
 		int currentOffset = minOffset;
 		
-		tlvTag = new TlvTag(dataField, currentOffset, maxOffset);
+		tlvTag = TlvTag.getInstance(dataField, currentOffset, maxOffset);
 		
 		/*
 		 * Determine Length
@@ -163,6 +168,7 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 		}
 		
 		this.tlvLength = tlvLengthInput;
+		invalidateEncoding(false);
 	}
 	
 	/**
@@ -221,22 +227,7 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	
 	@Override
 	public byte[] toByteArray() {
-		ByteArrayOutputStream outputStream;
-		
-		outputStream = new ByteArrayOutputStream();
-		
-		try {
-			/* tag can be accessed directly */
-			outputStream.write(tlvTag.toByteArray());
-			/* length must be accessed by getter in case there is a valid override */
-			outputStream.write(getTlvLength().toByteArray());
-			/* value must be accessed by getter as values are only specified by sub classes */
-			outputStream.write(getTlvValue().toByteArray());
-		} catch (IOException e) {
-			logException(this.getClass(), e, DEBUG);
-		}
-
-		return outputStream.toByteArray();
+		return TlvEncoder.encode(this);
 	}
 	
 	/**
@@ -287,14 +278,34 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	 * @return the tlvLength
 	 */
 	public TlvLength getTlvLength() {
+		int valueLength = getTlvValue().getLength();
+		TlvLength explicitTlvLength = getExplicitTlvLength(valueLength);
+		
+		if(explicitTlvLength == null) {
+			return TlvLength.getInstance(valueLength);
+		} else{
+			return explicitTlvLength;
+		}
+	}
+	
+	/**
+	 * Returns the explicitly set length field if it is to be used for a value
+	 * field of the provided actual length according to the rules described in
+	 * {@link #getTlvLength()}, or null if the default DER encoding of the
+	 * actual length is to be used instead.
+	 * 
+	 * @param valueLength the actual length of the value field
+	 * @return the explicitly set length field to be used or null
+	 */
+	TlvLength getExplicitTlvLength(int valueLength) {
 		if(tlvLength == null) {
 			/* A TLV length field has NOT been explicitly set */
-			return new TlvLength(getTlvValue().getLength());
+			return null;
 		} else{
 			/* A TLV length field has been explicitly set */
 			int indicatedLength = tlvLength.getIndicatedLength();
 			
-			if(indicatedLength == getTlvValue().getLength()) {
+			if(indicatedLength == valueLength) {
 				/* The length indicated by the length field matches the actual length of the value field */
 				return tlvLength;
 			} else{
@@ -302,7 +313,7 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 				if(performValidityChecks) {
 					/* discard invalid length field */
 					tlvLength = null;
-					return new TlvLength(getTlvValue().getLength());
+					return null;
 				} else{
 					return tlvLength;
 				}
@@ -397,6 +408,63 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	
 	public void setPerformValidityChecksTo(boolean performValidityChecksInput) {
 		performValidityChecks = performValidityChecksInput;
+		invalidateEncoding(false);
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Returns the cached encoding of this object if available. The returned
+	 * array must not be modified.
+	 * @return the cached encoding or null if no valid encoding is cached
+	 */
+	byte[] getCachedEncoding() {
+		return null;
+	}
+	
+	/**
+	 * Notifies this object about a modification of itself or one of its sub
+	 * elements. Cached encodings of this object are discarded and the
+	 * modification is propagated to all containers this object is part of.
+	 * @param tagModified true iff the tag of this object has been modified
+	 */
+	void invalidateEncoding(boolean tagModified) {
+		if(parentContainers != null) {
+			for(TlvDataObjectContainer parentContainer : parentContainers) {
+				parentContainer.childModified(tagModified);
+			}
+		}
+	}
+	
+	/**
+	 * Registers a container this object has been added to.
+	 * @param parentContainer the container
+	 */
+	void addParentContainer(TlvDataObjectContainer parentContainer) {
+		if(parentContainers == null) {
+			parentContainers = new ArrayList<TlvDataObjectContainer>(1);
+		}
+		
+		for(TlvDataObjectContainer curParentContainer : parentContainers) {
+			if(curParentContainer == parentContainer) {return;}
+		}
+		
+		parentContainers.add(parentContainer);
+	}
+	
+	/**
+	 * Unregisters a container this object has been removed from.
+	 * @param parentContainer the container
+	 */
+	void removeParentContainer(TlvDataObjectContainer parentContainer) {
+		if(parentContainers == null) {return;}
+		
+		for(int i = 0; i < parentContainers.size(); i++) {
+			if(parentContainers.get(i) == parentContainer) {
+				parentContainers.remove(i);
+				return;
+			}
+		}
 	}
 	
 }
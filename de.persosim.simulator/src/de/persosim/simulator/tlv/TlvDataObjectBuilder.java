@@ -0,0 +1,144 @@
+package de.persosim.simulator.tlv;
+
+import java.util.ArrayList;
+
+/**
+ * This class builds TLV data objects generated by the simulator itself, e.g.
+ * response data assembled from constants and computed values.
+ *
+ * In contrast to the public constructors of {@link PrimitiveTlvDataObject} and
+ * {@link ConstructedTlvDataObject} all objects are created with
+ * {@link ValidityChecks#SKIP_VALIDITY_CHECKS} and provided value fields are
+ * used without copying them. Thus this class must only be used for trusted
+ * input, i.e. well-formed tags and value arrays that are not modified
+ * afterwards. Data received from the outside must still be parsed by the
+ * validating constructors.
+ *
+ * Nested structures are built by opening and closing constructed objects:
+ *
+ * <pre>
+ * ConstructedTlvDataObject responseData = new TlvDataObjectBuilder(TAG_7C)
+ * 		.addPrimitive(TAG_86, token)
+ * 		.beginConstructed(TAG_A0)
+ * 		.addPrimitive(TAG_80, value)
+ * 		.endConstructed()
+ * 		.build();
+ * </pre>
+ *
+ */
+public class TlvDataObjectBuilder implements ValidityChecks {
+
+	private ConstructedTlvDataObject root;
+
+	/* the currently open constructed objects, the innermost one being the last */
+	private ArrayList<ConstructedTlvDataObject> openObjects;
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Constructor for a builder of a constructed object with the provided tag.
+	 * @param tlvTag the constructed tag of the object to build
+	 */
+	public TlvDataObjectBuilder(TlvTag tlvTag) {
+		root = constructed(tlvTag);
+
+		openObjects = new ArrayList<ConstructedTlvDataObject>();
+		openObjects.add(root);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Returns a primitive object without performing validity checks and
+	 * without copying the provided value field.
+	 * @param tlvTag the primitive tag to be used
+	 * @param value the value field to be used, must not be modified afterwards
+	 * @return the primitive object
+	 */
+	public static PrimitiveTlvDataObject primitive(TlvTag tlvTag, byte[] value) {
+		return new PrimitiveTlvDataObject(tlvTag, TlvValuePlain.wrap(value), SKIP_VALIDITY_CHECKS);
+	}
+
+	/**
+	 * Returns an empty constructed object without performing validity checks.
+	 * @param tlvTag the constructed tag to be used
+	 * @return the constructed object
+	 */
+	public static ConstructedTlvDataObject constructed(TlvTag tlvTag) {
+		return new ConstructedTlvDataObject(tlvTag, new TlvDataObjectContainer(), SKIP_VALIDITY_CHECKS);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Adds a primitive object to the currently open constructed object, see
+	 * {@link #primitive(TlvTag, byte[])}.
+	 * @param tlvTag the primitive tag to be used
+	 * @param value the value field to be used, must not be modified afterwards
+	 * @return this builder
+	 */
+	public TlvDataObjectBuilder addPrimitive(TlvTag tlvTag, byte[] value) {
+		return add(primitive(tlvTag, value));
+	}
+
+	/**
+	 * Adds the provided object to the currently open constructed object.
+	 * @param tlvDataObject the object to add
+	 * @return this builder
+	 */
+	public TlvDataObjectBuilder add(TlvDataObject tlvDataObject) {
+		getOpenObject().addTlvDataObject(tlvDataObject);
+		return this;
+	}
+
+	/**
+	 * Adds a constructed object to the currently open constructed object and
+	 * opens it, i.e. subsequently added objects are added to it until
+	 * {@link #endConstructed()} is called.
+	 * @param tlvTag the constructed tag to be used
+	 * @return this builder
+	 */
+	public TlvDataObjectBuilder beginConstructed(TlvTag tlvTag) {
+		ConstructedTlvDataObject constructedTlvDataObject = constructed(tlvTag);
+
+		add(constructedTlvDataObject);
+		openObjects.add(constructedTlvDataObject);
+		return this;
+	}
+
+	/**
+	 * Closes the currently open constructed object.
+	 * @return this builder
+	 */
+	public TlvDataObjectBuilder endConstructed() {
+		if(openObjects.size() <= 1) {throw new IllegalStateException("no constructed object to be closed");}
+
+		openObjects.remove(openObjects.size() - 1);
+		return this;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return the built object
+	 */
+	public ConstructedTlvDataObject build() {
+		if(openObjects.size() > 1) {throw new IllegalStateException("all constructed objects must be closed");}
+
+		return root;
+	}
+
+	/**
+	 * @return a container holding the built object, e.g. to be used as response data
+	 */
+	public TlvDataObjectContainer buildContainer() {
+		TlvDataObjectContainer container = new TlvDataObjectContainer();
+		container.addTlvDataObject(build());
+		return container;
+	}
+
+	private ConstructedTlvDataObject getOpenObject() {
+		return openObjects.get(openObjects.size() - 1);
+	}
+
+}
@@ -0,0 +1,67 @@
+package de.persosim.simulator.tlv;
+
+import java.util.Comparator;
+
+/**
+ * This class implements a comparator for sorting the components of a SET OF
+ * in DER order. In contrast to {@link TlvDataObjectComparatorDer} sorting is
+ * performed based on the complete encodings of the compared objects. The
+ * encodings are compared as octet strings with the shorter one being padded at
+ * its trailing end with 0-octets (see ISO/IEC 8825-1, 11.6).
+ *
+ * Cached encodings of the compared objects are used where available, so that
+ * repeated comparisons of constructed objects do not encode them again.
+ *
+ */
+public class TlvDataObjectComparatorDerSetOf implements Comparator<TlvDataObject> {
+
+	@Override
+	public int compare(TlvDataObject tlvdo1, TlvDataObject tlvdo2) {
+		return compare(getEncoding(tlvdo1), getEncoding(tlvdo2));
+	}
+
+	/**
+	 * Compares two encodings in DER SET OF order.
+	 * @param encoding1 encoding 1
+	 * @param encoding2 encoding 2
+	 * @return the Comparator's compare result
+	 */
+	static int compare(byte[] encoding1, byte[] encoding2) {
+		int commonLength = Math.min(encoding1.length, encoding2.length);
+
+		for(int i = 0; i < commonLength; i++) {
+			int diff = (encoding1[i] & 0xFF) - (encoding2[i] & 0xFF);
+			if(diff != 0) {
+				return diff;
+			}
+		}
+
+		/* trailing bytes of the longer encoding are compared to padding 0-octets */
+		byte[] longerEncoding = (encoding1.length > encoding2.length) ? encoding1 : encoding2;
+		for(int i = commonLength; i < longerEncoding.length; i++) {
+			if(longerEncoding[i] != 0) {
+				return (longerEncoding == encoding1) ? 1 : -1;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Returns the encoding of the provided object, its cached encoding if
+	 * available. The returned array must not be modified.
+	 * @param tlvDataObject the object to encode
+	 * @return the encoding of the provided object
+	 */
+	static byte[] getEncoding(TlvDataObject tlvDataObject) {
+		byte[] encoding = tlvDataObject.getCachedEncoding();
+
+		if(encoding == null) {
+			/* encoding constructed objects fills their cache for subsequent comparisons */
+			encoding = tlvDataObject.toByteArray();
+		}
+
+		return encoding;
+	}
+
+}
@@ -1,14 +1,11 @@
 package de.persosim.simulator.tlv;
 
-import static de.persosim.simulator.utils.PersoSimLogger.logException;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Vector;
 
 import de.persosim.simulator.platform.Iso7816;
 
@@ -24,12 +21,34 @@ import de.persosim.simulator.platform.Iso7816;
  * dedicated tag or explicit length field. Objects of this class may also be
  * used as a representation of APDU command data fields.
  * 
+ * The contained objects are stored in their order of insertion. Lookups by tag
+ * are linear scans for small containers. For containers with more than
+ * {@link #INDEX_THRESHOLD} elements an index from tags to positions is built on
+ * the first lookup and kept up to date or discarded on modification. The
+ * index is also discarded whenever the tag of a contained object is changed
+ * and rebuilt on the next lookup.
+ * 
+ * Modifications of this container or of any contained object are propagated to
+ * the {@link ConstructedTlvDataObject}s using this container as value field, so
+ * that their cached encodings are discarded.
+ * 
+ * Objects of this class are not synchronized.
+ * 
  * @author slutters
  * 
  */
 public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvDataStructure {
 	
-	protected Vector<TlvDataObject> tlvObjects;
+	/** number of elements above which tag lookups use an index */
+	public static final int INDEX_THRESHOLD = 8;
+	
+	protected ArrayList<TlvDataObject> tlvObjects;
+	
+	/* position of the first occurrence of each tag, null if not yet built or outdated */
+	private HashMap<TlvTag, Integer> tagIndex;
+	
+	/* the objects using this container as value field, created on demand */
+	private List<ConstructedTlvDataObject> owners;
 	
 	/*--------------------------------------------------------------------------------*/
 	
@@ -40,7 +59,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	 * this TLV structure although the structure is empty.
 	 */
 	public TlvDataObjectContainer() {
-		this.tlvObjects = new Vector<TlvDataObject>();
+		this.tlvObjects = new ArrayList<TlvDataObject>();
 	}
 	
 	/**
@@ -55,7 +74,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
 		if(maxOffset > dataField.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
 		
-		this.tlvObjects = new Vector<TlvDataObject>();
+		this.tlvObjects = new ArrayList<TlvDataObject>();
 		
 		if(minOffset == maxOffset) {
 			/* The TLV data object container is empty */
@@ -79,6 +98,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 			
 			currentOffset += tlvObject.getLength();
 			tlvObjects.add(tlvObject);
+			tlvObject.addParentContainer(this);
 		}
 	}
 	
@@ -121,21 +141,17 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		currentTlvTag = path.get(index);
 		if(currentTlvTag == null) {throw new NullPointerException();}
 		
-		for(TlvDataObject tlvDataObject : this.tlvObjects) {
-			if(tlvDataObject.getTlvTag().matches(currentTlvTag)) {
-				if(index == (path.size() - 1)) {
-					return tlvDataObject;
-				} else{
-					if(tlvDataObject.isConstructedTLVObject()) {
-						return ((ConstructedTlvDataObject) tlvDataObject).getTagField(path, index + 1);
-					} else{
-						return null;
-					}
-				}
-			}
+		TlvDataObject tlvDataObject = getTagField(currentTlvTag);
+		
+		if((tlvDataObject == null) || (index == (path.size() - 1))) {
+			return tlvDataObject;
 		}
 		
-		return null;
+		if(tlvDataObject.isConstructedTLVObject()) {
+			return ((ConstructedTlvDataObject) tlvDataObject).getTagField(path, index + 1);
+		} else{
+			return null;
+		}
 	}
 	
 	@Override
@@ -147,8 +163,13 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	public TlvDataObject getTagField(TlvTag tlvTag) {
 		if(tlvTag == null) {throw new NullPointerException("tag must not be null");}
 		
+		if(tlvObjects.size() > INDEX_THRESHOLD) {
+			Integer position = getTagIndex().get(tlvTag);
+			return (position == null) ? null : tlvObjects.get(position);
+		}
+		
 		for(TlvDataObject tlvDataObject : this.tlvObjects) {
-			if(tlvDataObject.getTlvTag().equals(tlvTag)) {
+			if(tlvDataObject.matches(tlvTag)) {
 				return tlvDataObject;
 			}
 		}
@@ -156,6 +177,24 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		return null;
 	}
 	
+	/**
+	 * Returns the index from tags to the position of their first occurrence,
+	 * building it if necessary.
+	 * @return the index from tags to positions
+	 */
+	private HashMap<TlvTag, Integer> getTagIndex() {
+		if(tagIndex == null) {
+			tagIndex = new HashMap<TlvTag, Integer>(tlvObjects.size() * 2);
+			
+			for(int i = tlvObjects.size() - 1; i >= 0; i--) {
+				/* iterate backwards so that the first occurrence of a tag prevails */
+				tagIndex.put(tlvObjects.get(i).tlvTag, i);
+			}
+		}
+		
+		return tagIndex;
+	}
+	
 	@Override
 	public boolean containsTagField(TlvTag tagField) {
 		return this.getTagField(tagField) != null;
@@ -191,33 +230,43 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	 * @return the tlvObjects
 	 */
 	public List<TlvDataObject> getTlvObjects() {
-		return tlvObjects;
+		return Collections.unmodifiableList(tlvObjects);
 	}
 	
 	@Override
 	public byte[] toByteArray() {
-		ByteArrayOutputStream outputStream;
-		byte[] tlvObjectAsByteArray;
-		
-		outputStream = new ByteArrayOutputStream();
-		
-		for(TlvDataObject tlvObject : this.tlvObjects) {
-			try {
-				tlvObjectAsByteArray = tlvObject.toByteArray();
-				outputStream.write(tlvObjectAsByteArray);
-			} catch (IOException e) {
-				logException(getClass(), e);
-			}
-		}
-
-		return outputStream.toByteArray();
+		return TlvEncoder.encode(this);
 	}
 	
 	/*--------------------------------------------------------------------------------*/
 
 	@Override
 	public Iterator<TlvDataObject> iterator() {
-		return this.tlvObjects.iterator();
+		final Iterator<TlvDataObject> iterator = this.tlvObjects.iterator();
+		
+		return new Iterator<TlvDataObject>() {
+			
+			private TlvDataObject current;
+			
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+			
+			@Override
+			public TlvDataObject next() {
+				current = iterator.next();
+				return current;
+			}
+			
+			@Override
+			public void remove() {
+				iterator.remove();
+				tagIndex = null;
+				unlink(current);
+				modified();
+			}
+		};
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -225,6 +274,8 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	@Override
 	public void sort(Comparator<TlvDataObject> comparator) {
 		Collections.sort(this.tlvObjects, comparator);
+		tagIndex = null;
+		modified();
 	}
 	
 	@Override
@@ -244,6 +295,34 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	public void addTlvDataObject(TlvDataObject tlvDataObject) {
 		if(tlvDataObject == null) {throw new NullPointerException("tlvDataObject object must not be null");}
 		this.tlvObjects.add(tlvDataObject);
+		tlvDataObject.addParentContainer(this);
+		modified();
+		
+		if((tagIndex != null) && !tagIndex.containsKey(tlvDataObject.tlvTag)) {
+			tagIndex.put(tlvDataObject.tlvTag, tlvObjects.size() - 1);
+		}
+	}
+	
+	/**
+	 * Inserts the provided object at the provided position, shifting all
+	 * following objects.
+	 * @param index the position to insert the object at
+	 * @param tlvDataObject the object to insert
+	 */
+	void insertTlvDataObject(int index, TlvDataObject tlvDataObject) {
+		if(tlvDataObject == null) {throw new NullPointerException("tlvDataObject object must not be null");}
+		
+		this.tlvObjects.add(index, tlvDataObject);
+		tlvDataObject.addParentContainer(this);
+		modified();
+		
+		if(tagIndex != null) {
+			if(index < tlvObjects.size() - 1) {
+				tagIndex = null;
+			} else if(!tagIndex.containsKey(tlvDataObject.tlvTag)) {
+				tagIndex.put(tlvDataObject.tlvTag, index);
+			}
+		}
 	}
 	
 	@Override
@@ -276,10 +355,81 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 			tlvDataObject = this.tlvObjects.get(i);
 			if(tlvDataObject.matches(tlvTag)) {
 				this.tlvObjects.remove(i);
+				tagIndex = null;
+				unlink(tlvDataObject);
+				modified();
 			}
 		}
 	}
 
+	/**
+	 * Unregisters this container from an object that has been removed, unless
+	 * the object is still contained at another position.
+	 * @param tlvDataObject the removed object
+	 */
+	private void unlink(TlvDataObject tlvDataObject) {
+		for(TlvDataObject curTlvDataObject : tlvObjects) {
+			if(curTlvDataObject == tlvDataObject) {return;}
+		}
+		
+		tlvDataObject.removeParentContainer(this);
+	}
+	
+	/**
+	 * Registers an object using this container as value field.
+	 * @param owner the object
+	 */
+	void addOwner(ConstructedTlvDataObject owner) {
+		if(owners == null) {
+			owners = new ArrayList<ConstructedTlvDataObject>(1);
+		}
+		
+		for(ConstructedTlvDataObject curOwner : owners) {
+			if(curOwner == owner) {return;}
+		}
+		
+		owners.add(owner);
+	}
+	
+	/**
+	 * Unregisters an object no longer using this container as value field.
+	 * @param owner the object
+	 */
+	void removeOwner(ConstructedTlvDataObject owner) {
+		if(owners == null) {return;}
+		
+		for(int i = 0; i < owners.size(); i++) {
+			if(owners.get(i) == owner) {
+				owners.remove(i);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Notifies this container about the modification of a contained object.
+	 * @param tagModified true iff the tag of the contained object has been modified
+	 */
+	void childModified(boolean tagModified) {
+		if(tagModified) {
+			tagIndex = null;
+		}
+		
+		modified();
+	}
+	
+	/**
+	 * Propagates a modification of this container to all objects using it as
+	 * value field.
+	 */
+	private void modified() {
+		if(owners != null) {
+			for(ConstructedTlvDataObject owner : owners) {
+				owner.invalidateEncoding(false);
+			}
+		}
+	}
+	
 	@Override
 	public int getLength() {
 		int length;
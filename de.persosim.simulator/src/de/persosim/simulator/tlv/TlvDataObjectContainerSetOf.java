@@ -0,0 +1,100 @@
+package de.persosim.simulator.tlv;
+
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * This class represents the value field of an ASN.1 SET OF that is kept in
+ * DER canonical order, i.e. sorted by the encodings of the contained objects
+ * as defined by {@link TlvDataObjectComparatorDerSetOf}.
+ *
+ * In contrast to sorting a {@link TlvDataObjectContainer} after all objects
+ * have been added, every object is inserted at its position determined by a
+ * binary search on the encodings of the already contained objects. Objects
+ * with identical encodings keep their order of insertion. If a contained
+ * object is modified afterwards, the order is re-established immediately.
+ *
+ * Typical usage:
+ *
+ * <pre>
+ * ConstructedTlvDataObject secInfos = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SET), new TlvDataObjectContainerSetOf());
+ * secInfos.addAll(...);
+ * </pre>
+ *
+ */
+public class TlvDataObjectContainerSetOf extends TlvDataObjectContainer {
+
+	private static final TlvDataObjectComparatorDerSetOf DER_SET_OF_ORDER = new TlvDataObjectComparatorDerSetOf();
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Constructs an empty object.
+	 */
+	public TlvDataObjectContainerSetOf() {
+		super();
+	}
+
+	/**
+	 * Constructs an object from the TLV data objects within the provided
+	 * range. The objects are sorted if not already provided in DER order.
+	 * @param dataField the data field that contains the TLV structure
+	 * @param minOffset the first offset to be used (inclusive)
+	 * @param maxOffset the last offset to be used (exclusive)
+	 */
+	public TlvDataObjectContainerSetOf(byte[] dataField, int minOffset, int maxOffset) {
+		super(dataField, minOffset, maxOffset);
+
+		Collections.sort(tlvObjects, DER_SET_OF_ORDER);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	@Override
+	public void addTlvDataObject(TlvDataObject tlvDataObject) {
+		if(tlvDataObject == null) {throw new NullPointerException("tlvDataObject object must not be null");}
+
+		insertTlvDataObject(getInsertionIndex(TlvDataObjectComparatorDerSetOf.getEncoding(tlvDataObject)), tlvDataObject);
+	}
+
+	/**
+	 * Returns the position behind all contained objects with an encoding
+	 * smaller than or equal to the provided one.
+	 * @param encoding the encoding of the object to insert
+	 * @return the position to insert the object at
+	 */
+	private int getInsertionIndex(byte[] encoding) {
+		int low = 0;
+		int high = tlvObjects.size();
+
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+
+			if(TlvDataObjectComparatorDerSetOf.compare(TlvDataObjectComparatorDerSetOf.getEncoding(tlvObjects.get(middle)), encoding) <= 0) {
+				low = middle + 1;
+			} else{
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * The order of this container is defined by the encodings of its objects.
+	 * The provided comparator is ignored and the DER order is re-established,
+	 * which does not change the already sorted objects.
+	 * @param comparator ignored
+	 */
+	@Override
+	public void sort(Comparator<TlvDataObject> comparator) {
+		super.sort(DER_SET_OF_ORDER);
+	}
+
+	@Override
+	void childModified(boolean tagModified) {
+		/* the encoding of the modified object and thus its position may have changed */
+		super.sort(DER_SET_OF_ORDER);
+	}
+
+}
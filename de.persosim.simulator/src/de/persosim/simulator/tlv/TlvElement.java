@@ -1,5 +1,7 @@
 package de.persosim.simulator.tlv;
 
+import java.nio.ByteBuffer;
+
 import de.persosim.simulator.platform.Iso7816;
 import de.persosim.simulator.utils.HexString;
 
@@ -32,6 +34,16 @@ public abstract class TlvElement implements Iso7816, ValidityChecks {
 	 */
 	public abstract int getLength();
 	
+	/**
+	 * Writes the byte array representation of this object to the provided
+	 * buffer. Elements holding their encoding directly override this method to
+	 * avoid the intermediate copy.
+	 * @param buffer the buffer to write to
+	 */
+	void writeTo(ByteBuffer buffer) {
+		buffer.put(toByteArray());
+	}
+	
 	@Override
 	public String toString() {
 		return HexString.encode(this.toByteArray());
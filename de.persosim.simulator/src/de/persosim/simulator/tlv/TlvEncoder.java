@@ -0,0 +1,244 @@
+package de.persosim.simulator.tlv;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class encodes TLV structures in a single pass. In a first step the
+ * exact lengths of all value fields are computed bottom-up and recorded. In a
+ * second step the whole structure is written into one array of exactly the
+ * required size or into a {@link ByteBuffer} provided by the caller, using the
+ * recorded lengths instead of computing them again on every nesting level.
+ *
+ * The produced encodings are identical to the ones of the
+ * <code>toByteArray()</code> methods of the respective elements, including
+ * explicitly set length fields. Cached encodings of sub elements are written
+ * as is without descending into them.
+ *
+ * Objects of this class are only used internally for a single encoding, the
+ * static methods {@link #encode(TlvElement)} and
+ * {@link #encode(TlvElement, ByteBuffer)} are the intended entry points.
+ */
+public final class TlvEncoder {
+
+	/* value field lengths of all TLV data objects in the order of their occurrence */
+	private int[] valueLengths;
+	private int noOfValueLengths;
+
+	/* index of the next value field length to be used while writing */
+	private int nextValueLength;
+
+	/*--------------------------------------------------------------------------------*/
+
+	private TlvEncoder() {
+		valueLengths = new int[16];
+		noOfValueLengths = 0;
+		nextValueLength = 0;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Returns the encoding of the provided element using a single allocation.
+	 * @param tlvElement the element to encode
+	 * @return the encoding of the provided element
+	 */
+	public static byte[] encode(TlvElement tlvElement) {
+		if(tlvElement == null) {throw new NullPointerException("element must not be null");}
+
+		TlvEncoder encoder = new TlvEncoder();
+		byte[] encoding = new byte[encoder.measure(tlvElement)];
+
+		encoder.write(tlvElement, ByteBuffer.wrap(encoding));
+
+		return encoding;
+	}
+
+	/**
+	 * Writes the encoding of the provided element into the provided buffer
+	 * starting at its current position. The position is advanced by the
+	 * number of written bytes.
+	 * @param tlvElement the element to encode
+	 * @param buffer the buffer to write the encoding to
+	 * @return the number of written bytes
+	 * @throws BufferOverflowException if the remaining space of the buffer is too small, nothing is written in this case
+	 */
+	public static int encode(TlvElement tlvElement, ByteBuffer buffer) {
+		if(tlvElement == null) {throw new NullPointerException("element must not be null");}
+		if(buffer == null) {throw new NullPointerException("buffer must not be null");}
+
+		TlvEncoder encoder = new TlvEncoder();
+		int length = encoder.measure(tlvElement);
+
+		if(length > buffer.remaining()) {
+			throw new BufferOverflowException();
+		}
+
+		encoder.write(tlvElement, buffer);
+
+		return length;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Computes the length of the encoding of the provided element and records
+	 * the lengths of all contained value fields.
+	 * @param tlvElement the element to measure
+	 * @return the length of the encoding of the provided element
+	 */
+	private int measure(TlvElement tlvElement) {
+		if(tlvElement instanceof TlvDataObject) {
+			TlvDataObject tlvDataObject = (TlvDataObject) tlvElement;
+
+			byte[] cachedEncoding = tlvDataObject.getCachedEncoding();
+			if(cachedEncoding != null) {
+				return cachedEncoding.length;
+			}
+
+			int slot = reserveValueLength();
+			int valueLength = measureValue(tlvDataObject);
+			valueLengths[slot] = valueLength;
+
+			TlvLength explicitLength = tlvDataObject.getExplicitTlvLength(valueLength);
+			int lengthFieldLength = (explicitLength == null) ? getLengthFieldLength(valueLength) : explicitLength.getLength();
+
+			return tlvDataObject.getNoOfTagBytes() + lengthFieldLength + valueLength;
+		}
+
+		if(tlvElement instanceof TlvDataObjectContainer) {
+			int length = 0;
+
+			for(TlvDataObject tlvDataObject : ((TlvDataObjectContainer) tlvElement).tlvObjects) {
+				length += measure(tlvDataObject);
+			}
+
+			return length;
+		}
+
+		return tlvElement.getLength();
+	}
+
+	private int measureValue(TlvDataObject tlvDataObject) {
+		if(tlvDataObject instanceof ConstructedTlvDataObject) {
+			ConstructedTlvDataObject constructedTlvDataObject = (ConstructedTlvDataObject) tlvDataObject;
+
+			if(constructedTlvDataObject.isParsed()) {
+				return measure(constructedTlvDataObject.tlvDataObjectContainer);
+			}
+		}
+
+		return tlvDataObject.getNoOfValueBytes();
+	}
+
+	private int reserveValueLength() {
+		if(noOfValueLengths == valueLengths.length) {
+			valueLengths = Arrays.copyOf(valueLengths, valueLengths.length * 2);
+		}
+
+		return noOfValueLengths++;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Writes the encoding of the provided element using the recorded lengths.
+	 * Elements must be written in the same order as they have been measured.
+	 * @param tlvElement the element to write
+	 * @param buffer the buffer to write to
+	 */
+	private void write(TlvElement tlvElement, ByteBuffer buffer) {
+		if(tlvElement instanceof TlvDataObject) {
+			TlvDataObject tlvDataObject = (TlvDataObject) tlvElement;
+
+			byte[] cachedEncoding = tlvDataObject.getCachedEncoding();
+			if(cachedEncoding != null) {
+				buffer.put(cachedEncoding);
+				return;
+			}
+
+			int valueLength = valueLengths[nextValueLength++];
+
+			tlvDataObject.tlvTag.writeTo(buffer);
+
+			TlvLength explicitLength = tlvDataObject.getExplicitTlvLength(valueLength);
+			if(explicitLength == null) {
+				writeLengthField(valueLength, buffer);
+			} else{
+				explicitLength.writeTo(buffer);
+			}
+
+			writeValue(tlvDataObject, buffer);
+			return;
+		}
+
+		if(tlvElement instanceof TlvDataObjectContainer) {
+			for(TlvDataObject tlvDataObject : ((TlvDataObjectContainer) tlvElement).tlvObjects) {
+				write(tlvDataObject, buffer);
+			}
+			return;
+		}
+
+		tlvElement.writeTo(buffer);
+	}
+
+	private void writeValue(TlvDataObject tlvDataObject, ByteBuffer buffer) {
+		if(tlvDataObject instanceof ConstructedTlvDataObject) {
+			ConstructedTlvDataObject constructedTlvDataObject = (ConstructedTlvDataObject) tlvDataObject;
+
+			if(constructedTlvDataObject.isParsed()) {
+				write(constructedTlvDataObject.tlvDataObjectContainer, buffer);
+			} else{
+				constructedTlvDataObject.writeEncodedValue(buffer);
+			}
+		} else{
+			tlvDataObject.getTlvValue().writeTo(buffer);
+		}
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Returns the number of bytes of the DER encoded length field for the
+	 * provided length, see {@link TlvLength#getLengthEncoding(int)}.
+	 * @param indicatedLength the length to be encoded
+	 * @return the number of bytes of the DER encoded length field
+	 */
+	static int getLengthFieldLength(int indicatedLength) {
+		if(indicatedLength < 0) {throw new IllegalArgumentException("length must not be smaller than 0");}
+
+		if(indicatedLength <= 127) {
+			return 1;
+		}
+
+		int noOfLengthBytes = 1;
+		while((noOfLengthBytes < 4) && ((indicatedLength >>> (8 * noOfLengthBytes)) != 0)) {
+			noOfLengthBytes++;
+		}
+
+		return noOfLengthBytes + 1;
+	}
+
+	/**
+	 * Writes the DER encoded length field for the provided length without
+	 * creating any intermediate objects, see
+	 * {@link TlvLength#getLengthEncoding(int)}.
+	 * @param indicatedLength the length to be encoded
+	 * @param buffer the buffer to write to
+	 */
+	static void writeLengthField(int indicatedLength, ByteBuffer buffer) {
+		int noOfLengthFieldBytes = getLengthFieldLength(indicatedLength);
+
+		if(noOfLengthFieldBytes == 1) {
+			buffer.put((byte) indicatedLength);
+			return;
+		}
+
+		buffer.put((byte) (0x80 | (noOfLengthFieldBytes - 1)));
+		for(int i = noOfLengthFieldBytes - 2; i >= 0; i--) {
+			buffer.put((byte) (indicatedLength >>> (8 * i)));
+		}
+	}
+
+}
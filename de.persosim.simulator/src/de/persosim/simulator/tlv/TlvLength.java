@@ -1,5 +1,6 @@
 package de.persosim.simulator.tlv;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import de.persosim.simulator.exception.ISO7816Exception;
@@ -11,12 +12,28 @@ import de.persosim.simulator.utils.Utils;
  * checks for validity or encoding. This explicitly allows for generating
  * intentionally damaged length fields.
  * 
+ * Canonical instances for the DER encoded lengths 0 to 127 are provided by
+ * {@link #getInstance(int)}. These instances are shared and can not be
+ * modified.
+ * 
  * @author slutters
  * 
  */
 public class TlvLength extends TlvElement {
 	protected byte[] lengthField;
 	
+	/* maximum length value encoded in a single byte */
+	private static final int MAX_SHORT_LENGTH = 127;
+	
+	/* canonical instances of all single byte length fields, indexed by the length value */
+	private static final TlvLength[] SHORT_LENGTHS = new TlvLength[MAX_SHORT_LENGTH + 1];
+	
+	static {
+		for(int i = 0; i <= MAX_SHORT_LENGTH; i++) {
+			SHORT_LENGTHS[i] = new CanonicalTlvLength(i);
+		}
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -101,6 +118,20 @@ public class TlvLength extends TlvElement {
 		this(lengthValue, PERFORM_VALIDITY_CHECKS);
 	}
 	
+	/**
+	 * Returns a length field encoding the provided value according to DER
+	 * encoding rules, see {@link #TlvLength(int)}.
+	 * @param lengthValue the value to be represented
+	 * @return the shared canonical instance for values up to 127, a new instance otherwise
+	 */
+	public static TlvLength getInstance(int lengthValue) {
+		if((lengthValue >= 0) && (lengthValue <= MAX_SHORT_LENGTH)) {
+			return SHORT_LENGTHS[lengthValue];
+		}
+		
+		return new TlvLength(lengthValue);
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -122,8 +153,23 @@ public class TlvLength extends TlvElement {
 		if(maxOffset > lengthFieldInput.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
 		if(minOffset == maxOffset) {throw new IllegalArgumentException("selected part of data field must be greater than 0");}
 		
-		//determine max offset
-		int endOffset;
+		int endOffset = minOffset + getLengthFieldLength(lengthFieldInput, minOffset, maxOffset);
+		
+		//copy relevant part of input into member lengthField
+		lengthField = Arrays.copyOfRange(lengthFieldInput, minOffset, endOffset);
+	}
+	
+	/**
+	 * This method determines the length of the length field starting at
+	 * minOffset within the provided range without copying any data. The same
+	 * checks as during construction of a {@link TlvLength} are performed.
+	 * 
+	 * @param lengthFieldInput the byte array that contains the TLV element
+	 * @param minOffset the first offset of the range to contain the TLV element (inclusive)
+	 * @param maxOffset the first offset not to be part of the range to contain the TLV element (exclusive).
+	 * @return the number of bytes occupied by the length field
+	 */
+	static int getLengthFieldLength(byte[] lengthFieldInput, int minOffset, int maxOffset) {
 		byte firstLengthByte = lengthFieldInput[minOffset];
 		if((firstLengthByte & (byte) 0x80) == (byte) 0x80) {
 			/* if most significant bit is '1', i.e. we are not dealing with a 1-Byte length field */
@@ -139,13 +185,33 @@ public class TlvLength extends TlvElement {
 				ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
 			}
 			
-			endOffset = minOffset + noOfBytesUsedToIndicateLength;
+			return noOfBytesUsedToIndicateLength;
 		} else{
-			endOffset = minOffset + 1;
+			return 1;
+		}
+	}
+	
+	/**
+	 * Returns the length indicated by the length field encoded within the
+	 * provided range of a byte array without copying any data.
+	 * 
+	 * @param lengthFieldInput the byte array that contains the length field
+	 * @param offset the first offset of the length field
+	 * @param lengthFieldLength the number of bytes occupied by the length field
+	 * @return the length of the value field as indicated by the length field
+	 */
+	static int getIndicatedLength(byte[] lengthFieldInput, int offset, int lengthFieldLength) {
+		if(lengthFieldLength == 1) {
+			return Utils.maskUnsignedByteToInt(lengthFieldInput[offset]);
 		}
 		
-		//copy relevant part of input into member lengthField
-		lengthField = Arrays.copyOfRange(lengthFieldInput, minOffset, endOffset);
+		int lengthNo = 0;
+		for(int i = 1; i < lengthFieldLength; i++) {
+			if(lengthNo > (Integer.MAX_VALUE >> 8)) {throw new IllegalArgumentException("value too big for signed data type");}
+			lengthNo <<= 8;
+			lengthNo |= Utils.maskUnsignedByteToInt(lengthFieldInput[offset + i]);
+		}
+		return lengthNo;
 	}
 	
 	/**
@@ -177,19 +243,7 @@ public class TlvLength extends TlvElement {
 	 * @return the length of the value field as indicated by the length field
 	 */
 	public int getIndicatedLength() {
-		int lengthNo;
-		byte[] actualLength;
-		
-		actualLength = this.lengthField;
-		
-		if(this.getLength() == 1) {
-			lengthNo = Utils.maskUnsignedByteToInt(actualLength[0]);
-		} else{
-			actualLength = Arrays.copyOfRange(this.lengthField, 1, this.lengthField.length);
-			lengthNo = Utils.getIntFromUnsignedByteArray(actualLength);
-		}
-		
-		return lengthNo;
+		return getIndicatedLength(lengthField, 0, lengthField.length);
 	}
 	
 	@Override
@@ -218,6 +272,11 @@ public class TlvLength extends TlvElement {
 		return Arrays.copyOf(lengthField, lengthField.length);
 	}
 	
+	@Override
+	void writeTo(ByteBuffer buffer) {
+		buffer.put(lengthField);
+	}
+	
 	@Override
 	public int getLength() {
 		return this.lengthField.length;
@@ -295,4 +354,32 @@ public class TlvLength extends TlvElement {
 		return getLengthEncoding(indicatedLength).length;
 	}
 	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Shared length field that rejects any modification after construction.
+	 */
+	private static final class CanonicalTlvLength extends TlvLength {
+		
+		private boolean isInitialized = false;
+		
+		private CanonicalTlvLength(int lengthValue) {
+			super(lengthValue);
+			isInitialized = true;
+		}
+		
+		@Override
+		public void setLengthField(byte[] lengthFieldInput, int minOffset, int maxOffset) {
+			if(isInitialized) {throw new UnsupportedOperationException("canonical length fields must not be modified");}
+			super.setLengthField(lengthFieldInput, minOffset, maxOffset);
+		}
+		
+		@Override
+		public void forceLengthField(byte[] lengthFieldInput) {
+			if(isInitialized) {throw new UnsupportedOperationException("canonical length fields must not be modified");}
+			super.forceLengthField(lengthFieldInput);
+		}
+		
+	}
+	
 }
@@ -0,0 +1,304 @@
+package de.persosim.simulator.tlv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.platform.Iso7816;
+
+/**
+ * This class implements an immutable, precompiled query for one or more
+ * {@link TlvPath}s. Queries are intended to be compiled once, e.g. as
+ * constants, and to be reused for every APDU.
+ *
+ * A query is evaluated directly on encoded TLV data in a single pass without
+ * creating any {@link TlvDataObject}s and without allocating any memory. The
+ * results are the offsets of the tag fields of the matching elements that can
+ * be used in conjunction with {@link TlvReader#seek(int)} to access the
+ * respective elements.
+ *
+ * Paths are resolved in the same way as by
+ * {@link TlvDataObjectContainer#getTagField(TlvPath)}, i.e. on every level
+ * only the first element with the respective tag is considered. All paths of a
+ * query are resolved during the same pass, common prefixes of paths are only
+ * descended into once.
+ *
+ * Typical usage:
+ *
+ * <pre>
+ * static final TlvQuery QUERY = new TlvQuery(new TlvPath(TAG_7C, TAG_83), new TlvPath(TAG_7C, TAG_85));
+ * ...
+ * TlvReader reader = commandApdu.getCommandDataReader();
+ * int[] tagOffsets = new int[QUERY.getNoOfPaths()];
+ * QUERY.find(reader, tagOffsets);
+ * if (reader.seek(tagOffsets[0])) {
+ * 	...
+ * }
+ * </pre>
+ *
+ */
+public final class TlvQuery implements Iso7816 {
+
+	/* maximum number of nodes, limited by the bit mask used to mark visited nodes */
+	private static final int MAX_NO_OF_NODES = 64;
+
+	/* the tags of all paths */
+	private final TlvTag[][] paths;
+
+	/*
+	 * The paths compiled to a tree with one node per distinct path prefix.
+	 * Node 0 is the root not representing any tag, children of a node are
+	 * linked by nextSibling, -1 marks the end of a list.
+	 */
+	private final TlvTag[] nodeTags;
+	private final int[] firstChild;
+	private final int[] nextSibling;
+
+	/* the node representing the complete path for every path */
+	private final int[] pathNodes;
+
+	/* bit mask with the bits of all nodes set */
+	private final long allNodes;
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Constructor compiling the provided paths. The paths are copied, i.e.
+	 * later modifications of the provided objects do not affect this query.
+	 *
+	 * @param tlvPaths the paths to be resolved by this query
+	 */
+	public TlvQuery(TlvPath... tlvPaths) {
+		if(tlvPaths == null) {throw new NullPointerException("paths must not be null");}
+		if(tlvPaths.length == 0) {throw new IllegalArgumentException("at least one path must be provided");}
+
+		paths = new TlvTag[tlvPaths.length][];
+		pathNodes = new int[tlvPaths.length];
+
+		ArrayList<TlvTag> tags = new ArrayList<TlvTag>();
+		ArrayList<Integer> parents = new ArrayList<Integer>();
+		tags.add(null);
+		parents.add(-1);
+
+		for(int i = 0; i < tlvPaths.length; i++) {
+			TlvPath tlvPath = tlvPaths[i];
+			if(tlvPath == null) {throw new NullPointerException("path must not be null");}
+			if(tlvPath.isEmpty()) {throw new IllegalArgumentException("path must not be empty");}
+
+			paths[i] = new TlvTag[tlvPath.size()];
+
+			int node = 0;
+			for(int j = 0; j < paths[i].length; j++) {
+				if(tlvPath.get(j) == null) {throw new NullPointerException("tag must not be null");}
+				paths[i][j] = TlvTag.getInstance(tlvPath.get(j));
+				node = getNode(tags, parents, node, paths[i][j]);
+			}
+			pathNodes[i] = node;
+		}
+
+		if(tags.size() - 1 > MAX_NO_OF_NODES) {throw new IllegalArgumentException("paths must not consist of more than " + MAX_NO_OF_NODES + " distinct prefixes");}
+
+		nodeTags = tags.toArray(new TlvTag[tags.size()]);
+		firstChild = new int[nodeTags.length];
+		nextSibling = new int[nodeTags.length];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+
+		/* link children in reverse order so that lists keep the order of first occurrence */
+		for(int node = nodeTags.length - 1; node > 0; node--) {
+			int parent = parents.get(node);
+			nextSibling[node] = firstChild[parent];
+			firstChild[parent] = node;
+		}
+
+		allNodes = (nodeTags.length - 1 == MAX_NO_OF_NODES) ? -1L : (1L << (nodeTags.length - 1)) - 1;
+	}
+
+	private static int getNode(ArrayList<TlvTag> tags, ArrayList<Integer> parents, int parent, TlvTag tlvTag) {
+		for(int node = 1; node < tags.size(); node++) {
+			if((parents.get(node) == parent) && tags.get(node).equals(tlvTag)) {
+				return node;
+			}
+		}
+
+		tags.add(tlvTag);
+		parents.add(parent);
+		return tags.size() - 1;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return the number of paths resolved by this query
+	 */
+	public int getNoOfPaths() {
+		return paths.length;
+	}
+
+	/**
+	 * @param index the index of the path
+	 * @return a copy of the path with the provided index
+	 */
+	public TlvPath getTlvPath(int index) {
+		return new TlvPath(paths[index]);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Resolves the first path of this query within the complete range of the
+	 * provided reader. The position of the reader is not modified.
+	 *
+	 * @param reader the reader providing the data to search
+	 * @return the offset of the tag field of the matching element or -1 if no element matches
+	 * @throws ISO7816Exception if the searched data is malformed
+	 */
+	public int find(TlvReader reader) {
+		if(reader == null) {throw new NullPointerException("reader must not be null");}
+		return find(reader.getData(), reader.getMinOffset(), reader.getMaxOffset());
+	}
+
+	/**
+	 * Resolves all paths of this query within the complete range of the
+	 * provided reader. The position of the reader is not modified.
+	 *
+	 * @param reader the reader providing the data to search
+	 * @param tagOffsets array receiving the offsets of the tag fields of the matching elements in the order of the paths, -1 if no element matches
+	 * @throws ISO7816Exception if the searched data is malformed
+	 */
+	public void find(TlvReader reader, int[] tagOffsets) {
+		if(reader == null) {throw new NullPointerException("reader must not be null");}
+		find(reader.getData(), reader.getMinOffset(), reader.getMaxOffset(), tagOffsets);
+	}
+
+	/**
+	 * Resolves the first path of this query within the provided range.
+	 *
+	 * @param data the byte array that in a certain range contains the TLV data objects
+	 * @param minOffset the first offset of the range (inclusive)
+	 * @param maxOffset the first offset not to be part of the range (exclusive)
+	 * @return the offset of the tag field of the matching element or -1 if no element matches
+	 * @throws ISO7816Exception if the searched data is malformed
+	 */
+	public int find(byte[] data, int minOffset, int maxOffset) {
+		checkRange(data, minOffset, maxOffset);
+
+		TlvTag[] path = paths[0];
+		int offset = minOffset;
+		int step = 0;
+
+		while(offset < maxOffset) {
+			int tagLength = TlvTag.getTagFieldLength(data, offset, maxOffset);
+			int valueOffset = getValueOffset(data, offset + tagLength, maxOffset);
+			int endOffset = getEndOffset(data, offset + tagLength, valueOffset, maxOffset);
+
+			if(path[step].matches(data, offset, tagLength)) {
+				if(step == path.length - 1) {
+					return offset;
+				}
+
+				if((data[offset] & Asn1.ENCODING) != Asn1.ENCODING_CONSTRUCTED) {
+					return -1;
+				}
+
+				/* descend into the first matching element only */
+				step++;
+				offset = valueOffset;
+				maxOffset = endOffset;
+			} else{
+				offset = endOffset;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Resolves all paths of this query within the provided range in a single
+	 * pass. The pass ends as soon as all paths have been resolved.
+	 *
+	 * @param data the byte array that in a certain range contains the TLV data objects
+	 * @param minOffset the first offset of the range (inclusive)
+	 * @param maxOffset the first offset not to be part of the range (exclusive)
+	 * @param tagOffsets array receiving the offsets of the tag fields of the matching elements in the order of the paths, -1 if no element matches
+	 * @throws ISO7816Exception if the searched data is malformed
+	 */
+	public void find(byte[] data, int minOffset, int maxOffset, int[] tagOffsets) {
+		checkRange(data, minOffset, maxOffset);
+		if(tagOffsets == null) {throw new NullPointerException("tag offsets must not be null");}
+		if(tagOffsets.length < paths.length) {throw new IllegalArgumentException("tag offsets must provide space for " + paths.length + " paths");}
+
+		Arrays.fill(tagOffsets, 0, paths.length, -1);
+		scan(data, minOffset, maxOffset, 0, tagOffsets, 0L);
+	}
+
+	/**
+	 * Scans the elements of one nesting level for the children of the
+	 * provided node and descends into matching constructed elements.
+	 *
+	 * @param visited bit mask of the nodes already matched
+	 * @return the updated bit mask of the nodes already matched
+	 */
+	private long scan(byte[] data, int offset, int maxOffset, int parent, int[] tagOffsets, long visited) {
+		while((offset < maxOffset) && (visited != allNodes)) {
+			int tagLength = TlvTag.getTagFieldLength(data, offset, maxOffset);
+			int valueOffset = getValueOffset(data, offset + tagLength, maxOffset);
+			int endOffset = getEndOffset(data, offset + tagLength, valueOffset, maxOffset);
+
+			for(int node = firstChild[parent]; node >= 0; node = nextSibling[node]) {
+				long nodeBit = 1L << (node - 1);
+
+				if(((visited & nodeBit) == 0) && nodeTags[node].matches(data, offset, tagLength)) {
+					/* only the first matching element is considered for every node */
+					visited |= nodeBit;
+
+					for(int i = 0; i < pathNodes.length; i++) {
+						if(pathNodes[i] == node) {
+							tagOffsets[i] = offset;
+						}
+					}
+
+					if((firstChild[node] >= 0) && ((data[offset] & Asn1.ENCODING) == Asn1.ENCODING_CONSTRUCTED)) {
+						visited = scan(data, valueOffset, endOffset, node, tagOffsets, visited);
+					}
+
+					/* tags of sibling nodes are distinct, no further node can match */
+					break;
+				}
+			}
+
+			offset = endOffset;
+		}
+
+		return visited;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	private static void checkRange(byte[] data, int minOffset, int maxOffset) {
+		if(data == null) {throw new NullPointerException("data must not be null");}
+		if(minOffset < 0) {throw new IllegalArgumentException("min offset must not be less than 0");}
+		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
+		if(maxOffset > data.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
+	}
+
+	private static int getValueOffset(byte[] data, int lengthOffset, int maxOffset) {
+		if(lengthOffset >= maxOffset) {
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+
+		return lengthOffset + TlvLength.getLengthFieldLength(data, lengthOffset, maxOffset);
+	}
+
+	private static int getEndOffset(byte[] data, int lengthOffset, int valueOffset, int maxOffset) {
+		int endOffset = valueOffset + TlvLength.getIndicatedLength(data, lengthOffset, valueOffset - lengthOffset);
+
+		if((endOffset < 0) || (endOffset > maxOffset)) {
+			/* error, length indicated by TLV would exceed expected length */
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+
+		return endOffset;
+	}
+
+}
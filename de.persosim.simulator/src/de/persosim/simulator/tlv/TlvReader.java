@@ -0,0 +1,321 @@
+package de.persosim.simulator.tlv;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.platform.Iso7816;
+
+/**
+ * This class implements a reader for sequences of TLV data objects that does
+ * not copy any data. Instead of creating {@link TlvDataObject}s the reader
+ * works as a cursor on the original byte array and exposes the offsets and
+ * lengths of the tag, length and value fields of the current element. Copies
+ * of single elements or fields are only created on explicit request, e.g. by
+ * {@link #getTlvDataObject()} or {@link #getValueField()}.
+ *
+ * The structure of every element is checked in the same way as during
+ * construction of {@link TlvTag} and {@link TlvLength} objects from raw byte
+ * arrays, i.e. malformed input results in the same exceptions.
+ *
+ * Constructed elements can be descended into using {@link #getValueReader()}
+ * which again does not copy any data.
+ *
+ * Typical usage:
+ *
+ * <pre>
+ * TlvReader reader = new TlvReader(data);
+ * while (reader.next()) {
+ * 	if (reader.matches(TlvConstants.TAG_87)) {
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ *
+ */
+public class TlvReader implements Iso7816 {
+
+	private byte[] data;
+	private int minOffset;
+	private int maxOffset;
+
+	/* first offset of the next element to be read */
+	private int nextOffset;
+
+	/* fields of the current element, tagOffset is -1 if no element has been read yet */
+	private int tagOffset;
+	private int tagLength;
+	private int lengthLength;
+	private int valueLength;
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Constructor for a reader on a range of a byte array.
+	 *
+	 * @param data the byte array that in a certain range contains the TLV data objects
+	 * @param minOffset the first offset of the range (inclusive)
+	 * @param maxOffset the first offset not to be part of the range (exclusive)
+	 */
+	public TlvReader(byte[] data, int minOffset, int maxOffset) {
+		if(data == null) {throw new NullPointerException("data must not be null");}
+		if(minOffset < 0) {throw new IllegalArgumentException("min offset must not be less than 0");}
+		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
+		if(maxOffset > data.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
+
+		this.data = data;
+		this.minOffset = minOffset;
+		this.maxOffset = maxOffset;
+
+		reset();
+	}
+
+	/**
+	 * Constructor for a reader on a complete byte array.
+	 *
+	 * @param data the byte array that contains the TLV data objects
+	 */
+	public TlvReader(byte[] data) {
+		this(data, 0, data.length);
+	}
+
+	/**
+	 * Constructor for a reader on the remaining bytes of a {@link ByteBuffer}.
+	 * The position of the buffer is not modified. If the buffer is backed by
+	 * an accessible array, the reader works on this array directly, otherwise
+	 * the remaining bytes are copied once.
+	 *
+	 * @param buffer the buffer that contains the TLV data objects
+	 */
+	public TlvReader(ByteBuffer buffer) {
+		this(getArray(buffer), getArrayOffset(buffer), getArrayOffset(buffer) + buffer.remaining());
+	}
+
+	private static byte[] getArray(ByteBuffer buffer) {
+		if(buffer.hasArray()) {
+			return buffer.array();
+		}
+
+		byte[] copy = new byte[buffer.remaining()];
+		buffer.duplicate().get(copy);
+		return copy;
+	}
+
+	private static int getArrayOffset(ByteBuffer buffer) {
+		return buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Reset this reader to the position before the first element.
+	 */
+	public void reset() {
+		nextOffset = minOffset;
+		tagOffset = -1;
+	}
+
+	/**
+	 * Advance to the next element.
+	 *
+	 * @return true iff a further element is available, false if the end of the range has been reached
+	 * @throws ISO7816Exception if the next element is malformed or exceeds the range
+	 */
+	public boolean next() {
+		if(nextOffset >= maxOffset) {
+			tagOffset = -1;
+			return false;
+		}
+
+		tagOffset = nextOffset;
+		tagLength = TlvTag.getTagFieldLength(data, tagOffset, maxOffset);
+
+		int lengthOffset = tagOffset + tagLength;
+		if(lengthOffset >= maxOffset) {
+			tagOffset = -1;
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+		lengthLength = TlvLength.getLengthFieldLength(data, lengthOffset, maxOffset);
+		valueLength = TlvLength.getIndicatedLength(data, lengthOffset, lengthLength);
+
+		int endOffset = lengthOffset + lengthLength + valueLength;
+		if((endOffset < 0) || (endOffset > maxOffset)) {
+			/* error, length indicated by TLV would exceed expected length */
+			tagOffset = -1;
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+
+		nextOffset = endOffset;
+		return true;
+	}
+
+	/**
+	 * Advance to the next element with the provided tag, skipping all other
+	 * elements.
+	 *
+	 * @param tlvTag the tag to search for
+	 * @return true iff an element with the provided tag has been found
+	 */
+	public boolean next(TlvTag tlvTag) {
+		while(next()) {
+			if(matches(tlvTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Position this reader on the element starting at the provided offset,
+	 * e.g. an offset found by a {@link TlvQuery}. The element may be nested
+	 * within other elements of the range, subsequent calls of {@link #next()}
+	 * continue with the bytes following it.
+	 *
+	 * @param tagOffset the first offset of the element, i.e. of its tag field, negative values are interpreted as missing element
+	 * @return true iff the reader has been positioned on an element, false if the provided offset is negative
+	 * @throws ISO7816Exception if the element is malformed or exceeds the range
+	 */
+	public boolean seek(int tagOffset) {
+		if(tagOffset < 0) {
+			this.tagOffset = -1;
+			return false;
+		}
+		if((tagOffset < minOffset) || (tagOffset >= maxOffset)) {throw new IllegalArgumentException("offset must lie within the range of this reader");}
+
+		nextOffset = tagOffset;
+		return next();
+	}
+
+	private void checkCurrentElement() {
+		if(tagOffset < 0) {throw new IllegalStateException("no current element");}
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return whether the tag of the current element matches the provided tag
+	 */
+	public boolean matches(TlvTag tlvTag) {
+		checkCurrentElement();
+		return tlvTag.matches(data, tagOffset, tagLength);
+	}
+
+	/**
+	 * @return whether the current element is constructed (bit 6 of first tag field == 1)
+	 */
+	public boolean isConstructed() {
+		checkCurrentElement();
+		return (data[tagOffset] & Asn1.ENCODING) == Asn1.ENCODING_CONSTRUCTED;
+	}
+
+	/**
+	 * @return the underlying byte array
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * @return the first offset of the range of this reader (inclusive)
+	 */
+	public int getMinOffset() {
+		return minOffset;
+	}
+
+	/**
+	 * @return the first offset not to be part of the range of this reader (exclusive)
+	 */
+	public int getMaxOffset() {
+		return maxOffset;
+	}
+
+	/**
+	 * @return the first offset of the current element, i.e. of its tag field
+	 */
+	public int getTagOffset() {
+		checkCurrentElement();
+		return tagOffset;
+	}
+
+	/**
+	 * @return the number of bytes occupied by the tag field of the current element
+	 */
+	public int getTagLength() {
+		checkCurrentElement();
+		return tagLength;
+	}
+
+	/**
+	 * @return the first offset of the value field of the current element
+	 */
+	public int getValueOffset() {
+		checkCurrentElement();
+		return tagOffset + tagLength + lengthLength;
+	}
+
+	/**
+	 * @return the number of bytes occupied by the value field of the current element
+	 */
+	public int getValueLength() {
+		checkCurrentElement();
+		return valueLength;
+	}
+
+	/**
+	 * @return the first offset after the current element (exclusive)
+	 */
+	public int getEndOffset() {
+		checkCurrentElement();
+		return nextOffset;
+	}
+
+	/**
+	 * @return the total number of bytes occupied by the current element
+	 */
+	public int getElementLength() {
+		checkCurrentElement();
+		return nextOffset - tagOffset;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Returns a reader on the value field of the current element, e.g. to
+	 * descend into constructed elements. No data is copied.
+	 *
+	 * @return a reader on the value field of the current element
+	 */
+	public TlvReader getValueReader() {
+		return new TlvReader(data, getValueOffset(), getEndOffset());
+	}
+
+	/**
+	 * @return the tag of the current element, see {@link TlvTag#getInstance(byte[], int, int)}
+	 */
+	public TlvTag getTlvTag() {
+		checkCurrentElement();
+		return TlvTag.getInstance(data, tagOffset, tagOffset + tagLength);
+	}
+
+	/**
+	 * @return a copy of the value field of the current element
+	 */
+	public byte[] getValueField() {
+		return Arrays.copyOfRange(data, getValueOffset(), getEndOffset());
+	}
+
+	/**
+	 * @return a copy of the complete encoding of the current element
+	 */
+	public byte[] getEncoding() {
+		return Arrays.copyOfRange(data, getTagOffset(), getEndOffset());
+	}
+
+	/**
+	 * @return the current element materialized as {@link TlvDataObject}
+	 */
+	public TlvDataObject getTlvDataObject() {
+		return TlvDataObjectFactory.createTLVDataObject(data, getTagOffset(), getEndOffset());
+	}
+
+}
@@ -1,5 +1,6 @@
 package de.persosim.simulator.tlv;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import de.persosim.simulator.exception.ISO7816Exception;
@@ -11,6 +12,11 @@ import de.persosim.simulator.utils.Utils;
  * In the field tags do not need to be changed for themselves. They may only need to be exchanged as part of another data structure, i.e. {@link PrimitiveTlvDataObject}.
  * The preferred way of doing so is to provide/use an according unchecked setter method for/of respective data structures.
  * 
+ * As tags are immutable, instances can be shared. The getInstance methods
+ * return canonical instances for all valid one and two byte tags from a
+ * preallocated table instead of creating new objects. Canonical instances may
+ * be compared by reference. Longer tags are created on every call.
+ * 
  * @author slutters
  *
  */
@@ -18,6 +24,25 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	
 	private byte[] tagField;
 	
+	/* canonical instances of all valid one byte tags, indexed by the tag byte */
+	private static final TlvTag[] ONE_BYTE_TAGS = new TlvTag[256];
+	
+	/* canonical instances of all valid two byte tags, indexed by bits 8-6 of the first byte and bits 7-1 of the second byte */
+	private static final TlvTag[] TWO_BYTE_TAGS = new TlvTag[8 * 128];
+	
+	static {
+		for(int firstByte = 0; firstByte < 256; firstByte++) {
+			if((firstByte & 0x1F) != 0x1F) {
+				ONE_BYTE_TAGS[firstByte] = new TlvTag(new byte[] {(byte) firstByte}, SKIP_VALIDITY_CHECKS);
+			} else{
+				/* second byte of two byte tags must encode a tag number > 30 with bit 8 not set */
+				for(int secondByte = 0x1F; secondByte < 0x80; secondByte++) {
+					TWO_BYTE_TAGS[getTwoByteTagIndex((byte) firstByte, (byte) secondByte)] = new TlvTag(new byte[] {(byte) firstByte, (byte) secondByte}, SKIP_VALIDITY_CHECKS);
+				}
+			}
+		}
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -147,6 +172,121 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	
 	/*--------------------------------------------------------------------------------*/
 	
+	/**
+	 * Returns the tag encoded at the start of the provided range. The same
+	 * checks as in {@link #TlvTag(byte[], int, int)} are performed.
+	 * 
+	 * @param tagFieldInput the byte array that in a certain range contains the TLV tag
+	 * @param minOffset the first offset of the range to contain the TLV tag (inclusive)
+	 * @param maxOffset the first offset not to be part of the range to contain the TLV tag (exclusive).
+	 * @return the canonical instance for one and two byte tags, a new instance otherwise
+	 */
+	public static TlvTag getInstance(byte[] tagFieldInput, int minOffset, int maxOffset) {
+		int tagFieldLength = getTagFieldLength(tagFieldInput, minOffset, maxOffset);
+		
+		TlvTag canonicalTag = getCanonicalInstance(tagFieldInput, minOffset, tagFieldLength);
+		if(canonicalTag != null) {
+			return canonicalTag;
+		}
+		
+		return new TlvTag(tagFieldInput, minOffset, minOffset + tagFieldLength, SKIP_VALIDITY_CHECKS);
+	}
+	
+	/**
+	 * Returns the tag encoded in the provided byte array, see {@link #TlvTag(byte[])}.
+	 * 
+	 * @param tagFieldInput the byte array that contains the TLV tag
+	 * @return the canonical instance for one and two byte tags, a new instance otherwise
+	 */
+	public static TlvTag getInstance(byte[] tagFieldInput) {
+		if(tagFieldInput == null) {throw new NullPointerException("tag field must not be null");}
+		return getInstance(tagFieldInput, 0, tagFieldInput.length);
+	}
+	
+	/**
+	 * Returns the tag encoded in the provided short, see {@link #TlvTag(short)}.
+	 * 
+	 * @param tagFieldInput the short that contains the TLV tag
+	 * @return the canonical instance for one and two byte tags, a new instance otherwise
+	 */
+	public static TlvTag getInstance(short tagFieldInput) {
+		TlvTag canonicalTag = getCanonicalInstance((byte) (tagFieldInput >>> 8), (byte) tagFieldInput);
+		if(canonicalTag != null) {
+			return canonicalTag;
+		}
+		
+		return new TlvTag(tagFieldInput);
+	}
+	
+	/**
+	 * Returns the tag encoded in the provided byte, see {@link #TlvTag(byte)}.
+	 * 
+	 * @param tagFieldInput the byte that contains the TLV tag
+	 * @return the canonical instance of the tag
+	 */
+	public static TlvTag getInstance(byte tagFieldInput) {
+		TlvTag canonicalTag = ONE_BYTE_TAGS[tagFieldInput & 0xFF];
+		if(canonicalTag != null) {
+			return canonicalTag;
+		}
+		
+		/* not a valid one byte tag, fails with the same exception as the constructor */
+		return new TlvTag(tagFieldInput);
+	}
+	
+	/**
+	 * Returns an instance equal to the provided tag. In contrast to
+	 * {@link #clone()} no new object is created for one and two byte tags.
+	 * Tags that have been created without validity checks and do not match a
+	 * valid one or two byte tag are cloned.
+	 * 
+	 * @param tlvTag the tag
+	 * @return the canonical instance for one and two byte tags, a clone otherwise
+	 */
+	public static TlvTag getInstance(TlvTag tlvTag) {
+		if(tlvTag == null) {throw new NullPointerException("tag must not be null");}
+		
+		TlvTag canonicalTag = getCanonicalInstance(tlvTag.tagField, 0, tlvTag.tagField.length);
+		if(canonicalTag != null) {
+			return canonicalTag;
+		}
+		
+		return tlvTag.clone();
+	}
+	
+	/**
+	 * Returns the canonical instance for the provided tag field.
+	 * 
+	 * @param tagFieldInput the byte array that contains the tag field
+	 * @param offset the first offset of the tag field
+	 * @param length the length of the tag field
+	 * @return the canonical instance or null if the tag field is no valid one or two byte tag
+	 */
+	private static TlvTag getCanonicalInstance(byte[] tagFieldInput, int offset, int length) {
+		switch (length) {
+		case 1:
+			return ONE_BYTE_TAGS[tagFieldInput[offset] & 0xFF];
+		case 2:
+			return getCanonicalInstance(tagFieldInput[offset], tagFieldInput[offset + 1]);
+		default:
+			return null;
+		}
+	}
+	
+	private static TlvTag getCanonicalInstance(byte firstByte, byte secondByte) {
+		if(((firstByte & 0x1F) != 0x1F) || ((secondByte & 0x80) != 0)) {
+			return null;
+		}
+		
+		return TWO_BYTE_TAGS[getTwoByteTagIndex(firstByte, secondByte)];
+	}
+	
+	private static int getTwoByteTagIndex(byte firstByte, byte secondByte) {
+		return ((firstByte & 0xE0) << 2) | (secondByte & 0x7F);
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
 	/**
 	 * This method sets the TLV tag based on a raw byte array.
 	 * 
@@ -163,6 +303,21 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	 * @param maxOffset the first offset no longer belonging to the range containing the tag field (exclusive)
 	 */
 	private void setTagField(byte[] tagFieldInput, int minOffset, int maxOffset) {
+		int tagFieldLength = getTagFieldLength(tagFieldInput, minOffset, maxOffset);
+		this.tagField = Arrays.copyOfRange(tagFieldInput, minOffset, minOffset + tagFieldLength);
+	}
+	
+	/**
+	 * This method determines the length of the tag field starting at minOffset
+	 * within the provided range without copying any data. The same checks as
+	 * during construction of a {@link TlvTag} are performed.
+	 * 
+	 * @param tagFieldInput the data field that contains the range containing the tag field
+	 * @param minOffset the first offset of the tag field (inclusive)
+	 * @param maxOffset the first offset no longer belonging to the range containing the tag field (exclusive)
+	 * @return the number of bytes occupied by the tag field
+	 */
+	static int getTagFieldLength(byte[] tagFieldInput, int minOffset, int maxOffset) {
 		if(tagFieldInput == null) {throw new NullPointerException("tag field must not be null");}
 		if(minOffset < 0) {throw new IllegalArgumentException("min offset must not be less than 0");}
 		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
@@ -178,44 +333,43 @@ public final class TlvTag extends TlvElement implements Asn1 {
 		boolean isSecondByteOfMultiByteTag = false;
 		if(!((byte) (currentByte & (byte) 0x1F) == (byte) 0x1F)) {
 			/* if this tag has a short tag, i.e. 1 byte tag field (0 <= tag <= 30) */
-			this.tagField = Arrays.copyOfRange(tagFieldInput, currentOff, currentOff + 1);
+			return 1;
 		} else{
 			isSecondByteOfMultiByteTag = true;
 			while(true) {
 				/* assume tag to be at least one byte longer */
 				/* change to next byte */
-			currentOff++;
-			if(currentOff >= maxOffset) {ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");}
+				currentOff++;
+				if(currentOff >= maxOffset) {ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");}
 				currentByte = tagFieldInput[currentOff];
-			
+				
 				if(isSecondByteOfMultiByteTag) {
 					isSecondByteOfMultiByteTag = false;
 					if(((byte) (currentByte & (byte) 0x7F) == (byte) 0x00)) {
 						/* error, second byte must not be 0 in bits 7-1, i.e. indicated tag length would have also fit into smaller tag */
 						ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
 					}
-			
+					
 					if(((byte) (currentByte & (byte) 0x80)) == (byte) 0x00) {
 						/* if this is a 2 byte Tag */
 						if(((byte) (currentByte & (byte) 0xEF)) <= 30) {
 							/* tag number is unsigned as first bit has been checked as not set before */
 							/* error, 2 byte tag must not encode a tag number <= 30 */
 							/* tag number <= 30 would have also fit into 1-byte tag */
-				ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
-			}
-				}
+							ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
+						}
+					}
 				}
 				
 				if(((byte) (currentByte & (byte) 0x80)) == (byte) 0x00) {
 					/* if this is the last byte of the tag */
-				
+					
 					if(((currentOff - minOffset) + 1) > 3) {
 						/* error, tag is longer than the allowed 3 bytes */
-					ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
-				}
-				
-					this.tagField = Arrays.copyOfRange(tagFieldInput, minOffset, currentOff + 1);
-					return;
+						ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
+					}
+					
+					return (currentOff - minOffset) + 1;
 				}
 			}
 		}
@@ -309,7 +463,30 @@ public final class TlvTag extends TlvElement implements Asn1 {
 		return getEncodedClass(this.tagField) == indicatedClass;
 	}
 	
+	/**
+	 * This method matches this tag against a tag field encoded within the
+	 * provided range of a byte array without copying any data.
+	 * 
+	 * @param data the byte array containing the tag field
+	 * @param offset the first offset of the tag field
+	 * @param length the length of the tag field
+	 * @return whether this tag matches the encoded tag field
+	 */
+	public boolean matches(byte[] data, int offset, int length) {
+		if(length != tagField.length) {return false;}
+		
+		for(int i = 0; i < length; i++) {
+			if(tagField[i] != data[offset + i]) {return false;}
+		}
+		
+		return true;
+	}
+	
 	public boolean matches(TlvTag anotherTlvTag) {
+		if (this == anotherTlvTag) {
+			return true;
+		}
+		
 		if (!Arrays.equals(this.tagField, anotherTlvTag.tagField)) {
 			return false;
 		}
@@ -350,6 +527,11 @@ public final class TlvTag extends TlvElement implements Asn1 {
 		return Arrays.copyOf(tagField, tagField.length);
 	}
 	
+	@Override
+	void writeTo(ByteBuffer buffer) {
+		buffer.put(tagField);
+	}
+	
 	@Override
 	public TlvTag clone() {
 		return new TlvTag(this.toByteArray(), SKIP_VALIDITY_CHECKS);
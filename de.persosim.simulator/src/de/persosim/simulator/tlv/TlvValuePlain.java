@@ -1,5 +1,6 @@
 package de.persosim.simulator.tlv;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -60,6 +61,21 @@ public class TlvValuePlain extends TlvValue {
 		this(new byte[0]);
 	}
 	
+	/**
+	 * Returns an object using the provided array as value field without
+	 * copying it. Only to be used for arrays that are not modified afterwards.
+	 * 
+	 * @param valueFieldInput the array to be used as value field
+	 * @return an object using the provided array as value field
+	 */
+	static TlvValuePlain wrap(byte[] valueFieldInput) {
+		if(valueFieldInput == null) {throw new NullPointerException();}
+		
+		TlvValuePlain tlvValuePlain = new TlvValuePlain();
+		tlvValuePlain.valueField = valueFieldInput;
+		return tlvValuePlain;
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -105,6 +121,11 @@ public class TlvValuePlain extends TlvValue {
 		return Arrays.copyOf(this.valueField, this.valueField.length);
 	}
 	
+	@Override
+	void writeTo(ByteBuffer buffer) {
+		buffer.put(this.valueField);
+	}
+	
 	@Override
 	public TlvValuePlain clone() {
 		return new TlvValuePlain(this.valueField);
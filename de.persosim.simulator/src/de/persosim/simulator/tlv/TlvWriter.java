@@ -0,0 +1,219 @@
+package de.persosim.simulator.tlv;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class writes TLV encoded data generated by the simulator itself, e.g.
+ * response data, directly into a reusable buffer without creating an
+ * intermediate graph of {@link TlvDataObject}s.
+ *
+ * Tag and value fields are written as they are provided. The length field of a
+ * constructed element is reserved when the element is opened and filled in
+ * when the element is closed. If the final length field requires more than a
+ * single byte the already written value field is moved accordingly.
+ *
+ * <pre>
+ * TlvValue responseData = writer.reset()
+ * 		.beginConstructed(TAG_7C)
+ * 		.writePrimitive(TAG_82, mappingResponse)
+ * 		.endConstructed()
+ * 		.toTlvValue();
+ * </pre>
+ *
+ * As with {@link TlvDataObjectBuilder} the provided tags are not checked, i.e.
+ * this class must only be used for trusted input. The buffer is kept between
+ * subsequent uses, thus objects of this class are intended to be held per
+ * card and are not synchronized.
+ *
+ */
+public class TlvWriter {
+
+	/** default initial capacity of the buffer */
+	public static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+	private ByteBuffer buffer;
+
+	/* offsets of the reserved length fields of the currently open constructed elements, the innermost one being the last */
+	private int[] openLengthOffsets;
+	private int noOfOpenElements;
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Constructor for a writer with a buffer of the provided initial capacity.
+	 * The buffer is enlarged as needed.
+	 * @param initialCapacity the initial capacity of the buffer
+	 */
+	public TlvWriter(int initialCapacity) {
+		if(initialCapacity < 0) {throw new IllegalArgumentException("initial capacity must not be less than 0");}
+
+		buffer = ByteBuffer.allocate(initialCapacity);
+		openLengthOffsets = new int[4];
+		noOfOpenElements = 0;
+	}
+
+	/**
+	 * Constructor for a writer with a buffer of
+	 * {@link #DEFAULT_INITIAL_CAPACITY} bytes.
+	 */
+	public TlvWriter() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Discards all written data while keeping the buffer.
+	 * @return this writer
+	 */
+	public TlvWriter reset() {
+		buffer.clear();
+		noOfOpenElements = 0;
+		return this;
+	}
+
+	/**
+	 * Writes tag and a reserved length field of a constructed element.
+	 * Subsequently written elements become part of its value field until
+	 * {@link #endConstructed()} is called.
+	 * @param tlvTag the constructed tag to be used
+	 * @return this writer
+	 */
+	public TlvWriter beginConstructed(TlvTag tlvTag) {
+		if(tlvTag == null) {throw new NullPointerException("tag must not be null");}
+
+		ensureRemaining(tlvTag.getLength() + 1);
+		tlvTag.writeTo(buffer);
+
+		if(noOfOpenElements == openLengthOffsets.length) {
+			openLengthOffsets = Arrays.copyOf(openLengthOffsets, openLengthOffsets.length * 2);
+		}
+		openLengthOffsets[noOfOpenElements++] = buffer.position();
+
+		buffer.put((byte) 0);
+		return this;
+	}
+
+	/**
+	 * Closes the currently open constructed element and fills in its length
+	 * field.
+	 * @return this writer
+	 */
+	public TlvWriter endConstructed() {
+		if(noOfOpenElements == 0) {throw new IllegalStateException("no constructed element to be closed");}
+
+		int lengthOffset = openLengthOffsets[--noOfOpenElements];
+		int valueOffset = lengthOffset + 1;
+		int valueLength = buffer.position() - valueOffset;
+		int noOfAdditionalLengthBytes = TlvEncoder.getLengthFieldLength(valueLength) - 1;
+
+		if(noOfAdditionalLengthBytes > 0) {
+			ensureRemaining(noOfAdditionalLengthBytes);
+			byte[] array = buffer.array();
+			System.arraycopy(array, valueOffset, array, valueOffset + noOfAdditionalLengthBytes, valueLength);
+		}
+
+		int endOffset = buffer.position() + noOfAdditionalLengthBytes;
+		buffer.position(lengthOffset);
+		TlvEncoder.writeLengthField(valueLength, buffer);
+		buffer.position(endOffset);
+
+		return this;
+	}
+
+	/**
+	 * Writes a primitive element.
+	 * @param tlvTag the primitive tag to be used
+	 * @param value the byte array that in a certain range contains the value field
+	 * @param minOffset the first offset of the value field (inclusive)
+	 * @param maxOffset the first offset not to be part of the value field (exclusive)
+	 * @return this writer
+	 */
+	public TlvWriter writePrimitive(TlvTag tlvTag, byte[] value, int minOffset, int maxOffset) {
+		if(tlvTag == null) {throw new NullPointerException("tag must not be null");}
+		if(value == null) {throw new NullPointerException("value must not be null");}
+		if(minOffset < 0) {throw new IllegalArgumentException("min offset must not be less than 0");}
+		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
+		if(maxOffset > value.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
+
+		int valueLength = maxOffset - minOffset;
+
+		ensureRemaining(tlvTag.getLength() + TlvEncoder.getLengthFieldLength(valueLength) + valueLength);
+		tlvTag.writeTo(buffer);
+		TlvEncoder.writeLengthField(valueLength, buffer);
+		buffer.put(value, minOffset, valueLength);
+
+		return this;
+	}
+
+	/**
+	 * Writes a primitive element.
+	 * @param tlvTag the primitive tag to be used
+	 * @param value the value field to be used
+	 * @return this writer
+	 */
+	public TlvWriter writePrimitive(TlvTag tlvTag, byte[] value) {
+		if(value == null) {throw new NullPointerException("value must not be null");}
+
+		return writePrimitive(tlvTag, value, 0, value.length);
+	}
+
+	/**
+	 * Writes the encoding of the provided element, e.g. an already existing
+	 * {@link TlvDataObject}.
+	 * @param tlvElement the element to write
+	 * @return this writer
+	 */
+	public TlvWriter write(TlvElement tlvElement) {
+		if(tlvElement == null) {throw new NullPointerException("element must not be null");}
+
+		ensureRemaining(tlvElement.getLength());
+		TlvEncoder.encode(tlvElement, buffer);
+
+		return this;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	public int getLength() {
+		return buffer.position();
+	}
+
+	/**
+	 * @return a copy of the written data
+	 */
+	public byte[] toByteArray() {
+		if(noOfOpenElements > 0) {throw new IllegalStateException("all constructed elements must be closed");}
+
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	/**
+	 * Returns the written data, e.g. to be used as response data. The returned
+	 * value is independent of subsequent uses of this writer.
+	 * @return the written data
+	 */
+	public TlvValue toTlvValue() {
+		return TlvValuePlain.wrap(toByteArray());
+	}
+
+	/**
+	 * Makes sure that at least the provided number of bytes can be written
+	 * without exceeding the buffer, enlarging the buffer if necessary.
+	 */
+	private void ensureRemaining(int noOfBytes) {
+		if(buffer.remaining() >= noOfBytes) {
+			return;
+		}
+
+		int newCapacity = Math.max(buffer.capacity() * 2, buffer.position() + noOfBytes);
+		ByteBuffer newBuffer = ByteBuffer.allocate(newCapacity);
+		newBuffer.put(buffer.array(), 0, buffer.position());
+		buffer = newBuffer;
+	}
+
+}
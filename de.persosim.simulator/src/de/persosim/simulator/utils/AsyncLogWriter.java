@@ -0,0 +1,299 @@
+package de.persosim.simulator.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous writer for log events.
+ * <p/>
+ * Threads producing log messages (e.g. the APDU processing thread) publish
+ * their events into a preallocated ring buffer without taking any locks. A
+ * single background thread drains this buffer and forwards the events in
+ * batches to a {@link LogEventSink}, which is flushed after each batch. Thus
+ * disk or console stalls do not influence the latency of the producing
+ * threads.
+ * <p/>
+ * The amount of memory used is bounded by the capacity of the ring buffer.
+ * When the buffer is full the configured {@link OverflowPolicy} decides
+ * whether new events are dropped or the producer waits for free space.
+ *
+ */
+public class AsyncLogWriter implements Runnable {
+
+	/**
+	 * Behavior of {@link AsyncLogWriter#publish(long, byte, String, String)} when the
+	 * ring buffer is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Discard the new event, the number of discarded events is available
+		 * through {@link AsyncLogWriter#getDroppedEvents()}
+		 */
+		DROP,
+		/**
+		 * Wait until the background writer freed space within the buffer
+		 */
+		BLOCK
+	}
+
+	/**
+	 * Receiver of the log events drained from the ring buffer. All methods are
+	 * called from the background writer thread only.
+	 */
+	public interface LogEventSink {
+
+		/**
+		 * Write a single log event
+		 *
+		 * @param timestamp
+		 *            time the event was published in milliseconds
+		 * @param logLevel
+		 *            log level as defined in {@link PersoSimLogger}
+		 * @param message
+		 *            the message to be logged
+		 * @param contextId
+		 *            context id of the publishing thread at the time the
+		 *            event was published, may be null
+		 */
+		public void write(long timestamp, byte logLevel, String message, String contextId);
+
+		/**
+		 * Flush all previously written events, called after each batch
+		 */
+		public void flush();
+
+	}
+
+	/**
+	 * Single preallocated entry of the ring buffer
+	 */
+	private static class Slot {
+		/**
+		 * sequence number of the event currently stored in this slot, written
+		 * last by the producer to publish the event
+		 */
+		volatile long sequence = -1;
+		long timestamp;
+		byte logLevel;
+		String message;
+		String contextId;
+	}
+
+	public static final int DEFAULT_CAPACITY = 8192;
+	private static final int MAX_BATCH_SIZE = 512;
+	private static final long IDLE_PARK_NANOS = 1000000L;
+	private static final long BLOCKED_PARK_NANOS = 10000L;
+
+	private final Slot[] slots;
+	private final int mask;
+	private final OverflowPolicy overflowPolicy;
+	private final LogEventSink sink;
+
+	/** next sequence number to be claimed by a producer */
+	private final AtomicLong claimSequence = new AtomicLong();
+	/** next sequence number to be consumed by the writer thread */
+	private volatile long consumeSequence = 0;
+	private final AtomicLong droppedEvents = new AtomicLong();
+
+	private volatile boolean running = false;
+	private Thread writerThread;
+	private Thread shutdownHook;
+
+	/**
+	 * Create a new writer, call {@link #start()} to begin writing events.
+	 *
+	 * @param capacity
+	 *            maximum number of buffered events, rounded up to the next
+	 *            power of two
+	 * @param overflowPolicy
+	 *            behavior when the buffer is full
+	 * @param sink
+	 *            receiver of the events
+	 */
+	public AsyncLogWriter(int capacity, OverflowPolicy overflowPolicy, LogEventSink sink) {
+		if (capacity < 1) {throw new IllegalArgumentException("capacity must be positive");}
+		if (overflowPolicy == null) {throw new NullPointerException("overflow policy must not be null");}
+		if (sink == null) {throw new NullPointerException("sink must not be null");}
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+
+		slots = new Slot[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = new Slot();
+		}
+		mask = size - 1;
+
+		this.overflowPolicy = overflowPolicy;
+		this.sink = sink;
+	}
+
+	/**
+	 * Start the background writer thread. Events remaining in the buffer are
+	 * written when the JVM shuts down.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+
+		writerThread = new Thread(this, "PersoSimLogWriter");
+		writerThread.setDaemon(true);
+		writerThread.start();
+
+		shutdownHook = new Thread() {
+			@Override
+			public void run() {
+				stopWriter();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Stop the background writer thread after all published events have been
+	 * written. Events published after this method was called are dropped.
+	 */
+	public synchronized void stop() {
+		stopWriter();
+
+		if (shutdownHook != null) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				// JVM is already shutting down, hook is running anyway
+			}
+			shutdownHook = null;
+		}
+	}
+
+	private void stopWriter() {
+		running = false;
+
+		if (writerThread != null) {
+			LockSupport.unpark(writerThread);
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Publish a new event into the ring buffer. This method does not take any
+	 * locks and does not allocate memory.
+	 *
+	 * @param timestamp
+	 *            time of the event in milliseconds
+	 * @param logLevel
+	 *            log level as defined in {@link PersoSimLogger}
+	 * @param message
+	 *            the message to be logged
+	 * @return true iff the event was accepted, false if it was dropped
+	 */
+	public boolean publish(long timestamp, byte logLevel, String message) {
+		return publish(timestamp, logLevel, message, null);
+	}
+
+	/**
+	 * Publish a new event into the ring buffer. This method does not take any
+	 * locks and does not allocate memory.
+	 *
+	 * @param timestamp
+	 *            time of the event in milliseconds
+	 * @param logLevel
+	 *            log level as defined in {@link PersoSimLogger}
+	 * @param message
+	 *            the message to be logged
+	 * @param contextId
+	 *            context id (e.g. session) the event belongs to, may be null
+	 * @return true iff the event was accepted, false if it was dropped
+	 */
+	public boolean publish(long timestamp, byte logLevel, String message, String contextId) {
+		long sequence;
+		while (true) {
+			if (!running) {
+				droppedEvents.incrementAndGet();
+				return false;
+			}
+
+			sequence = claimSequence.get();
+			if (sequence - consumeSequence >= slots.length) {
+				// buffer is full
+				if (overflowPolicy == OverflowPolicy.DROP) {
+					droppedEvents.incrementAndGet();
+					return false;
+				}
+				LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+				continue;
+			}
+
+			if (claimSequence.compareAndSet(sequence, sequence + 1)) {
+				break;
+			}
+		}
+
+		Slot slot = slots[(int) sequence & mask];
+		slot.timestamp = timestamp;
+		slot.logLevel = logLevel;
+		slot.message = message;
+		slot.contextId = contextId;
+		slot.sequence = sequence;
+
+		return true;
+	}
+
+	@Override
+	public void run() {
+		long next = consumeSequence;
+
+		while (running || (next < claimSequence.get())) {
+			int batchSize = 0;
+			Slot slot = slots[(int) next & mask];
+
+			while ((batchSize < MAX_BATCH_SIZE) && (slot.sequence == next)) {
+				try {
+					sink.write(slot.timestamp, slot.logLevel, slot.message, slot.contextId);
+				} catch (RuntimeException e) {
+					// the writer thread must survive failures of the sink
+				}
+				slot.message = null;
+				slot.contextId = null;
+
+				next++;
+				batchSize++;
+				slot = slots[(int) next & mask];
+			}
+
+			if (batchSize > 0) {
+				consumeSequence = next;
+				try {
+					sink.flush();
+				} catch (RuntimeException e) {
+					// the writer thread must survive failures of the sink
+				}
+			} else {
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of events dropped since creation of this writer
+	 */
+	public long getDroppedEvents() {
+		return droppedEvents.get();
+	}
+
+	/**
+	 * @return the OverflowPolicy used by this writer
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+}
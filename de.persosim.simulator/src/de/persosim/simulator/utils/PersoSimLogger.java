@@ -1,18 +1,26 @@
 package de.persosim.simulator.utils;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.ConsoleAppender;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Layout;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
 import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
 
 import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.utils.AsyncLogWriter.LogEventSink;
+import de.persosim.simulator.utils.AsyncLogWriter.OverflowPolicy;
 
 /**
  * This class is used as primary Logger throughout all PersoSim classes.
@@ -29,7 +37,64 @@ public class PersoSimLogger {
 	public static final byte FATAL = 6;
 	private static final byte LOGLEVEL_DFLT = DEBUG;
 	
+	/**
+	 * Lowest log level that is still shown on the console while writing a
+	 * binary trace
+	 */
+	private static final byte LOGLEVEL_CONSOLE_BINARY_TRACE = WARN;
+	
+	/**
+	 * Layout of all textual log messages
+	 */
+	static final String LOG_PATTERN = "%d %-5p - %m%n";
+	
 	private static Logger logger;
+	private static ConsoleAppender consoleAppender;
+	
+	/**
+	 * Lowest log level that is actually written, cached here to allow cheap
+	 * checks via {@link #isEnabled(byte)}. Defaults to TRACE, so all messages
+	 * are written unless a level is configured.
+	 */
+	private static volatile byte logLevel = TRACE;
+	
+	/**
+	 * Configuration of sampled tracing, sessions selected for sampling are
+	 * logged with all log levels enabled regardless of {@link #logLevel}
+	 */
+	private static volatile int traceSamplingRate = 0;
+	private static volatile String tracedContextId = null;
+	private static volatile boolean traceSamplingEnabled = false;
+	private static final AtomicLong sessionCounter = new AtomicLong();
+	private static final ThreadLocal<Boolean> sampledSession = new ThreadLocal<>();
+	
+	/**
+	 * Configuration of asynchronous logging, applied during {@link #init(byte)}
+	 */
+	private static OverflowPolicy asyncOverflowPolicy = null;
+	private static int asyncCapacity = AsyncLogWriter.DEFAULT_CAPACITY;
+	private static final int ASYNC_FILE_BUFFER_SIZE = 64 * 1024;
+	
+	private static AsyncLogWriter asyncLogWriter;
+	
+	/**
+	 * Configuration of binary trace, applied during {@link #init(byte)}
+	 */
+	private static boolean binaryTrace = false;
+	private static volatile TraceWriter traceWriter;
+	private static Thread traceShutdownHook;
+	
+	/**
+	 * Configuration of per session log files, applied during
+	 * {@link #init(byte)}
+	 */
+	public static final long SESSION_LOG_MAX_FILE_SIZE_DFLT = 10 * 1024 * 1024;
+	public static final long SESSION_LOG_MAX_FILE_AGE_DFLT = 24 * 60 * 60 * 1000L;
+	public static final int SESSION_LOG_MAX_RETAINED_FILES_DFLT = 50;
+	private static boolean sessionLogging = false;
+	private static long sessionLogMaxFileSize;
+	private static long sessionLogMaxFileAge;
+	private static int sessionLogMaxRetainedFiles;
 
 	/**
 	 * Ensure that this type can not be instantiated
@@ -37,29 +102,379 @@ public class PersoSimLogger {
 	private PersoSimLogger() {
 	}
 	
+	/**
+	 * Initialize the logger keeping the current log level, i.e. a log level
+	 * set before (e.g. at runtime) is not reset.
+	 * 
+	 * @see #init(byte)
+	 */
 	public static void init() {
+		init(logLevel);
+	}
+	
+	/**
+	 * Initialize the logger.
+	 * 
+	 * @param initialLogLevel
+	 *            lowest log level that is written to the log
+	 */
+	public static void init(byte initialLogLevel) {
+		if (asyncLogWriter != null) {
+			asyncLogWriter.stop();
+			asyncLogWriter = null;
+		}
+		closeTrace();
+		
 		logger = Logger.getLogger("GTSimulatorLogger");
 		
 		logger.removeAllAppenders();
 
 		//common log layout
-		Layout layout = new PatternLayout("%d %-5p - %m%n");
+		Layout layout = new PatternLayout(LOG_PATTERN);
 
 		// log to stdOut
-		ConsoleAppender consoleAppender = new ConsoleAppender(layout);
+		consoleAppender = new ConsoleAppender(layout);
 		logger.addAppender(consoleAppender);
 
 		// log to file
 		try {
-			String logFileName = "logs" + File.separator + "PersoSim_" + new SimpleDateFormat("yyyyMMddHHmmss").format(Calendar.getInstance().getTime()) + ".log";
-			FileAppender fileAppender = new FileAppender(layout, logFileName, false);
-			logger.addAppender(fileAppender);
+			String logFileBaseName = "logs" + File.separator + "PersoSim_" + new SimpleDateFormat("yyyyMMddHHmmss").format(Calendar.getInstance().getTime());
+			String logFileName = logFileBaseName + ".log";
+			if (binaryTrace) {
+				// the binary trace replaces the textual log file, console
+				// only shows problems in order to avoid formatting messages
+				consoleAppender.setThreshold(toLog4jEventLevel(LOGLEVEL_CONSOLE_BINARY_TRACE));
+				openTrace(logFileBaseName + ".trace");
+			} else if (sessionLogging) {
+				SessionRoutingAppender sessionAppender = new SessionRoutingAppender(layout, new File("logs"), sessionLogMaxFileSize, sessionLogMaxFileAge, sessionLogMaxRetainedFiles);
+				logger.addAppender(sessionAppender);
+				
+				if (asyncOverflowPolicy != null) {
+					sessionAppender.setImmediateFlush(false);
+					asyncLogWriter = new AsyncLogWriter(asyncCapacity, asyncOverflowPolicy, new Log4jSink(logger, sessionAppender));
+					asyncLogWriter.start();
+				}
+			} else if (asyncOverflowPolicy == null) {
+				FileAppender fileAppender = new FileAppender(layout, logFileName, false);
+				logger.addAppender(fileAppender);
+			} else {
+				BufferedFileAppender fileAppender = new BufferedFileAppender(layout, logFileName);
+				logger.addAppender(fileAppender);
+				
+				asyncLogWriter = new AsyncLogWriter(asyncCapacity, asyncOverflowPolicy, new Log4jSink(logger, fileAppender));
+				asyncLogWriter.start();
+			}
 		} catch (IOException e) {
 			PersoSim.showExceptionToUser(e);
 		}
 
-		// ALL | DEBUG | INFO | WARN | ERROR | FATAL | OFF:
-		logger.setLevel(Level.ALL);
+		setLogLevel(initialLogLevel);
+	}
+	
+	/**
+	 * Configure asynchronous logging. If enabled, log messages are handed to
+	 * a background thread via a lock-free ring buffer which writes them in
+	 * batches, see {@link AsyncLogWriter}.
+	 * 
+	 * This configuration takes effect on the next call of {@link #init(byte)}.
+	 * 
+	 * @param capacity
+	 *            maximum number of buffered log messages
+	 * @param overflowPolicy
+	 *            behavior when the buffer is full, null disables asynchronous
+	 *            logging
+	 */
+	public static void setAsyncLogging(int capacity, OverflowPolicy overflowPolicy) {
+		asyncCapacity = capacity;
+		asyncOverflowPolicy = overflowPolicy;
+	}
+	
+	/**
+	 * Configure the binary trace. If enabled, the textual log file is replaced
+	 * by a binary trace (see {@link TraceWriter}) that can be rendered to
+	 * text using the {@link TraceDecoder}. The trace is written synchronously
+	 * to a single file, so asynchronous logging and per session log files
+	 * (see {@link #setAsyncLogging(int, OverflowPolicy)} and
+	 * {@link #setSessionLogging(boolean, long, long, int)}) are ignored in this
+	 * mode.
+	 * 
+	 * This configuration takes effect on the next call of {@link #init(byte)}.
+	 * 
+	 * @param enabled
+	 *            whether to write a binary trace instead of a textual log file
+	 */
+	public static void setBinaryTrace(boolean enabled) {
+		binaryTrace = enabled;
+	}
+	
+	/**
+	 * Configure per session log files. If enabled, log messages are written
+	 * to one log file per context id (see {@link #setContextId(String)})
+	 * instead of a single log file. These files are rotated and the number of
+	 * retained files is limited, see {@link SessionRoutingAppender}.
+	 * 
+	 * This configuration takes effect on the next call of {@link #init(byte)}.
+	 * 
+	 * @param enabled
+	 *            whether to write per session log files
+	 * @param maxFileSize
+	 *            size in bytes after which a log file is rotated, 0 disables
+	 *            size based rotation
+	 * @param maxFileAge
+	 *            age in milliseconds after which a log file is rotated, 0
+	 *            disables time based rotation
+	 * @param maxRetainedFiles
+	 *            maximum number of rotated log files kept
+	 */
+	public static void setSessionLogging(boolean enabled, long maxFileSize, long maxFileAge, int maxRetainedFiles) {
+		sessionLogging = enabled;
+		sessionLogMaxFileSize = maxFileSize;
+		sessionLogMaxFileAge = maxFileAge;
+		sessionLogMaxRetainedFiles = maxRetainedFiles;
+	}
+	
+	/**
+	 * Set the context id (e.g. the connection or card slot) all following
+	 * messages logged by the current thread belong to. With per session log
+	 * files enabled, each context is written to its own log file.
+	 * 
+	 * @param contextId
+	 *            the context id, null removes the current context id
+	 */
+	public static void setContextId(String contextId) {
+		if (contextId == null) {
+			MDC.remove(SessionRoutingAppender.MDC_CONTEXT_KEY);
+		} else {
+			MDC.put(SessionRoutingAppender.MDC_CONTEXT_KEY, contextId);
+		}
+	}
+	
+	/**
+	 * @return the context id of the current thread or null if none is set
+	 */
+	public static String getContextId() {
+		Object contextId = MDC.get(SessionRoutingAppender.MDC_CONTEXT_KEY);
+		return (contextId != null) ? contextId.toString() : null;
+	}
+	
+	private static void openTrace(String traceFileName) throws IOException {
+		File traceFile = new File(traceFileName);
+		if (traceFile.getParentFile() != null) {
+			traceFile.getParentFile().mkdirs();
+		}
+		traceWriter = new TraceWriter(traceFileName);
+		
+		if (traceShutdownHook == null) {
+			traceShutdownHook = new Thread() {
+				@Override
+				public void run() {
+					closeTrace();
+				}
+			};
+			Runtime.getRuntime().addShutdownHook(traceShutdownHook);
+		}
+	}
+	
+	private static synchronized void closeTrace() {
+		if (traceWriter != null) {
+			try {
+				traceWriter.close();
+			} catch (IOException e) {
+				PersoSim.showExceptionToUser(e);
+			}
+			traceWriter = null;
+		}
+	}
+	
+	/**
+	 * Write all buffered records of the binary trace to the trace file. This
+	 * is to be called after each complete APDU/response exchange, so that a
+	 * crash or kill of the simulator does not lose the end of the trace.
+	 * Nothing is done if no binary trace is written.
+	 */
+	public static void flushTrace() {
+		TraceWriter writer = traceWriter;
+		if (writer != null) {
+			try {
+				writer.flush();
+			} catch (IOException e) {
+				handleTraceFailure(e);
+			}
+		}
+	}
+	
+	/**
+	 * Handle a failure while writing the binary trace. The trace is closed and
+	 * further messages are only shown on the console.
+	 */
+	private static void handleTraceFailure(IOException e) {
+		PersoSim.showExceptionToUser(e);
+		closeTrace();
+		// remove the threshold, messages are filtered by the level of the logger again
+		consoleAppender.setThreshold(null);
+	}
+	
+	/**
+	 * @return the number of log messages dropped by asynchronous logging
+	 */
+	public static long getDroppedMessages() {
+		return (asyncLogWriter != null) ? asyncLogWriter.getDroppedEvents() : 0;
+	}
+	
+	/**
+	 * Set the lowest log level that is actually written to the log.
+	 * 
+	 * @param newLogLevel
+	 *            one of the log level constants defined in this class
+	 */
+	public static void setLogLevel(byte newLogLevel) {
+		if ((newLogLevel < TRACE) || (newLogLevel > FATAL)) {throw new IllegalArgumentException("unknown log level " + newLogLevel);}
+		
+		logLevel = newLogLevel;
+		updateLog4jLevel();
+	}
+	
+	/**
+	 * Parse a log level from its name (e.g. "INFO") or its numeric value.
+	 * 
+	 * @param logLevelString
+	 *            name or value of the log level, case insensitive
+	 * @return one of the log level constants defined in this class
+	 * @throws IllegalArgumentException
+	 *             if the string does not denote a log level
+	 */
+	public static byte parseLogLevel(String logLevelString) {
+		String[] names = new String[] {"TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL"};
+		String trimmed = logLevelString.trim();
+		for (byte i = 0; i < names.length; i++) {
+			if (names[i].equalsIgnoreCase(trimmed) || trimmed.equals(Integer.toString(TRACE + i))) {
+				return (byte) (TRACE + i);
+			}
+		}
+		throw new IllegalArgumentException("unknown log level " + logLevelString);
+	}
+	
+	/**
+	 * Configure sampled tracing of sessions. Every N-th session started via
+	 * {@link #startSession(String)} is logged with all log levels enabled,
+	 * all other sessions use the current log level.
+	 * 
+	 * This configuration takes effect for sessions started afterwards.
+	 * 
+	 * @param rate
+	 *            N, 0 disables sampling by rate
+	 */
+	public static void setTraceSamplingRate(int rate) {
+		if (rate < 0) {throw new IllegalArgumentException("sampling rate must not be negative");}
+		
+		traceSamplingRate = rate;
+		updateTraceSampling();
+	}
+	
+	/**
+	 * @return N if every N-th session is traced, 0 if sampling by rate is
+	 *         disabled
+	 */
+	public static int getTraceSamplingRate() {
+		return traceSamplingRate;
+	}
+	
+	/**
+	 * Configure tracing of a chosen context (e.g. a card slot or connection).
+	 * Sessions started via {@link #startSession(String)} with this context id
+	 * are logged with all log levels enabled.
+	 * 
+	 * This configuration takes effect for sessions started afterwards.
+	 * 
+	 * @param contextId
+	 *            context id to be traced, null disables tracing by context
+	 */
+	public static void setTracedContextId(String contextId) {
+		tracedContextId = contextId;
+		updateTraceSampling();
+	}
+	
+	/**
+	 * @return the context id that is always traced or null if none is set
+	 */
+	public static String getTracedContextId() {
+		return tracedContextId;
+	}
+	
+	private static void updateTraceSampling() {
+		traceSamplingEnabled = (traceSamplingRate > 0) || (tracedContextId != null);
+		updateLog4jLevel();
+	}
+	
+	private static void updateLog4jLevel() {
+		if (logger != null) {
+			// sampled sessions are filtered by isEnabled(), thus log4j needs
+			// to accept all levels while sampling is enabled
+			logger.setLevel(traceSamplingEnabled ? Level.ALL : toLog4jLevel(logLevel));
+		}
+	}
+	
+	/**
+	 * Start a new session on the current thread. The context id is set (see
+	 * {@link #setContextId(String)}) and the session is selected for sampled
+	 * tracing according to the current sampling configuration.
+	 * 
+	 * @param contextId
+	 *            context id of the new session
+	 * @return true iff the session is traced with all log levels enabled
+	 */
+	public static boolean startSession(String contextId) {
+		setContextId(contextId);
+		
+		long sessionNumber = sessionCounter.getAndIncrement();
+		int rate = traceSamplingRate;
+		boolean sampled = ((rate > 0) && (sessionNumber % rate == 0)) || ((contextId != null) && contextId.equals(tracedContextId));
+		
+		if (sampled) {
+			sampledSession.set(Boolean.TRUE);
+		} else {
+			sampledSession.remove();
+		}
+		return sampled;
+	}
+	
+	/**
+	 * End the session previously started on the current thread by
+	 * {@link #startSession(String)}.
+	 */
+	public static void endSession() {
+		sampledSession.remove();
+		setContextId(null);
+	}
+	
+	/**
+	 * @return the lowest log level that is currently written to the log
+	 */
+	public static byte getLogLevel() {
+		return logLevel;
+	}
+	
+	/**
+	 * Check whether messages on the given log level would currently be
+	 * written.
+	 * 
+	 * Callers should use this to guard the construction of expensive log
+	 * messages (e.g. hex dumps or toString() of complex objects) so that
+	 * nothing is computed or allocated when the level is disabled.
+	 * 
+	 * @param logLevel
+	 *            log level to check
+	 * @return true iff messages of the given level are written to the log
+	 */
+	public static boolean isEnabled(byte logLevel) {
+		if (logger == null) {
+			return false;
+		}
+		if (logLevel >= PersoSimLogger.logLevel) {
+			return true;
+		}
+		// the thread local is only consulted if sampling is enabled at all
+		return traceSamplingEnabled && (sampledSession.get() != null);
 	}
 
 	/**
@@ -118,6 +533,239 @@ public class PersoSimLogger {
 		log(className, message, LOGLEVEL_DFLT);
 	}
 
+	/**
+	 * Write a formatted message to the log, including origin of that message.
+	 * 
+	 * The message is only formatted if the given log level is enabled, see
+	 * {@link #formatMessage(String, Object...)} for the handling of the
+	 * arguments.
+	 * 
+	 * @param source
+	 *            origin of this log message
+	 * @param logLevel
+	 *            log level on which the message is shown
+	 * @param format
+	 *            format string as accepted by {@link String#format(String, Object...)}
+	 * @param arg
+	 *            argument referenced by the format string
+	 */
+	public static void log(InfoSource source, byte logLevel, String format, Object arg) {
+		if (isEnabled(logLevel)) {
+			logFormatted(source.getIDString(), logLevel, format, arg);
+		}
+	}
+	
+	/**
+	 * @see #log(InfoSource, byte, String, Object)
+	 */
+	public static void log(InfoSource source, byte logLevel, String format, Object arg0, Object arg1) {
+		if (isEnabled(logLevel)) {
+			logFormatted(source.getIDString(), logLevel, format, arg0, arg1);
+		}
+	}
+	
+	/**
+	 * @see #log(InfoSource, byte, String, Object)
+	 */
+	public static void log(InfoSource source, byte logLevel, String format, Object arg0, Object arg1, Object arg2) {
+		if (isEnabled(logLevel)) {
+			logFormatted(source.getIDString(), logLevel, format, arg0, arg1, arg2);
+		}
+	}
+	
+	/**
+	 * @see #log(InfoSource, byte, String, Object)
+	 */
+	public static void log(InfoSource source, byte logLevel, String format, Object arg0, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(logLevel)) {
+			logFormatted(source.getIDString(), logLevel, format, arg0, arg1, arg2, arg3);
+		}
+	}
+	
+	/**
+	 * @see #log(InfoSource, byte, String, Object)
+	 */
+	public static void log(InfoSource source, byte logLevel, String format, Object... args) {
+		if (isEnabled(logLevel)) {
+			logFormatted(source.getIDString(), logLevel, format, args);
+		}
+	}
+	
+	/**
+	 * Write a formatted message to the log, including originating class of
+	 * that message.
+	 * 
+	 * The message is only formatted if the given log level is enabled, see
+	 * {@link #formatMessage(String, Object...)} for the handling of the
+	 * arguments.
+	 * 
+	 * @param className
+	 *            originating class of this log message
+	 * @param logLevel
+	 *            log level on which the message is shown
+	 * @param format
+	 *            format string as accepted by {@link String#format(String, Object...)}
+	 * @param arg
+	 *            argument referenced by the format string
+	 */
+	public static void log(Class<?> className, byte logLevel, String format, Object arg) {
+		if (isEnabled(logLevel)) {
+			logFormatted(className.getCanonicalName(), logLevel, format, arg);
+		}
+	}
+	
+	/**
+	 * @see #log(Class, byte, String, Object)
+	 */
+	public static void log(Class<?> className, byte logLevel, String format, Object arg0, Object arg1) {
+		if (isEnabled(logLevel)) {
+			logFormatted(className.getCanonicalName(), logLevel, format, arg0, arg1);
+		}
+	}
+	
+	/**
+	 * @see #log(Class, byte, String, Object)
+	 */
+	public static void log(Class<?> className, byte logLevel, String format, Object arg0, Object arg1, Object arg2) {
+		if (isEnabled(logLevel)) {
+			logFormatted(className.getCanonicalName(), logLevel, format, arg0, arg1, arg2);
+		}
+	}
+	
+	/**
+	 * @see #log(Class, byte, String, Object)
+	 */
+	public static void log(Class<?> className, byte logLevel, String format, Object arg0, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(logLevel)) {
+			logFormatted(className.getCanonicalName(), logLevel, format, arg0, arg1, arg2, arg3);
+		}
+	}
+	
+	/**
+	 * @see #log(Class, byte, String, Object)
+	 */
+	public static void log(Class<?> className, byte logLevel, String format, Object... args) {
+		if (isEnabled(logLevel)) {
+			logFormatted(className.getCanonicalName(), logLevel, format, args);
+		}
+	}
+	
+	/**
+	 * Write a message together with a dump of the given data to the log,
+	 * including origin of that message.
+	 * 
+	 * The data is only converted to its hexadecimal representation if the
+	 * given log level is enabled and a textual log is written, see
+	 * {@link HexString#dump(byte[])}.
+	 * 
+	 * @param source
+	 *            origin of this log message
+	 * @param logLevel
+	 *            log level on which the message is shown
+	 * @param message
+	 *            the message describing the data
+	 * @param data
+	 *            the data to be dumped
+	 */
+	public static void logDump(InfoSource source, byte logLevel, String message, byte[] data) {
+		if (isEnabled(logLevel)) {
+			logDump(source.getIDString(), logLevel, message, data);
+		}
+	}
+	
+	/**
+	 * Write a message together with a dump of the given data to the log,
+	 * including originating class of that message.
+	 * 
+	 * @see #logDump(InfoSource, byte, String, byte[])
+	 * 
+	 * @param className
+	 *            originating class of this log message
+	 * @param logLevel
+	 *            log level on which the message is shown
+	 * @param message
+	 *            the message describing the data
+	 * @param data
+	 *            the data to be dumped
+	 */
+	public static void logDump(Class<?> className, byte logLevel, String message, byte[] data) {
+		if (isEnabled(logLevel)) {
+			logDump(className.getCanonicalName(), logLevel, message, data);
+		}
+	}
+	
+	private static void logDump(String source, byte logLevel, String message, byte[] data) {
+		TraceWriter writer = traceWriter;
+		if (writer != null) {
+			try {
+				writer.writeData(System.currentTimeMillis(), logLevel, source, message, data);
+			} catch (IOException e) {
+				handleTraceFailure(e);
+			}
+		}
+		
+		if (isTextLogged(logLevel)) {
+			logPlain(source + ": " + dumpMessage(message, data), logLevel);
+		}
+	}
+	
+	private static void logFormatted(String source, byte logLevel, String format, Object... args) {
+		TraceWriter writer = traceWriter;
+		if (writer != null) {
+			try {
+				writer.writeFormatted(System.currentTimeMillis(), logLevel, source, format, args);
+			} catch (IOException e) {
+				handleTraceFailure(e);
+			}
+		}
+		
+		if (isTextLogged(logLevel)) {
+			logPlain(source + ": " + formatMessage(format, args), logLevel);
+		}
+	}
+	
+	/**
+	 * @return true iff messages of the given level need to be formatted as
+	 *         text, i.e. they are not only written to the binary trace
+	 */
+	private static boolean isTextLogged(byte logLevel) {
+		return (traceWriter == null) || (logLevel >= LOGLEVEL_CONSOLE_BINARY_TRACE);
+	}
+	
+	/**
+	 * Build the textual representation of a message with attached data
+	 * 
+	 * @param message
+	 *            the message describing the data
+	 * @param data
+	 *            the data to be dumped
+	 * @return message followed by a hex dump of data
+	 */
+	static String dumpMessage(String message, byte[] data) {
+		return message + "\n" + HexString.dump(data);
+	}
+	
+	/**
+	 * Format the given arguments according to the format String. Arguments of
+	 * type byte[] are converted to their hexadecimal representation (see
+	 * {@link HexString#encode(byte[])}), all other arguments are handled as
+	 * described in {@link String#format(String, Object...)}.
+	 * 
+	 * @param format
+	 *            format string as accepted by {@link String#format(String, Object...)}
+	 * @param args
+	 *            arguments referenced by the format string
+	 * @return the formatted message
+	 */
+	static String formatMessage(String format, Object... args) {
+		for (int i = 0; i < args.length; i++) {
+			if (args[i] instanceof byte[]) {
+				args[i] = HexString.encode((byte[]) args[i]);
+			}
+		}
+		return String.format(format, args);
+	}
+
 	/*--------------------------------------------------------------------------------*/
 
 	/**
@@ -173,7 +821,20 @@ public class PersoSimLogger {
 	 *            log level on which the message is shown
 	 */
 	private static void log(String source, String message, byte logLevel) {
-		logPlain(String.format("%s: %s", source, message), logLevel);
+		if (isEnabled(logLevel)) {
+			TraceWriter writer = traceWriter;
+			if (writer != null) {
+				try {
+					writer.writeMessage(System.currentTimeMillis(), logLevel, source, message);
+				} catch (IOException e) {
+					handleTraceFailure(e);
+				}
+			}
+			
+			if (isTextLogged(logLevel)) {
+				logPlain(source + ": " + message, logLevel);
+			}
+		}
 	}
 	
 	/**
@@ -188,6 +849,10 @@ public class PersoSimLogger {
 	 *            log level on which the message is shown
 	 */
 	private static void logException(String source, Exception e, byte logLevel) {
+		if (!isEnabled(logLevel)) {
+			return;
+		}
+		
 		StringBuilder sb;
 
 		sb = new StringBuilder();
@@ -227,7 +892,65 @@ public class PersoSimLogger {
 		logException(className, e, LOGLEVEL_DFLT);
 	}
 
+	/**
+	 * Map the log level constants defined in this class to their log4j
+	 * counterpart.
+	 * 
+	 * @param logLevel
+	 *            one of the log level constants defined in this class
+	 * @return matching log4j {@link Level}
+	 */
+	private static Level toLog4jLevel(byte logLevel) {
+		switch (logLevel) {
+		case TRACE:
+			return Level.TRACE;
+		case DEBUG:
+			return Level.DEBUG;
+		case INFO:
+			return Level.INFO;
+		case WARN:
+			return Level.WARN;
+		case ERROR:
+			return Level.ERROR;
+		case FATAL:
+			return Level.FATAL;
+		default:
+			return Level.OFF;
+		}
+	}
+
+	/**
+	 * Map the log level constants defined in this class to the log4j level
+	 * used for single log events.
+	 * 
+	 * @param logLevel
+	 *            one of the log level constants defined in this class
+	 * @return matching log4j {@link Level}
+	 */
+	static Level toLog4jEventLevel(byte logLevel) {
+		switch (logLevel) {
+		case TRACE:
+			return Level.TRACE;
+		case INFO:
+			return Level.INFO;
+		case WARN:
+			return Level.WARN;
+		case ERROR:
+			return Level.ERROR;
+		case FATAL:
+			return Level.FATAL;
+		default:
+			return Level.DEBUG;
+		}
+	}
+
 	private static void logPlain(String message, byte logLevel) {
+		AsyncLogWriter writer = asyncLogWriter;
+		if (writer != null) {
+			writer.publish(System.currentTimeMillis(), logLevel, message, getContextId());
+			return;
+		}
+		
 		if (logger != null) {
 			switch (logLevel) {
 			case TRACE:
@@ -254,4 +977,60 @@ public class PersoSimLogger {
 			}
 		}
 	}
+	
+	/**
+	 * {@link FileAppender} that buffers its output until it is explicitly
+	 * flushed, used by asynchronous logging to write batches of messages.
+	 */
+	private static class BufferedFileAppender extends FileAppender implements Flushable {
+		
+		public BufferedFileAppender(Layout layout, String fileName) throws IOException {
+			super(layout, fileName, false, true, ASYNC_FILE_BUFFER_SIZE);
+		}
+		
+		@Override
+		public void flush() {
+			if (qw != null) {
+				qw.flush();
+			}
+		}
+		
+	}
+	
+	/**
+	 * Forwards the log messages written by the {@link AsyncLogWriter} to the
+	 * log4j appenders of the logger.
+	 */
+	private static class Log4jSink implements LogEventSink {
+		
+		private Logger sinkLogger;
+		private Flushable fileAppender;
+		
+		public Log4jSink(Logger logger, Flushable fileAppender) {
+			this.sinkLogger = logger;
+			this.fileAppender = fileAppender;
+		}
+
+		@Override
+		public void write(long timestamp, byte logLevel, String message, String contextId) {
+			// the MDC of the writer thread does not reflect the publishing
+			// thread, thus the context id is always attached to the event
+			// explicitly
+			if (contextId == null) {
+				contextId = SessionRoutingAppender.DEFAULT_CONTEXT;
+			}
+			Map<String, String> properties = Collections.singletonMap(SessionRoutingAppender.MDC_CONTEXT_KEY, contextId);
+			sinkLogger.callAppenders(new LoggingEvent(PersoSimLogger.class.getName(), sinkLogger, timestamp, toLog4jEventLevel(logLevel), message, Thread.currentThread().getName(), null, null, null, properties));
+		}
+
+		@Override
+		public void flush() {
+			try {
+				fileAppender.flush();
+			} catch (IOException e) {
+				// messages remain buffered and are written with the next batch
+			}
+		}
+		
+	}
 }
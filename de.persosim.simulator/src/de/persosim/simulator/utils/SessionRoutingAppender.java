@@ -0,0 +1,281 @@
+package de.persosim.simulator.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * log4j appender that routes log events into separate files per context id
+ * (e.g. per card or connection) and keeps the disk usage bounded.
+ * <p/>
+ * The context id is taken from the log4j MDC entry {@link #MDC_CONTEXT_KEY}
+ * of each event, see {@link PersoSimLogger#setContextId(String)}. Events
+ * without context id are written to the context {@link #DEFAULT_CONTEXT}.
+ * <p/>
+ * Each context is written to <code>&lt;prefix&gt;&lt;context&gt;.log</code>.
+ * This file is rotated when it exceeds the configured maximum size or age,
+ * the rotated file is renamed to
+ * <code>&lt;prefix&gt;&lt;context&gt;_&lt;timestamp&gt;.log</code>. Whenever a
+ * context file is created only the configured number of files besides the
+ * open ones is retained within the log directory, oldest files are deleted
+ * first. Only rotated files and context files created by this appender are
+ * deleted, other files within the log directory (e.g. log files written
+ * without per session logging) are left untouched. The number of
+ * simultaneously open files is limited as well, files of the least recently
+ * used contexts are closed.
+ *
+ */
+public class SessionRoutingAppender extends AppenderSkeleton implements Flushable {
+
+	public static final String MDC_CONTEXT_KEY = "context";
+	public static final String DEFAULT_CONTEXT = "main";
+	public static final String FILE_PREFIX = "PersoSim_";
+	public static final String FILE_SUFFIX = ".log";
+
+	static final int MAX_OPEN_FILES = 16;
+	private static final String ROTATION_TIMESTAMP_FORMAT = "yyyyMMddHHmmssSSS";
+	private static final Pattern ROTATED_FILE_NAME = Pattern.compile(Pattern.quote(FILE_PREFIX) + "[A-Za-z0-9_\\-]+_[0-9]{17}(-[0-9]+)?" + Pattern.quote(FILE_SUFFIX));
+
+	private File directory;
+	private long maxFileSize;
+	private long maxFileAge;
+	private int maxRetainedFiles;
+	private boolean immediateFlush = true;
+	
+	/* context files created by this appender that have not been rotated or deleted yet */
+	private HashSet<File> createdFiles = new HashSet<>();
+
+	private LinkedHashMap<String, ContextFile> openFiles = new LinkedHashMap<String, ContextFile>(MAX_OPEN_FILES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ContextFile> eldest) {
+			if (size() > MAX_OPEN_FILES) {
+				eldest.getValue().close();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Active log file of a single context
+	 */
+	private class ContextFile {
+		File file;
+		OutputStream out;
+		long size;
+		long openedAt;
+
+		ContextFile(File file) throws IOException {
+			this.file = file;
+			out = new BufferedOutputStream(new FileOutputStream(file, true));
+			size = file.length();
+			openedAt = System.currentTimeMillis();
+		}
+
+		boolean needsRotation(long now) {
+			return ((maxFileSize > 0) && (size >= maxFileSize)) || ((maxFileAge > 0) && (now - openedAt >= maxFileAge));
+		}
+
+		void write(String text) throws IOException {
+			byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+			out.write(encoded);
+			size += encoded.length;
+		}
+
+		void close() {
+			try {
+				out.close();
+			} catch (IOException e) {
+				errorHandler.error("unable to close log file " + file, e, ErrorCode.CLOSE_FAILURE);
+			}
+		}
+	}
+
+	/**
+	 * Create a new appender.
+	 *
+	 * @param layout
+	 *            layout of the written events
+	 * @param directory
+	 *            directory all log files are written to
+	 * @param maxFileSize
+	 *            size in bytes after which a file is rotated, 0 disables
+	 *            size based rotation
+	 * @param maxFileAge
+	 *            age in milliseconds after which a file is rotated, 0
+	 *            disables time based rotation
+	 * @param maxRetainedFiles
+	 *            maximum number of rotated files kept within the log
+	 *            directory
+	 */
+	public SessionRoutingAppender(Layout layout, File directory, long maxFileSize, long maxFileAge, int maxRetainedFiles) {
+		if (maxRetainedFiles < 0) {throw new IllegalArgumentException("number of retained files must not be negative");}
+
+		this.layout = layout;
+		this.directory = directory;
+		this.maxFileSize = maxFileSize;
+		this.maxFileAge = maxFileAge;
+		this.maxRetainedFiles = maxRetainedFiles;
+
+		directory.mkdirs();
+	}
+
+	/**
+	 * @param immediateFlush
+	 *            true if every event is flushed immediately, false if events
+	 *            are buffered until {@link #flush()} is called
+	 */
+	public void setImmediateFlush(boolean immediateFlush) {
+		this.immediateFlush = immediateFlush;
+	}
+
+	@Override
+	protected void append(LoggingEvent event) {
+		Object contextId = event.getMDC(MDC_CONTEXT_KEY);
+		String context = (contextId != null) ? contextId.toString() : DEFAULT_CONTEXT;
+
+		try {
+			ContextFile contextFile = openFiles.get(context);
+			if (contextFile == null) {
+				contextFile = openContextFile(context);
+			} else if (contextFile.needsRotation(event.getTimeStamp())) {
+				openFiles.remove(context);
+				contextFile.close();
+				contextFile = openContextFile(context);
+			}
+
+			contextFile.write(layout.format(event));
+			if (immediateFlush) {
+				contextFile.out.flush();
+			}
+		} catch (IOException e) {
+			errorHandler.error("unable to write log file for context " + context, e, ErrorCode.WRITE_FAILURE);
+		}
+	}
+
+	/**
+	 * Open the active file of the given context. An existing file (e.g. from
+	 * a previous run) is rotated first. Afterwards the number of retained files
+	 * is enforced.
+	 */
+	private ContextFile openContextFile(String context) throws IOException {
+		String fileContext = context.replaceAll("[^A-Za-z0-9_\\-]", "_");
+		File file = new File(directory, FILE_PREFIX + fileContext + FILE_SUFFIX);
+
+		if (file.exists()) {
+			String timestamp = new SimpleDateFormat(ROTATION_TIMESTAMP_FORMAT).format(new Date(file.lastModified()));
+			File rotatedFile = new File(directory, FILE_PREFIX + fileContext + "_" + timestamp + FILE_SUFFIX);
+			for (int i = 1; rotatedFile.exists(); i++) {
+				rotatedFile = new File(directory, FILE_PREFIX + fileContext + "_" + timestamp + "-" + i + FILE_SUFFIX);
+			}
+			if (!file.renameTo(rotatedFile)) {
+				errorHandler.error("unable to rotate log file " + file);
+			}
+		}
+
+		ContextFile contextFile = new ContextFile(file);
+		createdFiles.add(file);
+		openFiles.put(context, contextFile);
+		enforceRetention();
+		return contextFile;
+	}
+
+	/**
+	 * Delete the oldest log files within the log directory until at most
+	 * maxRetainedFiles files remain besides the currently open ones. Only
+	 * rotated files and context files created by this appender are
+	 * considered.
+	 */
+	private void enforceRetention() {
+		File[] logFiles = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return ROTATED_FILE_NAME.matcher(name).matches() || createdFiles.contains(new File(dir, name));
+			}
+		});
+		if (logFiles == null) {
+			return;
+		}
+
+		Arrays.sort(logFiles, new Comparator<File>() {
+			@Override
+			public int compare(File file1, File file2) {
+				return Long.compare(file1.lastModified(), file2.lastModified());
+			}
+		});
+
+		int retainedFiles = logFiles.length;
+		for (ContextFile curOpenFile : openFiles.values()) {
+			if (curOpenFile.file.exists()) {
+				retainedFiles--;
+			}
+		}
+
+		for (int i = 0; (i < logFiles.length) && (retainedFiles > maxRetainedFiles); i++) {
+			if (!isOpen(logFiles[i])) {
+				if (logFiles[i].delete()) {
+					createdFiles.remove(logFiles[i]);
+					retainedFiles--;
+				}
+			}
+		}
+	}
+
+	private boolean isOpen(File file) {
+		for (ContextFile curOpenFile : openFiles.values()) {
+			if (curOpenFile.file.equals(file)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized void flush() {
+		for (ContextFile curFile : openFiles.values()) {
+			try {
+				curFile.out.flush();
+			} catch (IOException e) {
+				errorHandler.error("unable to flush log file " + curFile.file, e, ErrorCode.FLUSH_FAILURE);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+
+		Iterator<ContextFile> iterator = openFiles.values().iterator();
+		while (iterator.hasNext()) {
+			iterator.next().close();
+			iterator.remove();
+		}
+	}
+
+	@Override
+	public boolean requiresLayout() {
+		return true;
+	}
+
+}
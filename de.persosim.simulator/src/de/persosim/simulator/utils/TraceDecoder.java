@@ -0,0 +1,253 @@
+package de.persosim.simulator.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.apache.log4j.Layout;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Offline decoder for binary traces written by {@link TraceWriter}.
+ * <p/>
+ * The trace is rendered either to the textual format also used for the
+ * PersoSim log files or to JSON (one object per line).
+ * <p/>
+ * Usage: <code>TraceDecoder [-json] &lt;traceFile&gt;</code>
+ *
+ */
+public class TraceDecoder {
+
+	public static final String ARG_JSON = "-json";
+
+	/**
+	 * Maximum length of a single string or byte array in a trace, larger
+	 * length fields are considered corrupt instead of allocating the buffer
+	 */
+	public static final int MAX_ELEMENT_LENGTH = 16 * 1024 * 1024;
+
+	private DataInputStream in;
+	private PrintStream out;
+	private boolean json;
+
+	private HashMap<Integer, String> sources = new HashMap<>();
+	private Layout layout = new PatternLayout(PersoSimLogger.LOG_PATTERN);
+	private Logger eventLogger = Logger.getLogger(TraceDecoder.class);
+
+	/**
+	 * Create a new decoder.
+	 *
+	 * @param in
+	 *            stream providing the binary trace
+	 * @param out
+	 *            stream receiving the rendered trace
+	 * @param json
+	 *            true if events are to be rendered as JSON, false to render
+	 *            them in the textual log format
+	 */
+	public TraceDecoder(InputStream in, PrintStream out, boolean json) {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.out = out;
+		this.json = json;
+	}
+
+	public static void main(String[] args) {
+		boolean json = false;
+		String fileName = null;
+
+		for (String curArg : args) {
+			if (curArg.equals(ARG_JSON)) {
+				json = true;
+			} else {
+				fileName = curArg;
+			}
+		}
+
+		if (fileName == null) {
+			System.err.println("Usage: TraceDecoder [" + ARG_JSON + "] <traceFile>");
+			System.exit(1);
+		}
+
+		try (InputStream traceStream = new FileInputStream(fileName)) {
+			new TraceDecoder(traceStream, System.out, json).decode();
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Unable to decode trace " + fileName + ": " + e.getMessage());
+			System.exit(1);
+		}
+		System.out.flush();
+	}
+
+	/**
+	 * Decode the complete trace.
+	 *
+	 * @throws IOException
+	 *             if reading the trace fails
+	 * @throws IllegalArgumentException
+	 *             if the input is not a valid trace
+	 */
+	public void decode() throws IOException {
+		byte[] magic = new byte[TraceWriter.MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(magic, TraceWriter.MAGIC)) {
+			throw new IllegalArgumentException("input is not a PersoSim trace");
+		}
+
+		byte version = in.readByte();
+		if (version != TraceWriter.VERSION) {
+			throw new IllegalArgumentException("unsupported trace version " + version);
+		}
+
+		while (true) {
+			int recordType = in.read();
+			if (recordType < 0) {
+				// regular end of trace
+				return;
+			}
+
+			try {
+				decodeRecord((byte) recordType);
+			} catch (EOFException e) {
+				System.err.println("trace is truncated, last record incomplete");
+				return;
+			}
+		}
+	}
+
+	private void decodeRecord(byte recordType) throws IOException {
+		if (recordType == TraceWriter.RECORD_SOURCE) {
+			int sourceId = in.readInt();
+			sources.put(sourceId, readString());
+			return;
+		}
+
+		long timestamp = in.readLong();
+		byte logLevel = in.readByte();
+		String source = sources.get(in.readInt());
+
+		switch (recordType) {
+		case TraceWriter.RECORD_MESSAGE:
+			writeEvent(timestamp, logLevel, source, readString(), null);
+			break;
+		case TraceWriter.RECORD_FORMATTED:
+			String format = readString();
+			Object[] args = new Object[in.readUnsignedByte()];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = readArgument();
+			}
+			writeEvent(timestamp, logLevel, source, PersoSimLogger.formatMessage(format, args), null);
+			break;
+		case TraceWriter.RECORD_DATA:
+			String message = readString();
+			writeEvent(timestamp, logLevel, source, message, readBytes());
+			break;
+		default:
+			throw new IllegalArgumentException("unknown record type " + recordType);
+		}
+	}
+
+	private Object readArgument() throws IOException {
+		byte argType = in.readByte();
+		switch (argType) {
+		case TraceWriter.ARG_NULL:
+			return null;
+		case TraceWriter.ARG_STRING:
+			return readString();
+		case TraceWriter.ARG_BYTES:
+			return readBytes();
+		case TraceWriter.ARG_BYTE:
+			return in.readByte();
+		case TraceWriter.ARG_SHORT:
+			return in.readShort();
+		case TraceWriter.ARG_INT:
+			return in.readInt();
+		case TraceWriter.ARG_LONG:
+			return in.readLong();
+		default:
+			throw new IllegalArgumentException("unknown argument type " + argType);
+		}
+	}
+
+	private void writeEvent(long timestamp, byte logLevel, String source, String message, byte[] data) {
+		if (json) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("{\"timestamp\":").append(timestamp);
+			sb.append(",\"level\":\"").append(PersoSimLogger.toLog4jEventLevel(logLevel)).append('"');
+			sb.append(",\"source\":");
+			appendJsonString(sb, source);
+			sb.append(",\"message\":");
+			appendJsonString(sb, message);
+			if (data != null) {
+				sb.append(",\"data\":\"").append(HexString.encode(data)).append('"');
+			}
+			sb.append('}');
+			out.println(sb.toString());
+		} else {
+			if (data != null) {
+				message = PersoSimLogger.dumpMessage(message, data);
+			}
+			LoggingEvent event = new LoggingEvent(PersoSimLogger.class.getName(), eventLogger, timestamp,
+					PersoSimLogger.toLog4jEventLevel(logLevel), source + ": " + message, null);
+			out.print(layout.format(event));
+		}
+	}
+
+	private static void appendJsonString(StringBuilder sb, String string) {
+		if (string == null) {
+			sb.append("null");
+			return;
+		}
+
+		sb.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+	}
+
+	private String readString() throws IOException {
+		return new String(readBytes(), StandardCharsets.UTF_8);
+	}
+
+	private byte[] readBytes() throws IOException {
+		int length = in.readInt();
+		if ((length < 0) || (length > MAX_ELEMENT_LENGTH)) {
+			throw new IllegalArgumentException("invalid length " + length);
+		}
+		byte[] data = new byte[length];
+		in.readFully(data);
+		return data;
+	}
+
+}
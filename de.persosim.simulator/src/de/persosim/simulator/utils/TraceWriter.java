@@ -0,0 +1,227 @@
+package de.persosim.simulator.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Writes log events in a compact binary trace format. In contrast to the
+ * textual log, message arguments and data payloads are stored as raw bytes,
+ * thus no hex conversion or message formatting is needed while writing. The
+ * {@link TraceDecoder} renders a trace back to the human readable log format.
+ * <p/>
+ * All numbers are stored big endian. A trace starts with the
+ * {@link #MAGIC} bytes followed by the {@link #VERSION} byte. Afterwards
+ * records follow, each starting with its record type:
+ * <ul>
+ * <li>{@link #RECORD_SOURCE}: int sourceId, string name</li>
+ * <li>{@link #RECORD_MESSAGE}: long timestamp, byte level, int sourceId,
+ * string message</li>
+ * <li>{@link #RECORD_FORMATTED}: long timestamp, byte level, int sourceId,
+ * string format, byte argCount, argCount times (byte argType, value)</li>
+ * <li>{@link #RECORD_DATA}: long timestamp, byte level, int sourceId, string
+ * message, bytes data</li>
+ * </ul>
+ * Strings are stored as int length followed by their UTF-8 encoding, byte
+ * arrays as int length followed by the raw bytes. Integral arguments of
+ * formatted events keep their type in order to be formatted identically,
+ * all other arguments are stored as their String representation. Source
+ * names are written only once, all following events reference them by their
+ * id.
+ *
+ */
+public class TraceWriter implements Closeable {
+
+	public static final byte[] MAGIC = new byte[] { 'P', 'S', 'T', 'R' };
+	public static final byte VERSION = 1;
+
+	public static final byte RECORD_SOURCE = 0x01;
+	public static final byte RECORD_MESSAGE = 0x02;
+	public static final byte RECORD_FORMATTED = 0x03;
+	public static final byte RECORD_DATA = 0x04;
+
+	public static final byte ARG_NULL = 0x00;
+	public static final byte ARG_STRING = 0x01;
+	public static final byte ARG_BYTES = 0x02;
+	public static final byte ARG_BYTE = 0x03;
+	public static final byte ARG_SHORT = 0x04;
+	public static final byte ARG_INT = 0x05;
+	public static final byte ARG_LONG = 0x06;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private DataOutputStream out;
+	private HashMap<String, Integer> sourceIds = new HashMap<>();
+
+	/**
+	 * Create a new trace file, an existing file is overwritten.
+	 *
+	 * @param fileName
+	 *            name of the trace file
+	 * @throws IOException
+	 */
+	public TraceWriter(String fileName) throws IOException {
+		this(new FileOutputStream(fileName));
+	}
+
+	/**
+	 * Write a new trace to the given stream.
+	 *
+	 * @param stream
+	 *            stream receiving the trace, closed by {@link #close()}
+	 * @throws IOException
+	 */
+	public TraceWriter(OutputStream stream) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+	}
+
+	/**
+	 * Write a plain message event.
+	 *
+	 * @param timestamp
+	 *            time of the event in milliseconds
+	 * @param logLevel
+	 *            log level as defined in {@link PersoSimLogger}
+	 * @param source
+	 *            origin of the event
+	 * @param message
+	 *            the message
+	 * @throws IOException
+	 */
+	public synchronized void writeMessage(long timestamp, byte logLevel, String source, String message) throws IOException {
+		int sourceId = getSourceId(source);
+		out.writeByte(RECORD_MESSAGE);
+		writeEventHeader(timestamp, logLevel, sourceId);
+		writeString(message);
+	}
+
+	/**
+	 * Write an event consisting of a format string and its unformatted
+	 * arguments. Arguments of type byte[] are stored as raw bytes, integral
+	 * numbers with their original type and all others as their String
+	 * representation.
+	 *
+	 * @param timestamp
+	 *            time of the event in milliseconds
+	 * @param logLevel
+	 *            log level as defined in {@link PersoSimLogger}
+	 * @param source
+	 *            origin of the event
+	 * @param format
+	 *            format string as accepted by
+	 *            {@link String#format(String, Object...)}
+	 * @param args
+	 *            arguments referenced by the format string
+	 * @throws IOException
+	 */
+	public synchronized void writeFormatted(long timestamp, byte logLevel, String source, String format, Object... args) throws IOException {
+		if (args.length > 0xFF) {throw new IllegalArgumentException("too many arguments");}
+
+		int sourceId = getSourceId(source);
+		out.writeByte(RECORD_FORMATTED);
+		writeEventHeader(timestamp, logLevel, sourceId);
+		writeString(format);
+		out.writeByte(args.length);
+
+		for (Object curArg : args) {
+			if (curArg == null) {
+				out.writeByte(ARG_NULL);
+			} else if (curArg instanceof byte[]) {
+				out.writeByte(ARG_BYTES);
+				writeBytes((byte[]) curArg);
+			} else if (curArg instanceof Byte) {
+				out.writeByte(ARG_BYTE);
+				out.writeByte((Byte) curArg);
+			} else if (curArg instanceof Short) {
+				out.writeByte(ARG_SHORT);
+				out.writeShort((Short) curArg);
+			} else if (curArg instanceof Integer) {
+				out.writeByte(ARG_INT);
+				out.writeInt((Integer) curArg);
+			} else if (curArg instanceof Long) {
+				out.writeByte(ARG_LONG);
+				out.writeLong((Long) curArg);
+			} else {
+				out.writeByte(ARG_STRING);
+				writeString(curArg.toString());
+			}
+		}
+	}
+
+	/**
+	 * Write an event consisting of a message and a raw data payload.
+	 *
+	 * @param timestamp
+	 *            time of the event in milliseconds
+	 * @param logLevel
+	 *            log level as defined in {@link PersoSimLogger}
+	 * @param source
+	 *            origin of the event
+	 * @param message
+	 *            the message describing the data
+	 * @param data
+	 *            raw data
+	 * @throws IOException
+	 */
+	public synchronized void writeData(long timestamp, byte logLevel, String source, String message, byte[] data) throws IOException {
+		int sourceId = getSourceId(source);
+		out.writeByte(RECORD_DATA);
+		writeEventHeader(timestamp, logLevel, sourceId);
+		writeString(message);
+		writeBytes(data);
+	}
+
+	/**
+	 * Flush all buffered records to the underlying stream.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Return the id for the given source, a {@link #RECORD_SOURCE} is written
+	 * if the source is encountered for the first time.
+	 */
+	private int getSourceId(String source) throws IOException {
+		Integer sourceId = sourceIds.get(source);
+		if (sourceId == null) {
+			sourceId = sourceIds.size();
+			sourceIds.put(source, sourceId);
+
+			out.writeByte(RECORD_SOURCE);
+			out.writeInt(sourceId);
+			writeString(source);
+		}
+		return sourceId;
+	}
+
+	private void writeEventHeader(long timestamp, byte logLevel, int sourceId) throws IOException {
+		out.writeLong(timestamp);
+		out.writeByte(logLevel);
+		out.writeInt(sourceId);
+	}
+
+	private void writeString(String string) throws IOException {
+		writeBytes(string.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void writeBytes(byte[] data) throws IOException {
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+}